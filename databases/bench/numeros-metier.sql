@@ -0,0 +1,66 @@
+-- Banc d'essai : numéros métier horodatage+UUID contre numéros séquentiels
+--
+-- Compare, pour un même nombre d'insertions, la durée d'insertion et la taille
+-- de l'index unique entre :
+--   - l'ancien format  : préfixe + millisecondes + 8 caractères d'UUID (AE1767225600000A1B2C3D4)
+--   - le nouveau format : préfixe-année-province-compteur (AE-2026-EST-0001234)
+--
+-- Utilisation (base de test, les tables sont temporaires) :
+--   psql -d auto_ecole_db -v lignes=1000000 -f databases/bench/numeros-metier.sql
+
+\set ON_ERROR_STOP on
+\if :{?lignes}
+\else
+\set lignes 1000000
+\endif
+\timing on
+
+CREATE TEMP TABLE bench_ancien (
+    id BIGSERIAL PRIMARY KEY,
+    numero VARCHAR(100) UNIQUE
+);
+
+CREATE TEMP TABLE bench_nouveau (
+    id BIGSERIAL PRIMARY KEY,
+    numero VARCHAR(100) UNIQUE
+);
+
+-- Ancien format : clés de 23 caractères, unicité seulement probabiliste (UUID tronqué)
+\echo '--- Insertion, ancien format (horodatage + UUID) ---'
+INSERT INTO bench_ancien (numero)
+SELECT 'AE' || (extract(epoch FROM clock_timestamp()) * 1000)::bigint
+            || upper(substr(md5(random()::text), 1, 8))
+FROM generate_series(1, :lignes);
+
+-- Nouveau format : compteur croissant, neuf points d'insertion (un par province)
+\echo '--- Insertion, nouveau format (compteur par blocs) ---'
+INSERT INTO bench_nouveau (numero)
+SELECT 'AE-2026-'
+       || (ARRAY['EST','HOG','MOG','NGO','NYA','OIV','OLO','OMA','WNT'])[1 + (g % 9)]
+       || '-' || lpad(g::text, 7, '0')
+FROM generate_series(1, :lignes) AS g;
+
+\timing off
+
+\echo '--- Taille des index uniques ---'
+SELECT 'ancien' AS format,
+       pg_size_pretty(pg_relation_size('bench_ancien_numero_key')) AS taille_index,
+       avg(length(numero))::numeric(5, 1) AS longueur_moyenne
+FROM bench_ancien
+UNION ALL
+SELECT 'nouveau',
+       pg_size_pretty(pg_relation_size('bench_nouveau_numero_key')),
+       avg(length(numero))::numeric(5, 1)
+FROM bench_nouveau;
+
+-- Taux de remplissage des feuilles (nécessite l'extension pgstattuple)
+\echo '--- Densité des feuilles (pgstattuple) ---'
+CREATE EXTENSION IF NOT EXISTS pgstattuple;
+SELECT 'ancien' AS format, avg_leaf_density, leaf_fragmentation
+FROM pgstatindex('bench_ancien_numero_key')
+UNION ALL
+SELECT 'nouveau', avg_leaf_density, leaf_fragmentation
+FROM pgstatindex('bench_nouveau_numero_key');
+
+DROP TABLE bench_ancien;
+DROP TABLE bench_nouveau;
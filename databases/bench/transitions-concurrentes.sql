@@ -0,0 +1,44 @@
+-- Banc d'essai : transitions de statut concurrentes, verrou pessimiste contre version optimiste
+--
+-- Des clients nombreux font avancer le statut de quelques lignes très
+-- sollicitées. Chaque transition lit la ligne, simule un traitement (:traitement
+-- millisecondes) puis écrit :
+--   - transitions-verrou.sql  : SELECT ... FOR UPDATE, la ligne reste verrouillée
+--                               pendant le traitement (les autres clients attendent)
+--   - transitions-version.sql : lecture sans verrou, écriture conditionnée par la
+--                               version lue (UPDATE ... WHERE version = :version) ;
+--                               une écriture sans effet est un conflit, que le
+--                               service rejoue après relecture
+--
+-- Utilisation (base de test) ; la table est recréée à chaque préparation :
+--   psql -d auto_ecole_db -v lignes=10 -f databases/bench/transitions-concurrentes.sql
+--   pgbench -n -c 32 -j 8 -T 30 -D lignes=10 -D traitement=2 \
+--           -f databases/bench/transitions-verrou.sql auto_ecole_db
+--   psql -d auto_ecole_db -v bilan=1 -f databases/bench/transitions-concurrentes.sql
+-- puis de même avec transitions-version.sql. pgbench donne le débit et la
+-- latence ; le bilan compare les transitions appliquées (somme des versions)
+-- aux transactions exécutées (à reporter depuis la sortie de pgbench).
+
+\set ON_ERROR_STOP on
+\if :{?lignes}
+\else
+\set lignes 10
+\endif
+
+\if :{?bilan}
+\echo '--- Transitions appliquées ---'
+SELECT count(*) AS lignes,
+       sum(version) AS transitions_appliquees,
+       max(version) - min(version) AS ecart_entre_lignes
+FROM bench_transitions;
+\echo 'Conflits (version) = transactions pgbench - transitions appliquées'
+\else
+DROP TABLE IF EXISTS bench_transitions;
+CREATE TABLE bench_transitions (
+    id BIGINT PRIMARY KEY,
+    etape INTEGER NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0
+);
+INSERT INTO bench_transitions (id) SELECT g FROM generate_series(1, :lignes) AS g;
+VACUUM ANALYZE bench_transitions;
+\endif
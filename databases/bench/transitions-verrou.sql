@@ -0,0 +1,7 @@
+-- Transition sous verrou pessimiste (voir transitions-concurrentes.sql)
+\set id random(1, :lignes)
+BEGIN;
+SELECT etape FROM bench_transitions WHERE id = :id FOR UPDATE \gset
+\sleep :traitement ms
+UPDATE bench_transitions SET etape = (:etape + 1) % 4, version = version + 1 WHERE id = :id;
+END;
@@ -0,0 +1,6 @@
+-- Transition versionnée, sans verrou (voir transitions-concurrentes.sql)
+\set id random(1, :lignes)
+SELECT etape, version FROM bench_transitions WHERE id = :id \gset
+\sleep :traitement ms
+UPDATE bench_transitions SET etape = (:etape + 1) % 4, version = version + 1
+WHERE id = :id AND version = :version;
@@ -13,6 +13,24 @@ CREATE EXTENSION IF NOT EXISTS "uuid-ossp";
 -- Créer l'extension pour les fonctions de hachage
 CREATE EXTENSION IF NOT EXISTS "pgcrypto";
 
+-- Créer les extensions pour la recherche (trigrammes, suppression des accents)
+CREATE EXTENSION IF NOT EXISTS "pg_trgm";
+CREATE EXTENSION IF NOT EXISTS "unaccent";
+
+-- Forme normalisée d'un texte pour la recherche : minuscules, sans accents.
+-- unaccent() n'est que STABLE ; le dictionnaire explicite permet de déclarer
+-- ces fonctions IMMUTABLE et de les utiliser dans des index d'expression.
+CREATE OR REPLACE FUNCTION normaliser_recherche(texte TEXT)
+RETURNS TEXT AS $$
+    SELECT lower(public.unaccent('public.unaccent'::regdictionary, coalesce(texte, '')));
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
+CREATE OR REPLACE FUNCTION normaliser_recherche(nom TEXT, prenom TEXT)
+RETURNS TEXT AS $$
+    SELECT lower(public.unaccent('public.unaccent'::regdictionary,
+                                 coalesce(nom, '') || ' ' || coalesce(prenom, '')));
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
 -- Table des auto-écoles
 CREATE TABLE IF NOT EXISTS auto_ecoles (
     id BIGSERIAL PRIMARY KEY,
@@ -33,13 +51,15 @@ CREATE TABLE IF NOT EXISTS auto_ecoles (
     autorisation_provisoire VARCHAR(100),
     date_autorisation TIMESTAMP,
     date_expiration_autorisation TIMESTAMP,
+    date_rappel_autorisation TIMESTAMP,
     rapport_inspection TEXT,
     date_inspection TIMESTAMP,
     inspecteur_nom VARCHAR(255),
     inspecteur_prenom VARCHAR(255),
     notes TEXT,
     date_creation TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    date_modification TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    date_modification TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0
 );
 
 -- Table des candidats
@@ -65,6 +85,7 @@ CREATE TABLE IF NOT EXISTS candidats (
     notes TEXT,
     date_creation TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     date_modification TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,
     auto_ecole_id BIGINT NOT NULL REFERENCES auto_ecoles(id) ON DELETE CASCADE
 );
 
@@ -126,9 +147,10 @@ CREATE TABLE IF NOT EXISTS documents_candidat (
     date_modification TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
--- Table des logs d'audit
+-- Table des logs d'audit, partitionnée par mois sur date_creation
+-- (la rétention supprime des partitions entières au lieu de DELETE massifs)
 CREATE TABLE IF NOT EXISTS audit_logs (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGSERIAL,
     entite VARCHAR(100) NOT NULL,
     entite_id BIGINT,
     action VARCHAR(100) NOT NULL,
@@ -142,7 +164,91 @@ CREATE TABLE IF NOT EXISTS audit_logs (
     niveau_securite VARCHAR(50) DEFAULT 'INFO',
     date_creation TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     auto_ecole_id BIGINT REFERENCES auto_ecoles(id) ON DELETE SET NULL,
-    candidat_id BIGINT REFERENCES candidats(id) ON DELETE SET NULL
+    candidat_id BIGINT REFERENCES candidats(id) ON DELETE SET NULL,
+    PRIMARY KEY (id, date_creation)
+) PARTITION BY RANGE (date_creation);
+
+-- Partitions mensuelles des logs d'audit
+-- creer_partitions_audit_logs : crée les partitions manquantes du mois de "depuis"
+-- jusqu'au mois courant + "mois_avance" (appelée au démarrage et chaque jour par le service)
+CREATE OR REPLACE FUNCTION creer_partitions_audit_logs(depuis DATE DEFAULT CURRENT_DATE,
+                                                       mois_avance INTEGER DEFAULT 3)
+RETURNS INTEGER AS $$
+DECLARE
+    debut DATE := date_trunc('month', depuis)::date;
+    fin DATE := (date_trunc('month', CURRENT_DATE) + make_interval(months => mois_avance))::date;
+    nom TEXT;
+    crees INTEGER := 0;
+BEGIN
+    WHILE debut <= fin LOOP
+        nom := 'audit_logs_' || to_char(debut, 'YYYY_MM');
+        IF to_regclass(nom) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF audit_logs FOR VALUES FROM (%L) TO (%L)',
+                           nom, debut, (debut + INTERVAL '1 month')::date);
+            crees := crees + 1;
+        END IF;
+        debut := (debut + INTERVAL '1 month')::date;
+    END LOOP;
+    RETURN crees;
+END;
+$$ LANGUAGE plpgsql;
+
+-- supprimer_partitions_audit_logs : détache les partitions entièrement antérieures
+-- à date_limite, puis les supprime (ou les conserve comme tables d'archive)
+CREATE OR REPLACE FUNCTION supprimer_partitions_audit_logs(date_limite DATE,
+                                                           supprimer BOOLEAN DEFAULT TRUE)
+RETURNS INTEGER AS $$
+DECLARE
+    partition RECORD;
+    traitees INTEGER := 0;
+BEGIN
+    FOR partition IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'audit_logs'::regclass
+          AND c.relname ~ '^audit_logs_[0-9]{4}_[0-9]{2}$'
+    LOOP
+        IF (to_date(substring(partition.relname FROM 12), 'YYYY_MM') + INTERVAL '1 month')::date <= date_limite THEN
+            EXECUTE format('ALTER TABLE audit_logs DETACH PARTITION %I', partition.relname);
+            IF supprimer THEN
+                EXECUTE format('DROP TABLE %I', partition.relname);
+            END IF;
+            traitees := traitees + 1;
+        END IF;
+    END LOOP;
+    RETURN traitees;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT creer_partitions_audit_logs();
+
+-- Table de la file d'envoi des notifications (transactional outbox)
+CREATE TABLE IF NOT EXISTS notifications_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    canal VARCHAR(20) NOT NULL CHECK (canal IN ('EMAIL', 'SMS')),
+    destinataire VARCHAR(255) NOT NULL,
+    sujet VARCHAR(255),
+    contenu TEXT NOT NULL,
+    statut VARCHAR(20) NOT NULL DEFAULT 'EN_ATTENTE',
+    tentatives INTEGER NOT NULL DEFAULT 0,
+    prochaine_tentative TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    date_reservation TIMESTAMP,
+    date_envoi TIMESTAMP,
+    derniere_erreur VARCHAR(1000),
+    date_creation TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Compteurs des numéros métier (blocs loués par les instances du service)
+CREATE TABLE IF NOT EXISTS sequences_numeros (
+    nom VARCHAR(20) PRIMARY KEY,
+    prochaine_valeur BIGINT NOT NULL DEFAULT 1
+);
+
+-- Points de reprise des traitements planifiés (échéancier des autorisations)
+CREATE TABLE IF NOT EXISTS points_reprise (
+    nom VARCHAR(50) PRIMARY KEY,
+    instant_traite TIMESTAMP NOT NULL
 );
 
 -- Index pour améliorer les performances
@@ -152,7 +258,11 @@ CREATE INDEX IF NOT EXISTS idx_auto_ecoles_telephone ON auto_ecoles(telephone);
 CREATE INDEX IF NOT EXISTS idx_auto_ecoles_numero_demande ON auto_ecoles(numero_demande);
 CREATE INDEX IF NOT EXISTS idx_auto_ecoles_ville ON auto_ecoles(ville);
 CREATE INDEX IF NOT EXISTS idx_auto_ecoles_province ON auto_ecoles(province);
-CREATE INDEX IF NOT EXISTS idx_auto_ecoles_date_creation ON auto_ecoles(date_creation);
+-- (date_creation, id) : clé de la pagination par curseur
+CREATE INDEX IF NOT EXISTS idx_auto_ecoles_date_creation_id ON auto_ecoles(date_creation, id);
+-- Échéances des autorisations actives, lues par tranches de dates d'expiration
+CREATE INDEX IF NOT EXISTS idx_auto_ecoles_expiration_autorisation ON auto_ecoles(date_expiration_autorisation, id)
+    WHERE statut IN ('AUTORISATION_PROVISOIRE', 'AUTORISATION_VALIDE');
 
 CREATE INDEX IF NOT EXISTS idx_candidats_statut ON candidats(statut);
 CREATE INDEX IF NOT EXISTS idx_candidats_auto_ecole_id ON candidats(auto_ecole_id);
@@ -162,6 +272,15 @@ CREATE INDEX IF NOT EXISTS idx_candidats_numero_evaluation ON candidats(numero_e
 CREATE INDEX IF NOT EXISTS idx_candidats_nom ON candidats(nom);
 CREATE INDEX IF NOT EXISTS idx_candidats_prenom ON candidats(prenom);
 CREATE INDEX IF NOT EXISTS idx_candidats_date_naissance ON candidats(date_naissance);
+CREATE INDEX IF NOT EXISTS idx_candidats_date_creation_id ON candidats(date_creation, id);
+
+-- Index trigrammes de la recherche (LIKE '%...%', opérateur <% et tri par similarité)
+CREATE INDEX IF NOT EXISTS idx_auto_ecoles_nom_trgm
+    ON auto_ecoles USING gin (normaliser_recherche(nom) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_auto_ecoles_proprietaire_trgm
+    ON auto_ecoles USING gin (normaliser_recherche(proprietaire_nom, proprietaire_prenom) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_candidats_nom_prenom_trgm
+    ON candidats USING gin (normaliser_recherche(nom, prenom) gin_trgm_ops);
 
 CREATE INDEX IF NOT EXISTS idx_evaluations_candidat_id ON evaluations(candidat_id);
 CREATE INDEX IF NOT EXISTS idx_evaluations_type_evaluation ON evaluations(type_evaluation);
@@ -181,10 +300,14 @@ CREATE INDEX IF NOT EXISTS idx_audit_logs_entite_id ON audit_logs(entite_id);
 CREATE INDEX IF NOT EXISTS idx_audit_logs_action ON audit_logs(action);
 CREATE INDEX IF NOT EXISTS idx_audit_logs_utilisateur ON audit_logs(utilisateur);
 CREATE INDEX IF NOT EXISTS idx_audit_logs_niveau_securite ON audit_logs(niveau_securite);
-CREATE INDEX IF NOT EXISTS idx_audit_logs_date_creation ON audit_logs(date_creation);
+CREATE INDEX IF NOT EXISTS idx_audit_logs_date_creation_id ON audit_logs(date_creation, id);
 CREATE INDEX IF NOT EXISTS idx_audit_logs_auto_ecole_id ON audit_logs(auto_ecole_id);
 CREATE INDEX IF NOT EXISTS idx_audit_logs_candidat_id ON audit_logs(candidat_id);
 
+-- Index partiels de la file d'envoi : seules les lignes à traiter sont indexées
+CREATE INDEX IF NOT EXISTS idx_notifications_outbox_a_envoyer ON notifications_outbox(prochaine_tentative, id) WHERE statut = 'EN_ATTENTE';
+CREATE INDEX IF NOT EXISTS idx_notifications_outbox_en_cours ON notifications_outbox(date_reservation) WHERE statut = 'EN_COURS';
+
 -- Triggers pour mettre à jour automatiquement la date de modification
 CREATE OR REPLACE FUNCTION update_modified_column()
 RETURNS TRIGGER AS $$
@@ -263,6 +386,14 @@ INSERT INTO audit_logs (entite, entite_id, action, utilisateur, message, niveau_
 ('Candidat', 1, 'CREATION', 'admin', 'Candidat enrôlé: Amadou DIOUF', 'INFO', 1)
 ON CONFLICT DO NOTHING;
 
+-- Migration des QR codes : la colonne qr_code contient le contenu du QR code,
+-- l'image est générée à la demande (GET .../qr). Les anciennes lignes stockaient
+-- l'image PNG en Base64 (préfixe 'iVBORw0KGgo').
+UPDATE auto_ecoles SET qr_code = 'AUTO_ECOLE:' || numero_demande
+WHERE qr_code LIKE 'iVBORw0KGgo%' AND numero_demande IS NOT NULL;
+UPDATE candidats SET qr_code = 'CANDIDAT:' || numero_licence
+WHERE qr_code LIKE 'iVBORw0KGgo%' AND numero_licence IS NOT NULL;
+
 -- Statistiques de la base de données
 SELECT 
     'Auto-Écoles' as table_name, 
@@ -288,7 +419,7 @@ FROM audit_logs;
 DO $$
 BEGIN
     RAISE NOTICE 'Base de données auto_ecole_db initialisée avec succès!';
-    RAISE NOTICE 'Tables créées: auto_ecoles, candidats, evaluations, documents_auto_ecole, documents_candidat, audit_logs';
+    RAISE NOTICE 'Tables créées: auto_ecoles, candidats, evaluations, documents_auto_ecole, documents_candidat, audit_logs, notifications_outbox, sequences_numeros';
     RAISE NOTICE 'Index et triggers créés pour optimiser les performances';
     RAISE NOTICE 'Vues créées: v_auto_ecoles_actives, v_candidats_en_formation';
     RAISE NOTICE 'Données de test insérées';
@@ -87,9 +87,10 @@ CREATE TABLE webhooks (
     date_modification TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
--- Table des logs d'audit
+-- Table des logs d'audit, partitionnée par mois sur date_creation
+-- (la rétention supprime des partitions entières au lieu de DELETE massifs)
 CREATE TABLE audit_logs (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGSERIAL,
     entite VARCHAR(100) NOT NULL,
     entite_id BIGINT,
     action VARCHAR(50) NOT NULL,
@@ -102,8 +103,64 @@ CREATE TABLE audit_logs (
     message TEXT,
     niveau_securite VARCHAR(50) DEFAULT 'INFO',
     date_creation TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    partenaire_id BIGINT REFERENCES partenaires_externes(id) ON DELETE SET NULL
-);
+    partenaire_id BIGINT REFERENCES partenaires_externes(id) ON DELETE SET NULL,
+    PRIMARY KEY (id, date_creation)
+) PARTITION BY RANGE (date_creation);
+
+-- Partitions mensuelles des logs d'audit
+-- creer_partitions_audit_logs : crée les partitions manquantes du mois de "depuis"
+-- jusqu'au mois courant + "mois_avance" (appelée au démarrage et chaque jour par le service)
+CREATE OR REPLACE FUNCTION creer_partitions_audit_logs(depuis DATE DEFAULT CURRENT_DATE,
+                                                       mois_avance INTEGER DEFAULT 3)
+RETURNS INTEGER AS $$
+DECLARE
+    debut DATE := date_trunc('month', depuis)::date;
+    fin DATE := (date_trunc('month', CURRENT_DATE) + make_interval(months => mois_avance))::date;
+    nom TEXT;
+    crees INTEGER := 0;
+BEGIN
+    WHILE debut <= fin LOOP
+        nom := 'audit_logs_' || to_char(debut, 'YYYY_MM');
+        IF to_regclass(nom) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF audit_logs FOR VALUES FROM (%L) TO (%L)',
+                           nom, debut, (debut + INTERVAL '1 month')::date);
+            crees := crees + 1;
+        END IF;
+        debut := (debut + INTERVAL '1 month')::date;
+    END LOOP;
+    RETURN crees;
+END;
+$$ LANGUAGE plpgsql;
+
+-- supprimer_partitions_audit_logs : détache les partitions entièrement antérieures
+-- à date_limite, puis les supprime (ou les conserve comme tables d'archive)
+CREATE OR REPLACE FUNCTION supprimer_partitions_audit_logs(date_limite DATE,
+                                                           supprimer BOOLEAN DEFAULT TRUE)
+RETURNS INTEGER AS $$
+DECLARE
+    partition RECORD;
+    traitees INTEGER := 0;
+BEGIN
+    FOR partition IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'audit_logs'::regclass
+          AND c.relname ~ '^audit_logs_[0-9]{4}_[0-9]{2}$'
+    LOOP
+        IF (to_date(substring(partition.relname FROM 12), 'YYYY_MM') + INTERVAL '1 month')::date <= date_limite THEN
+            EXECUTE format('ALTER TABLE audit_logs DETACH PARTITION %I', partition.relname);
+            IF supprimer THEN
+                EXECUTE format('DROP TABLE %I', partition.relname);
+            END IF;
+            traitees := traitees + 1;
+        END IF;
+    END LOOP;
+    RETURN traitees;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT creer_partitions_audit_logs();
 
 -- Index pour les performances
 CREATE INDEX idx_partenaires_nom ON partenaires_externes(nom);
@@ -33,7 +33,8 @@ CREATE TABLE examens (
     signature_candidat TEXT,
     statut VARCHAR(50) NOT NULL DEFAULT 'PROGRAMME',
     date_creation TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    date_modification TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    date_modification TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0
 );
 
 -- Table des candidats (référence vers auto-ecole service)
@@ -59,6 +60,7 @@ CREATE TABLE candidats (
     notes TEXT,
     date_creation TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     date_modification TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,
     auto_ecole_id BIGINT NOT NULL
 );
 
@@ -99,9 +101,10 @@ CREATE TABLE documents_examen (
     date_modification TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
--- Table des logs d'audit
+-- Table des logs d'audit, partitionnée par mois sur date_creation
+-- (la rétention supprime des partitions entières au lieu de DELETE massifs)
 CREATE TABLE audit_logs (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGSERIAL,
     entite VARCHAR(100) NOT NULL,
     entite_id BIGINT,
     action VARCHAR(50) NOT NULL,
@@ -115,7 +118,69 @@ CREATE TABLE audit_logs (
     niveau_securite VARCHAR(50) DEFAULT 'INFO',
     date_creation TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     examen_id BIGINT REFERENCES examens(id) ON DELETE SET NULL,
-    candidat_id BIGINT REFERENCES candidats(id) ON DELETE SET NULL
+    candidat_id BIGINT REFERENCES candidats(id) ON DELETE SET NULL,
+    PRIMARY KEY (id, date_creation)
+) PARTITION BY RANGE (date_creation);
+
+-- Partitions mensuelles des logs d'audit
+-- creer_partitions_audit_logs : crée les partitions manquantes du mois de "depuis"
+-- jusqu'au mois courant + "mois_avance" (appelée au démarrage et chaque jour par le service)
+CREATE OR REPLACE FUNCTION creer_partitions_audit_logs(depuis DATE DEFAULT CURRENT_DATE,
+                                                       mois_avance INTEGER DEFAULT 3)
+RETURNS INTEGER AS $$
+DECLARE
+    debut DATE := date_trunc('month', depuis)::date;
+    fin DATE := (date_trunc('month', CURRENT_DATE) + make_interval(months => mois_avance))::date;
+    nom TEXT;
+    crees INTEGER := 0;
+BEGIN
+    WHILE debut <= fin LOOP
+        nom := 'audit_logs_' || to_char(debut, 'YYYY_MM');
+        IF to_regclass(nom) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF audit_logs FOR VALUES FROM (%L) TO (%L)',
+                           nom, debut, (debut + INTERVAL '1 month')::date);
+            crees := crees + 1;
+        END IF;
+        debut := (debut + INTERVAL '1 month')::date;
+    END LOOP;
+    RETURN crees;
+END;
+$$ LANGUAGE plpgsql;
+
+-- supprimer_partitions_audit_logs : détache les partitions entièrement antérieures
+-- à date_limite, puis les supprime (ou les conserve comme tables d'archive)
+CREATE OR REPLACE FUNCTION supprimer_partitions_audit_logs(date_limite DATE,
+                                                           supprimer BOOLEAN DEFAULT TRUE)
+RETURNS INTEGER AS $$
+DECLARE
+    partition RECORD;
+    traitees INTEGER := 0;
+BEGIN
+    FOR partition IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'audit_logs'::regclass
+          AND c.relname ~ '^audit_logs_[0-9]{4}_[0-9]{2}$'
+    LOOP
+        IF (to_date(substring(partition.relname FROM 12), 'YYYY_MM') + INTERVAL '1 month')::date <= date_limite THEN
+            EXECUTE format('ALTER TABLE audit_logs DETACH PARTITION %I', partition.relname);
+            IF supprimer THEN
+                EXECUTE format('DROP TABLE %I', partition.relname);
+            END IF;
+            traitees := traitees + 1;
+        END IF;
+    END LOOP;
+    RETURN traitees;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT creer_partitions_audit_logs();
+
+-- Compteurs des numéros métier (blocs loués par les instances du service)
+CREATE TABLE sequences_numeros (
+    nom VARCHAR(20) PRIMARY KEY,
+    prochaine_valeur BIGINT NOT NULL DEFAULT 1
 );
 
 -- Index pour les performances
@@ -124,6 +189,7 @@ CREATE INDEX idx_examens_candidat_id ON examens(candidat_id);
 CREATE INDEX idx_examens_auto_ecole_id ON examens(auto_ecole_id);
 CREATE INDEX idx_examens_statut ON examens(statut);
 CREATE INDEX idx_examens_date ON examens(date_examen);
+CREATE INDEX idx_examens_date_creation_id ON examens(date_creation, id);
 CREATE INDEX idx_candidats_nom ON candidats(nom);
 CREATE INDEX idx_candidats_statut ON candidats(statut);
 CREATE INDEX idx_candidats_auto_ecole_id ON candidats(auto_ecole_id);
@@ -149,6 +215,11 @@ CREATE TRIGGER update_candidats_modification_time BEFORE UPDATE ON candidats FOR
 CREATE TRIGGER update_auto_ecoles_modification_time BEFORE UPDATE ON auto_ecoles FOR EACH ROW EXECUTE FUNCTION update_modified_column();
 CREATE TRIGGER update_documents_examen_modification_time BEFORE UPDATE ON documents_examen FOR EACH ROW EXECUTE FUNCTION update_modified_column();
 
+-- Migration des QR codes : la colonne qr_code contient le contenu du QR code,
+-- l'image est générée à la demande (GET .../qr)
+UPDATE examens SET qr_code = 'EXAMEN:' || numero_examen
+WHERE qr_code LIKE 'iVBORw0KGgo%';
+
 -- Commentaires sur les tables
 COMMENT ON TABLE examens IS 'Table des examens de permis de conduire';
 COMMENT ON TABLE candidats IS 'Table des candidats au permis de conduire';
@@ -158,6 +229,7 @@ COMMENT ON TABLE audit_logs IS 'Table des logs d''audit';
 
 -- Commentaires sur les colonnes importantes
 COMMENT ON COLUMN examens.type_examen IS 'Type d''examen (CODE_ROUTE, CONDUITE_PRATIQUE, etc.)';
+COMMENT ON COLUMN examens.qr_code IS 'Contenu du QR code (image générée à la demande)';
 COMMENT ON COLUMN examens.statut IS 'Statut de l''examen (PROGRAMME, EN_COURS, TERMINE, etc.)';
 COMMENT ON COLUMN candidats.categorie_permis IS 'Catégorie de permis (A, B, C, D, E, F, G)';
 COMMENT ON COLUMN candidats.statut IS 'Statut du candidat (ENROLE, PRE_ENROLE, etc.)';
@@ -0,0 +1,62 @@
+-- Migration : partitionnement mensuel d'une table audit_logs existante
+--
+-- À exécuter une fois sur chaque base créée avant le partitionnement
+-- (auto_ecole_db, permis, usager, autres), dans une fenêtre de maintenance.
+--
+-- Prérequis : créer d'abord les fonctions creer_partitions_audit_logs et
+-- supprimer_partitions_audit_logs (section « Partitions mensuelles des logs
+-- d'audit » du script databases/init correspondant).
+--
+-- L'ancienne table est conservée sous le nom audit_logs_avant_partitionnement ;
+-- la supprimer après vérification.
+
+\set ON_ERROR_STOP on
+
+BEGIN;
+
+LOCK TABLE audit_logs IN ACCESS EXCLUSIVE MODE;
+
+ALTER TABLE audit_logs RENAME TO audit_logs_avant_partitionnement;
+
+CREATE TABLE audit_logs (
+    LIKE audit_logs_avant_partitionnement INCLUDING DEFAULTS,
+    PRIMARY KEY (id, date_creation)
+) PARTITION BY RANGE (date_creation);
+
+-- La séquence des identifiants suit la nouvelle table
+ALTER SEQUENCE audit_logs_id_seq OWNED BY audit_logs.id;
+
+-- Clés étrangères et index secondaires de l'ancienne table
+DO $$
+DECLARE
+    contrainte RECORD;
+    index_existant RECORD;
+BEGIN
+    FOR contrainte IN
+        SELECT conname, pg_get_constraintdef(oid) AS definition
+        FROM pg_constraint
+        WHERE conrelid = 'audit_logs_avant_partitionnement'::regclass AND contype = 'f'
+    LOOP
+        EXECUTE format('ALTER TABLE audit_logs ADD CONSTRAINT %I %s', contrainte.conname, contrainte.definition);
+    END LOOP;
+
+    FOR index_existant IN
+        SELECT i.indexrelid::regclass::text AS nom, pg_get_indexdef(i.indexrelid) AS definition
+        FROM pg_index i
+        WHERE i.indrelid = 'audit_logs_avant_partitionnement'::regclass AND NOT i.indisprimary
+    LOOP
+        EXECUTE format('ALTER INDEX %I RENAME TO %I', index_existant.nom, index_existant.nom || '_avant');
+        EXECUTE replace(index_existant.definition, 'audit_logs_avant_partitionnement', 'audit_logs');
+    END LOOP;
+END $$;
+
+-- Partitions couvrant l'historique, puis copie des données
+SELECT creer_partitions_audit_logs(
+    (SELECT COALESCE(min(date_creation), CURRENT_TIMESTAMP)::date FROM audit_logs_avant_partitionnement));
+
+INSERT INTO audit_logs SELECT * FROM audit_logs_avant_partitionnement;
+
+COMMIT;
+
+-- Après vérification :
+-- DROP TABLE audit_logs_avant_partitionnement;
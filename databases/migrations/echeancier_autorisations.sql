@@ -0,0 +1,20 @@
+-- Migration : échéancier des autorisations (rappels et expirations)
+--
+-- À exécuter une fois sur auto_ecole_db (bases créées avant l'échéancier) :
+--   psql -d auto_ecole_db -f databases/migrations/echeancier_autorisations.sql
+--
+-- Sans point de reprise, le premier démarrage rattrape les autorisations déjà
+-- échues. L'index est construit sans bloquer les écritures.
+
+\set ON_ERROR_STOP on
+
+ALTER TABLE auto_ecoles ADD COLUMN IF NOT EXISTS date_rappel_autorisation TIMESTAMP;
+
+CREATE TABLE IF NOT EXISTS points_reprise (
+    nom VARCHAR(50) PRIMARY KEY,
+    instant_traite TIMESTAMP NOT NULL
+);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_auto_ecoles_expiration_autorisation
+    ON auto_ecoles(date_expiration_autorisation, id)
+    WHERE statut IN ('AUTORISATION_PROVISOIRE', 'AUTORISATION_VALIDE');
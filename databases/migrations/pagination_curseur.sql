@@ -0,0 +1,21 @@
+-- Migration : index (date_creation, id) de la pagination par curseur
+--
+-- À exécuter sur les bases créées avant la pagination par curseur :
+--   psql -d auto_ecole_db -f databases/migrations/pagination_curseur.sql
+--   (la section permis est à exécuter sur la base permis)
+--
+-- Les tables simples sont indexées sans bloquer les écritures. CONCURRENTLY
+-- n'est pas disponible sur la table partitionnée audit_logs : l'index y est
+-- créé normalement (verrou en écriture le temps de la construction).
+
+\set ON_ERROR_STOP on
+
+-- auto_ecole_db
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_auto_ecoles_date_creation_id ON auto_ecoles(date_creation, id);
+DROP INDEX CONCURRENTLY IF EXISTS idx_auto_ecoles_date_creation;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_candidats_date_creation_id ON candidats(date_creation, id);
+CREATE INDEX IF NOT EXISTS idx_audit_logs_date_creation_id ON audit_logs(date_creation, id);
+DROP INDEX IF EXISTS idx_audit_logs_date_creation;
+
+-- permis
+-- CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_examens_date_creation_id ON examens(date_creation, id);
@@ -0,0 +1,31 @@
+-- Migration : index de recherche trigrammes insensibles aux accents
+--
+-- À exécuter une fois sur auto_ecole_db (bases créées avant l'ajout de la
+-- recherche). Les index sont construits sans bloquer les écritures ;
+-- CREATE INDEX CONCURRENTLY ne peut pas s'exécuter dans une transaction.
+
+\set ON_ERROR_STOP on
+
+CREATE EXTENSION IF NOT EXISTS "pg_trgm";
+CREATE EXTENSION IF NOT EXISTS "unaccent";
+
+CREATE OR REPLACE FUNCTION normaliser_recherche(texte TEXT)
+RETURNS TEXT AS $$
+    SELECT lower(public.unaccent('public.unaccent'::regdictionary, coalesce(texte, '')));
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
+CREATE OR REPLACE FUNCTION normaliser_recherche(nom TEXT, prenom TEXT)
+RETURNS TEXT AS $$
+    SELECT lower(public.unaccent('public.unaccent'::regdictionary,
+                                 coalesce(nom, '') || ' ' || coalesce(prenom, '')));
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_auto_ecoles_nom_trgm
+    ON auto_ecoles USING gin (normaliser_recherche(nom) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_auto_ecoles_proprietaire_trgm
+    ON auto_ecoles USING gin (normaliser_recherche(proprietaire_nom, proprietaire_prenom) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_candidats_nom_prenom_trgm
+    ON candidats USING gin (normaliser_recherche(nom, prenom) gin_trgm_ops);
+
+ANALYZE auto_ecoles;
+ANALYZE candidats;
@@ -0,0 +1,19 @@
+-- Migration : colonne version du verrou optimiste (changements de statut)
+--
+-- À exécuter sur les bases créées avant les transitions versionnées :
+--   psql -d auto_ecole_db -f databases/migrations/versions_optimistes.sql
+--   (la section permis est à exécuter sur la base permis)
+--
+-- Depuis PostgreSQL 11, une colonne ajoutée avec une valeur par défaut
+-- constante ne réécrit pas la table : l'ajout est immédiat. Les lignes
+-- existantes partent de la version 0.
+
+\set ON_ERROR_STOP on
+
+-- auto_ecole_db
+ALTER TABLE auto_ecoles ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE candidats ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- permis
+-- ALTER TABLE examens ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+-- ALTER TABLE candidats ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,66 @@
+package ga.dgtt.autoecole.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Formats des échanges entre services
+ *
+ * Selon l'en-tête Accept, les réponses sont produites en JSON, en CBOR
+ * (application/cbor) ou en Smile (application/x-jackson-smile) : mêmes vues,
+ * mêmes réglages Jackson que le JSON, encodage binaire plus compact et moins
+ * coûteux à produire et à relire. Les corps de requête sont acceptés dans les
+ * mêmes formats. Les réponses au-delà d'une taille minimale sont compressées
+ * en gzip quand le client l'accepte ; les fichiers (documents, images) ne le
+ * sont pas.
+ */
+@Configuration
+public class FormatsEchangeConfig {
+
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
+    private static final String[] TYPES_COMPRESSES = {
+            "application/json", "application/problem+json", "application/merge-patch+json",
+            "application/cbor", APPLICATION_SMILE, "application/x-ndjson", "text/csv", "text/plain"
+    };
+
+    @Value("${app.echanges.compression-taille-min:2048}")
+    private long compressionTailleMin;
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper mapper = builder.factory(new CBORFactory()).build();
+        return new MappingJackson2CborHttpMessageConverter(mapper);
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper mapper = builder.factory(new SmileFactory()).build();
+        return new MappingJackson2SmileHttpMessageConverter(mapper);
+    }
+
+    /**
+     * Compression gzip des réponses (Tomcat), une réponse déjà compressée n'est pas recompressée
+     */
+    @Bean
+    public WebServerFactoryCustomizer<ConfigurableServletWebServerFactory> compressionReponses() {
+        return fabrique -> {
+            Compression compression = new Compression();
+            compression.setEnabled(true);
+            compression.setMimeTypes(TYPES_COMPRESSES);
+            compression.setMinResponseSize(DataSize.ofBytes(compressionTailleMin));
+            fabrique.setCompression(compression);
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package ga.dgtt.autoecole.config;
+
+import ga.dgtt.autoecole.controller.LimitationDebit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Enregistrement de la limitation de débit sur les endpoints de l'API
+ *
+ * La documentation OpenAPI n'est pas limitée ; les endpoints actuator ne
+ * passent pas par les intercepteurs MVC.
+ */
+@Configuration
+public class LimitationDebitConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private LimitationDebit limitationDebit;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(limitationDebit)
+                .addPathPatterns("/**")
+                .excludePathPatterns("/api-docs/**", "/swagger-ui.html", "/swagger-ui/**");
+    }
+}
@@ -0,0 +1,38 @@
+package ga.dgtt.autoecole.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configuration du pool de distribution des notifications
+ *
+ * Le pool est borné : le distributeur ne réserve jamais plus de notifications
+ * que la file du pool ne peut en accepter.
+ */
+@Configuration
+public class NotificationConfig {
+
+    @Value("${app.notification.dispatcher.pool-taille:4}")
+    private int poolTaille;
+
+    @Value("${app.notification.dispatcher.file-capacite:200}")
+    private int fileCapacite;
+
+    /**
+     * Pool de threads dédié à l'envoi des emails et SMS
+     */
+    @Bean(name = "notificationExecutor")
+    public ThreadPoolTaskExecutor notificationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolTaille);
+        executor.setMaxPoolSize(poolTaille);
+        executor.setQueueCapacity(fileCapacite);
+        executor.setThreadNamePrefix("notification-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
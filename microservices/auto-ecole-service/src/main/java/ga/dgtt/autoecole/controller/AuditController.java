@@ -0,0 +1,109 @@
+package ga.dgtt.autoecole.controller;
+
+import ga.dgtt.autoecole.dto.AuditLogResume;
+import ga.dgtt.autoecole.model.ActionAudit;
+import ga.dgtt.autoecole.model.NiveauSecurite;
+import ga.dgtt.autoecole.model.PageCurseur;
+import ga.dgtt.autoecole.service.AuditService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Contrôleur REST pour la consultation des logs d'audit
+ *
+ * Chaque liste existe en pagination par page (avec total) et par curseur
+ * (sans total, pour parcourir les historiques volumineux).
+ */
+@RestController
+@RequestMapping("/api/auto-ecole/audit")
+@Tag(name = "Audit", description = "Consultation des logs d'audit")
+@PreAuthorize("hasRole('ADMIN') or hasRole('DGTT')")
+public class AuditController {
+
+    @Autowired
+    private AuditService auditService;
+
+    /**
+     * Recherche des logs d'audit par critères
+     */
+    @GetMapping
+    @Operation(summary = "Rechercher des logs d'audit", description = "Recherche par critères avec pagination")
+    public ResponseEntity<Page<AuditLogResume>> rechercherLogs(
+            @RequestParam(required = false) String entite,
+            @RequestParam(required = false) ActionAudit action,
+            @RequestParam(required = false) String utilisateur,
+            @RequestParam(required = false) NiveauSecurite niveauSecurite,
+            @Parameter(description = "Date de création minimale (incluse)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateDebut,
+            @Parameter(description = "Date de création maximale (incluse)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateFin,
+            Pageable pageable) {
+
+        Page<AuditLogResume> logs = auditService.rechercher(entite, action, utilisateur, niveauSecurite,
+                                                            dateDebut, dateFin, pageable);
+        return ResponseEntity.ok(logs);
+    }
+
+    /**
+     * Recherche des logs d'audit par critères et par curseur
+     */
+    @GetMapping("/curseur")
+    @Operation(summary = "Rechercher des logs d'audit par curseur",
+               description = "Recherche par critères avec pagination par curseur (sans total), " +
+                             "des plus récents aux plus anciens")
+    public ResponseEntity<PageCurseur<AuditLogResume>> rechercherLogsParCurseur(
+            @RequestParam(required = false) String entite,
+            @RequestParam(required = false) ActionAudit action,
+            @RequestParam(required = false) String utilisateur,
+            @RequestParam(required = false) NiveauSecurite niveauSecurite,
+            @Parameter(description = "Date de création minimale (incluse)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateDebut,
+            @Parameter(description = "Date de création maximale (incluse)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateFin,
+            @Parameter(description = "Curseur de la page suivante") @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de la page") @RequestParam(defaultValue = "20") int taille) {
+
+        PageCurseur<AuditLogResume> logs = auditService.rechercherParCurseur(
+                entite, action, utilisateur, niveauSecurite, dateDebut, dateFin, curseur, taille);
+        return ResponseEntity.ok(logs);
+    }
+
+    /**
+     * Liste les logs d'audit d'un niveau de sécurité
+     */
+    @GetMapping("/niveau/{niveauSecurite}")
+    @Operation(summary = "Lister les logs d'audit par niveau de sécurité")
+    public ResponseEntity<Page<AuditLogResume>> listerParNiveauSecurite(
+            @PathVariable NiveauSecurite niveauSecurite,
+            Pageable pageable) {
+
+        Page<AuditLogResume> logs = auditService.trouverParNiveauSecurite(niveauSecurite, pageable);
+        return ResponseEntity.ok(logs);
+    }
+
+    /**
+     * Liste les logs d'audit d'un niveau de sécurité par curseur
+     */
+    @GetMapping("/niveau/{niveauSecurite}/curseur")
+    @Operation(summary = "Lister les logs d'audit par niveau de sécurité et par curseur",
+               description = "Pagination par curseur (sans total), des plus récents aux plus anciens")
+    public ResponseEntity<PageCurseur<AuditLogResume>> listerParNiveauSecuriteParCurseur(
+            @PathVariable NiveauSecurite niveauSecurite,
+            @Parameter(description = "Curseur de la page suivante") @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de la page") @RequestParam(defaultValue = "20") int taille) {
+
+        PageCurseur<AuditLogResume> logs = auditService.trouverParNiveauSecuriteParCurseur(
+                niveauSecurite, curseur, taille);
+        return ResponseEntity.ok(logs);
+    }
+}
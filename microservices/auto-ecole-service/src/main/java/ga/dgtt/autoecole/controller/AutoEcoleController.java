@@ -1,25 +1,61 @@
 package ga.dgtt.autoecole.controller;
 
+import ga.dgtt.autoecole.dto.AutoEcoleDetail;
+import ga.dgtt.autoecole.dto.AutoEcoleResume;
+import ga.dgtt.autoecole.dto.CandidatResume;
+import ga.dgtt.autoecole.dto.DocumentResume;
+import ga.dgtt.autoecole.dto.EtatTeleversement;
+import ga.dgtt.autoecole.dto.SelectionChamps;
+import ga.dgtt.autoecole.dto.VersionEntite;
 import ga.dgtt.autoecole.model.AutoEcole;
 import ga.dgtt.autoecole.model.Candidat;
+import ga.dgtt.autoecole.model.FormatExport;
+import ga.dgtt.autoecole.model.PageCurseur;
+import ga.dgtt.autoecole.model.RapportEnrolement;
 import ga.dgtt.autoecole.model.StatutAutoEcole;
+import ga.dgtt.autoecole.model.StatutCandidat;
+import ga.dgtt.autoecole.model.TypeDocumentAutoEcole;
+import ga.dgtt.autoecole.model.TypeDocumentCandidat;
 import ga.dgtt.autoecole.service.AutoEcoleService;
+import ga.dgtt.autoecole.service.DocumentService;
+import ga.dgtt.autoecole.service.EnrolementMasseService;
+import ga.dgtt.autoecole.service.ExportService;
+import ga.dgtt.autoecole.service.ModificationPartielleService;
 import ga.dgtt.autoecole.service.PaiementService;
+import ga.dgtt.autoecole.service.ProjectionService;
+import ga.dgtt.autoecole.service.QRCodeService;
+import ga.dgtt.autoecole.service.RechercheService;
+import ga.dgtt.autoecole.service.TeleversementService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Contrôleur REST pour la gestion des auto-écoles
@@ -38,27 +74,86 @@ public class AutoEcoleController {
     @Autowired
     private PaiementService paiementService;
     
+    @Autowired
+    private QRCodeService qrCodeService;
+    
+    @Autowired
+    private RechercheService rechercheService;
+    
+    @Autowired
+    private ExportService exportService;
+    
+    @Autowired
+    private EnrolementMasseService enrolementMasseService;
+    
+    @Autowired
+    private ProjectionService projectionService;
+    
+    @Autowired
+    private DocumentService documentService;
+    
+    @Autowired
+    private EnvoiFichier envoiFichier;
+    
+    @Autowired
+    private TeleversementService televersementService;
+    
+    @Autowired
+    private ModificationPartielleService modificationPartielleService;
+    
     /**
      * Crée une nouvelle auto-école
      */
     @PostMapping
     @Operation(summary = "Créer une auto-école", description = "Crée une nouvelle demande d'ouverture d'auto-école")
-    public ResponseEntity<AutoEcole> creerAutoEcole(
+    public ResponseEntity<AutoEcoleDetail> creerAutoEcole(
             @Valid @RequestBody AutoEcole autoEcole,
             @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) {
         
         AutoEcole autoEcoleCreee = autoEcoleService.creerAutoEcole(autoEcole, utilisateur);
-        return ResponseEntity.status(HttpStatus.CREATED).body(autoEcoleCreee);
+        return ResponseEntity.status(HttpStatus.CREATED).body(AutoEcoleDetail.depuis(autoEcoleCreee));
     }
     
     /**
      * Récupère toutes les auto-écoles avec pagination
      */
     @GetMapping
-    @Operation(summary = "Lister les auto-écoles", description = "Récupère la liste des auto-écoles avec pagination")
+    @Operation(summary = "Lister les auto-écoles", 
+               description = "Récupère la liste des auto-écoles avec pagination. fields restreint les champs lus " +
+                             "et renvoyés, include ajoute les candidats et/ou documents de chaque auto-école")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DC') or hasRole('SEV') or hasRole('SAF') or hasRole('STIAS') or hasRole('DGTT')")
-    public ResponseEntity<Page<AutoEcole>> listerAutoEcoles(Pageable pageable) {
-        Page<AutoEcole> autoEcoles = autoEcoleService.trouverToutes(pageable);
+    public ResponseEntity<Object> listerAutoEcoles(
+            @Parameter(description = "Champs à renvoyer (ex. id,nom,statut,ville)") @RequestParam(required = false) String fields,
+            @Parameter(description = "Associations à inclure (candidats, documents)") @RequestParam(required = false) String include,
+            Pageable pageable) {
+        
+        if (SelectionChamps.estDemandee(fields, include)) {
+            SelectionChamps selection = projectionService.selectionAutoEcole(fields, include);
+            return ResponseEntity.ok(projectionService.trouverAutoEcoles(pageable, selection));
+        }
+        Page<AutoEcoleResume> autoEcoles = autoEcoleService.trouverToutes(pageable);
+        return ResponseEntity.ok(autoEcoles);
+    }
+    
+    /**
+     * Récupère les auto-écoles par curseur
+     */
+    @GetMapping("/curseur")
+    @Operation(summary = "Lister les auto-écoles par curseur", 
+               description = "Pagination par curseur (sans total), des plus récentes aux plus anciennes. " +
+                             "Passer le curseurSuivant de la réponse pour obtenir la page suivante")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DC') or hasRole('SEV') or hasRole('SAF') or hasRole('STIAS') or hasRole('DGTT')")
+    public ResponseEntity<Object> listerAutoEcolesParCurseur(
+            @Parameter(description = "Curseur de la page suivante") @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de la page") @RequestParam(defaultValue = "20") int taille,
+            @Parameter(description = "Champs à renvoyer (ex. id,nom,statut,ville)") @RequestParam(required = false) String fields,
+            @Parameter(description = "Associations à inclure (candidats, documents)") @RequestParam(required = false) String include) {
+        
+        if (SelectionChamps.estDemandee(fields, include)) {
+            SelectionChamps selection = projectionService.selectionAutoEcole(fields, include);
+            return ResponseEntity.ok(projectionService.trouverAutoEcolesParCurseur(curseur, taille, selection));
+        }
+        PageCurseur<AutoEcoleResume> autoEcoles = autoEcoleService.trouverToutesParCurseur(curseur, taille);
         return ResponseEntity.ok(autoEcoles);
     }
     
@@ -66,10 +161,31 @@ public class AutoEcoleController {
      * Récupère une auto-école par ID
      */
     @GetMapping("/{id}")
-    @Operation(summary = "Récupérer une auto-école", description = "Récupère une auto-école par son ID")
-    public ResponseEntity<AutoEcole> recupererAutoEcole(@PathVariable Long id) {
-        Optional<AutoEcole> autoEcole = autoEcoleService.trouverParId(id);
-        return autoEcole.map(ResponseEntity::ok)
+    @Operation(summary = "Récupérer une auto-école", 
+               description = "Récupère une auto-école par son ID, restreinte aux champs de fields, " +
+                             "avec les associations de include")
+    public ResponseEntity<Object> recupererAutoEcole(
+            @PathVariable Long id,
+            @Parameter(description = "Champs à renvoyer (ex. id,nom,statut,ville)") @RequestParam(required = false) String fields,
+            @Parameter(description = "Associations à inclure (candidats, documents)") @RequestParam(required = false) String include,
+            WebRequest requete) {
+        
+        if (SelectionChamps.estDemandee(fields, include)) {
+            SelectionChamps selection = projectionService.selectionAutoEcole(fields, include);
+            return projectionService.trouverAutoEcole(id, selection)
+                                    .<ResponseEntity<Object>>map(ResponseEntity::ok)
+                                    .orElse(ResponseEntity.notFound().build());
+        }
+        Optional<VersionEntite> version = autoEcoleService.trouverVersion(id);
+        if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (estConditionnelle(requete)
+                && requete.checkNotModified(version.get().etag(), version.get().derniereModification())) {
+            return null;
+        }
+        Optional<AutoEcoleDetail> autoEcole = autoEcoleService.trouverDetail(version.get());
+        return autoEcole.<ResponseEntity<Object>>map(detail -> reponseVersionnee(detail).body(detail))
                        .orElse(ResponseEntity.notFound().build());
     }
     
@@ -78,37 +194,111 @@ public class AutoEcoleController {
      */
     @GetMapping("/demande/{numeroDemande}")
     @Operation(summary = "Récupérer par numéro de demande", description = "Récupère une auto-école par son numéro de demande")
-    public ResponseEntity<AutoEcole> recupererParNumeroDemande(@PathVariable String numeroDemande) {
-        Optional<AutoEcole> autoEcole = autoEcoleService.trouverParNumeroDemande(numeroDemande);
-        return autoEcole.map(ResponseEntity::ok)
+    public ResponseEntity<AutoEcoleDetail> recupererParNumeroDemande(@PathVariable String numeroDemande,
+                                                                     WebRequest requete) {
+        Optional<VersionEntite> version = autoEcoleService.trouverVersionParNumeroDemande(numeroDemande);
+        if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (estConditionnelle(requete)
+                && requete.checkNotModified(version.get().etag(), version.get().derniereModification())) {
+            return null;
+        }
+        Optional<AutoEcoleDetail> autoEcole = autoEcoleService.trouverDetail(version.get());
+        return autoEcole.map(detail -> reponseVersionnee(detail).body(detail))
                        .orElse(ResponseEntity.notFound().build());
     }
     
+    /**
+     * Requête de revalidation (If-None-Match ou If-Modified-Since) : la version lue
+     * en base avant la fiche suffit pour répondre 304 sans la charger
+     */
+    private static boolean estConditionnelle(WebRequest requete) {
+        return requete.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+               || requete.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+    
+    /**
+     * En-têtes de version d'une fiche (ETag, Last-Modified) ; le client la revalide à chaque affichage
+     */
+    private static ResponseEntity.BodyBuilder reponseVersionnee(AutoEcoleDetail autoEcole) {
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.ok()
+                .eTag(VersionEntite.etag(autoEcole.id(), autoEcole.version()))
+                .cacheControl(CacheControl.noCache().cachePrivate());
+        if (autoEcole.dateModification() != null) {
+            reponse.lastModified(VersionEntite.millisecondes(autoEcole.dateModification()));
+        }
+        return reponse;
+    }
+    
     /**
      * Recherche des auto-écoles par critères
      */
     @GetMapping("/recherche")
-    @Operation(summary = "Rechercher des auto-écoles", description = "Recherche des auto-écoles par critères")
+    @Operation(summary = "Rechercher des auto-écoles", 
+               description = "Recherche des auto-écoles par critères. Avec q, recherche approchée sur le nom de " +
+                             "l'auto-école et du propriétaire (sans accents, tolérante aux fautes), classée par pertinence")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DC') or hasRole('SEV') or hasRole('SAF') or hasRole('STIAS') or hasRole('DGTT')")
-    public ResponseEntity<Page<AutoEcole>> rechercherAutoEcoles(
+    public ResponseEntity<Page<AutoEcoleResume>> rechercherAutoEcoles(
+            @Parameter(description = "Texte recherché") @RequestParam(required = false) String q,
             @RequestParam(required = false) String ville,
             @RequestParam(required = false) String province,
             @RequestParam(required = false) StatutAutoEcole statut,
             @RequestParam(required = false) String nom,
             Pageable pageable) {
         
-        Page<AutoEcole> autoEcoles = autoEcoleService.rechercherParCriteres(ville, province, statut, nom, pageable);
+        Page<AutoEcoleResume> autoEcoles = q != null
+                ? rechercheService.rechercherAutoEcoles(q, ville, province, statut, pageable)
+                : autoEcoleService.rechercherParCriteres(ville, province, statut, nom, pageable);
         return ResponseEntity.ok(autoEcoles);
     }
     
+    /**
+     * Recherche des auto-écoles par critères et par curseur
+     */
+    @GetMapping("/recherche/curseur")
+    @Operation(summary = "Rechercher des auto-écoles par curseur", 
+               description = "Recherche par critères avec pagination par curseur (sans total)")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DC') or hasRole('SEV') or hasRole('SAF') or hasRole('STIAS') or hasRole('DGTT')")
+    public ResponseEntity<PageCurseur<AutoEcoleResume>> rechercherAutoEcolesParCurseur(
+            @RequestParam(required = false) String ville,
+            @RequestParam(required = false) String province,
+            @RequestParam(required = false) StatutAutoEcole statut,
+            @RequestParam(required = false) String nom,
+            @Parameter(description = "Curseur de la page suivante") @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de la page") @RequestParam(defaultValue = "20") int taille) {
+        
+        PageCurseur<AutoEcoleResume> autoEcoles = autoEcoleService.rechercherParCriteresParCurseur(
+                ville, province, statut, nom, curseur, taille);
+        return ResponseEntity.ok(autoEcoles);
+    }
+    
+    /**
+     * Recherche des candidats
+     */
+    @GetMapping("/candidats/recherche")
+    @Operation(summary = "Rechercher des candidats", 
+               description = "Recherche approchée des candidats par nom et prénom (sans accents, tolérante aux fautes), " +
+                             "classée par pertinence")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DC') or hasRole('SEV') or hasRole('SAF') or hasRole('STIAS') or hasRole('DGTT') or hasRole('AUTO_ECOLE')")
+    public ResponseEntity<Page<CandidatResume>> rechercherCandidats(
+            @Parameter(description = "Texte recherché") @RequestParam String q,
+            @RequestParam(required = false) Long autoEcoleId,
+            @RequestParam(required = false) StatutCandidat statut,
+            Pageable pageable) {
+        
+        Page<CandidatResume> candidats = rechercheService.rechercherCandidats(q, autoEcoleId, statut, pageable);
+        return ResponseEntity.ok(candidats);
+    }
+    
     /**
      * Récupère les auto-écoles par statut
      */
     @GetMapping("/statut/{statut}")
     @Operation(summary = "Lister par statut", description = "Récupère les auto-écoles par statut")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DC') or hasRole('SEV') or hasRole('SAF') or hasRole('STIAS') or hasRole('DGTT')")
-    public ResponseEntity<List<AutoEcole>> listerParStatut(@PathVariable StatutAutoEcole statut) {
-        List<AutoEcole> autoEcoles = autoEcoleService.trouverParStatut(statut);
+    public ResponseEntity<List<AutoEcoleResume>> listerParStatut(@PathVariable StatutAutoEcole statut) {
+        List<AutoEcoleResume> autoEcoles = autoEcoleService.trouverParStatut(statut);
         return ResponseEntity.ok(autoEcoles);
     }
     
@@ -118,14 +308,59 @@ public class AutoEcoleController {
     @PutMapping("/{id}")
     @Operation(summary = "Mettre à jour une auto-école", description = "Met à jour les informations d'une auto-école")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DC') or hasRole('SEV') or hasRole('SAF') or hasRole('STIAS') or hasRole('DGTT')")
-    public ResponseEntity<AutoEcole> mettreAJourAutoEcole(
+    public ResponseEntity<AutoEcoleDetail> mettreAJourAutoEcole(
             @PathVariable Long id,
             @Valid @RequestBody AutoEcole autoEcole,
-            @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) {
+            @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur,
+            WebRequest requete) {
         
         autoEcole.setId(id);
-        AutoEcole autoEcoleMiseAJour = autoEcoleService.mettreAJour(autoEcole, utilisateur);
-        return ResponseEntity.ok(autoEcoleMiseAJour);
+        String siCorrespond = requete.getHeader(HttpHeaders.IF_MATCH);
+        if (siCorrespond != null) {
+            Optional<VersionEntite> version = autoEcoleService.trouverVersion(id)
+                    .filter(courante -> courante.correspond(siCorrespond));
+            if (version.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            // L'écriture reste conditionnée par la version vérifiée
+            autoEcole.setVersion(version.get().version());
+        }
+        try {
+            AutoEcoleDetail detail = AutoEcoleDetail.depuis(autoEcoleService.mettreAJour(autoEcole, utilisateur));
+            return reponseVersionnee(detail).body(detail);
+        } catch (OptimisticLockingFailureException e) {
+            // Modifiée depuis la lecture du client (version du corps) ou depuis la vérification de If-Match
+            return ResponseEntity.status(siCorrespond != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT)
+                                 .build();
+        }
+    }
+    
+    /**
+     * Modifie partiellement une auto-école (seuls les champs présents sont écrits)
+     */
+    @PatchMapping(value = "/{id}", consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Modifier partiellement une auto-école",
+               description = "Applique un JSON merge patch aux informations descriptives d'une auto-école")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DC') or hasRole('SEV') or hasRole('SAF') or hasRole('STIAS') or hasRole('DGTT')")
+    public ResponseEntity<AutoEcoleDetail> modifierAutoEcole(
+            @PathVariable Long id,
+            @RequestBody Map<String, Object> patch,
+            @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur,
+            WebRequest requete) {
+        
+        Long versionAttendue = null;
+        String siCorrespond = requete.getHeader(HttpHeaders.IF_MATCH);
+        if (siCorrespond != null) {
+            Optional<VersionEntite> version = autoEcoleService.trouverVersion(id)
+                    .filter(courante -> courante.correspond(siCorrespond));
+            if (version.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            versionAttendue = version.get().version();
+        }
+        return modificationPartielleService.modifier(id, patch, versionAttendue, utilisateur)
+                .map(detail -> reponseVersionnee(detail).body(detail))
+                .orElse(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build());
     }
     
     /**
@@ -134,13 +369,13 @@ public class AutoEcoleController {
     @PostMapping("/{id}/paiement/valider")
     @Operation(summary = "Valider un paiement", description = "Valide le paiement d'une auto-école")
     @PreAuthorize("hasRole('ADMIN') or hasRole('SAF')")
-    public ResponseEntity<AutoEcole> validerPaiement(
+    public ResponseEntity<AutoEcoleDetail> validerPaiement(
             @PathVariable Long id,
             @RequestParam String referencePaiement,
             @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) {
         
         AutoEcole autoEcole = autoEcoleService.validerPaiement(id, referencePaiement, utilisateur);
-        return ResponseEntity.ok(autoEcole);
+        return ResponseEntity.ok(AutoEcoleDetail.depuis(autoEcole));
     }
     
     /**
@@ -149,14 +384,14 @@ public class AutoEcoleController {
     @PostMapping("/{id}/inspection/programmer")
     @Operation(summary = "Programmer une inspection", description = "Programme une inspection pour une auto-école")
     @PreAuthorize("hasRole('ADMIN') or hasRole('SEV')")
-    public ResponseEntity<AutoEcole> programmerInspection(
+    public ResponseEntity<AutoEcoleDetail> programmerInspection(
             @PathVariable Long id,
             @RequestParam String inspecteurNom,
             @RequestParam String inspecteurPrenom,
             @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) {
         
         AutoEcole autoEcole = autoEcoleService.programmerInspection(id, inspecteurNom, inspecteurPrenom, utilisateur);
-        return ResponseEntity.ok(autoEcole);
+        return ResponseEntity.ok(AutoEcoleDetail.depuis(autoEcole));
     }
     
     /**
@@ -165,13 +400,13 @@ public class AutoEcoleController {
     @PostMapping("/{id}/inspection/valider")
     @Operation(summary = "Valider une inspection", description = "Valide une inspection d'auto-école")
     @PreAuthorize("hasRole('ADMIN') or hasRole('SEV')")
-    public ResponseEntity<AutoEcole> validerInspection(
+    public ResponseEntity<AutoEcoleDetail> validerInspection(
             @PathVariable Long id,
             @RequestParam String rapportInspection,
             @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) {
         
         AutoEcole autoEcole = autoEcoleService.validerInspection(id, rapportInspection, utilisateur);
-        return ResponseEntity.ok(autoEcole);
+        return ResponseEntity.ok(AutoEcoleDetail.depuis(autoEcole));
     }
     
     /**
@@ -180,12 +415,12 @@ public class AutoEcoleController {
     @PostMapping("/{id}/autorisation/generer")
     @Operation(summary = "Générer une autorisation", description = "Génère une autorisation provisoire pour une auto-école")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DC')")
-    public ResponseEntity<AutoEcole> genererAutorisationProvisoire(
+    public ResponseEntity<AutoEcoleDetail> genererAutorisationProvisoire(
             @PathVariable Long id,
             @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) {
         
         AutoEcole autoEcole = autoEcoleService.genererAutorisationProvisoire(id, utilisateur);
-        return ResponseEntity.ok(autoEcole);
+        return ResponseEntity.ok(AutoEcoleDetail.depuis(autoEcole));
     }
     
     /**
@@ -194,13 +429,74 @@ public class AutoEcoleController {
     @PostMapping("/{id}/candidats")
     @Operation(summary = "Enrôler un candidat", description = "Enrôle un nouveau candidat dans une auto-école")
     @PreAuthorize("hasRole('ADMIN') or hasRole('AUTO_ECOLE')")
-    public ResponseEntity<Candidat> enrollerCandidat(
+    public ResponseEntity<CandidatResume> enrollerCandidat(
             @PathVariable Long id,
             @Valid @RequestBody Candidat candidat,
             @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) {
         
         Candidat candidatEnrole = autoEcoleService.enrollerCandidat(id, candidat, utilisateur);
-        return ResponseEntity.status(HttpStatus.CREATED).body(candidatEnrole);
+        return ResponseEntity.status(HttpStatus.CREATED).body(CandidatResume.depuis(candidatEnrole));
+    }
+    
+    /**
+     * Enrôle une cohorte de candidats (JSON)
+     */
+    @PostMapping(value = "/{id}/candidats/lot", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Enrôler des candidats en masse", 
+               description = "Enrôle une liste de candidats ; les lignes invalides sont rapportées sans bloquer les autres")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('AUTO_ECOLE')")
+    public ResponseEntity<RapportEnrolement> enrollerCandidats(
+            @PathVariable Long id,
+            @RequestBody List<Candidat> candidats,
+            @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) {
+        
+        RapportEnrolement rapport = enrolementMasseService.enroller(id, candidats, utilisateur);
+        return ResponseEntity.ok(rapport);
+    }
+    
+    /**
+     * Enrôle une cohorte de candidats (fichier CSV)
+     */
+    @PostMapping(value = "/{id}/candidats/lot", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Enrôler des candidats depuis un CSV", 
+               description = "Colonnes : nom, prenom, date_naissance, lieu_naissance, nationalite, categorie_permis, notes")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('AUTO_ECOLE')")
+    public ResponseEntity<RapportEnrolement> enrollerCandidatsCsv(
+            @PathVariable Long id,
+            @RequestParam("fichier") MultipartFile fichier,
+            @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) throws IOException {
+        
+        RapportEnrolement rapport = enrolementMasseService.enrollerCsv(id, fichier.getInputStream(), utilisateur);
+        return ResponseEntity.ok(rapport);
+    }
+    
+    /**
+     * Récupère un candidat par numéro de licence
+     */
+    @GetMapping("/candidats/licence/{numeroLicence}")
+    @Operation(summary = "Récupérer un candidat par licence", 
+               description = "Récupère un candidat par son numéro de licence (scan du QR code)")
+    public ResponseEntity<CandidatResume> recupererCandidatParLicence(@PathVariable String numeroLicence) {
+        Optional<CandidatResume> candidat = autoEcoleService.trouverCandidatParNumeroLicence(numeroLicence);
+        return candidat.map(ResponseEntity::ok)
+                       .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Récupère les candidats par curseur
+     */
+    @GetMapping("/candidats/curseur")
+    @Operation(summary = "Lister les candidats par curseur", 
+               description = "Pagination par curseur (sans total), des plus récents aux plus anciens")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DC') or hasRole('SEV') or hasRole('SAF') or hasRole('STIAS') or hasRole('DGTT') or hasRole('AUTO_ECOLE')")
+    public ResponseEntity<PageCurseur<CandidatResume>> listerCandidatsParCurseur(
+            @RequestParam(required = false) Long autoEcoleId,
+            @RequestParam(required = false) StatutCandidat statut,
+            @Parameter(description = "Curseur de la page suivante") @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de la page") @RequestParam(defaultValue = "20") int taille) {
+        
+        PageCurseur<CandidatResume> candidats = autoEcoleService.listerCandidatsParCurseur(autoEcoleId, statut, curseur, taille);
+        return ResponseEntity.ok(candidats);
     }
     
     /**
@@ -208,11 +504,230 @@ public class AutoEcoleController {
      */
     @GetMapping("/{id}/candidats")
     @Operation(summary = "Lister les candidats", description = "Récupère la liste des candidats d'une auto-école")
-    public ResponseEntity<List<Candidat>> listerCandidats(@PathVariable Long id) {
-        List<Candidat> candidats = autoEcoleService.listerCandidats(id);
+    public ResponseEntity<List<CandidatResume>> listerCandidats(@PathVariable Long id) {
+        List<CandidatResume> candidats = autoEcoleService.listerCandidats(id);
         return ResponseEntity.ok(candidats);
     }
     
+    /**
+     * Récupère l'image du QR code d'une auto-école
+     */
+    @GetMapping(value = "/{id}/qr", produces = {MediaType.IMAGE_PNG_VALUE, "image/svg+xml"})
+    @Operation(summary = "QR code d'une auto-école", description = "Récupère l'image PNG ou SVG du QR code d'une auto-école")
+    public ResponseEntity<byte[]> recupererQRCode(
+            @PathVariable Long id,
+            @Parameter(description = "Format de l'image (png ou svg)") @RequestParam(defaultValue = "png") String format,
+            WebRequest requete) {
+        return reponseQRCode(autoEcoleService.trouverQRCodeAutoEcole(id), format, requete);
+    }
+    
+    /**
+     * Récupère l'image du QR code d'un candidat
+     */
+    @GetMapping(value = "/candidats/{candidatId}/qr", produces = {MediaType.IMAGE_PNG_VALUE, "image/svg+xml"})
+    @Operation(summary = "QR code d'un candidat", description = "Récupère l'image PNG ou SVG du QR code d'un candidat")
+    public ResponseEntity<byte[]> recupererQRCodeCandidat(
+            @PathVariable Long candidatId,
+            @Parameter(description = "Format de l'image (png ou svg)") @RequestParam(defaultValue = "png") String format,
+            WebRequest requete) {
+        return reponseQRCode(autoEcoleService.trouverQRCodeCandidat(candidatId), format, requete);
+    }
+    
+    /**
+     * Récupère l'image du QR code d'un document de candidat
+     */
+    @GetMapping(value = "/candidats/documents/{documentId}/qr", produces = {MediaType.IMAGE_PNG_VALUE, "image/svg+xml"})
+    @Operation(summary = "QR code d'un document", description = "Récupère l'image PNG ou SVG du QR code d'un document de candidat")
+    public ResponseEntity<byte[]> recupererQRCodeDocument(
+            @PathVariable Long documentId,
+            @Parameter(description = "Format de l'image (png ou svg)") @RequestParam(defaultValue = "png") String format,
+            WebRequest requete) {
+        return reponseQRCode(autoEcoleService.trouverQRCodeDocumentCandidat(documentId), format, requete);
+    }
+    
+    /**
+     * Récupère l'image du QR code d'une évaluation
+     */
+    @GetMapping(value = "/candidats/evaluations/{evaluationId}/qr", produces = {MediaType.IMAGE_PNG_VALUE, "image/svg+xml"})
+    @Operation(summary = "QR code d'une évaluation", description = "Récupère l'image PNG ou SVG du QR code d'une évaluation")
+    public ResponseEntity<byte[]> recupererQRCodeEvaluation(
+            @PathVariable Long evaluationId,
+            @Parameter(description = "Format de l'image (png ou svg)") @RequestParam(defaultValue = "png") String format,
+            WebRequest requete) {
+        return reponseQRCode(autoEcoleService.trouverQRCodeEvaluation(evaluationId), format, requete);
+    }
+    
+    /**
+     * Dépose un document pour une auto-école
+     */
+    @PostMapping(value = "/{id}/documents", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Déposer un document d'auto-école", 
+               description = "Stocke le fichier sous son empreinte SHA-256 ; un contenu identique n'est stocké qu'une fois")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('AUTO_ECOLE')")
+    public ResponseEntity<DocumentResume> deposerDocumentAutoEcole(
+            @PathVariable Long id,
+            @RequestParam("typeDocument") TypeDocumentAutoEcole typeDocument,
+            @RequestParam("fichier") MultipartFile fichier,
+            @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) throws IOException {
+        
+        DocumentResume document = documentService.deposerDocumentAutoEcole(id, typeDocument, fichier.getInputStream(),
+                fichier.getOriginalFilename(), fichier.getContentType(), utilisateur);
+        return ResponseEntity.status(HttpStatus.CREATED).body(document);
+    }
+    
+    /**
+     * Dépose un document pour un candidat
+     */
+    @PostMapping(value = "/candidats/{candidatId}/documents", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Déposer un document de candidat", 
+               description = "Stocke le fichier sous son empreinte SHA-256 ; un contenu identique n'est stocké qu'une fois")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('AUTO_ECOLE')")
+    public ResponseEntity<DocumentResume> deposerDocumentCandidat(
+            @PathVariable Long candidatId,
+            @RequestParam("typeDocument") TypeDocumentCandidat typeDocument,
+            @RequestParam("fichier") MultipartFile fichier,
+            @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) throws IOException {
+        
+        DocumentResume document = documentService.deposerDocumentCandidat(candidatId, typeDocument, fichier.getInputStream(),
+                fichier.getOriginalFilename(), fichier.getContentType(), utilisateur);
+        return ResponseEntity.status(HttpStatus.CREATED).body(document);
+    }
+    
+    /**
+     * Récupère l'aperçu d'un document d'auto-école
+     */
+    @GetMapping("/documents/{documentId}/apercu")
+    @Operation(summary = "Aperçu d'un document d'auto-école", 
+               description = "JPEG réduit (apercu, miniature) ; 202 tant que le traitement n'est pas terminé")
+    public ResponseEntity<StreamingResponseBody> apercuDocumentAutoEcole(
+            @PathVariable Long documentId,
+            @Parameter(description = "apercu ou miniature") @RequestParam(defaultValue = "apercu") String variante,
+            WebRequest requete) throws IOException {
+        return reponseApercu(documentService.trouverDocumentAutoEcole(documentId), variante, requete);
+    }
+    
+    /**
+     * Récupère l'aperçu d'un document de candidat
+     */
+    @GetMapping("/candidats/documents/{documentId}/apercu")
+    @Operation(summary = "Aperçu d'un document de candidat", 
+               description = "JPEG réduit (apercu, miniature, photo pour une photo d'identité redressée et recadrée) ; " +
+                             "202 tant que le traitement n'est pas terminé")
+    public ResponseEntity<StreamingResponseBody> apercuDocumentCandidat(
+            @PathVariable Long documentId,
+            @Parameter(description = "apercu, miniature ou photo") @RequestParam(defaultValue = "apercu") String variante,
+            WebRequest requete) throws IOException {
+        return reponseApercu(documentService.trouverDocumentCandidat(documentId), variante, requete);
+    }
+    
+    /**
+     * Ouvre un téléversement par morceaux d'un document d'auto-école
+     */
+    @PostMapping("/{id}/documents/televersements")
+    @Operation(summary = "Ouvrir un téléversement de document d'auto-école", 
+               description = "Téléversement par morceaux avec reprise, pour les connexions instables")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('AUTO_ECOLE')")
+    public ResponseEntity<EtatTeleversement> ouvrirTeleversementAutoEcole(
+            @PathVariable Long id,
+            @RequestParam TypeDocumentAutoEcole typeDocument,
+            @RequestParam String nomFichier,
+            @Parameter(description = "Taille du fichier en octets") @RequestParam long tailleTotale,
+            @RequestParam(required = false) String typeMime,
+            @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) throws IOException {
+        
+        EtatTeleversement etat = televersementService.ouvrirPourAutoEcole(id, typeDocument, nomFichier, typeMime,
+                                                                          tailleTotale, utilisateur);
+        return ResponseEntity.status(HttpStatus.CREATED).body(etat);
+    }
+    
+    /**
+     * Ouvre un téléversement par morceaux d'un document de candidat
+     */
+    @PostMapping("/candidats/{candidatId}/documents/televersements")
+    @Operation(summary = "Ouvrir un téléversement de document de candidat", 
+               description = "Téléversement par morceaux avec reprise, pour les connexions instables")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('AUTO_ECOLE')")
+    public ResponseEntity<EtatTeleversement> ouvrirTeleversementCandidat(
+            @PathVariable Long candidatId,
+            @RequestParam TypeDocumentCandidat typeDocument,
+            @RequestParam String nomFichier,
+            @Parameter(description = "Taille du fichier en octets") @RequestParam long tailleTotale,
+            @RequestParam(required = false) String typeMime,
+            @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) throws IOException {
+        
+        EtatTeleversement etat = televersementService.ouvrirPourCandidat(candidatId, typeDocument, nomFichier, typeMime,
+                                                                         tailleTotale, utilisateur);
+        return ResponseEntity.status(HttpStatus.CREATED).body(etat);
+    }
+    
+    /**
+     * Récupère la position de reprise d'un téléversement
+     */
+    @GetMapping("/televersements/{televersementId}")
+    @Operation(summary = "État d'un téléversement", description = "Nombre d'octets reçus : le prochain morceau commence à ce décalage")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('AUTO_ECOLE')")
+    public ResponseEntity<EtatTeleversement> etatTeleversement(
+            @PathVariable String televersementId,
+            @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) {
+        return ResponseEntity.ok(televersementService.etat(televersementId, utilisateur));
+    }
+    
+    /**
+     * Envoie un morceau d'un téléversement (corps binaire brut)
+     */
+    @PutMapping(value = "/televersements/{televersementId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "Envoyer un morceau", 
+               description = "Écrit le corps à partir du décalage donné ; 409 avec l'état si le décalage ne correspond pas. " +
+                             "Le document est créé à la réception du dernier octet")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('AUTO_ECOLE')")
+    public ResponseEntity<EtatTeleversement> envoyerMorceau(
+            @PathVariable String televersementId,
+            @Parameter(description = "Position du premier octet du morceau") @RequestParam long decalage,
+            InputStream corps,
+            @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) throws IOException {
+        
+        try {
+            return ResponseEntity.ok(televersementService.ajouter(televersementId, decalage, corps, utilisateur));
+        } catch (TeleversementService.DecalageInvalideException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getEtat());
+        }
+    }
+    
+    /**
+     * Abandonne un téléversement
+     */
+    @DeleteMapping("/televersements/{televersementId}")
+    @Operation(summary = "Abandonner un téléversement", description = "Supprime les octets déjà reçus")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('AUTO_ECOLE')")
+    public ResponseEntity<Void> abandonnerTeleversement(
+            @PathVariable String televersementId,
+            @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) throws IOException {
+        televersementService.abandonner(televersementId, utilisateur);
+        return ResponseEntity.noContent().build();
+    }
+    
+    /**
+     * Télécharge le contenu d'un document d'auto-école
+     */
+    @GetMapping("/documents/{documentId}/contenu")
+    @Operation(summary = "Télécharger un document d'auto-école", 
+               description = "Contenu du document ; ETag = empreinte SHA-256, requêtes Range acceptées")
+    public ResponseEntity<StreamingResponseBody> telechargerDocumentAutoEcole(
+            @PathVariable Long documentId, WebRequest requete) throws IOException {
+        return reponseDocument(documentService.trouverDocumentAutoEcole(documentId), requete);
+    }
+    
+    /**
+     * Télécharge le contenu d'un document de candidat
+     */
+    @GetMapping("/candidats/documents/{documentId}/contenu")
+    @Operation(summary = "Télécharger un document de candidat", 
+               description = "Contenu du document ; ETag = empreinte SHA-256, requêtes Range acceptées")
+    public ResponseEntity<StreamingResponseBody> telechargerDocumentCandidat(
+            @PathVariable Long documentId, WebRequest requete) throws IOException {
+        return reponseDocument(documentService.trouverDocumentCandidat(documentId), requete);
+    }
+    
     /**
      * Génère un lien de paiement
      */
@@ -220,7 +735,7 @@ public class AutoEcoleController {
     @Operation(summary = "Générer un lien de paiement", description = "Génère un lien de paiement pour une auto-école")
     public ResponseEntity<String> genererLienPaiement(@PathVariable Long id) {
         // Vérifier que l'auto-école existe
-        autoEcoleService.trouverParId(id)
+        autoEcoleService.trouverDetailParId(id)
                 .orElseThrow(() -> new RuntimeException("Auto-école non trouvée"));
         
         String lien = paiementService.genererLienPaiement("DEMANDE_" + id, 100000.0, "Paiement auto-école");
@@ -237,4 +752,122 @@ public class AutoEcoleController {
         Map<String, Object> statistiques = autoEcoleService.recupererStatistiques();
         return ResponseEntity.ok(statistiques);
     }
+    
+    /**
+     * Exporte les auto-écoles en flux (CSV ou NDJSON)
+     */
+    @GetMapping("/export/auto-ecoles")
+    @Operation(summary = "Exporter les auto-écoles", 
+               description = "Export en flux, sans limite de taille, filtré par statut, province et période de création")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DC') or hasRole('DGTT')")
+    public ResponseEntity<StreamingResponseBody> exporterAutoEcoles(
+            @RequestParam(required = false) StatutAutoEcole statut,
+            @RequestParam(required = false) String province,
+            @Parameter(description = "Date de création minimale (incluse)") 
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateDebut,
+            @Parameter(description = "Date de création maximale (incluse)") 
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFin,
+            @Parameter(description = "Format (CSV ou NDJSON)") @RequestParam(defaultValue = "CSV") FormatExport format,
+            @Parameter(description = "Compresser le fichier (gzip)") @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return reponseExport("auto-ecoles", format, gzip, sortie ->
+                exportService.exporterAutoEcoles(statut, province, dateDebut, dateFin, format, sortie));
+    }
+    
+    /**
+     * Exporte les candidats en flux (CSV ou NDJSON)
+     */
+    @GetMapping("/export/candidats")
+    @Operation(summary = "Exporter les candidats", 
+               description = "Export en flux, sans limite de taille, filtré par statut, province, auto-école " +
+                             "et période de création")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DC') or hasRole('DGTT')")
+    public ResponseEntity<StreamingResponseBody> exporterCandidats(
+            @RequestParam(required = false) StatutCandidat statut,
+            @RequestParam(required = false) String province,
+            @RequestParam(required = false) Long autoEcoleId,
+            @Parameter(description = "Date de création minimale (incluse)") 
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateDebut,
+            @Parameter(description = "Date de création maximale (incluse)") 
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFin,
+            @Parameter(description = "Format (CSV ou NDJSON)") @RequestParam(defaultValue = "CSV") FormatExport format,
+            @Parameter(description = "Compresser le fichier (gzip)") @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return reponseExport("candidats", format, gzip, sortie ->
+                exportService.exporterCandidats(statut, province, autoEcoleId, dateDebut, dateFin, format, sortie));
+    }
+    
+    /**
+     * Construit la réponse d'un export : le corps est écrit au fil de la lecture en base,
+     * compressé en gzip si demandé (fichier .gz)
+     */
+    private ResponseEntity<StreamingResponseBody> reponseExport(String nom, FormatExport format, boolean gzip,
+                                                                StreamingResponseBody export) {
+        String fichier = nom + "-" + LocalDate.now() + "." + format.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody corps = gzip
+                ? sortie -> {
+                    GZIPOutputStream sortieGzip = new GZIPOutputStream(sortie, 65536);
+                    export.writeTo(sortieGzip);
+                    sortieGzip.finish();
+                }
+                : export;
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") 
+                                  : MediaType.parseMediaType(format.getTypeMime() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, 
+                        ContentDisposition.attachment().filename(fichier).build().toString())
+                .body(corps);
+    }
+    
+    /**
+     * Construit la réponse de téléchargement d'un document ; les documents antérieurs
+     * au stockage par empreinte n'ont pas de contenu téléchargeable
+     */
+    private ResponseEntity<StreamingResponseBody> reponseDocument(Optional<DocumentResume> document,
+                                                                  WebRequest requete) throws IOException {
+        if (document.isEmpty() || document.get().hashFichier() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return envoiFichier.envoyer(document.get().hashFichier(), document.get().nomFichier(),
+                                    document.get().typeMime(), requete);
+    }
+    
+    /**
+     * Construit la réponse d'un aperçu : 202 avec Retry-After tant que le dérivé est en cours
+     * de production, 404 si le document n'en aura pas
+     */
+    private ResponseEntity<StreamingResponseBody> reponseApercu(Optional<DocumentResume> document, String variante,
+                                                                WebRequest requete) throws IOException {
+        if (document.isEmpty() || document.get().hashFichier() == null
+                || !documentService.deriveAttendu(document.get(), variante)) {
+            return ResponseEntity.notFound().build();
+        }
+        Optional<Path> derive = documentService.derive(document.get(), variante);
+        if (derive.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).header(HttpHeaders.RETRY_AFTER, "2").build();
+        }
+        String etag = "\"" + document.get().hashFichier() + "." + variante + "\"";
+        return envoiFichier.envoyer(derive.get(), etag, variante + "-" + document.get().id() + ".jpg",
+                                    MediaType.IMAGE_JPEG_VALUE, requete);
+    }
+    
+    /**
+     * Construit la réponse image d'un QR code : l'ETag est l'empreinte du contenu,
+     * ce qui permet de répondre 304 sans générer l'image
+     */
+    private ResponseEntity<byte[]> reponseQRCode(Optional<String> qrCode, String format, WebRequest requete) {
+        if (qrCode.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean svg = "svg".equalsIgnoreCase(format);
+        String etag = "\"" + qrCodeService.calculerEmpreinte(qrCode.get()) + (svg ? ".svg" : "") + "\"";
+        if (requete.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(svg ? MediaType.valueOf("image/svg+xml") : MediaType.IMAGE_PNG)
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(1)).cachePublic())
+                .eTag(etag)
+                .body(svg ? qrCodeService.obtenirImageSvg(qrCode.get()) : qrCodeService.obtenirImagePng(qrCode.get()));
+    }
 }
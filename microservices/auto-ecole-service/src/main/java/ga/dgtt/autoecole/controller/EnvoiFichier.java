@@ -0,0 +1,133 @@
+package ga.dgtt.autoecole.controller;
+
+import ga.dgtt.autoecole.service.StockageDocuments;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Construit les réponses de téléchargement des fichiers stockés
+ *
+ * L'ETag est l'empreinte SHA-256 du contenu (304 sans lire le fichier). Une
+ * plage unique (Range, If-Range) donne une réponse 206 ; plusieurs plages sont
+ * servies en entier. Le corps est confié au sendfile de Tomcat quand le
+ * connecteur le propose (copie noyau, aucun octet dans la JVM), sinon copié
+ * par FileChannel.transferTo.
+ */
+@Component
+public class EnvoiFichier {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FICHIER = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_DEBUT = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private StockageDocuments stockageDocuments;
+
+    /**
+     * Réponse de téléchargement d'un fichier identifié par son empreinte
+     */
+    public ResponseEntity<StreamingResponseBody> envoyer(String empreinte, String nomFichier, String typeMime,
+                                                         WebRequest requete) throws IOException {
+        return envoyer(stockageDocuments.chemin(empreinte), "\"" + empreinte + "\"", nomFichier, typeMime, requete);
+    }
+
+    /**
+     * Réponse de téléchargement d'un fichier du stockage (original ou dérivé), le fichier
+     * ne devant jamais changer pour un même ETag
+     */
+    public ResponseEntity<StreamingResponseBody> envoyer(Path fichier, String etag, String nomFichier, String typeMime,
+                                                         WebRequest requete) throws IOException {
+        if (requete.checkNotModified(etag)) {
+            return null;
+        }
+        long taille;
+        try {
+            taille = Files.size(fichier);
+        } catch (NoSuchFileException e) {
+            throw new RuntimeException("Fichier non trouvé");
+        }
+        long debut = 0;
+        long fin = taille - 1;
+        boolean partiel = false;
+
+        String plage = requete.getHeader(HttpHeaders.RANGE);
+        String siPlage = requete.getHeader(HttpHeaders.IF_RANGE);
+        if (plage != null && (siPlage == null || siPlage.equals(etag))) {
+            List<HttpRange> plages;
+            try {
+                plages = HttpRange.parseRanges(plage);
+            } catch (IllegalArgumentException e) {
+                // En-tête Range mal formé : ignoré, le fichier est servi en entier
+                plages = List.of();
+            }
+            if (plages.size() == 1) {
+                try {
+                    debut = plages.get(0).getRangeStart(taille);
+                    fin = plages.get(0).getRangeEnd(taille);
+                    partiel = true;
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + taille)
+                            .build();
+                }
+            }
+        }
+        long longueur = fin - debut + 1;
+
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.status(partiel ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .contentType(typeMedia(typeMime))
+                .contentLength(longueur)
+                .eTag(etag)
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(1)).cachePrivate())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.inline().filename(nomFichier, StandardCharsets.UTF_8).build().toString());
+        if (partiel) {
+            reponse.header(HttpHeaders.CONTENT_RANGE, "bytes " + debut + "-" + fin + "/" + taille);
+        }
+
+        HttpServletRequest servlet = requete.getNativeRequest(HttpServletRequest.class);
+        if (longueur == 0 || (servlet != null && "HEAD".equals(servlet.getMethod()))) {
+            return reponse.build();
+        }
+        if (servlet != null && Boolean.TRUE.equals(servlet.getAttribute(SENDFILE_SUPPORT))) {
+            servlet.setAttribute(SENDFILE_FICHIER, fichier.toString());
+            servlet.setAttribute(SENDFILE_DEBUT, debut);
+            servlet.setAttribute(SENDFILE_FIN, fin + 1);
+            return reponse.build();
+        }
+        long position = debut;
+        return reponse.body(sortie -> stockageDocuments.transferer(fichier, position, longueur, sortie));
+    }
+
+    private static MediaType typeMedia(String typeMime) {
+        if (typeMime == null) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+        try {
+            return MediaType.parseMediaType(typeMime);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package ga.dgtt.autoecole.controller;
+
+import ga.dgtt.autoecole.service.SeauxJetons;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limitation du débit des requêtes par utilisateur et par route
+ *
+ * Un seau à jetons par utilisateur (en-tête X-User, à défaut l'adresse du
+ * client), route (motif de l'endpoint, ex. /{id}/candidats) et méthode. Le
+ * quota, en requêtes par minute, dépend de la nature de la route (lecture,
+ * écriture, recherche) et est multiplié selon le rôle le plus favorable de
+ * l'utilisateur. Au-delà : 429 avec Retry-After. La décision n'alloue rien.
+ */
+@Component
+public class LimitationDebit implements HandlerInterceptor {
+
+    private static final int LECTURE = 0;
+    private static final int ECRITURE = 1;
+    private static final int RECHERCHE = 2;
+    private static final String[] CATEGORIES = {"lecture", "ecriture", "recherche"};
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.limitation.active:true}")
+    private boolean active;
+
+    @Value("${app.limitation.seaux:65536}")
+    private int nombreSeaux;
+
+    @Value("${app.limitation.bandes:64}")
+    private int bandes;
+
+    @Value("${app.limitation.lecture-par-minute:600}")
+    private long lectureParMinute;
+
+    @Value("${app.limitation.ecriture-par-minute:60}")
+    private long ecritureParMinute;
+
+    @Value("${app.limitation.recherche-par-minute:120}")
+    private long rechercheParMinute;
+
+    @Value("${app.limitation.multiplicateurs-roles:ADMIN=10,DGTT=5,DC=5,SEV=5,SAF=5,STIAS=5}")
+    private String multiplicateursRoles;
+
+    private SeauxJetons seaux;
+    private long[] quotas;
+    private final Map<String, Integer> multiplicateurs = new HashMap<>();
+    private Counter[] refus;
+
+    @PostConstruct
+    public void initialiser() {
+        seaux = new SeauxJetons(nombreSeaux, bandes);
+        quotas = new long[] {lectureParMinute, ecritureParMinute, rechercheParMinute};
+        for (String entree : multiplicateursRoles.split(",")) {
+            String[] role = entree.trim().split("=");
+            if (role.length == 2) {
+                // Clé au format des autorités Spring Security : évite toute concaténation par requête
+                multiplicateurs.put("ROLE_" + role[0].trim(), Integer.parseInt(role[1].trim()));
+            }
+        }
+        refus = new Counter[CATEGORIES.length];
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            refus[i] = Counter.builder("limitation.refus").tag("categorie", CATEGORIES[i]).register(meterRegistry);
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!active) {
+            return true;
+        }
+        String utilisateur = request.getHeader("X-User");
+        if (utilisateur == null) {
+            utilisateur = request.getRemoteAddr();
+        }
+        Object motif = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = motif != null ? motif.toString() : request.getRequestURI();
+        String methode = request.getMethod();
+
+        int categorie = categorie(methode, route);
+        long quota = quotas[categorie] * multiplicateur(SecurityContextHolder.getContext().getAuthentication());
+        long cle = empreinte(empreinte(empreinte(0xcbf29ce484222325L, utilisateur), route), methode);
+
+        long attente = seaux.prelever(cle, quota, System.nanoTime());
+        if (attente == 0) {
+            return true;
+        }
+        refus[categorie].increment();
+        long secondes = Math.max(1, (attente + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(secondes));
+        return false;
+    }
+
+    private static int categorie(String methode, String route) {
+        if (route.contains("/recherche")) {
+            return RECHERCHE;
+        }
+        return "GET".equals(methode) || "HEAD".equals(methode) || "OPTIONS".equals(methode) ? LECTURE : ECRITURE;
+    }
+
+    private int multiplicateur(Authentication authentification) {
+        int meilleur = 1;
+        if (authentification != null) {
+            for (GrantedAuthority autorite : authentification.getAuthorities()) {
+                Integer valeur = multiplicateurs.get(autorite.getAuthority());
+                if (valeur != null && valeur > meilleur) {
+                    meilleur = valeur;
+                }
+            }
+        }
+        return meilleur;
+    }
+
+    /**
+     * FNV-1a 64 bits, caractère par caractère (sans conversion en octets)
+     */
+    private static long empreinte(long empreinte, String valeur) {
+        for (int i = 0; i < valeur.length(); i++) {
+            empreinte ^= valeur.charAt(i);
+            empreinte *= 0x100000001b3L;
+        }
+        // Séparateur : "ab" + "c" et "a" + "bc" donnent des clés différentes
+        empreinte ^= 0xff;
+        return empreinte * 0x100000001b3L;
+    }
+}
@@ -0,0 +1,44 @@
+package ga.dgtt.autoecole.dto;
+
+import ga.dgtt.autoecole.model.ActionAudit;
+import ga.dgtt.autoecole.model.AuditLog;
+import ga.dgtt.autoecole.model.NiveauSecurite;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vue d'un log d'audit pour les listes
+ *
+ * Uniquement des colonnes de la table audit_logs : l'auto-école et le
+ * candidat liés ne sont pas chargés.
+ */
+public record AuditLogResume(
+        Long id,
+        String entite,
+        Long entiteId,
+        ActionAudit action,
+        String utilisateur,
+        String roleUtilisateur,
+        String adresseIp,
+        String donneesAvant,
+        String donneesApres,
+        String message,
+        NiveauSecurite niveauSecurite,
+        LocalDateTime dateCreation) {
+
+    public static AuditLogResume depuis(AuditLog auditLog) {
+        return new AuditLogResume(
+                auditLog.getId(),
+                auditLog.getEntite(),
+                auditLog.getEntiteId(),
+                auditLog.getAction(),
+                auditLog.getUtilisateur(),
+                auditLog.getRoleUtilisateur(),
+                auditLog.getAdresseIp(),
+                auditLog.getDonneesAvant(),
+                auditLog.getDonneesApres(),
+                auditLog.getMessage(),
+                auditLog.getNiveauSecurite(),
+                auditLog.getDateCreation());
+    }
+}
@@ -0,0 +1,72 @@
+package ga.dgtt.autoecole.dto;
+
+import ga.dgtt.autoecole.model.AutoEcole;
+import ga.dgtt.autoecole.model.StatutAutoEcole;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vue détaillée d'une auto-école
+ *
+ * Toutes les colonnes de l'auto-école, sans ses collections (documents,
+ * candidats, journal d'audit) qui ont leurs propres endpoints. La version
+ * est celle de l'ETag et de l'en-tête If-Match des mises à jour.
+ */
+public record AutoEcoleDetail(
+        Long id,
+        String numeroDemande,
+        String nom,
+        String proprietaireNom,
+        String proprietairePrenom,
+        String email,
+        String telephone,
+        String adresse,
+        String ville,
+        String province,
+        StatutAutoEcole statut,
+        String qrCode,
+        Double montantPaiement,
+        LocalDateTime datePaiement,
+        String referencePaiement,
+        String autorisationProvisoire,
+        LocalDateTime dateAutorisation,
+        LocalDateTime dateExpirationAutorisation,
+        String rapportInspection,
+        LocalDateTime dateInspection,
+        String inspecteurNom,
+        String inspecteurPrenom,
+        String notes,
+        LocalDateTime dateCreation,
+        LocalDateTime dateModification,
+        Long version) {
+
+    public static AutoEcoleDetail depuis(AutoEcole autoEcole) {
+        return new AutoEcoleDetail(
+                autoEcole.getId(),
+                autoEcole.getNumeroDemande(),
+                autoEcole.getNom(),
+                autoEcole.getProprietaireNom(),
+                autoEcole.getProprietairePrenom(),
+                autoEcole.getEmail(),
+                autoEcole.getTelephone(),
+                autoEcole.getAdresse(),
+                autoEcole.getVille(),
+                autoEcole.getProvince(),
+                autoEcole.getStatut(),
+                autoEcole.getQrCode(),
+                autoEcole.getMontantPaiement(),
+                autoEcole.getDatePaiement(),
+                autoEcole.getReferencePaiement(),
+                autoEcole.getAutorisationProvisoire(),
+                autoEcole.getDateAutorisation(),
+                autoEcole.getDateExpirationAutorisation(),
+                autoEcole.getRapportInspection(),
+                autoEcole.getDateInspection(),
+                autoEcole.getInspecteurNom(),
+                autoEcole.getInspecteurPrenom(),
+                autoEcole.getNotes(),
+                autoEcole.getDateCreation(),
+                autoEcole.getDateModification(),
+                autoEcole.getVersion());
+    }
+}
@@ -0,0 +1,39 @@
+package ga.dgtt.autoecole.dto;
+
+import ga.dgtt.autoecole.model.AutoEcole;
+import ga.dgtt.autoecole.model.StatutAutoEcole;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vue résumée d'une auto-école pour les listes
+ *
+ * Uniquement des colonnes de la table auto_ecoles : aucune association
+ * n'est chargée, une page coûte une seule requête.
+ */
+public record AutoEcoleResume(
+        Long id,
+        String numeroDemande,
+        String nom,
+        String proprietaireNom,
+        String proprietairePrenom,
+        String ville,
+        String province,
+        StatutAutoEcole statut,
+        LocalDateTime dateExpirationAutorisation,
+        LocalDateTime dateCreation) {
+
+    public static AutoEcoleResume depuis(AutoEcole autoEcole) {
+        return new AutoEcoleResume(
+                autoEcole.getId(),
+                autoEcole.getNumeroDemande(),
+                autoEcole.getNom(),
+                autoEcole.getProprietaireNom(),
+                autoEcole.getProprietairePrenom(),
+                autoEcole.getVille(),
+                autoEcole.getProvince(),
+                autoEcole.getStatut(),
+                autoEcole.getDateExpirationAutorisation(),
+                autoEcole.getDateCreation());
+    }
+}
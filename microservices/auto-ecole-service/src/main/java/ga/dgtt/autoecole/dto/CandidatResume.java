@@ -0,0 +1,55 @@
+package ga.dgtt.autoecole.dto;
+
+import ga.dgtt.autoecole.model.Candidat;
+import ga.dgtt.autoecole.model.StatutCandidat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Vue résumée d'un candidat pour les listes
+ *
+ * L'auto-école est réduite à son id et son nom : les requêtes de liste la
+ * joignent (projection ou graphe d'entités), sans chargement paresseux par
+ * candidat. Évaluations, documents et audit ne sont jamais parcourus.
+ */
+public record CandidatResume(
+        Long id,
+        String numeroLicence,
+        String numeroEvaluation,
+        String nom,
+        String prenom,
+        LocalDate dateNaissance,
+        String categoriePermis,
+        StatutCandidat statut,
+        LocalDateTime datePaiement,
+        Long autoEcoleId,
+        String autoEcoleNom,
+        LocalDateTime dateCreation) {
+
+    /**
+     * L'auto-école du candidat doit être chargée (graphe d'entités ou entité gérée)
+     */
+    public static CandidatResume depuis(Candidat candidat) {
+        return depuis(candidat, candidat.getAutoEcole().getNom());
+    }
+
+    /**
+     * Nom de l'auto-école fourni à part (résultats de requêtes natives)
+     */
+    public static CandidatResume depuis(Candidat candidat, String autoEcoleNom) {
+        return new CandidatResume(
+                candidat.getId(),
+                candidat.getNumeroLicence(),
+                candidat.getNumeroEvaluation(),
+                candidat.getNom(),
+                candidat.getPrenom(),
+                candidat.getDateNaissance(),
+                candidat.getCategoriePermis(),
+                candidat.getStatut(),
+                candidat.getDatePaiement(),
+                candidat.getAutoEcole().getId(),
+                autoEcoleNom,
+                candidat.getDateCreation());
+    }
+}
@@ -0,0 +1,35 @@
+package ga.dgtt.autoecole.dto;
+
+import ga.dgtt.autoecole.model.DocumentAutoEcole;
+import ga.dgtt.autoecole.model.DocumentCandidat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vue d'un document déposé (auto-école ou candidat)
+ *
+ * hashFichier est l'empreinte SHA-256 du contenu, renvoyée comme ETag au
+ * téléchargement.
+ */
+public record DocumentResume(
+        Long id,
+        String typeDocument,
+        String nomFichier,
+        String typeMime,
+        Long tailleFichier,
+        String hashFichier,
+        Boolean estValide,
+        LocalDateTime dateCreation) {
+
+    public static DocumentResume depuis(DocumentAutoEcole document) {
+        return new DocumentResume(document.getId(), document.getTypeDocument().name(), document.getNomFichier(),
+                document.getTypeMime(), document.getTailleFichier(), document.getHashFichier(),
+                document.getEstValide(), document.getDateCreation());
+    }
+
+    public static DocumentResume depuis(DocumentCandidat document) {
+        return new DocumentResume(document.getId(), document.getTypeDocument().name(), document.getNomFichier(),
+                document.getTypeMime(), document.getTailleFichier(), document.getHashFichier(),
+                document.getEstValide(), document.getDateCreation());
+    }
+}
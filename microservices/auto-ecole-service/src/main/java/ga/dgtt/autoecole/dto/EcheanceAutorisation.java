@@ -0,0 +1,19 @@
+package ga.dgtt.autoecole.dto;
+
+import ga.dgtt.autoecole.model.StatutAutoEcole;
+
+import java.time.LocalDateTime;
+
+/**
+ * Auto-école concernée par un rappel ou une expiration d'autorisation
+ * (colonnes retournées par la mise à jour de l'échéancier)
+ */
+public record EcheanceAutorisation(
+        Long id,
+        String nom,
+        String email,
+        String telephone,
+        String autorisationProvisoire,
+        LocalDateTime dateExpirationAutorisation,
+        StatutAutoEcole ancienStatut) {
+}
@@ -0,0 +1,14 @@
+package ga.dgtt.autoecole.dto;
+
+/**
+ * État d'un téléversement par morceaux
+ *
+ * decalage est le nombre d'octets reçus : le prochain morceau doit commencer
+ * à cette position. document est renseigné une fois le fichier complet.
+ */
+public record EtatTeleversement(
+        String id,
+        long decalage,
+        long tailleTotale,
+        DocumentResume document) {
+}
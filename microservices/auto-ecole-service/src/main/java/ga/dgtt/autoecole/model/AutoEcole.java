@@ -93,6 +93,10 @@ public class AutoEcole {
     @Column(name = "date_expiration_autorisation")
     private LocalDateTime dateExpirationAutorisation;
     
+    // Écrite uniquement par l'échéancier des autorisations (rappel envoyé si postérieure à dateAutorisation)
+    @Column(name = "date_rappel_autorisation", insertable = false, updatable = false)
+    private LocalDateTime dateRappelAutorisation;
+    
     @Column(name = "rapport_inspection")
     private String rapportInspection;
     
@@ -116,6 +120,11 @@ public class AutoEcole {
     @Column(name = "date_modification")
     private LocalDateTime dateModification;
     
+    // Verrou optimiste : chaque écriture est conditionnée par la version lue
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+    
     @OneToMany(mappedBy = "autoEcole", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<DocumentAutoEcole> documents = new ArrayList<>();
     
@@ -214,6 +223,8 @@ public class AutoEcole {
     public LocalDateTime getDateExpirationAutorisation() { return dateExpirationAutorisation; }
     public void setDateExpirationAutorisation(LocalDateTime dateExpirationAutorisation) { this.dateExpirationAutorisation = dateExpirationAutorisation; }
     
+    public LocalDateTime getDateRappelAutorisation() { return dateRappelAutorisation; }
+    
     public String getRapportInspection() { return rapportInspection; }
     public void setRapportInspection(String rapportInspection) { this.rapportInspection = rapportInspection; }
     
@@ -235,6 +246,9 @@ public class AutoEcole {
     public LocalDateTime getDateModification() { return dateModification; }
     public void setDateModification(LocalDateTime dateModification) { this.dateModification = dateModification; }
     
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
     public List<DocumentAutoEcole> getDocuments() { return documents; }
     public void setDocuments(List<DocumentAutoEcole> documents) { this.documents = documents; }
     
@@ -0,0 +1,27 @@
+package ga.dgtt.autoecole.model;
+
+/**
+ * Énumération des canaux de notification
+ *
+ * Chaque entrée de la file d'envoi (outbox) est livrée sur un seul canal.
+ */
+public enum CanalNotification {
+    EMAIL("Email", "Notification envoyée par email"),
+    SMS("SMS", "Notification envoyée par SMS");
+
+    private final String libelle;
+    private final String description;
+
+    CanalNotification(String libelle, String description) {
+        this.libelle = libelle;
+        this.description = description;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -104,12 +104,18 @@ public class DocumentCandidat {
     }
     
     public boolean isImage() {
+        if (typeMime != null && !typeMime.equals("application/octet-stream")) {
+            return typeMime.startsWith("image/");
+        }
         String extension = getExtensionFichier();
         return extension.equals("jpg") || extension.equals("jpeg") || 
                extension.equals("png") || extension.equals("gif");
     }
     
     public boolean isPdf() {
+        if (typeMime != null && !typeMime.equals("application/octet-stream")) {
+            return typeMime.equals("application/pdf");
+        }
         return getExtensionFichier().equals("pdf");
     }
     
@@ -0,0 +1,33 @@
+package ga.dgtt.autoecole.model;
+
+/**
+ * Énumération des formats d'export
+ *
+ * Les exports sont écrits ligne par ligne au fil de la lecture en base.
+ */
+public enum FormatExport {
+    CSV("text/csv", "csv", "Valeurs séparées par des virgules, première ligne d'en-tête"),
+    NDJSON("application/x-ndjson", "ndjson", "Un objet JSON par ligne");
+
+    private final String typeMime;
+    private final String extension;
+    private final String description;
+
+    FormatExport(String typeMime, String extension, String description) {
+        this.typeMime = typeMime;
+        this.extension = extension;
+        this.description = description;
+    }
+
+    public String getTypeMime() {
+        return typeMime;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
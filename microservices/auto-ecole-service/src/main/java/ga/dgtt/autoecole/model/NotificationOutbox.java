@@ -0,0 +1,122 @@
+package ga.dgtt.autoecole.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entité représentant une notification en file d'envoi (transactional outbox)
+ *
+ * Les notifications sont enregistrées dans la même transaction que le
+ * changement d'état métier, puis livrées en arrière-plan par le
+ * NotificationDispatcher. La latence des requêtes ne dépend donc plus
+ * du serveur SMTP ni de la passerelle SMS.
+ */
+@Entity
+@Table(name = "notifications_outbox")
+@EntityListeners(AuditingEntityListener.class)
+public class NotificationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull(message = "Le canal est obligatoire")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "canal", nullable = false)
+    private CanalNotification canal;
+
+    @NotBlank(message = "Le destinataire est obligatoire")
+    @Size(max = 255, message = "Le destinataire ne peut pas dépasser 255 caractères")
+    @Column(name = "destinataire", nullable = false)
+    private String destinataire;
+
+    @Column(name = "sujet")
+    private String sujet;
+
+    @NotBlank(message = "Le contenu est obligatoire")
+    @Column(name = "contenu", nullable = false, length = 4000)
+    private String contenu;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "statut", nullable = false)
+    private StatutNotification statut = StatutNotification.EN_ATTENTE;
+
+    @Column(name = "tentatives", nullable = false)
+    private Integer tentatives = 0;
+
+    @Column(name = "prochaine_tentative", nullable = false)
+    private LocalDateTime prochaineTentative = LocalDateTime.now();
+
+    @Column(name = "date_reservation")
+    private LocalDateTime dateReservation;
+
+    @Column(name = "date_envoi")
+    private LocalDateTime dateEnvoi;
+
+    @Column(name = "derniere_erreur", length = 1000)
+    private String derniereErreur;
+
+    @CreatedDate
+    @Column(name = "date_creation", nullable = false, updatable = false)
+    private LocalDateTime dateCreation;
+
+    // Constructeurs
+    public NotificationOutbox() {}
+
+    public NotificationOutbox(CanalNotification canal, String destinataire, String sujet, String contenu) {
+        this.canal = canal;
+        this.destinataire = destinataire;
+        this.sujet = sujet;
+        this.contenu = contenu;
+    }
+
+    // Méthodes utilitaires
+    public boolean isEmail() {
+        return canal == CanalNotification.EMAIL;
+    }
+
+    public boolean isSms() {
+        return canal == CanalNotification.SMS;
+    }
+
+    // Getters et Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public CanalNotification getCanal() { return canal; }
+    public void setCanal(CanalNotification canal) { this.canal = canal; }
+
+    public String getDestinataire() { return destinataire; }
+    public void setDestinataire(String destinataire) { this.destinataire = destinataire; }
+
+    public String getSujet() { return sujet; }
+    public void setSujet(String sujet) { this.sujet = sujet; }
+
+    public String getContenu() { return contenu; }
+    public void setContenu(String contenu) { this.contenu = contenu; }
+
+    public StatutNotification getStatut() { return statut; }
+    public void setStatut(StatutNotification statut) { this.statut = statut; }
+
+    public Integer getTentatives() { return tentatives; }
+    public void setTentatives(Integer tentatives) { this.tentatives = tentatives; }
+
+    public LocalDateTime getProchaineTentative() { return prochaineTentative; }
+    public void setProchaineTentative(LocalDateTime prochaineTentative) { this.prochaineTentative = prochaineTentative; }
+
+    public LocalDateTime getDateReservation() { return dateReservation; }
+    public void setDateReservation(LocalDateTime dateReservation) { this.dateReservation = dateReservation; }
+
+    public LocalDateTime getDateEnvoi() { return dateEnvoi; }
+    public void setDateEnvoi(LocalDateTime dateEnvoi) { this.dateEnvoi = dateEnvoi; }
+
+    public String getDerniereErreur() { return derniereErreur; }
+    public void setDerniereErreur(String derniereErreur) { this.derniereErreur = derniereErreur; }
+
+    public LocalDateTime getDateCreation() { return dateCreation; }
+    public void setDateCreation(LocalDateTime dateCreation) { this.dateCreation = dateCreation; }
+}
@@ -0,0 +1,54 @@
+package ga.dgtt.autoecole.model;
+
+/**
+ * Énumération des opérateurs de téléphonie mobile au Gabon
+ *
+ * L'opérateur est déterminé à partir du préfixe du numéro national
+ * (07 pour Airtel, 06 pour Moov). Chaque opérateur a ses propres
+ * limites de débit côté passerelle SMS.
+ */
+public enum OperateurMobile {
+    AIRTEL("Airtel", "Airtel Gabon (préfixe 07)"),
+    MOOV("Moov", "Moov Africa Gabon (préfixe 06)"),
+    AUTRE("Autre", "Opérateur non identifié");
+
+    private final String libelle;
+    private final String description;
+
+    OperateurMobile(String libelle, String description) {
+        this.libelle = libelle;
+        this.description = description;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Détermine l'opérateur à partir d'un numéro de téléphone
+     * (formats acceptés : 07xxxxxx, +24107xxxxxx, 24107xxxxxx, avec ou sans espaces)
+     */
+    public static OperateurMobile depuisNumero(String numeroTelephone) {
+        if (numeroTelephone == null) {
+            return AUTRE;
+        }
+        String numero = numeroTelephone.replaceAll("[^0-9]", "");
+        if (numero.startsWith("241") && numero.length() > 9) {
+            numero = numero.substring(3);
+        }
+        if (!numero.startsWith("0")) {
+            numero = "0" + numero;
+        }
+        if (numero.startsWith("07")) {
+            return AIRTEL;
+        }
+        if (numero.startsWith("06")) {
+            return MOOV;
+        }
+        return AUTRE;
+    }
+}
@@ -0,0 +1,95 @@
+package ga.dgtt.autoecole.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page d'une pagination par curseur (keyset)
+ *
+ * Les éléments sont triés par (date_creation, id) décroissants. Le curseur,
+ * opaque pour le client, encode la clé du dernier élément renvoyé : la page
+ * suivante reprend juste après cette clé via l'index, sans OFFSET ni COUNT.
+ */
+public class PageCurseur<T> {
+
+    private final List<T> contenu;
+    private final String curseurSuivant;
+    private final int taille;
+
+    public PageCurseur(List<T> contenu, String curseurSuivant, int taille) {
+        this.contenu = contenu;
+        this.curseurSuivant = curseurSuivant;
+        this.taille = taille;
+    }
+
+    /**
+     * Construit la page à partir de taille + 1 résultats : l'élément en trop
+     * indique seulement qu'une page suivante existe
+     */
+    public static <T> PageCurseur<T> depuis(List<T> resultats, int taille,
+                                           Function<T, LocalDateTime> date, Function<T, Long> id) {
+        if (resultats.size() <= taille) {
+            return new PageCurseur<>(resultats, null, taille);
+        }
+        List<T> contenu = resultats.subList(0, taille);
+        T dernier = contenu.get(taille - 1);
+        return new PageCurseur<>(contenu, encoder(date.apply(dernier), id.apply(dernier)), taille);
+    }
+
+    /**
+     * Convertit le contenu (entités vers vues) en conservant le curseur
+     */
+    public <R> PageCurseur<R> map(Function<T, R> conversion) {
+        return new PageCurseur<>(contenu.stream().map(conversion).toList(), curseurSuivant, taille);
+    }
+
+    /**
+     * Encode la clé (date de création, id) en curseur opaque
+     */
+    public static String encoder(LocalDateTime date, Long id) {
+        String cle = date + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cle.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Décode un curseur ; null pour la première page
+     */
+    public static Cle decoder(String curseur) {
+        if (curseur == null || curseur.isBlank()) {
+            return null;
+        }
+        try {
+            String cle = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8);
+            int separateur = cle.indexOf('|');
+            return new Cle(LocalDateTime.parse(cle.substring(0, separateur)),
+                           Long.parseLong(cle.substring(separateur + 1)));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Curseur invalide");
+        }
+    }
+
+    /**
+     * Clé de reprise : date de création et id du dernier élément vu
+     */
+    public static class Cle {
+        private final LocalDateTime dateCreation;
+        private final Long id;
+
+        public Cle(LocalDateTime dateCreation, Long id) {
+            this.dateCreation = dateCreation;
+            this.id = id;
+        }
+
+        public LocalDateTime getDateCreation() { return dateCreation; }
+        public Long getId() { return id; }
+    }
+
+    // Getters
+    public List<T> getContenu() { return contenu; }
+    public String getCurseurSuivant() { return curseurSuivant; }
+    public int getTaille() { return taille; }
+    public boolean isDernierePage() { return curseurSuivant == null; }
+}
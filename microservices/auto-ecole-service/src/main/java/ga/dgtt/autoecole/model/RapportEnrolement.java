@@ -0,0 +1,78 @@
+package ga.dgtt.autoecole.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rapport d'un enrôlement en masse
+ *
+ * Les lignes sont numérotées à partir de 1 dans l'ordre de la requête
+ * (ligne de données pour un fichier CSV, en-tête exclu). Une ligne en erreur
+ * n'empêche pas l'enrôlement des autres.
+ */
+public class RapportEnrolement {
+
+    private int total;
+    private final List<CandidatEnrole> enroles = new ArrayList<>();
+    private final List<ErreurLigne> erreurs = new ArrayList<>();
+
+    public void ajouterEnrole(int ligne, Candidat candidat) {
+        enroles.add(new CandidatEnrole(ligne, candidat.getId(), candidat.getNomComplet(),
+                                       candidat.getNumeroLicence(), candidat.getNumeroEvaluation()));
+    }
+
+    public void ajouterErreur(int ligne, String message) {
+        erreurs.add(new ErreurLigne(ligne, message));
+    }
+
+    /**
+     * Candidat enrôlé
+     */
+    public static class CandidatEnrole {
+        private final int ligne;
+        private final Long id;
+        private final String nomComplet;
+        private final String numeroLicence;
+        private final String numeroEvaluation;
+
+        public CandidatEnrole(int ligne, Long id, String nomComplet, String numeroLicence, String numeroEvaluation) {
+            this.ligne = ligne;
+            this.id = id;
+            this.nomComplet = nomComplet;
+            this.numeroLicence = numeroLicence;
+            this.numeroEvaluation = numeroEvaluation;
+        }
+
+        public int getLigne() { return ligne; }
+        public Long getId() { return id; }
+        public String getNomComplet() { return nomComplet; }
+        public String getNumeroLicence() { return numeroLicence; }
+        public String getNumeroEvaluation() { return numeroEvaluation; }
+    }
+
+    /**
+     * Ligne rejetée et motif
+     */
+    public static class ErreurLigne {
+        private final int ligne;
+        private final String message;
+
+        public ErreurLigne(int ligne, String message) {
+            this.ligne = ligne;
+            this.message = message;
+        }
+
+        public int getLigne() { return ligne; }
+        public String getMessage() { return message; }
+    }
+
+    // Getters et Setters
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+
+    public List<CandidatEnrole> getEnroles() { return enroles; }
+    public List<ErreurLigne> getErreurs() { return erreurs; }
+
+    public int getNombreEnroles() { return enroles.size(); }
+    public int getNombreErreurs() { return erreurs.size(); }
+}
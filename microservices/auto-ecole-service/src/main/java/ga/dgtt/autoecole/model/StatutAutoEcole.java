@@ -1,5 +1,11 @@
 package ga.dgtt.autoecole.model;
 
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Énumération des statuts possibles pour une auto-école
  * 
@@ -45,6 +51,39 @@ public enum StatutAutoEcole {
         return description;
     }
     
+    /**
+     * Table des transitions autorisées : statut de départ -> statuts d'arrivée
+     * (REJETE et FERME sont terminaux)
+     */
+    private static final Map<StatutAutoEcole, Set<StatutAutoEcole>> TRANSITIONS = new EnumMap<>(StatutAutoEcole.class);
+    
+    static {
+        autoriser(EN_ATTENTE, PAIEMENT_EN_ATTENTE, PAIEMENT_VALIDE, REJETE, FERME);
+        autoriser(PAIEMENT_EN_ATTENTE, EN_ATTENTE, PAIEMENT_VALIDE, REJETE, FERME);
+        autoriser(PAIEMENT_VALIDE, INSPECTION_EN_COURS, REJETE, FERME);
+        autoriser(INSPECTION_EN_COURS, INSPECTION_VALIDEE, REJETE, FERME);
+        autoriser(INSPECTION_VALIDEE, AUTORISATION_PROVISOIRE, REJETE, FERME);
+        autoriser(AUTORISATION_PROVISOIRE, AUTORISATION_VALIDE, RENOUVELLEMENT_EN_COURS, SUSPENDU, FERME);
+        autoriser(AUTORISATION_VALIDE, RENOUVELLEMENT_EN_COURS, SUSPENDU, FERME);
+        autoriser(RENOUVELLEMENT_EN_COURS, AUTORISATION_PROVISOIRE, AUTORISATION_VALIDE, SUSPENDU, FERME);
+        autoriser(SUSPENDU, RENOUVELLEMENT_EN_COURS, FERME);
+        autoriser(REJETE);
+        autoriser(FERME);
+    }
+    
+    private static void autoriser(StatutAutoEcole depart, StatutAutoEcole... arrivees) {
+        Set<StatutAutoEcole> permises = EnumSet.noneOf(StatutAutoEcole.class);
+        permises.addAll(Arrays.asList(arrivees));
+        TRANSITIONS.put(depart, permises);
+    }
+    
+    /**
+     * Vérifie si la transition vers le statut donné est autorisée depuis ce statut
+     */
+    public boolean peutPasserA(StatutAutoEcole cible) {
+        return TRANSITIONS.getOrDefault(this, Set.of()).contains(cible);
+    }
+    
     /**
      * Vérifie si l'auto-école peut enrôler des candidats
      */
@@ -0,0 +1,40 @@
+package ga.dgtt.autoecole.model;
+
+/**
+ * Énumération des statuts d'une notification de la file d'envoi (outbox)
+ *
+ * Le cycle de vie est le suivant :
+ * 1. EN_ATTENTE - Enregistrée avec la transaction métier, en attente d'envoi
+ * 2. EN_COURS - Réservée par le distributeur, envoi en cours
+ * 3. ENVOYEE - Livrée au serveur SMTP ou à la passerelle SMS
+ * 4. ECHEC - Abandonnée après le nombre maximal de tentatives
+ */
+public enum StatutNotification {
+    EN_ATTENTE("En attente", "Notification en attente d'envoi"),
+    EN_COURS("En cours", "Notification réservée par le distributeur"),
+    ENVOYEE("Envoyée", "Notification livrée"),
+    ECHEC("Échec", "Notification abandonnée après plusieurs tentatives");
+
+    private final String libelle;
+    private final String description;
+
+    StatutNotification(String libelle, String description) {
+        this.libelle = libelle;
+        this.description = description;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Vérifie si la notification est dans un état final
+     */
+    public boolean estFinal() {
+        return this == ENVOYEE || this == ECHEC;
+    }
+}
@@ -97,6 +97,42 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
                                  @Param("dateFin") LocalDateTime dateFin, 
                                  Pageable pageable);
     
+    /**
+     * Trouve les logs d'audit par niveau de sécurité après un curseur (date de création, id)
+     *
+     * Pagination par clé sans COUNT, des plus récents aux plus anciens :
+     * demander taille + 1 éléments pour savoir s'il existe une suite.
+     */
+    @Query("SELECT a FROM AuditLog a WHERE a.niveauSecurite = :niveauSecurite AND " +
+           "(:dateCurseur IS NULL OR (a.dateCreation, a.id) < (:dateCurseur, :idCurseur)) " +
+           "ORDER BY a.dateCreation DESC, a.id DESC")
+    List<AuditLog> findByNiveauSecuriteApresCurseur(@Param("niveauSecurite") NiveauSecurite niveauSecurite,
+                                                    @Param("dateCurseur") LocalDateTime dateCurseur,
+                                                    @Param("idCurseur") Long idCurseur,
+                                                    Pageable pageable);
+    
+    /**
+     * Trouve les logs d'audit par critères multiples après un curseur (date de création, id)
+     */
+    @Query("SELECT a FROM AuditLog a WHERE " +
+           "(:entite IS NULL OR a.entite = :entite) AND " +
+           "(:action IS NULL OR a.action = :action) AND " +
+           "(:utilisateur IS NULL OR LOWER(a.utilisateur) LIKE LOWER(CONCAT('%', :utilisateur, '%'))) AND " +
+           "(:niveauSecurite IS NULL OR a.niveauSecurite = :niveauSecurite) AND " +
+           "(:dateDebut IS NULL OR a.dateCreation >= :dateDebut) AND " +
+           "(:dateFin IS NULL OR a.dateCreation <= :dateFin) AND " +
+           "(:dateCurseur IS NULL OR (a.dateCreation, a.id) < (:dateCurseur, :idCurseur)) " +
+           "ORDER BY a.dateCreation DESC, a.id DESC")
+    List<AuditLog> findByCriteresApresCurseur(@Param("entite") String entite,
+                                              @Param("action") ActionAudit action,
+                                              @Param("utilisateur") String utilisateur,
+                                              @Param("niveauSecurite") NiveauSecurite niveauSecurite,
+                                              @Param("dateDebut") LocalDateTime dateDebut,
+                                              @Param("dateFin") LocalDateTime dateFin,
+                                              @Param("dateCurseur") LocalDateTime dateCurseur,
+                                              @Param("idCurseur") Long idCurseur,
+                                              Pageable pageable);
+    
     /**
      * Trouve les actions récentes d'un utilisateur
      */
@@ -163,6 +199,9 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     
     /**
      * Supprime les logs d'audit anciens
+     * 
+     * La rétention courante passe par la suppression de partitions mensuelles
+     * (MaintenancePartitionsAudit) ; cette requête ne sert qu'aux bases non partitionnées.
      */
     @Query("DELETE FROM AuditLog a WHERE a.dateCreation < :dateLimite")
     int deleteAnciensLogs(@Param("dateLimite") LocalDateTime dateLimite);
@@ -1,5 +1,7 @@
 package ga.dgtt.autoecole.repository;
 
+import ga.dgtt.autoecole.dto.AutoEcoleResume;
+import ga.dgtt.autoecole.dto.VersionEntite;
 import ga.dgtt.autoecole.model.AutoEcole;
 import ga.dgtt.autoecole.model.StatutAutoEcole;
 import org.springframework.data.domain.Page;
@@ -10,6 +12,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,11 +25,34 @@ import java.util.Optional;
 @Repository
 public interface AutoEcoleRepository extends JpaRepository<AutoEcole, Long> {
     
+    String FILTRES =
+            "(CAST(:ville AS TEXT) IS NULL OR LOWER(a.ville) = LOWER(CAST(:ville AS TEXT))) AND " +
+            "(CAST(:province AS TEXT) IS NULL OR LOWER(a.province) = LOWER(CAST(:province AS TEXT))) AND " +
+            "(CAST(:statut AS TEXT) IS NULL OR a.statut = CAST(:statut AS TEXT)) ";
+    
+    String CRITERES = FILTRES +
+            "AND (CAST(:nom AS TEXT) IS NULL OR " +
+            "normaliser_recherche(a.nom) LIKE '%' || normaliser_recherche(CAST(:nom AS TEXT)) || '%')";
+    
     /**
      * Trouve une auto-école par son numéro de demande
      */
     Optional<AutoEcole> findByNumeroDemande(String numeroDemande);
     
+    /**
+     * Version d'une auto-école (requêtes conditionnelles, sans lire la ligne entière)
+     */
+    @Query("SELECT new ga.dgtt.autoecole.dto.VersionEntite(a.id, a.version, a.dateModification) " +
+           "FROM AutoEcole a WHERE a.id = :id")
+    Optional<VersionEntite> findVersionById(@Param("id") Long id);
+    
+    /**
+     * Version d'une auto-école par son numéro de demande
+     */
+    @Query("SELECT new ga.dgtt.autoecole.dto.VersionEntite(a.id, a.version, a.dateModification) " +
+           "FROM AutoEcole a WHERE a.numeroDemande = :numeroDemande")
+    Optional<VersionEntite> findVersionByNumeroDemande(@Param("numeroDemande") String numeroDemande);
+    
     /**
      * Trouve une auto-école par son email
      */
@@ -42,6 +68,15 @@ public interface AutoEcoleRepository extends JpaRepository<AutoEcole, Long> {
      */
     List<AutoEcole> findByStatut(StatutAutoEcole statut);
     
+    /**
+     * Résumés des auto-écoles par statut (projection : colonnes utiles uniquement)
+     */
+    @Query("SELECT new ga.dgtt.autoecole.dto.AutoEcoleResume(a.id, a.numeroDemande, a.nom, " +
+           "a.proprietaireNom, a.proprietairePrenom, a.ville, a.province, a.statut, " +
+           "a.dateExpirationAutorisation, a.dateCreation) " +
+           "FROM AutoEcole a WHERE a.statut = :statut ORDER BY a.dateCreation DESC, a.id DESC")
+    List<AutoEcoleResume> findResumesByStatut(@Param("statut") StatutAutoEcole statut);
+    
     /**
      * Trouve les auto-écoles par statut avec pagination
      */
@@ -58,15 +93,22 @@ public interface AutoEcoleRepository extends JpaRepository<AutoEcole, Long> {
     List<AutoEcole> findByProvince(String province);
     
     /**
-     * Trouve les auto-écoles par nom (recherche partielle)
+     * Trouve les auto-écoles par nom (recherche partielle, sans casse ni accents,
+     * index idx_auto_ecoles_nom_trgm)
      */
-    @Query("SELECT a FROM AutoEcole a WHERE LOWER(a.nom) LIKE LOWER(CONCAT('%', :nom, '%'))")
+    @Query(value = "SELECT a.* FROM auto_ecoles a " +
+                   "WHERE normaliser_recherche(a.nom) LIKE '%' || normaliser_recherche(:nom) || '%'",
+           nativeQuery = true)
     List<AutoEcole> findByNomContainingIgnoreCase(@Param("nom") String nom);
     
     /**
-     * Trouve les auto-écoles par nom du propriétaire (recherche partielle)
+     * Trouve les auto-écoles par nom du propriétaire (recherche partielle, sans casse ni accents,
+     * index idx_auto_ecoles_proprietaire_trgm)
      */
-    @Query("SELECT a FROM AutoEcole a WHERE LOWER(a.proprietaireNom) LIKE LOWER(CONCAT('%', :nom, '%')) OR LOWER(a.proprietairePrenom) LIKE LOWER(CONCAT('%', :nom, '%'))")
+    @Query(value = "SELECT a.* FROM auto_ecoles a " +
+                   "WHERE normaliser_recherche(a.proprietaire_nom, a.proprietaire_prenom) " +
+                   "LIKE '%' || normaliser_recherche(:nom) || '%'",
+           nativeQuery = true)
     List<AutoEcole> findByProprietaireContainingIgnoreCase(@Param("nom") String nom);
     
     /**
@@ -76,19 +118,6 @@ public interface AutoEcoleRepository extends JpaRepository<AutoEcole, Long> {
     List<AutoEcole> findByDateCreationBetween(@Param("dateDebut") LocalDateTime dateDebut, 
                                             @Param("dateFin") LocalDateTime dateFin);
     
-    /**
-     * Trouve les auto-écoles avec autorisation expirée
-     */
-    @Query("SELECT a FROM AutoEcole a WHERE a.dateExpirationAutorisation IS NOT NULL AND a.dateExpirationAutorisation < :dateActuelle")
-    List<AutoEcole> findWithAutorisationExpiree(@Param("dateActuelle") LocalDateTime dateActuelle);
-    
-    /**
-     * Trouve les auto-écoles avec autorisation expirant bientôt
-     */
-    @Query("SELECT a FROM AutoEcole a WHERE a.dateExpirationAutorisation IS NOT NULL AND a.dateExpirationAutorisation BETWEEN :dateActuelle AND :dateLimite")
-    List<AutoEcole> findWithAutorisationExpirantBientot(@Param("dateActuelle") LocalDateTime dateActuelle, 
-                                                       @Param("dateLimite") LocalDateTime dateLimite);
-    
     /**
      * Trouve les auto-écoles en attente d'inspection
      */
@@ -138,18 +167,70 @@ public interface AutoEcoleRepository extends JpaRepository<AutoEcole, Long> {
     
     /**
      * Trouve les auto-écoles par critères multiples
+     * (le nom est comparé sans casse ni accents ; le tri porte sur les colonnes SQL)
      */
-    @Query("SELECT a FROM AutoEcole a WHERE " +
-           "(:ville IS NULL OR LOWER(a.ville) = LOWER(:ville)) AND " +
-           "(:province IS NULL OR LOWER(a.province) = LOWER(:province)) AND " +
-           "(:statut IS NULL OR a.statut = :statut) AND " +
-           "(:nom IS NULL OR LOWER(a.nom) LIKE LOWER(CONCAT('%', :nom, '%')))")
+    @Query(value = "SELECT a.* FROM auto_ecoles a WHERE " + CRITERES,
+           countQuery = "SELECT COUNT(*) FROM auto_ecoles a WHERE " + CRITERES,
+           nativeQuery = true)
     Page<AutoEcole> findByCriteres(@Param("ville") String ville, 
                                   @Param("province") String province, 
-                                  @Param("statut") StatutAutoEcole statut, 
+                                  @Param("statut") String statut, 
                                   @Param("nom") String nom, 
                                   Pageable pageable);
     
+    /**
+     * Trouve les auto-écoles après un curseur (date de création, id), des plus récentes aux plus anciennes
+     *
+     * Pagination par clé sans COUNT : demander taille + 1 éléments pour savoir s'il existe une suite.
+     */
+    @Query("SELECT a FROM AutoEcole a WHERE " +
+           "(:dateCurseur IS NULL OR (a.dateCreation, a.id) < (:dateCurseur, :idCurseur)) " +
+           "ORDER BY a.dateCreation DESC, a.id DESC")
+    List<AutoEcole> findApresCurseur(@Param("dateCurseur") LocalDateTime dateCurseur,
+                                     @Param("idCurseur") Long idCurseur,
+                                     Pageable pageable);
+    
+    /**
+     * Trouve les auto-écoles par critères multiples après un curseur (date de création, id)
+     */
+    @Query(value = "SELECT a.* FROM auto_ecoles a WHERE " + CRITERES +
+                   " AND (CAST(:dateCurseur AS TIMESTAMP) IS NULL OR " +
+                   "(a.date_creation, a.id) < (CAST(:dateCurseur AS TIMESTAMP), CAST(:idCurseur AS BIGINT))) " +
+                   "ORDER BY a.date_creation DESC, a.id DESC",
+           nativeQuery = true)
+    List<AutoEcole> findByCriteresApresCurseur(@Param("ville") String ville,
+                                               @Param("province") String province,
+                                               @Param("statut") String statut,
+                                               @Param("nom") String nom,
+                                               @Param("dateCurseur") LocalDateTime dateCurseur,
+                                               @Param("idCurseur") Long idCurseur,
+                                               Pageable pageable);
+    
+    /**
+     * Recherche approchée par nom de l'auto-école ou du propriétaire, classée par pertinence
+     *
+     * Tolère les fautes de frappe (similarité de trigrammes, seuil
+     * pg_trgm.word_similarity_threshold) et ignore casse et accents.
+     */
+    @Query(value = "SELECT a.* FROM auto_ecoles a WHERE " +
+                   "(normaliser_recherche(:terme) <% normaliser_recherche(a.nom) OR " +
+                   " normaliser_recherche(:terme) <% normaliser_recherche(a.proprietaire_nom, a.proprietaire_prenom)) AND " +
+                   FILTRES +
+                   "ORDER BY GREATEST(" +
+                   "word_similarity(normaliser_recherche(:terme), normaliser_recherche(a.nom)), " +
+                   "word_similarity(normaliser_recherche(:terme), normaliser_recherche(a.proprietaire_nom, a.proprietaire_prenom))" +
+                   ") DESC, a.id",
+           countQuery = "SELECT COUNT(*) FROM auto_ecoles a WHERE " +
+                   "(normaliser_recherche(:terme) <% normaliser_recherche(a.nom) OR " +
+                   " normaliser_recherche(:terme) <% normaliser_recherche(a.proprietaire_nom, a.proprietaire_prenom)) AND " +
+                   FILTRES,
+           nativeQuery = true)
+    Page<AutoEcole> rechercher(@Param("terme") String terme,
+                               @Param("ville") String ville,
+                               @Param("province") String province,
+                               @Param("statut") String statut,
+                               Pageable pageable);
+    
     /**
      * Vérifie si une auto-école existe avec cet email
      */
@@ -164,4 +245,16 @@ public interface AutoEcoleRepository extends JpaRepository<AutoEcole, Long> {
      * Vérifie si une auto-école existe avec ce numéro de demande
      */
     boolean existsByNumeroDemande(String numeroDemande);
+    
+    /**
+     * Noms d'un ensemble d'auto-écoles : [id, nom]
+     */
+    @Query("SELECT a.id, a.nom FROM AutoEcole a WHERE a.id IN :ids")
+    List<Object[]> findNomsByIds(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Récupère uniquement le contenu du QR code
+     */
+    @Query("SELECT a.qrCode FROM AutoEcole a WHERE a.id = :id")
+    Optional<String> findQrCodeById(@Param("id") Long id);
 }
@@ -1,9 +1,11 @@
 package ga.dgtt.autoecole.repository;
 
+import ga.dgtt.autoecole.dto.CandidatResume;
 import ga.dgtt.autoecole.model.Candidat;
 import ga.dgtt.autoecole.model.StatutCandidat;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -23,9 +25,14 @@ import java.util.Optional;
 @Repository
 public interface CandidatRepository extends JpaRepository<Candidat, Long> {
     
+    String FILTRES =
+            "(CAST(:autoEcoleId AS BIGINT) IS NULL OR c.auto_ecole_id = CAST(:autoEcoleId AS BIGINT)) AND " +
+            "(CAST(:statut AS TEXT) IS NULL OR c.statut = CAST(:statut AS TEXT)) ";
+    
     /**
-     * Trouve un candidat par son numéro de licence
+     * Trouve un candidat par son numéro de licence, avec son auto-école
      */
+    @EntityGraph(attributePaths = "autoEcole")
     Optional<Candidat> findByNumeroLicence(String numeroLicence);
     
     /**
@@ -53,17 +60,49 @@ public interface CandidatRepository extends JpaRepository<Candidat, Long> {
      */
     Page<Candidat> findByAutoEcoleId(Long autoEcoleId, Pageable pageable);
     
+    /**
+     * Résumés des candidats d'une auto-école (projection : une requête, colonnes utiles uniquement)
+     */
+    @Query("SELECT new ga.dgtt.autoecole.dto.CandidatResume(c.id, c.numeroLicence, c.numeroEvaluation, " +
+           "c.nom, c.prenom, c.dateNaissance, c.categoriePermis, c.statut, c.datePaiement, " +
+           "a.id, a.nom, c.dateCreation) " +
+           "FROM Candidat c JOIN c.autoEcole a WHERE a.id = :autoEcoleId " +
+           "ORDER BY c.dateCreation DESC, c.id DESC")
+    List<CandidatResume> findResumesByAutoEcoleId(@Param("autoEcoleId") Long autoEcoleId);
+    
     /**
      * Trouve les candidats par catégorie de permis
      */
     List<Candidat> findByCategoriePermis(String categoriePermis);
     
     /**
-     * Trouve les candidats par nom (recherche partielle)
+     * Trouve les candidats par nom ou prénom (recherche partielle, sans casse ni accents,
+     * index idx_candidats_nom_prenom_trgm)
      */
-    @Query("SELECT c FROM Candidat c WHERE LOWER(c.nom) LIKE LOWER(CONCAT('%', :nom, '%')) OR LOWER(c.prenom) LIKE LOWER(CONCAT('%', :nom, '%'))")
+    @Query(value = "SELECT c.* FROM candidats c " +
+                   "WHERE normaliser_recherche(c.nom, c.prenom) LIKE '%' || normaliser_recherche(:nom) || '%'",
+           nativeQuery = true)
     List<Candidat> findByNomContainingIgnoreCase(@Param("nom") String nom);
     
+    /**
+     * Recherche approchée par nom et prénom, classée par pertinence
+     *
+     * Tolère les fautes de frappe (similarité de trigrammes, seuil
+     * pg_trgm.word_similarity_threshold) et ignore casse et accents.
+     */
+    @Query(value = "SELECT c.* FROM candidats c WHERE " +
+                   "normaliser_recherche(:terme) <% normaliser_recherche(c.nom, c.prenom) AND " +
+                   FILTRES +
+                   "ORDER BY word_similarity(normaliser_recherche(:terme), normaliser_recherche(c.nom, c.prenom)) DESC, c.id",
+           countQuery = "SELECT COUNT(*) FROM candidats c WHERE " +
+                   "normaliser_recherche(:terme) <% normaliser_recherche(c.nom, c.prenom) AND " +
+                   FILTRES,
+           nativeQuery = true)
+    Page<Candidat> rechercher(@Param("terme") String terme,
+                              @Param("autoEcoleId") Long autoEcoleId,
+                              @Param("statut") String statut,
+                              Pageable pageable);
+    
     /**
      * Trouve les candidats par date de naissance
      */
@@ -113,6 +152,24 @@ public interface CandidatRepository extends JpaRepository<Candidat, Long> {
                                  @Param("nom") String nom, 
                                  Pageable pageable);
     
+    /**
+     * Trouve les candidats après un curseur (date de création, id), des plus récents aux plus anciens
+     *
+     * Pagination par clé sans COUNT : demander taille + 1 éléments pour savoir s'il existe une suite.
+     * L'auto-école est chargée dans la même requête (graphe d'entités).
+     */
+    @EntityGraph(attributePaths = "autoEcole")
+    @Query("SELECT c FROM Candidat c WHERE " +
+           "(:autoEcoleId IS NULL OR c.autoEcole.id = :autoEcoleId) AND " +
+           "(:statut IS NULL OR c.statut = :statut) AND " +
+           "(:dateCurseur IS NULL OR (c.dateCreation, c.id) < (:dateCurseur, :idCurseur)) " +
+           "ORDER BY c.dateCreation DESC, c.id DESC")
+    List<Candidat> findApresCurseur(@Param("autoEcoleId") Long autoEcoleId,
+                                    @Param("statut") StatutCandidat statut,
+                                    @Param("dateCurseur") LocalDateTime dateCurseur,
+                                    @Param("idCurseur") Long idCurseur,
+                                    Pageable pageable);
+    
     /**
      * Compte les candidats par statut
      */
@@ -160,4 +217,10 @@ public interface CandidatRepository extends JpaRepository<Candidat, Long> {
      * Vérifie si un candidat existe avec ce numéro d'évaluation
      */
     boolean existsByNumeroEvaluation(String numeroEvaluation);
-}
\ No newline at end of file
+    
+    /**
+     * Récupère uniquement le contenu du QR code
+     */
+    @Query("SELECT c.qrCode FROM Candidat c WHERE c.id = :id")
+    Optional<String> findQrCodeById(@Param("id") Long id);
+}
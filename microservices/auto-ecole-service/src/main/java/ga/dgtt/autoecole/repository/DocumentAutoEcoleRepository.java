@@ -0,0 +1,12 @@
+package ga.dgtt.autoecole.repository;
+
+import ga.dgtt.autoecole.model.DocumentAutoEcole;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository pour l'entité DocumentAutoEcole
+ */
+@Repository
+public interface DocumentAutoEcoleRepository extends JpaRepository<DocumentAutoEcole, Long> {
+}
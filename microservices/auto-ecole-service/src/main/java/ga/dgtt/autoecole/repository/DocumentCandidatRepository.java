@@ -0,0 +1,22 @@
+package ga.dgtt.autoecole.repository;
+
+import ga.dgtt.autoecole.model.DocumentCandidat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository pour l'entité DocumentCandidat
+ */
+@Repository
+public interface DocumentCandidatRepository extends JpaRepository<DocumentCandidat, Long> {
+    
+    /**
+     * Récupère uniquement le contenu du QR code
+     */
+    @Query("SELECT d.qrCode FROM DocumentCandidat d WHERE d.id = :id")
+    Optional<String> findQrCodeById(@Param("id") Long id);
+}
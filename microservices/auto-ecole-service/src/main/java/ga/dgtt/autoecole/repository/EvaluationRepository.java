@@ -0,0 +1,22 @@
+package ga.dgtt.autoecole.repository;
+
+import ga.dgtt.autoecole.model.Evaluation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository pour l'entité Evaluation
+ */
+@Repository
+public interface EvaluationRepository extends JpaRepository<Evaluation, Long> {
+    
+    /**
+     * Récupère uniquement le contenu du QR code
+     */
+    @Query("SELECT e.qrCode FROM Evaluation e WHERE e.id = :id")
+    Optional<String> findQrCodeById(@Param("id") Long id);
+}
@@ -0,0 +1,61 @@
+package ga.dgtt.autoecole.repository;
+
+import ga.dgtt.autoecole.model.NotificationOutbox;
+import ga.dgtt.autoecole.model.StatutNotification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository pour l'entité NotificationOutbox
+ *
+ * Ce repository fournit les requêtes de réservation et de reprise utilisées
+ * par le distributeur de notifications.
+ */
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    /**
+     * Sélectionne et verrouille les notifications prêtes à être envoyées.
+     * Les lignes déjà verrouillées par une autre instance sont ignorées (SKIP LOCKED).
+     */
+    @Query(value = "SELECT id FROM notifications_outbox " +
+                   "WHERE statut = 'EN_ATTENTE' AND prochaine_tentative <= :maintenant " +
+                   "ORDER BY id LIMIT :limite FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> verrouillerIdsAEnvoyer(@Param("maintenant") LocalDateTime maintenant,
+                                      @Param("limite") int limite);
+
+    /**
+     * Marque un lot de notifications comme réservées
+     */
+    @Modifying
+    @Query("UPDATE NotificationOutbox n SET n.statut = :statut, n.dateReservation = :maintenant WHERE n.id IN :ids")
+    int reserver(@Param("ids") List<Long> ids,
+                 @Param("statut") StatutNotification statut,
+                 @Param("maintenant") LocalDateTime maintenant);
+
+    /**
+     * Remet en attente les réservations abandonnées (instance arrêtée pendant l'envoi)
+     */
+    @Modifying
+    @Query("UPDATE NotificationOutbox n SET n.statut = :statutAttente " +
+           "WHERE n.statut = :statutEnCours AND n.dateReservation < :dateLimite")
+    int libererReservationsExpirees(@Param("statutEnCours") StatutNotification statutEnCours,
+                                    @Param("statutAttente") StatutNotification statutAttente,
+                                    @Param("dateLimite") LocalDateTime dateLimite);
+
+    /**
+     * Trouve les notifications par identifiants
+     */
+    List<NotificationOutbox> findByIdIn(List<Long> ids);
+
+    /**
+     * Compte les notifications par statut
+     */
+    long countByStatut(StatutNotification statut);
+}
@@ -0,0 +1,97 @@
+package ga.dgtt.autoecole.service;
+
+import ga.dgtt.autoecole.dto.AuditLogResume;
+import ga.dgtt.autoecole.model.ActionAudit;
+import ga.dgtt.autoecole.model.AuditLog;
+import ga.dgtt.autoecole.model.NiveauSecurite;
+import ga.dgtt.autoecole.model.PageCurseur;
+import ga.dgtt.autoecole.repository.AuditLogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Consultation des logs d'audit
+ *
+ * Deux modes de pagination : par page (OFFSET et total) ou par curseur sur
+ * (date_creation, id), sans COUNT, dont le coût ne dépend pas de la profondeur.
+ */
+@Service
+public class AuditService {
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Value("${app.pagination.taille-max:100}")
+    private int tailleMaxPage;
+
+    /**
+     * Trouve les logs d'audit par critères
+     */
+    @Transactional(readOnly = true)
+    public Page<AuditLogResume> rechercher(String entite, ActionAudit action, String utilisateur,
+                                           NiveauSecurite niveauSecurite, LocalDateTime dateDebut,
+                                           LocalDateTime dateFin, Pageable pageable) {
+        return auditLogRepository.findByCriteres(entite, action, utilisateur, niveauSecurite,
+                                                 dateDebut, dateFin, pageable)
+                .map(AuditLogResume::depuis);
+    }
+
+    /**
+     * Trouve les logs d'audit par critères et par curseur, des plus récents aux plus anciens
+     */
+    @Transactional(readOnly = true)
+    public PageCurseur<AuditLogResume> rechercherParCurseur(String entite, ActionAudit action, String utilisateur,
+                                                           NiveauSecurite niveauSecurite, LocalDateTime dateDebut,
+                                                           LocalDateTime dateFin, String curseur, int taille) {
+        PageCurseur.Cle cle = PageCurseur.decoder(curseur);
+        int tailleValide = validerTaille(taille);
+        List<AuditLog> resultats = auditLogRepository.findByCriteresApresCurseur(
+                entite, action, utilisateur, niveauSecurite, dateDebut, dateFin,
+                cle != null ? cle.getDateCreation() : null, cle != null ? cle.getId() : null,
+                PageRequest.of(0, tailleValide + 1));
+        return PageCurseur.depuis(resultats, tailleValide, AuditLog::getDateCreation, AuditLog::getId)
+                .map(AuditLogResume::depuis);
+    }
+
+    /**
+     * Trouve les logs d'audit d'un niveau de sécurité
+     */
+    @Transactional(readOnly = true)
+    public Page<AuditLogResume> trouverParNiveauSecurite(NiveauSecurite niveauSecurite, Pageable pageable) {
+        return auditLogRepository.findByNiveauSecurite(niveauSecurite, pageable).map(AuditLogResume::depuis);
+    }
+
+    /**
+     * Trouve les logs d'audit d'un niveau de sécurité par curseur, des plus récents aux plus anciens
+     */
+    @Transactional(readOnly = true)
+    public PageCurseur<AuditLogResume> trouverParNiveauSecuriteParCurseur(NiveauSecurite niveauSecurite,
+                                                                         String curseur, int taille) {
+        PageCurseur.Cle cle = PageCurseur.decoder(curseur);
+        int tailleValide = validerTaille(taille);
+        List<AuditLog> resultats = auditLogRepository.findByNiveauSecuriteApresCurseur(
+                niveauSecurite,
+                cle != null ? cle.getDateCreation() : null, cle != null ? cle.getId() : null,
+                PageRequest.of(0, tailleValide + 1));
+        return PageCurseur.depuis(resultats, tailleValide, AuditLog::getDateCreation, AuditLog::getId)
+                .map(AuditLogResume::depuis);
+    }
+
+    /**
+     * Borne la taille d'une page par curseur
+     */
+    private int validerTaille(int taille) {
+        if (taille < 1) {
+            throw new RuntimeException("La taille de page doit être positive");
+        }
+        return Math.min(taille, tailleMaxPage);
+    }
+}
@@ -1,19 +1,28 @@
 package ga.dgtt.autoecole.service;
 
+import ga.dgtt.autoecole.dto.AutoEcoleDetail;
+import ga.dgtt.autoecole.dto.AutoEcoleResume;
+import ga.dgtt.autoecole.dto.CandidatResume;
+import ga.dgtt.autoecole.dto.VersionEntite;
 import ga.dgtt.autoecole.model.*;
 import ga.dgtt.autoecole.repository.AutoEcoleRepository;
 import ga.dgtt.autoecole.repository.CandidatRepository;
-import ga.dgtt.autoecole.repository.AuditLogRepository;
+import ga.dgtt.autoecole.repository.DocumentCandidatRepository;
+import ga.dgtt.autoecole.repository.EvaluationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
 
 /**
  * Service pour la gestion des auto-écoles
@@ -32,31 +41,58 @@ public class AutoEcoleService {
     private CandidatRepository candidatRepository;
     
     @Autowired
-    private AuditLogRepository auditLogRepository;
+    private DocumentCandidatRepository documentCandidatRepository;
+    
+    @Autowired
+    private EvaluationRepository evaluationRepository;
     
     @Autowired
     private QRCodeService qrCodeService;
     
+    @Autowired
+    private GenerateurNumero generateurNumero;
+    
+    @Autowired
+    private EnregistreurAudit enregistreurAudit;
+    
     @Autowired
     private NotificationService notificationService;
     
     @Autowired
     private PaiementService paiementService;
     
+    @Autowired
+    private StatistiquesService statistiquesService;
+    
+    @Autowired
+    private RechercheService rechercheService;
+    
+    @Autowired
+    private CacheEntites cacheEntites;
+    
+    @Autowired
+    private EcheancierAutorisations echeancierAutorisations;
+    
+    @Autowired
+    private MoteurTransitions moteurTransitions;
+    
+    @Value("${app.pagination.taille-max:100}")
+    private int tailleMaxPage;
+    
     /**
      * Crée une nouvelle auto-école
      */
     public AutoEcole creerAutoEcole(AutoEcole autoEcole, String utilisateur) {
         // Générer le numéro de demande
-        String numeroDemande = genererNumeroDemande();
+        String numeroDemande = genererNumeroDemande(autoEcole.getProvince());
         autoEcole.setNumeroDemande(numeroDemande);
         
-        // Générer le QR code
-        String qrCode = qrCodeService.genererQRCode("AUTO_ECOLE:" + numeroDemande);
-        autoEcole.setQrCode(qrCode);
+        // Contenu du QR code (l'image est générée à la demande)
+        autoEcole.setQrCode("AUTO_ECOLE:" + numeroDemande);
         
         // Sauvegarder
         AutoEcole autoEcoleSauvegardee = autoEcoleRepository.save(autoEcole);
+        statistiquesService.autoEcoleCreee(autoEcoleSauvegardee.getStatut());
         
         // Enregistrer l'audit
         enregistrerAudit(ActionAudit.CREATION, "AutoEcole", autoEcoleSauvegardee.getId(), 
@@ -84,30 +120,113 @@ public class AutoEcoleService {
         return autoEcoleRepository.findByNumeroDemande(numeroDemande);
     }
     
+    /**
+     * Fiche d'une auto-école par ID, servie depuis le cache
+     *
+     * Hors transaction : un succès de cache n'emprunte pas de connexion.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<AutoEcoleDetail> trouverDetailParId(Long id) {
+        return cacheEntites.autoEcole(id, cle -> autoEcoleRepository.findById(cle).map(AutoEcoleDetail::depuis));
+    }
+    
+    /**
+     * Fiche d'une auto-école à la version lue en base
+     *
+     * Une fiche en cache d'une autre version (remise en cache par une lecture
+     * concurrente d'une écriture) est évincée et relue : le corps et l'ETag
+     * renvoyés correspondent à la base.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<AutoEcoleDetail> trouverDetail(VersionEntite version) {
+        Optional<AutoEcoleDetail> detail = trouverDetailParId(version.id());
+        if (detail.isEmpty() || Objects.equals(detail.get().version(), version.version())) {
+            return detail;
+        }
+        cacheEntites.evincerAutoEcole(version.id());
+        return trouverDetailParId(version.id());
+    }
+    
+    /**
+     * Version courante d'une auto-école, lue en base (jamais depuis le cache)
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<VersionEntite> trouverVersion(Long id) {
+        return autoEcoleRepository.findVersionById(id);
+    }
+    
+    /**
+     * Version courante d'une auto-école par numéro de demande
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<VersionEntite> trouverVersionParNumeroDemande(String numeroDemande) {
+        return autoEcoleRepository.findVersionByNumeroDemande(numeroDemande);
+    }
+    
+    /**
+     * Candidat par numéro de licence (scan de QR code), servi depuis le cache
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<CandidatResume> trouverCandidatParNumeroLicence(String numeroLicence) {
+        return cacheEntites.candidat(numeroLicence,
+                cle -> candidatRepository.findByNumeroLicence(cle).map(CandidatResume::depuis));
+    }
+    
     /**
      * Trouve toutes les auto-écoles avec pagination
      */
     @Transactional(readOnly = true)
-    public Page<AutoEcole> trouverToutes(Pageable pageable) {
-        return autoEcoleRepository.findAll(pageable);
+    public Page<AutoEcoleResume> trouverToutes(Pageable pageable) {
+        return autoEcoleRepository.findAll(pageable).map(AutoEcoleResume::depuis);
+    }
+    
+    /**
+     * Trouve les auto-écoles par curseur, des plus récentes aux plus anciennes
+     */
+    @Transactional(readOnly = true)
+    public PageCurseur<AutoEcoleResume> trouverToutesParCurseur(String curseur, int taille) {
+        PageCurseur.Cle cle = PageCurseur.decoder(curseur);
+        int tailleValide = validerTaille(taille);
+        List<AutoEcole> resultats = autoEcoleRepository.findApresCurseur(
+                cle != null ? cle.getDateCreation() : null, cle != null ? cle.getId() : null,
+                PageRequest.of(0, tailleValide + 1));
+        return PageCurseur.depuis(resultats, tailleValide, AutoEcole::getDateCreation, AutoEcole::getId)
+                .map(AutoEcoleResume::depuis);
     }
     
     /**
      * Trouve les auto-écoles par statut
      */
     @Transactional(readOnly = true)
-    public List<AutoEcole> trouverParStatut(StatutAutoEcole statut) {
-        return autoEcoleRepository.findByStatut(statut);
+    public List<AutoEcoleResume> trouverParStatut(StatutAutoEcole statut) {
+        return autoEcoleRepository.findResumesByStatut(statut);
     }
     
     /**
      * Trouve les auto-écoles par critères
      */
     @Transactional(readOnly = true)
-    public Page<AutoEcole> rechercherParCriteres(String ville, String province, 
+    public Page<AutoEcoleResume> rechercherParCriteres(String ville, String province, 
                                                 StatutAutoEcole statut, String nom, 
                                                 Pageable pageable) {
-        return autoEcoleRepository.findByCriteres(ville, province, statut, nom, pageable);
+        return rechercheService.rechercherParCriteres(ville, province, statut, nom, pageable);
+    }
+    
+    /**
+     * Trouve les auto-écoles par critères et par curseur
+     */
+    @Transactional(readOnly = true)
+    public PageCurseur<AutoEcoleResume> rechercherParCriteresParCurseur(String ville, String province,
+                                                                       StatutAutoEcole statut, String nom,
+                                                                       String curseur, int taille) {
+        PageCurseur.Cle cle = PageCurseur.decoder(curseur);
+        int tailleValide = validerTaille(taille);
+        List<AutoEcole> resultats = autoEcoleRepository.findByCriteresApresCurseur(
+                ville, province, statut != null ? statut.name() : null, nom,
+                cle != null ? cle.getDateCreation() : null, cle != null ? cle.getId() : null,
+                PageRequest.of(0, tailleValide + 1));
+        return PageCurseur.depuis(resultats, tailleValide, AutoEcole::getDateCreation, AutoEcole::getId)
+                .map(AutoEcoleResume::depuis);
     }
     
     /**
@@ -119,9 +238,28 @@ public class AutoEcoleService {
         
         // Enregistrer les données avant modification
         String donneesAvant = serializeAutoEcole(autoEcoleExistante);
+        StatutAutoEcole ancienStatut = autoEcoleExistante.getStatut();
+        String ancienNom = autoEcoleExistante.getNom();
+        if (autoEcole.getStatut() != ancienStatut && !ancienStatut.peutPasserA(autoEcole.getStatut())) {
+            throw new RuntimeException("Transition de statut non autorisée : " + ancienStatut + " -> " + autoEcole.getStatut());
+        }
+        // Sans version fournie, la modification porte sur l'état courant ; sinon elle est refusée
+        // si l'auto-école a changé depuis la lecture du client
+        if (autoEcole.getVersion() == null) {
+            autoEcole.setVersion(autoEcoleExistante.getVersion());
+        } else if (!autoEcole.getVersion().equals(autoEcoleExistante.getVersion())) {
+            throw new OptimisticLockingFailureException("L'auto-école a été modifiée depuis sa lecture");
+        }
         
         // Mettre à jour
         AutoEcole autoEcoleMiseAJour = autoEcoleRepository.save(autoEcole);
+        statistiquesService.transitionAutoEcole(ancienStatut, autoEcoleMiseAJour.getStatut());
+        cacheEntites.invaliderAutoEcole(autoEcoleMiseAJour.getId());
+        echeancierAutorisations.autorisationModifiee(autoEcoleMiseAJour);
+        if (!ancienNom.equals(autoEcoleMiseAJour.getNom())) {
+            // Les candidats en cache portent le nom de leur auto-école
+            cacheEntites.invaliderCandidats();
+        }
         
         // Enregistrer l'audit
         String donneesApres = serializeAutoEcole(autoEcoleMiseAJour);
@@ -135,120 +273,152 @@ public class AutoEcoleService {
     /**
      * Valide le paiement d'une auto-école
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AutoEcole validerPaiement(Long id, String referencePaiement, String utilisateur) {
-        AutoEcole autoEcole = autoEcoleRepository.findById(id)
+        AutoEcole demande = autoEcoleRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Auto-école non trouvée"));
         
-        // Vérifier le paiement
+        // Vérifier le paiement (appel externe, hors transaction)
         boolean paiementValide = paiementService.verifierPaiement(referencePaiement, 
-                                                                 autoEcole.getMontantPaiement());
+                                                                 demande.getMontantPaiement());
         
         if (!paiementValide) {
             throw new RuntimeException("Paiement invalide");
         }
         
-        // Mettre à jour le statut
-        autoEcole.setStatut(StatutAutoEcole.PAIEMENT_VALIDE);
-        autoEcole.setDatePaiement(LocalDateTime.now());
-        autoEcole.setReferencePaiement(referencePaiement);
+        return moteurTransitions.executer("paiement", () -> {
+            AutoEcole autoEcole = autoEcoleRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Auto-école non trouvée"));
         
-        AutoEcole autoEcoleMiseAJour = autoEcoleRepository.save(autoEcole);
+            if (!autoEcole.getStatut().peutPasserA(StatutAutoEcole.PAIEMENT_VALIDE)) {
+                throw new RuntimeException("Le paiement a déjà été validé ou la demande n'est plus en attente de paiement");
+            }
         
-        // Enregistrer l'audit
-        enregistrerAudit(ActionAudit.PAIEMENT, "AutoEcole", autoEcole.getId(), 
-                        utilisateur, "Paiement validé pour l'auto-école: " + autoEcole.getNom());
+            // Mettre à jour le statut
+            StatutAutoEcole ancienStatut = autoEcole.getStatut();
+            autoEcole.setStatut(StatutAutoEcole.PAIEMENT_VALIDE);
+            autoEcole.setDatePaiement(LocalDateTime.now());
+            autoEcole.setReferencePaiement(referencePaiement);
         
-        // Envoyer notification
-        notificationService.envoyerNotificationPaiementValide(autoEcoleMiseAJour);
+            AutoEcole autoEcoleMiseAJour = autoEcoleRepository.saveAndFlush(autoEcole);
+            statistiquesService.transitionAutoEcole(ancienStatut, autoEcoleMiseAJour.getStatut());
+            cacheEntites.invaliderAutoEcole(autoEcoleMiseAJour.getId());
         
-        return autoEcoleMiseAJour;
+            // Enregistrer l'audit
+            enregistrerAudit(ActionAudit.PAIEMENT, "AutoEcole", autoEcole.getId(), 
+                            utilisateur, "Paiement validé pour l'auto-école: " + autoEcole.getNom());
+        
+            // Envoyer notification
+            notificationService.envoyerNotificationPaiementValide(autoEcoleMiseAJour);
+        
+            return autoEcoleMiseAJour;
+        });
     }
     
     /**
      * Programme une inspection
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AutoEcole programmerInspection(Long id, String inspecteurNom, String inspecteurPrenom, 
                                         String utilisateur) {
-        AutoEcole autoEcole = autoEcoleRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Auto-école non trouvée"));
-        
-        // Vérifier que le paiement est validé
-        if (autoEcole.getStatut() != StatutAutoEcole.PAIEMENT_VALIDE) {
-            throw new RuntimeException("Le paiement doit être validé avant l'inspection");
-        }
-        
-        // Mettre à jour le statut
-        autoEcole.setStatut(StatutAutoEcole.INSPECTION_EN_COURS);
-        autoEcole.setInspecteurNom(inspecteurNom);
-        autoEcole.setInspecteurPrenom(inspecteurPrenom);
-        
-        AutoEcole autoEcoleMiseAJour = autoEcoleRepository.save(autoEcole);
-        
-        // Enregistrer l'audit
-        enregistrerAudit(ActionAudit.INSPECTION, "AutoEcole", autoEcole.getId(), 
-                        utilisateur, "Inspection programmée pour l'auto-école: " + autoEcole.getNom());
-        
-        return autoEcoleMiseAJour;
+        return moteurTransitions.executer("programmation_inspection", () -> {
+            AutoEcole autoEcole = autoEcoleRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Auto-école non trouvée"));
+        
+            // Vérifier que le paiement est validé
+            if (!autoEcole.getStatut().peutPasserA(StatutAutoEcole.INSPECTION_EN_COURS)) {
+                throw new RuntimeException("Le paiement doit être validé avant l'inspection");
+            }
+        
+            // Mettre à jour le statut
+            StatutAutoEcole ancienStatut = autoEcole.getStatut();
+            autoEcole.setStatut(StatutAutoEcole.INSPECTION_EN_COURS);
+            autoEcole.setInspecteurNom(inspecteurNom);
+            autoEcole.setInspecteurPrenom(inspecteurPrenom);
+        
+            AutoEcole autoEcoleMiseAJour = autoEcoleRepository.saveAndFlush(autoEcole);
+            statistiquesService.transitionAutoEcole(ancienStatut, autoEcoleMiseAJour.getStatut());
+            cacheEntites.invaliderAutoEcole(autoEcoleMiseAJour.getId());
+        
+            // Enregistrer l'audit
+            enregistrerAudit(ActionAudit.INSPECTION, "AutoEcole", autoEcole.getId(), 
+                            utilisateur, "Inspection programmée pour l'auto-école: " + autoEcole.getNom());
+        
+            return autoEcoleMiseAJour;
+        });
     }
     
     /**
      * Valide une inspection
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AutoEcole validerInspection(Long id, String rapportInspection, String utilisateur) {
-        AutoEcole autoEcole = autoEcoleRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Auto-école non trouvée"));
-        
-        // Vérifier que l'inspection est en cours
-        if (autoEcole.getStatut() != StatutAutoEcole.INSPECTION_EN_COURS) {
-            throw new RuntimeException("L'inspection doit être en cours");
-        }
-        
-        // Mettre à jour le statut
-        autoEcole.setStatut(StatutAutoEcole.INSPECTION_VALIDEE);
-        autoEcole.setRapportInspection(rapportInspection);
-        autoEcole.setDateInspection(LocalDateTime.now());
-        
-        AutoEcole autoEcoleMiseAJour = autoEcoleRepository.save(autoEcole);
-        
-        // Enregistrer l'audit
-        enregistrerAudit(ActionAudit.INSPECTION, "AutoEcole", autoEcole.getId(), 
-                        utilisateur, "Inspection validée pour l'auto-école: " + autoEcole.getNom());
-        
-        return autoEcoleMiseAJour;
+        return moteurTransitions.executer("validation_inspection", () -> {
+            AutoEcole autoEcole = autoEcoleRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Auto-école non trouvée"));
+        
+            // Vérifier que l'inspection est en cours
+            if (!autoEcole.getStatut().peutPasserA(StatutAutoEcole.INSPECTION_VALIDEE)) {
+                throw new RuntimeException("L'inspection doit être en cours");
+            }
+        
+            // Mettre à jour le statut
+            StatutAutoEcole ancienStatut = autoEcole.getStatut();
+            autoEcole.setStatut(StatutAutoEcole.INSPECTION_VALIDEE);
+            autoEcole.setRapportInspection(rapportInspection);
+            autoEcole.setDateInspection(LocalDateTime.now());
+        
+            AutoEcole autoEcoleMiseAJour = autoEcoleRepository.saveAndFlush(autoEcole);
+            statistiquesService.transitionAutoEcole(ancienStatut, autoEcoleMiseAJour.getStatut());
+            cacheEntites.invaliderAutoEcole(autoEcoleMiseAJour.getId());
+        
+            // Enregistrer l'audit
+            enregistrerAudit(ActionAudit.INSPECTION, "AutoEcole", autoEcole.getId(), 
+                            utilisateur, "Inspection validée pour l'auto-école: " + autoEcole.getNom());
+        
+            return autoEcoleMiseAJour;
+        });
     }
     
     /**
      * Génère une autorisation provisoire
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AutoEcole genererAutorisationProvisoire(Long id, String utilisateur) {
-        AutoEcole autoEcole = autoEcoleRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Auto-école non trouvée"));
-        
-        // Vérifier que l'inspection est validée
-        if (autoEcole.getStatut() != StatutAutoEcole.INSPECTION_VALIDEE) {
-            throw new RuntimeException("L'inspection doit être validée avant l'autorisation");
-        }
-        
-        // Générer l'autorisation
-        String autorisation = genererNumeroAutorisation();
-        LocalDateTime dateExpiration = LocalDateTime.now().plusMonths(6);
-        
-        // Mettre à jour le statut
-        autoEcole.setStatut(StatutAutoEcole.AUTORISATION_PROVISOIRE);
-        autoEcole.setAutorisationProvisoire(autorisation);
-        autoEcole.setDateAutorisation(LocalDateTime.now());
-        autoEcole.setDateExpirationAutorisation(dateExpiration);
-        
-        AutoEcole autoEcoleMiseAJour = autoEcoleRepository.save(autoEcole);
-        
-        // Enregistrer l'audit
-        enregistrerAudit(ActionAudit.APPROBATION, "AutoEcole", autoEcole.getId(), 
-                        utilisateur, "Autorisation provisoire générée pour l'auto-école: " + autoEcole.getNom());
-        
-        // Envoyer notification
-        notificationService.envoyerNotificationAutorisation(autoEcoleMiseAJour);
-        
-        return autoEcoleMiseAJour;
+        return moteurTransitions.executer("autorisation_provisoire", () -> {
+            AutoEcole autoEcole = autoEcoleRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Auto-école non trouvée"));
+        
+            // Vérifier que l'inspection est validée
+            if (!autoEcole.getStatut().peutPasserA(StatutAutoEcole.AUTORISATION_PROVISOIRE)) {
+                throw new RuntimeException("L'inspection doit être validée avant l'autorisation");
+            }
+        
+            // Générer l'autorisation
+            String autorisation = genererNumeroAutorisation(autoEcole.getProvince());
+            LocalDateTime dateExpiration = LocalDateTime.now().plusMonths(6);
+        
+            // Mettre à jour le statut
+            StatutAutoEcole ancienStatut = autoEcole.getStatut();
+            autoEcole.setStatut(StatutAutoEcole.AUTORISATION_PROVISOIRE);
+            autoEcole.setAutorisationProvisoire(autorisation);
+            autoEcole.setDateAutorisation(LocalDateTime.now());
+            autoEcole.setDateExpirationAutorisation(dateExpiration);
+        
+            AutoEcole autoEcoleMiseAJour = autoEcoleRepository.saveAndFlush(autoEcole);
+            statistiquesService.transitionAutoEcole(ancienStatut, autoEcoleMiseAJour.getStatut());
+            cacheEntites.invaliderAutoEcole(autoEcoleMiseAJour.getId());
+            echeancierAutorisations.autorisationModifiee(autoEcoleMiseAJour);
+        
+            // Enregistrer l'audit
+            enregistrerAudit(ActionAudit.APPROBATION, "AutoEcole", autoEcole.getId(), 
+                            utilisateur, "Autorisation provisoire générée pour l'auto-école: " + autoEcole.getNom());
+        
+            // Envoyer notification
+            notificationService.envoyerNotificationAutorisation(autoEcoleMiseAJour);
+        
+            return autoEcoleMiseAJour;
+        });
     }
     
     /**
@@ -264,18 +434,18 @@ public class AutoEcoleService {
         }
         
         // Générer les numéros
-        candidat.setNumeroLicence(genererNumeroLicence());
-        candidat.setNumeroEvaluation(genererNumeroEvaluation());
+        candidat.setNumeroLicence(genererNumeroLicence(autoEcole.getProvince()));
+        candidat.setNumeroEvaluation(genererNumeroEvaluation(autoEcole.getProvince()));
         
-        // Générer le QR code
-        String qrCode = qrCodeService.genererQRCode("CANDIDAT:" + candidat.getNumeroLicence());
-        candidat.setQrCode(qrCode);
+        // Contenu du QR code (l'image est générée à la demande)
+        candidat.setQrCode("CANDIDAT:" + candidat.getNumeroLicence());
         
         // Associer à l'auto-école
         candidat.setAutoEcole(autoEcole);
         
         // Sauvegarder
         Candidat candidatSauvegarde = candidatRepository.save(candidat);
+        statistiquesService.candidatCree(candidatSauvegarde.getStatut());
         
         // Enregistrer l'audit
         enregistrerAudit(ActionAudit.CREATION, "Candidat", candidatSauvegarde.getId(), 
@@ -287,44 +457,42 @@ public class AutoEcoleService {
         return candidatSauvegarde;
     }
     
+    /**
+     * Borne la taille d'une page par curseur
+     */
+    private int validerTaille(int taille) {
+        if (taille < 1) {
+            throw new RuntimeException("La taille de page doit être positive");
+        }
+        return Math.min(taille, tailleMaxPage);
+    }
+    
     /**
      * Génère un numéro de demande unique
      */
-    private String genererNumeroDemande() {
-        String prefixe = "AE";
-        String timestamp = String.valueOf(System.currentTimeMillis());
-        String uuid = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        return prefixe + timestamp + uuid;
+    private String genererNumeroDemande(String province) {
+        return generateurNumero.genererNumero("AE", province);
     }
     
     /**
      * Génère un numéro d'autorisation unique
      */
-    private String genererNumeroAutorisation() {
-        String prefixe = "AUTH";
-        String timestamp = String.valueOf(System.currentTimeMillis());
-        String uuid = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        return prefixe + timestamp + uuid;
+    private String genererNumeroAutorisation(String province) {
+        return generateurNumero.genererNumero("AUTH", province);
     }
     
     /**
      * Génère un numéro de licence unique
      */
-    private String genererNumeroLicence() {
-        String prefixe = "LIC";
-        String timestamp = String.valueOf(System.currentTimeMillis());
-        String uuid = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        return prefixe + timestamp + uuid;
+    private String genererNumeroLicence(String province) {
+        return generateurNumero.genererNumero("LIC", province);
     }
     
     /**
      * Génère un numéro d'évaluation unique
      */
-    private String genererNumeroEvaluation() {
-        String prefixe = "EVAL";
-        String timestamp = String.valueOf(System.currentTimeMillis());
-        String uuid = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        return prefixe + timestamp + uuid;
+    private String genererNumeroEvaluation(String province) {
+        return generateurNumero.genererNumero("EVAL", province);
     }
     
     /**
@@ -344,7 +512,7 @@ public class AutoEcoleService {
         auditLog.setDonneesAvant(donneesAvant);
         auditLog.setDonneesApres(donneesApres);
         auditLog.setNiveauSecurite(determinerNiveauSecurite(action));
-        auditLogRepository.save(auditLog);
+        enregistreurAudit.enregistrer(auditLog);
     }
     
     /**
@@ -375,40 +543,63 @@ public class AutoEcoleService {
      * Liste les candidats d'une auto-école
      */
     @Transactional(readOnly = true)
-    public List<Candidat> listerCandidats(Long autoEcoleId) {
-        return candidatRepository.findByAutoEcoleId(autoEcoleId);
+    public List<CandidatResume> listerCandidats(Long autoEcoleId) {
+        return candidatRepository.findResumesByAutoEcoleId(autoEcoleId);
+    }
+    
+    /**
+     * Liste les candidats par curseur, des plus récents aux plus anciens
+     */
+    @Transactional(readOnly = true)
+    public PageCurseur<CandidatResume> listerCandidatsParCurseur(Long autoEcoleId, StatutCandidat statut,
+                                                                String curseur, int taille) {
+        PageCurseur.Cle cle = PageCurseur.decoder(curseur);
+        int tailleValide = validerTaille(taille);
+        List<Candidat> resultats = candidatRepository.findApresCurseur(
+                autoEcoleId, statut,
+                cle != null ? cle.getDateCreation() : null, cle != null ? cle.getId() : null,
+                PageRequest.of(0, tailleValide + 1));
+        return PageCurseur.depuis(resultats, tailleValide, Candidat::getDateCreation, Candidat::getId)
+                .map(CandidatResume::depuis);
+    }
+    
+    /**
+     * Récupère le contenu du QR code d'une auto-école (sans charger l'entité)
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> trouverQRCodeAutoEcole(Long id) {
+        return autoEcoleRepository.findQrCodeById(id);
     }
     
     /**
-     * Récupère les statistiques des auto-écoles
+     * Récupère le contenu du QR code d'un candidat
      */
     @Transactional(readOnly = true)
+    public Optional<String> trouverQRCodeCandidat(Long candidatId) {
+        return candidatRepository.findQrCodeById(candidatId);
+    }
+    
+    /**
+     * Récupère le contenu du QR code d'un document de candidat
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> trouverQRCodeDocumentCandidat(Long documentId) {
+        return documentCandidatRepository.findQrCodeById(documentId);
+    }
+    
+    /**
+     * Récupère le contenu du QR code d'une évaluation
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> trouverQRCodeEvaluation(Long evaluationId) {
+        return evaluationRepository.findQrCodeById(evaluationId);
+    }
+    
+    /**
+     * Récupère les statistiques des auto-écoles (effectifs tenus en mémoire,
+     * voir StatistiquesService)
+     */
     public java.util.Map<String, Object> recupererStatistiques() {
-        java.util.Map<String, Object> stats = new java.util.HashMap<>();
-        
-        // Statistiques générales
-        long totalAutoEcoles = autoEcoleRepository.count();
-        long totalCandidats = candidatRepository.count();
-        
-        // Statistiques par statut
-        long autoEcolesEnAttente = autoEcoleRepository.countByStatut(StatutAutoEcole.EN_ATTENTE);
-        long autoEcolesApprouvees = autoEcoleRepository.countByStatut(StatutAutoEcole.AUTORISATION_VALIDE);
-        long autoEcolesRejetees = autoEcoleRepository.countByStatut(StatutAutoEcole.REJETE);
-        
-        // Statistiques des candidats
-        long candidatsEnCours = candidatRepository.countByStatut(ga.dgtt.autoecole.model.StatutCandidat.EN_FORMATION);
-        long candidatsReussis = candidatRepository.countByStatut(ga.dgtt.autoecole.model.StatutCandidat.EXAMEN_REUSSI);
-        long candidatsEchecs = candidatRepository.countByStatut(ga.dgtt.autoecole.model.StatutCandidat.REJETE);
-        
-        stats.put("totalAutoEcoles", totalAutoEcoles);
-        stats.put("totalCandidats", totalCandidats);
-        stats.put("autoEcolesEnAttente", autoEcolesEnAttente);
-        stats.put("autoEcolesApprouvees", autoEcolesApprouvees);
-        stats.put("autoEcolesRejetees", autoEcolesRejetees);
-        stats.put("candidatsEnCours", candidatsEnCours);
-        stats.put("candidatsReussis", candidatsReussis);
-        stats.put("candidatsEchecs", candidatsEchecs);
-        
-        return stats;
+        return statistiquesService.recupererStatistiques();
     }
 }
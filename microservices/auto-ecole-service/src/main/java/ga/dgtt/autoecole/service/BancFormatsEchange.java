@@ -0,0 +1,114 @@
+package ga.dgtt.autoecole.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ga.dgtt.autoecole.dto.CandidatResume;
+import ga.dgtt.autoecole.repository.CandidatRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Banc d'essai des formats d'échange sur une liste de candidats
+ *
+ * Pour JSON, CBOR et Smile (mêmes réglages Jackson que les réponses HTTP) :
+ * taille du corps brut et compressé en gzip, temps CPU de sérialisation et
+ * de relecture par liste. Les candidats sont les plus récents de la base.
+ * Lancer le service avec le profil banc-formats ; il s'arrête après le rapport :
+ *   java -jar auto-ecole-service.jar --spring.profiles.active=banc-formats --app.echanges.banc.lignes=1000
+ *
+ * Aucun résultat n'est encore relevé : le banc demande une base peuplée et
+ * n'a pas été lancé. Même banc dans permis-service, sur sa propre vue,
+ * chaque service gardant sa copie comme les autres utilitaires communs.
+ */
+@Component
+@Profile("banc-formats")
+public class BancFormatsEchange {
+
+    @Autowired
+    private CandidatRepository candidatRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    @Autowired
+    private ApplicationContext contexte;
+
+    @Value("${app.echanges.banc.lignes:1000}")
+    private int lignes;
+
+    @Value("${app.echanges.banc.iterations:200}")
+    private int iterations;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void executer() throws IOException {
+        List<CandidatResume> candidats = candidatRepository
+                .findApresCurseur(null, null, null, null, PageRequest.of(0, lignes))
+                .stream().map(CandidatResume::depuis).toList();
+
+        Map<String, ObjectMapper> formats = new LinkedHashMap<>();
+        formats.put("JSON", objectMapper);
+        formats.put("CBOR", cborConverter.getObjectMapper());
+        formats.put("Smile", smileConverter.getObjectMapper());
+
+        System.out.println("Banc formats d'échange : " + candidats.size() + " candidats, " +
+                           iterations + " itérations");
+        System.out.printf("%-6s %12s %12s %16s %16s%n",
+                          "Format", "Octets", "Octets gzip", "Écriture (µs)", "Relecture (µs)");
+        for (Map.Entry<String, ObjectMapper> format : formats.entrySet()) {
+            mesurer(format.getKey(), format.getValue(), candidats);
+        }
+        System.exit(SpringApplication.exit(contexte));
+    }
+
+    private void mesurer(String nom, ObjectMapper mapper, List<CandidatResume> candidats) throws IOException {
+        JavaType type = mapper.getTypeFactory().constructCollectionType(List.class, CandidatResume.class);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        // Préchauffage (compilation JIT), puis mesure du temps CPU du thread courant
+        byte[] corps = mapper.writeValueAsBytes(candidats);
+        for (int i = 0; i < iterations / 4; i++) {
+            mapper.readValue(mapper.writeValueAsBytes(candidats), type);
+        }
+        long debut = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < iterations; i++) {
+            corps = mapper.writeValueAsBytes(candidats);
+        }
+        long ecriture = threads.getCurrentThreadCpuTime() - debut;
+        debut = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < iterations; i++) {
+            mapper.readValue(corps, type);
+        }
+        long relecture = threads.getCurrentThreadCpuTime() - debut;
+
+        ByteArrayOutputStream compresse = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compresse)) {
+            gzip.write(corps);
+        }
+        System.out.printf("%-6s %12d %12d %16d %16d%n", nom, corps.length, compresse.size(),
+                          ecriture / iterations / 1000, relecture / iterations / 1000);
+    }
+}
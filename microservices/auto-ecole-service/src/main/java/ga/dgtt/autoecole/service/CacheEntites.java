@@ -0,0 +1,111 @@
+package ga.dgtt.autoecole.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ga.dgtt.autoecole.dto.AutoEcoleDetail;
+import ga.dgtt.autoecole.dto.CandidatResume;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Cache en mémoire des lectures unitaires d'auto-écoles et de candidats
+ *
+ * Caches Caffeine bornés (éviction W-TinyLFU) avec une durée de vie par
+ * entité. Les valeurs sont des vues immuables (records), jamais des entités
+ * JPA. Les méthodes de transition invalident l'entrée modifiée après le
+ * commit ; une fiche remise en cache par une lecture concurrente est
+ * détectée par sa version et évincée (AutoEcoleService#trouverDetail).
+ * Succès, échecs et évictions sont publiés sous cache.* (tag cache).
+ */
+@Component
+public class CacheEntites {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cache.taille-max:10000}")
+    private long tailleMax;
+
+    @Value("${app.cache.auto-ecoles.ttl-secondes:600}")
+    private long ttlAutoEcoles;
+
+    @Value("${app.cache.candidats.ttl-secondes:300}")
+    private long ttlCandidats;
+
+    private Cache<Long, AutoEcoleDetail> autoEcoles;
+    private Cache<String, CandidatResume> candidatsParNumeroLicence;
+
+    @PostConstruct
+    public void initialiser() {
+        autoEcoles = creer(ttlAutoEcoles, "autoEcoles");
+        candidatsParNumeroLicence = creer(ttlCandidats, "candidatsParNumeroLicence");
+    }
+
+    private <K, V> Cache<K, V> creer(long ttlSecondes, String nom) {
+        Cache<K, V> cache = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterWrite(Duration.ofSeconds(ttlSecondes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, nom);
+        return cache;
+    }
+
+    /**
+     * Fiche d'une auto-école par id ; un résultat vide n'est pas mis en cache
+     */
+    public Optional<AutoEcoleDetail> autoEcole(Long id, Function<Long, Optional<AutoEcoleDetail>> chargement) {
+        return Optional.ofNullable(autoEcoles.get(id, cle -> chargement.apply(cle).orElse(null)));
+    }
+
+    /**
+     * Candidat par numéro de licence
+     */
+    public Optional<CandidatResume> candidat(String numeroLicence, Function<String, Optional<CandidatResume>> chargement) {
+        return Optional.ofNullable(candidatsParNumeroLicence.get(numeroLicence, cle -> chargement.apply(cle).orElse(null)));
+    }
+
+    /**
+     * Retire immédiatement une fiche d'auto-école (fiche en cache plus ancienne que la base)
+     */
+    public void evincerAutoEcole(Long id) {
+        autoEcoles.invalidate(id);
+    }
+
+    /**
+     * Invalide une auto-école après le commit de la transaction courante
+     */
+    public void invaliderAutoEcole(Long id) {
+        apresCommit(() -> autoEcoles.invalidate(id));
+    }
+
+    /**
+     * Invalide tous les candidats (le nom de leur auto-école a changé)
+     */
+    public void invaliderCandidats() {
+        apresCommit(() -> candidatsParNumeroLicence.invalidateAll());
+    }
+
+    private void apresCommit(Runnable invalidation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        } else {
+            invalidation.run();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package ga.dgtt.autoecole.service;
+
+import ga.dgtt.autoecole.dto.DocumentResume;
+import ga.dgtt.autoecole.model.ActionAudit;
+import ga.dgtt.autoecole.model.AuditLog;
+import ga.dgtt.autoecole.model.AutoEcole;
+import ga.dgtt.autoecole.model.Candidat;
+import ga.dgtt.autoecole.model.DocumentAutoEcole;
+import ga.dgtt.autoecole.model.DocumentCandidat;
+import ga.dgtt.autoecole.model.NiveauSecurite;
+import ga.dgtt.autoecole.model.TypeDocumentAutoEcole;
+import ga.dgtt.autoecole.model.TypeDocumentCandidat;
+import ga.dgtt.autoecole.repository.AutoEcoleRepository;
+import ga.dgtt.autoecole.repository.CandidatRepository;
+import ga.dgtt.autoecole.repository.DocumentAutoEcoleRepository;
+import ga.dgtt.autoecole.repository.DocumentCandidatRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Service de dépôt et de lecture des documents des auto-écoles et des candidats
+ *
+ * Le contenu est écrit dans le stockage adressé par contenu avant
+ * l'enregistrement du document, hors transaction : un envoi lent n'occupe
+ * pas de connexion à la base. Un dépôt annulé laisse au pire un fichier sans
+ * document, sans effet sur les autres. Le type MIME enregistré est celui
+ * déduit du contenu quand il est reconnu ; les images et PDF sont ensuite
+ * confiés au traitement en arrière-plan (aperçus, miniatures).
+ */
+@Service
+public class DocumentService {
+
+    private static final int LONGUEUR_MAX_TYPE_MIME = 50;
+
+    private static final Set<String> VARIANTES =
+            Set.of(TraitementDocuments.APERCU, TraitementDocuments.MINIATURE, TraitementDocuments.PHOTO);
+
+    @Autowired
+    private AutoEcoleRepository autoEcoleRepository;
+
+    @Autowired
+    private CandidatRepository candidatRepository;
+
+    @Autowired
+    private DocumentAutoEcoleRepository documentAutoEcoleRepository;
+
+    @Autowired
+    private DocumentCandidatRepository documentCandidatRepository;
+
+    @Autowired
+    private StockageDocuments stockageDocuments;
+
+    @Autowired
+    private TraitementDocuments traitementDocuments;
+
+    @Autowired
+    private EnregistreurAudit enregistreurAudit;
+
+    /**
+     * Dépose un document pour une auto-école
+     */
+    public DocumentResume deposerDocumentAutoEcole(Long autoEcoleId, TypeDocumentAutoEcole typeDocument,
+                                                   InputStream contenu, String nomFichier, String typeMime,
+                                                   String utilisateur) throws IOException {
+        AutoEcole autoEcole = autoEcole(autoEcoleId);
+        return enregistrer(autoEcole, typeDocument, stockageDocuments.stocker(contenu), nomFichier, typeMime, utilisateur);
+    }
+
+    /**
+     * Dépose un document pour un candidat
+     */
+    public DocumentResume deposerDocumentCandidat(Long candidatId, TypeDocumentCandidat typeDocument,
+                                                  InputStream contenu, String nomFichier, String typeMime,
+                                                  String utilisateur) throws IOException {
+        Candidat candidat = candidat(candidatId);
+        return enregistrer(candidat, typeDocument, stockageDocuments.stocker(contenu), nomFichier, typeMime, utilisateur);
+    }
+
+    /**
+     * Enregistre le document d'une auto-école pour un fichier déjà stocké
+     */
+    public DocumentResume enregistrerDocumentAutoEcole(Long autoEcoleId, TypeDocumentAutoEcole typeDocument,
+                                                       StockageDocuments.FichierStocke fichier, String nomFichier,
+                                                       String typeMime, String utilisateur) {
+        return enregistrer(autoEcole(autoEcoleId), typeDocument, fichier, nomFichier, typeMime, utilisateur);
+    }
+
+    /**
+     * Enregistre le document d'un candidat pour un fichier déjà stocké
+     */
+    public DocumentResume enregistrerDocumentCandidat(Long candidatId, TypeDocumentCandidat typeDocument,
+                                                      StockageDocuments.FichierStocke fichier, String nomFichier,
+                                                      String typeMime, String utilisateur) {
+        return enregistrer(candidat(candidatId), typeDocument, fichier, nomFichier, typeMime, utilisateur);
+    }
+
+    private DocumentResume enregistrer(AutoEcole autoEcole, TypeDocumentAutoEcole typeDocument,
+                                       StockageDocuments.FichierStocke fichier, String nomFichier,
+                                       String typeMime, String utilisateur) {
+        String nom = nomFichier(nomFichier);
+        DocumentAutoEcole document = new DocumentAutoEcole(autoEcole, typeDocument, nom,
+                                                           stockageDocuments.cheminRelatif(fichier.empreinte()));
+        document.setTypeMime(typeMime(fichier.typeMime(), typeMime, nom));
+        document.setTailleFichier(fichier.taille());
+        document.setHashFichier(fichier.empreinte());
+        DocumentAutoEcole documentSauvegarde = documentAutoEcoleRepository.save(document);
+        traitementDocuments.soumettre(fichier.empreinte(), documentSauvegarde.getTypeMime(), false);
+
+        AuditLog auditLog = new AuditLog("DocumentAutoEcole", documentSauvegarde.getId(), ActionAudit.UPLOAD_FICHIER,
+                                         utilisateur, "Document déposé: " + typeDocument.getLibelle() +
+                                         (fichier.nouveau() ? "" : " (contenu déjà stocké)"));
+        auditLog.setNiveauSecurite(NiveauSecurite.INFO);
+        auditLog.setAutoEcole(autoEcole);
+        enregistreurAudit.enregistrer(auditLog);
+
+        return DocumentResume.depuis(documentSauvegarde);
+    }
+
+    private DocumentResume enregistrer(Candidat candidat, TypeDocumentCandidat typeDocument,
+                                       StockageDocuments.FichierStocke fichier, String nomFichier,
+                                       String typeMime, String utilisateur) {
+        String nom = nomFichier(nomFichier);
+        DocumentCandidat document = new DocumentCandidat(candidat, typeDocument, nom,
+                                                         stockageDocuments.cheminRelatif(fichier.empreinte()));
+        document.setTypeMime(typeMime(fichier.typeMime(), typeMime, nom));
+        document.setTailleFichier(fichier.taille());
+        document.setHashFichier(fichier.empreinte());
+        DocumentCandidat documentSauvegarde = documentCandidatRepository.save(document);
+        traitementDocuments.soumettre(fichier.empreinte(), documentSauvegarde.getTypeMime(),
+                                      typeDocument == TypeDocumentCandidat.PHOTO_IDENTITE);
+
+        AuditLog auditLog = new AuditLog("DocumentCandidat", documentSauvegarde.getId(), ActionAudit.UPLOAD_FICHIER,
+                                         utilisateur, "Document déposé: " + typeDocument.getLibelle() +
+                                         (fichier.nouveau() ? "" : " (contenu déjà stocké)"));
+        auditLog.setNiveauSecurite(NiveauSecurite.INFO);
+        auditLog.setCandidat(candidat);
+        enregistreurAudit.enregistrer(auditLog);
+
+        return DocumentResume.depuis(documentSauvegarde);
+    }
+
+    /**
+     * Vérifie qu'une auto-école existe (avant l'envoi du contenu)
+     */
+    public AutoEcole autoEcole(Long autoEcoleId) {
+        return autoEcoleRepository.findById(autoEcoleId)
+                .orElseThrow(() -> new RuntimeException("Auto-école non trouvée"));
+    }
+
+    /**
+     * Vérifie qu'un candidat existe (avant l'envoi du contenu)
+     */
+    public Candidat candidat(Long candidatId) {
+        return candidatRepository.findById(candidatId)
+                .orElseThrow(() -> new RuntimeException("Candidat non trouvé"));
+    }
+
+    /**
+     * Récupère un document d'auto-école
+     */
+    @Transactional(readOnly = true)
+    public Optional<DocumentResume> trouverDocumentAutoEcole(Long documentId) {
+        return documentAutoEcoleRepository.findById(documentId).map(DocumentResume::depuis);
+    }
+
+    /**
+     * Récupère un document de candidat
+     */
+    @Transactional(readOnly = true)
+    public Optional<DocumentResume> trouverDocumentCandidat(Long documentId) {
+        return documentCandidatRepository.findById(documentId).map(DocumentResume::depuis);
+    }
+
+    /**
+     * Dérivé d'un document (aperçu, miniature, photo) s'il est prêt ; sinon le traitement
+     * est relancé (file pleine lors du dépôt, dérivés supprimés...)
+     */
+    public Optional<Path> derive(DocumentResume document, String variante) {
+        if (!VARIANTES.contains(variante)) {
+            throw new RuntimeException("Variante inconnue : " + variante);
+        }
+        Path fichier = stockageDocuments.derive(document.hashFichier(), variante);
+        if (Files.exists(fichier)) {
+            return Optional.of(fichier);
+        }
+        traitementDocuments.soumettre(document.hashFichier(), document.typeMime(), estPhoto(document));
+        return Optional.empty();
+    }
+
+    /**
+     * Indique si le dérivé demandé sera produit pour ce document
+     */
+    public boolean deriveAttendu(DocumentResume document, String variante) {
+        if (!traitementDocuments.estTraitable(document.typeMime())) {
+            return false;
+        }
+        return !TraitementDocuments.PHOTO.equals(variante)
+               || (estPhoto(document) && !"application/pdf".equals(document.typeMime()));
+    }
+
+    private static boolean estPhoto(DocumentResume document) {
+        return TypeDocumentCandidat.PHOTO_IDENTITE.name().equals(document.typeDocument());
+    }
+
+    private static String nomFichier(String nomFichier) {
+        if (nomFichier == null) {
+            return "document";
+        }
+        // Navigateurs anciens : le nom peut contenir le chemin complet du poste client
+        String nom = nomFichier.substring(Math.max(nomFichier.lastIndexOf('/'), nomFichier.lastIndexOf('\\')) + 1);
+        if (nom.isBlank()) {
+            return "document";
+        }
+        return nom.length() > 255 ? nom.substring(nom.length() - 255) : nom;
+    }
+
+    /**
+     * Type déduit du contenu, à défaut le type déclaré par le client, à défaut celui de l'extension
+     */
+    private static String typeMime(String typeDetecte, String typeDeclare, String nomFichier) {
+        if (typeDetecte != null) {
+            return typeDetecte;
+        }
+        if (typeDeclare != null && typeDeclare.length() <= LONGUEUR_MAX_TYPE_MIME) {
+            try {
+                return MediaType.parseMediaType(typeDeclare).toString();
+            } catch (InvalidMediaTypeException e) {
+                // Type déclaré illisible : déduit de l'extension
+            }
+        }
+        return MediaTypeFactory.getMediaType(nomFichier)
+                .map(MediaType::toString)
+                .filter(type -> type.length() <= LONGUEUR_MAX_TYPE_MIME)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    }
+}
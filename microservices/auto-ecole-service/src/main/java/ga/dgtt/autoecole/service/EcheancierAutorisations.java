@@ -0,0 +1,472 @@
+package ga.dgtt.autoecole.service;
+
+import ga.dgtt.autoecole.dto.EcheanceAutorisation;
+import ga.dgtt.autoecole.model.ActionAudit;
+import ga.dgtt.autoecole.model.AuditLog;
+import ga.dgtt.autoecole.model.AutoEcole;
+import ga.dgtt.autoecole.model.NiveauSecurite;
+import ga.dgtt.autoecole.model.StatutAutoEcole;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Échéancier des autorisations : rappel avant expiration, puis suspension à l'expiration
+ *
+ * Seules les échéances proches (fenêtre glissante de 48 h par défaut) sont en
+ * mémoire, dans une roue temporelle hiérarchique. La fenêtre est prolongée par
+ * tranches, lues page par page sur l'index partiel des autorisations actives ;
+ * chaque changement d'autorisation replanifie ses échéances après validation
+ * de la transaction. Les échéances dues sont traitées par lots : une mise à jour
+ * conditionnelle (UPDATE ... RETURNING, sans double traitement entre instances)
+ * puis les notifications du lot en une écriture. La roue n'est qu'une
+ * indication : une échéance devenue obsolète est replanifiée d'après la base.
+ *
+ * Le point de reprise (table points_reprise) est l'instant jusqu'auquel les
+ * échéances ont été traitées : au redémarrage, seules les suivantes sont
+ * relues, et celles manquées pendant l'arrêt sont traitées aussitôt.
+ */
+@Component
+public class EcheancierAutorisations {
+
+    private static final String POINT_REPRISE = "echeancier_autorisations";
+    private static final String UTILISATEUR = "echeancier";
+
+    // Premier démarrage sans point de reprise : les autorisations déjà échues sont rattrapées
+    private static final LocalDateTime ORIGINE = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final List<String> STATUTS_ACTIFS = List.of(
+            StatutAutoEcole.AUTORISATION_PROVISOIRE.name(), StatutAutoEcole.AUTORISATION_VALIDE.name());
+
+    // Rappel déjà envoyé pour l'autorisation en cours (une nouvelle autorisation le réarme)
+    private static final String RAPPEL_NON_ENVOYE =
+            "(date_rappel_autorisation IS NULL OR date_rappel_autorisation < date_autorisation)";
+
+    private static final String LECTURE_EXPIRATIONS =
+            "SELECT id, date_expiration_autorisation FROM auto_ecoles " +
+            "WHERE statut IN (:actifs) AND date_expiration_autorisation > :debut " +
+            "AND date_expiration_autorisation <= :fin " +
+            "AND (date_expiration_autorisation, id) > (:dateCurseur, :idCurseur) " +
+            "ORDER BY date_expiration_autorisation, id LIMIT :taille";
+
+    private static final String LECTURE_RAPPELS =
+            "SELECT id, date_expiration_autorisation FROM auto_ecoles " +
+            "WHERE statut IN (:actifs) AND date_expiration_autorisation > :debut " +
+            "AND date_expiration_autorisation <= :fin AND date_expiration_autorisation > :maintenant " +
+            "AND (date_expiration_autorisation, id) > (:dateCurseur, :idCurseur) AND " + RAPPEL_NON_ENVOYE +
+            " ORDER BY date_expiration_autorisation, id LIMIT :taille";
+
+    private static final String EXPIRATION =
+            "UPDATE auto_ecoles a SET statut = :suspendu, date_modification = :maintenant, version = a.version + 1 " +
+            "FROM (SELECT id, statut FROM auto_ecoles WHERE id IN (:ids) AND statut IN (:actifs) " +
+            "      AND date_expiration_autorisation <= :maintenant FOR UPDATE) ancien " +
+            "WHERE a.id = ancien.id " +
+            "RETURNING a.id, a.nom, a.email, a.telephone, a.autorisation_provisoire, " +
+            "a.date_expiration_autorisation, ancien.statut";
+
+    private static final String RAPPEL =
+            "UPDATE auto_ecoles SET date_rappel_autorisation = :maintenant " +
+            "WHERE id IN (:ids) AND statut IN (:actifs) AND date_expiration_autorisation > :maintenant " +
+            "AND date_expiration_autorisation <= :limiteRappel AND " + RAPPEL_NON_ENVOYE +
+            " RETURNING id, nom, email, telephone, autorisation_provisoire, date_expiration_autorisation, statut";
+
+    private enum TypeEcheance { RAPPEL, EXPIRATION }
+
+    private record Cle(long autoEcoleId, TypeEcheance type) {}
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private StatistiquesService statistiquesService;
+
+    @Autowired
+    private CacheEntites cacheEntites;
+
+    @Autowired
+    private EnregistreurAudit enregistreurAudit;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.autorisations.echeancier.pas-ms:60000}")
+    private long pasMillis;
+
+    @Value("${app.autorisations.rappel-jours:30}")
+    private int joursRappel;
+
+    @Value("${app.autorisations.echeancier.fenetre-heures:48}")
+    private int fenetreHeures;
+
+    @Value("${app.autorisations.echeancier.taille-lot:500}")
+    private int tailleLot;
+
+    // Accès sous le verrou de l'instance
+    private RoueTemporelle<Cle> roue;
+    private LocalDateTime horizon;
+    private Set<Long> modifieesPendantLecture;
+
+    private Counter compteurRappels;
+    private Counter compteurExpirations;
+    private Counter compteurObsoletes;
+
+    @PostConstruct
+    public void initialiser() {
+        compteurRappels = Counter.builder("autorisations.echeances").tag("type", "rappel").register(meterRegistry);
+        compteurExpirations = Counter.builder("autorisations.echeances").tag("type", "expiration").register(meterRegistry);
+        compteurObsoletes = Counter.builder("autorisations.echeances.obsoletes").register(meterRegistry);
+        Gauge.builder("autorisations.echeancier.taille", this, EcheancierAutorisations::taille).register(meterRegistry);
+    }
+
+    /**
+     * Au démarrage, reprend au dernier point de reprise et lit la première fenêtre
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void auDemarrage() {
+        LocalDateTime pointReprise;
+        try {
+            pointReprise = lirePointReprise();
+        } catch (Exception e) {
+            System.err.println("Échéancier des autorisations désactivé (point de reprise illisible): " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            roue = new RoueTemporelle<>(pasMillis, millis(LocalDateTime.now()));
+            horizon = pointReprise != null ? pointReprise : ORIGINE;
+        }
+        System.out.println("Échéancier des autorisations : reprise après " + horizon);
+        avancer();
+    }
+
+    /**
+     * Replanifie les échéances d'une auto-école après un changement d'autorisation ou de statut
+     * (après validation de la transaction courante)
+     */
+    public void autorisationModifiee(AutoEcole autoEcole) {
+        long id = autoEcole.getId();
+        StatutAutoEcole statut = autoEcole.getStatut();
+        LocalDateTime dateExpiration = autoEcole.getDateExpirationAutorisation();
+        boolean rappelEnvoye = autoEcole.getDateRappelAutorisation() != null && autoEcole.getDateAutorisation() != null
+                               && !autoEcole.getDateRappelAutorisation().isBefore(autoEcole.getDateAutorisation());
+        apresValidation(() -> replanifier(id, statut, dateExpiration, rappelEnvoye));
+    }
+
+    /**
+     * Avance l'aiguille : prolonge la fenêtre si besoin, traite les échéances dues
+     * puis enregistre le point de reprise
+     */
+    @Scheduled(fixedDelayString = "${app.autorisations.echeancier.pas-ms:60000}")
+    public void avancer() {
+        List<Cle> echues;
+        LocalDateTime maintenant = LocalDateTime.now();
+        synchronized (this) {
+            if (roue == null) {
+                return;
+            }
+        }
+        try {
+            prolonger(maintenant);
+            synchronized (this) {
+                echues = roue.avancer(millis(maintenant));
+            }
+        } catch (Exception e) {
+            System.err.println("Erreur lors de la lecture des échéances d'autorisation: " + e.getMessage());
+            return;
+        }
+
+        List<Long> expirations = new ArrayList<>();
+        List<Long> rappels = new ArrayList<>();
+        for (Cle cle : echues) {
+            (cle.type() == TypeEcheance.EXPIRATION ? expirations : rappels).add(cle.autoEcoleId());
+        }
+        // Les expirations d'abord : une autorisation échue ne reçoit plus de rappel
+        boolean expirationsTraitees = traiterParLots(expirations, TypeEcheance.EXPIRATION, maintenant);
+        boolean rappelsTraites = traiterParLots(rappels, TypeEcheance.RAPPEL, maintenant);
+        if (expirationsTraitees && rappelsTraites) {
+            LocalDateTime pointReprise;
+            synchronized (this) {
+                pointReprise = horizon.isBefore(maintenant) ? horizon : maintenant;
+            }
+            try {
+                enregistrerPointReprise(pointReprise);
+            } catch (Exception e) {
+                System.err.println("Erreur lors de l'enregistrement du point de reprise des autorisations: " +
+                                   e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Lit la tranche suivante d'échéances quand la fenêtre en mémoire devient courte
+     */
+    private void prolonger(LocalDateTime maintenant) {
+        Duration fenetre = Duration.ofHours(fenetreHeures);
+        LocalDateTime debut;
+        LocalDateTime fin;
+        synchronized (this) {
+            if (horizon.isAfter(maintenant.plus(fenetre.dividedBy(2)))) {
+                return;
+            }
+            debut = horizon;
+            fin = maintenant.plus(fenetre);
+            // Dès maintenant, les changements jusqu'à fin sont planifiés directement
+            horizon = fin;
+            modifieesPendantLecture = new HashSet<>();
+        }
+        boolean lu = false;
+        try {
+            lire(LECTURE_EXPIRATIONS, debut, fin, maintenant, TypeEcheance.EXPIRATION);
+            lire(LECTURE_RAPPELS, debut.plusDays(joursRappel), fin.plusDays(joursRappel), maintenant,
+                 TypeEcheance.RAPPEL);
+            lu = true;
+        } finally {
+            synchronized (this) {
+                modifieesPendantLecture = null;
+                if (!lu) {
+                    // Tranche relue au prochain pas (planifier une échéance deux fois est sans effet)
+                    horizon = debut;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lit les autorisations expirant dans (debut, fin], par pages sur (date d'expiration, id)
+     */
+    private void lire(String sql, LocalDateTime debut, LocalDateTime fin, LocalDateTime maintenant,
+                      TypeEcheance type) {
+        MapSqlParameterSource parametres = new MapSqlParameterSource()
+                .addValue("actifs", STATUTS_ACTIFS)
+                .addValue("debut", Timestamp.valueOf(debut))
+                .addValue("fin", Timestamp.valueOf(fin))
+                .addValue("maintenant", Timestamp.valueOf(maintenant))
+                .addValue("dateCurseur", Timestamp.valueOf(debut))
+                .addValue("idCurseur", 0L)
+                .addValue("taille", tailleLot);
+        long decalage = type == TypeEcheance.RAPPEL ? Duration.ofDays(joursRappel).toMillis() : 0;
+        int lues = 0;
+        while (true) {
+            List<Object[]> page = jdbcTemplate.query(sql, parametres, (rs, numero) ->
+                    new Object[] { rs.getLong(1), rs.getTimestamp(2) });
+            synchronized (this) {
+                for (Object[] ligne : page) {
+                    long id = (Long) ligne[0];
+                    if (!modifieesPendantLecture.contains(id)) {
+                        roue.planifier(new Cle(id, type), ((Timestamp) ligne[1]).getTime() - decalage);
+                    }
+                }
+            }
+            lues += page.size();
+            if (page.size() < tailleLot) {
+                break;
+            }
+            Object[] derniere = page.get(page.size() - 1);
+            parametres.addValue("dateCurseur", derniere[1]).addValue("idCurseur", derniere[0]);
+        }
+        if (lues > 0) {
+            System.out.println("Échéancier des autorisations : " + lues + " échéance(s) " +
+                               type.name().toLowerCase() + " jusqu'au " + fin);
+        }
+    }
+
+    /**
+     * Traite les échéances dues par lots ; un lot en échec est retenté au pas suivant
+     *
+     * @return false si un lot a échoué
+     */
+    private boolean traiterParLots(List<Long> ids, TypeEcheance type, LocalDateTime maintenant) {
+        boolean complet = true;
+        for (int debut = 0; debut < ids.size(); debut += tailleLot) {
+            List<Long> lot = ids.subList(debut, Math.min(debut + tailleLot, ids.size()));
+            try {
+                List<EcheanceAutorisation> traitees = new TransactionTemplate(transactionManager).execute(status ->
+                        type == TypeEcheance.EXPIRATION ? expirer(lot, maintenant) : rappeler(lot, maintenant));
+                if (traitees.size() < lot.size()) {
+                    replanifierObsoletes(lot, traitees);
+                }
+            } catch (Exception e) {
+                System.err.println("Erreur lors du traitement des échéances d'autorisation (" +
+                                   type.name().toLowerCase() + "): " + e.getMessage());
+                synchronized (this) {
+                    for (Long id : lot) {
+                        roue.planifier(new Cle(id, type), millis(maintenant) + pasMillis);
+                    }
+                }
+                complet = false;
+            }
+        }
+        return complet;
+    }
+
+    /**
+     * Suspend les auto-écoles dont l'autorisation a expiré (dans la transaction du lot)
+     */
+    private List<EcheanceAutorisation> expirer(List<Long> ids, LocalDateTime maintenant) {
+        MapSqlParameterSource parametres = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("actifs", STATUTS_ACTIFS)
+                .addValue("suspendu", StatutAutoEcole.SUSPENDU.name())
+                .addValue("maintenant", Timestamp.valueOf(maintenant));
+        List<EcheanceAutorisation> expirees = jdbcTemplate.query(EXPIRATION, parametres, (rs, numero) ->
+                echeance(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5),
+                         rs.getTimestamp(6), rs.getString(7)));
+        if (expirees.isEmpty()) {
+            return expirees;
+        }
+
+        for (EcheanceAutorisation expiree : expirees) {
+            statistiquesService.transitionAutoEcole(expiree.ancienStatut(), StatutAutoEcole.SUSPENDU);
+            cacheEntites.invaliderAutoEcole(expiree.id());
+
+            AuditLog auditLog = new AuditLog("AutoEcole", expiree.id(), ActionAudit.MODIFICATION, UTILISATEUR,
+                                             "Autorisation expirée, auto-école suspendue: " + expiree.nom());
+            auditLog.setNiveauSecurite(NiveauSecurite.WARNING);
+            enregistreurAudit.enregistrer(auditLog);
+        }
+        notificationService.envoyerNotificationsExpiration(expirees);
+        compteurExpirations.increment(expirees.size());
+        return expirees;
+    }
+
+    /**
+     * Enregistre les rappels d'expiration prochaine (dans la transaction du lot)
+     */
+    private List<EcheanceAutorisation> rappeler(List<Long> ids, LocalDateTime maintenant) {
+        MapSqlParameterSource parametres = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("actifs", STATUTS_ACTIFS)
+                .addValue("maintenant", Timestamp.valueOf(maintenant))
+                .addValue("limiteRappel", Timestamp.valueOf(maintenant.plusDays(joursRappel)));
+        List<EcheanceAutorisation> rappelees = jdbcTemplate.query(RAPPEL, parametres, (rs, numero) ->
+                echeance(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5),
+                         rs.getTimestamp(6), rs.getString(7)));
+        if (!rappelees.isEmpty()) {
+            notificationService.envoyerRappelsExpiration(rappelees);
+            compteurRappels.increment(rappelees.size());
+        }
+        return rappelees;
+    }
+
+    /**
+     * Échéances refusées par la base (autorisation prolongée, statut changé, traitée par une
+     * autre instance) : replanifiées d'après l'état des lignes
+     */
+    private void replanifierObsoletes(List<Long> lot, List<EcheanceAutorisation> traitees) {
+        Set<Long> obsoletes = new HashSet<>(lot);
+        for (EcheanceAutorisation traitee : traitees) {
+            obsoletes.remove(traitee.id());
+        }
+        compteurObsoletes.increment(obsoletes.size());
+        jdbcTemplate.query(
+                "SELECT id, statut, date_expiration_autorisation, " + RAPPEL_NON_ENVOYE +
+                " FROM auto_ecoles WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", obsoletes),
+                rs -> {
+                    Timestamp dateExpiration = rs.getTimestamp(3);
+                    replanifier(rs.getLong(1), StatutAutoEcole.valueOf(rs.getString(2)),
+                                dateExpiration != null ? dateExpiration.toLocalDateTime() : null,
+                                !rs.getBoolean(4));
+                });
+    }
+
+    private synchronized void replanifier(long id, StatutAutoEcole statut, LocalDateTime dateExpiration,
+                                          boolean rappelEnvoye) {
+        if (roue == null) {
+            // Pas encore démarré : la première lecture verra la ligne
+            return;
+        }
+        if (modifieesPendantLecture != null) {
+            modifieesPendantLecture.add(id);
+        }
+        Cle expiration = new Cle(id, TypeEcheance.EXPIRATION);
+        Cle rappel = new Cle(id, TypeEcheance.RAPPEL);
+        roue.annuler(expiration);
+        roue.annuler(rappel);
+        if (dateExpiration == null || !statut.peutEtreRenouvelee()) {
+            return;
+        }
+        // Au-delà de l'horizon, l'échéance sera lue avec sa tranche
+        if (!dateExpiration.isAfter(horizon)) {
+            roue.planifier(expiration, millis(dateExpiration));
+        }
+        LocalDateTime dateRappel = dateExpiration.minusDays(joursRappel);
+        if (!rappelEnvoye && dateExpiration.isAfter(LocalDateTime.now()) && !dateRappel.isAfter(horizon)) {
+            roue.planifier(rappel, millis(dateRappel));
+        }
+    }
+
+    private LocalDateTime lirePointReprise() {
+        List<Timestamp> points = jdbcTemplate.queryForList(
+                "SELECT instant_traite FROM points_reprise WHERE nom = :nom",
+                new MapSqlParameterSource("nom", POINT_REPRISE), Timestamp.class);
+        return points.isEmpty() ? null : points.get(0).toLocalDateTime();
+    }
+
+    private void enregistrerPointReprise(LocalDateTime instant) {
+        // Plusieurs instances : le point de reprise ne recule jamais
+        jdbcTemplate.update(
+                "INSERT INTO points_reprise (nom, instant_traite) VALUES (:nom, :instant) " +
+                "ON CONFLICT (nom) DO UPDATE SET instant_traite = " +
+                "GREATEST(points_reprise.instant_traite, EXCLUDED.instant_traite)",
+                new MapSqlParameterSource("nom", POINT_REPRISE).addValue("instant", Timestamp.valueOf(instant)));
+    }
+
+    private synchronized double taille() {
+        return roue == null ? 0 : roue.taille();
+    }
+
+    private static EcheanceAutorisation echeance(long id, String nom, String email, String telephone,
+                                                 String autorisation, Timestamp dateExpiration, String statut) {
+        return new EcheanceAutorisation(id, nom, email, telephone, autorisation,
+                                        dateExpiration.toLocalDateTime(), StatutAutoEcole.valueOf(statut));
+    }
+
+    private static long millis(LocalDateTime date) {
+        return date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Exécute la replanification après la validation de la transaction courante
+     * (immédiatement s'il n'y en a pas)
+     */
+    private void apresValidation(Runnable replanification) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    replanification.run();
+                }
+            });
+        } else {
+            replanification.run();
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package ga.dgtt.autoecole.service;
+
+import ga.dgtt.autoecole.model.ActionAudit;
+import ga.dgtt.autoecole.model.AuditLog;
+import ga.dgtt.autoecole.model.AutoEcole;
+import ga.dgtt.autoecole.model.Candidat;
+import ga.dgtt.autoecole.model.NiveauSecurite;
+import ga.dgtt.autoecole.model.RapportEnrolement;
+import ga.dgtt.autoecole.model.StatutCandidat;
+import ga.dgtt.autoecole.repository.AutoEcoleRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service d'enrôlement en masse des candidats
+ *
+ * Toutes les lignes sont validées avant toute écriture. Les lignes valides
+ * sont ensuite insérées par lots : identifiants réservés en une requête sur la
+ * séquence, INSERT en batch JDBC, logs d'audit regroupés par l'enregistreur.
+ * Une ligne invalide est rapportée sans interrompre les autres.
+ *
+ * Un lot rejeté par une contrainte de la base est rejoué en deux moitiés,
+ * récursivement, jusqu'à isoler les lignes fautives ; les autres lignes du
+ * lot sont enregistrées.
+ *
+ * Les images des QR codes sont rendues en parallèle et mises en cache, et une
+ * seule notification récapitulative est envoyée à l'auto-école.
+ */
+@Service
+public class EnrolementMasseService {
+
+    private static final String INSERTION =
+            "INSERT INTO candidats (id, nom, prenom, date_naissance, lieu_naissance, nationalite, categorie_permis, " +
+            "numero_licence, numero_evaluation, statut, qr_code, notes, date_creation, date_modification, " +
+            "auto_ecole_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final DateTimeFormatter FORMAT_DATE_FR = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    @Autowired
+    private AutoEcoleRepository autoEcoleRepository;
+
+    @Autowired
+    private GenerateurNumero generateurNumero;
+
+    @Autowired
+    private QRCodeService qrCodeService;
+
+    @Autowired
+    private EnregistreurAudit enregistreurAudit;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private StatistiquesService statistiquesService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${app.enrolement.taille-max:5000}")
+    private int tailleMax;
+
+    @Value("${app.enrolement.taille-lot:500}")
+    private int tailleLot;
+
+    /**
+     * Enrôle une liste de candidats dans une auto-école
+     */
+    public RapportEnrolement enroller(Long autoEcoleId, List<Candidat> candidats, String utilisateur) {
+        return enroller(autoEcoleId, candidats, new RapportEnrolement(), utilisateur);
+    }
+
+    /**
+     * Enrôle les candidats d'un fichier CSV (en-tête obligatoire, séparateur virgule ou point-virgule)
+     *
+     * Colonnes reconnues : nom, prenom, date_naissance (AAAA-MM-JJ ou JJ/MM/AAAA),
+     * lieu_naissance, nationalite, categorie_permis, notes.
+     */
+    public RapportEnrolement enrollerCsv(Long autoEcoleId, InputStream csv, String utilisateur) throws IOException {
+        RapportEnrolement rapport = new RapportEnrolement();
+        List<Candidat> candidats = lireCsv(csv, rapport);
+        return enroller(autoEcoleId, candidats, rapport, utilisateur);
+    }
+
+    private RapportEnrolement enroller(Long autoEcoleId, List<Candidat> candidats, RapportEnrolement rapport,
+                                       String utilisateur) {
+        AutoEcole autoEcole = autoEcoleRepository.findById(autoEcoleId)
+                .orElseThrow(() -> new RuntimeException("Auto-école non trouvée"));
+
+        if (!autoEcole.getStatut().peutEnrollerCandidats()) {
+            throw new RuntimeException("L'auto-école ne peut pas enrôler de candidats dans son état actuel");
+        }
+        if (candidats.size() > tailleMax) {
+            throw new RuntimeException("Un enrôlement en masse est limité à " + tailleMax + " candidats");
+        }
+        rapport.setTotal(candidats.size());
+
+        // Validation complète avant toute écriture
+        List<Integer> lignesValides = new ArrayList<>();
+        Map<String, Integer> dejaVus = new HashMap<>();
+        for (int i = 0; i < candidats.size(); i++) {
+            Candidat candidat = candidats.get(i);
+            if (candidat == null) {
+                continue;
+            }
+            int ligne = i + 1;
+            String erreur = valider(candidat);
+            if (erreur == null) {
+                String cle = (candidat.getNom() + "|" + candidat.getPrenom() + "|" + candidat.getDateNaissance())
+                        .toLowerCase(Locale.ROOT);
+                Integer premiere = dejaVus.putIfAbsent(cle, ligne);
+                if (premiere != null) {
+                    erreur = "Doublon de la ligne " + premiere;
+                }
+            }
+            if (erreur != null) {
+                rapport.ajouterErreur(ligne, erreur);
+            } else {
+                lignesValides.add(i);
+            }
+        }
+
+        // Numéros et contenu des QR codes (compteurs en mémoire, sans aller-retour en base)
+        String province = autoEcole.getProvince();
+        for (int index : lignesValides) {
+            Candidat candidat = candidats.get(index);
+            candidat.setNumeroLicence(generateurNumero.genererNumero("LIC", province));
+            candidat.setNumeroEvaluation(generateurNumero.genererNumero("EVAL", province));
+            candidat.setQrCode("CANDIDAT:" + candidat.getNumeroLicence());
+            candidat.setStatut(StatutCandidat.ENROLE);
+            candidat.setAutoEcole(autoEcole);
+        }
+
+        // Insertion par lots, chaque lot dans sa propre transaction
+        List<Candidat> enroles = new ArrayList<>();
+        for (int debut = 0; debut < lignesValides.size(); debut += tailleLot) {
+            List<Integer> lot = lignesValides.subList(debut, Math.min(debut + tailleLot, lignesValides.size()));
+            insererLot(lot, candidats, utilisateur, rapport, enroles);
+        }
+        rapport.getErreurs().sort(Comparator.comparingInt(RapportEnrolement.ErreurLigne::getLigne));
+
+        if (!enroles.isEmpty()) {
+            try {
+                qrCodeService.prechargerImagesPng(
+                        enroles.stream().map(Candidat::getQrCode).collect(Collectors.toList()));
+            } catch (Exception e) {
+                System.err.println("Erreur lors du pré-rendu des QR codes: " + e.getMessage());
+            }
+            notificationService.envoyerNotificationEnrolementGroupe(autoEcole, enroles);
+        }
+        return rapport;
+    }
+
+    /**
+     * Insère un lot de lignes et les rapporte
+     *
+     * Un lot rejeté par une contrainte (unicité, valeur...) est rejoué en deux
+     * moitiés, récursivement : seules les lignes fautives, isolées, sont
+     * rapportées en erreur. Toute autre erreur (base indisponible...) est
+     * rapportée pour chaque ligne du lot, sans nouvel essai.
+     */
+    private void insererLot(List<Integer> lot, List<Candidat> candidats, String utilisateur,
+                            RapportEnrolement rapport, List<Candidat> enroles) {
+        List<Candidat> candidatsLot = lot.stream().map(candidats::get).collect(Collectors.toList());
+        try {
+            inserer(candidatsLot, utilisateur);
+            for (int index : lot) {
+                rapport.ajouterEnrole(index + 1, candidats.get(index));
+            }
+            enroles.addAll(candidatsLot);
+        } catch (DataIntegrityViolationException e) {
+            if (lot.size() > 1) {
+                int milieu = lot.size() / 2;
+                insererLot(lot.subList(0, milieu), candidats, utilisateur, rapport, enroles);
+                insererLot(lot.subList(milieu, lot.size()), candidats, utilisateur, rapport, enroles);
+                return;
+            }
+            String message = e.getMostSpecificCause().getMessage();
+            System.err.println("Erreur lors de l'enrôlement en masse (ligne " + (lot.get(0) + 1) + "): " + message);
+            rapport.ajouterErreur(lot.get(0) + 1, "Erreur d'enregistrement: " + message);
+        } catch (Exception e) {
+            System.err.println("Erreur lors de l'enrôlement en masse (lot de " + lot.size() + "): " + e.getMessage());
+            for (int index : lot) {
+                rapport.ajouterErreur(index + 1, "Erreur d'enregistrement: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Insère un lot de candidats : identifiants réservés en une requête, puis un seul batch JDBC
+     */
+    private void inserer(List<Candidat> candidats, String utilisateur) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT nextval(pg_get_serial_sequence('candidats', 'id')) FROM generate_series(1, ?)",
+                    Long.class, candidats.size());
+            LocalDateTime maintenant = LocalDateTime.now();
+            for (int i = 0; i < candidats.size(); i++) {
+                candidats.get(i).setId(ids.get(i));
+                candidats.get(i).setDateCreation(maintenant);
+                candidats.get(i).setDateModification(maintenant);
+            }
+
+            jdbcTemplate.batchUpdate(INSERTION, candidats, candidats.size(), (ps, candidat) -> {
+                ps.setLong(1, candidat.getId());
+                ps.setString(2, candidat.getNom());
+                ps.setString(3, candidat.getPrenom());
+                ps.setDate(4, Date.valueOf(candidat.getDateNaissance()));
+                ps.setString(5, candidat.getLieuNaissance());
+                ps.setString(6, candidat.getNationalite());
+                ps.setString(7, candidat.getCategoriePermis());
+                ps.setString(8, candidat.getNumeroLicence());
+                ps.setString(9, candidat.getNumeroEvaluation());
+                ps.setString(10, candidat.getStatut().name());
+                ps.setString(11, candidat.getQrCode());
+                ps.setString(12, candidat.getNotes());
+                ps.setTimestamp(13, Timestamp.valueOf(candidat.getDateCreation()));
+                ps.setTimestamp(14, Timestamp.valueOf(candidat.getDateModification()));
+                ps.setLong(15, candidat.getAutoEcole().getId());
+            });
+
+            // Logs d'audit et statistiques appliqués après validation du lot
+            for (Candidat candidat : candidats) {
+                AuditLog auditLog = new AuditLog("Candidat", candidat.getId(), ActionAudit.CREATION, utilisateur,
+                                                 "Candidat enrôlé (en masse): " + candidat.getNomComplet());
+                auditLog.setNiveauSecurite(NiveauSecurite.INFO);
+                auditLog.setAutoEcole(candidat.getAutoEcole());
+                auditLog.setCandidat(candidat);
+                enregistreurAudit.enregistrer(auditLog);
+                statistiquesService.candidatCree(candidat.getStatut());
+            }
+        });
+    }
+
+    /**
+     * Valide un candidat selon les contraintes de l'entité ; null si valide
+     */
+    private String valider(Candidat candidat) {
+        if (candidat.getNationalite() == null) {
+            candidat.setNationalite("Gabonaise");
+        }
+        Set<ConstraintViolation<Candidat>> violations = validator.validate(candidat);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    /**
+     * Lit les candidats d'un fichier CSV ; les lignes illisibles sont rapportées
+     * et laissées vides (null) pour conserver la numérotation
+     */
+    private List<Candidat> lireCsv(InputStream csv, RapportEnrolement rapport) throws IOException {
+        List<Candidat> candidats = new ArrayList<>();
+        try (BufferedReader lecteur = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            String entete = lecteur.readLine();
+            if (entete == null) {
+                return candidats;
+            }
+            if (entete.startsWith("\uFEFF")) {
+                entete = entete.substring(1);
+            }
+            char separateur = entete.indexOf(';') >= 0 ? ';' : ',';
+            List<String> colonnes = decouper(entete, separateur).stream()
+                    .map(colonne -> colonne.trim().toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toList());
+
+            String ligne;
+            while ((ligne = lecteur.readLine()) != null) {
+                if (ligne.isBlank()) {
+                    continue;
+                }
+                if (candidats.size() >= tailleMax) {
+                    throw new RuntimeException("Un enrôlement en masse est limité à " + tailleMax + " candidats");
+                }
+                List<String> valeurs = decouper(ligne, separateur);
+                try {
+                    candidats.add(versCandidat(colonnes, valeurs));
+                } catch (DateTimeParseException e) {
+                    candidats.add(null);
+                    rapport.ajouterErreur(candidats.size(), "Date de naissance invalide: " + e.getParsedString());
+                }
+            }
+        }
+        return candidats;
+    }
+
+    private Candidat versCandidat(List<String> colonnes, List<String> valeurs) {
+        Candidat candidat = new Candidat();
+        for (int i = 0; i < colonnes.size() && i < valeurs.size(); i++) {
+            String valeur = valeurs.get(i).trim();
+            if (valeur.isEmpty()) {
+                continue;
+            }
+            switch (colonnes.get(i)) {
+                case "nom" -> candidat.setNom(valeur);
+                case "prenom" -> candidat.setPrenom(valeur);
+                case "date_naissance" -> candidat.setDateNaissance(valeur.contains("/")
+                        ? LocalDate.parse(valeur, FORMAT_DATE_FR) : LocalDate.parse(valeur));
+                case "lieu_naissance" -> candidat.setLieuNaissance(valeur);
+                case "nationalite" -> candidat.setNationalite(valeur);
+                case "categorie_permis" -> candidat.setCategoriePermis(valeur.toUpperCase(Locale.ROOT));
+                case "notes" -> candidat.setNotes(valeur);
+                default -> { }
+            }
+        }
+        return candidat;
+    }
+
+    /**
+     * Découpe une ligne CSV (champs éventuellement entre guillemets, "" pour un guillemet)
+     */
+    private static List<String> decouper(String ligne, char separateur) {
+        List<String> champs = new ArrayList<>();
+        StringBuilder champ = new StringBuilder();
+        boolean entreGuillemets = false;
+        for (int i = 0; i < ligne.length(); i++) {
+            char c = ligne.charAt(i);
+            if (entreGuillemets) {
+                if (c == '"' && i + 1 < ligne.length() && ligne.charAt(i + 1) == '"') {
+                    champ.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreGuillemets = false;
+                } else {
+                    champ.append(c);
+                }
+            } else if (c == '"') {
+                entreGuillemets = true;
+            } else if (c == separateur) {
+                champs.add(champ.toString());
+                champ.setLength(0);
+            } else {
+                champ.append(c);
+            }
+        }
+        champs.add(champ.toString());
+        return champs;
+    }
+}
@@ -0,0 +1,298 @@
+package ga.dgtt.autoecole.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ga.dgtt.autoecole.model.FormatExport;
+import ga.dgtt.autoecole.model.StatutAutoEcole;
+import ga.dgtt.autoecole.model.StatutCandidat;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service d'export en masse des auto-écoles et des candidats
+ *
+ * Les lignes sont lues par un curseur côté serveur (fetch size, dans une
+ * transaction en lecture seule) et écrites une à une dans la réponse : la
+ * mémoire utilisée ne dépend pas du nombre de lignes exportées.
+ */
+@Service
+public class ExportService {
+
+    private static final String COLONNES_AUTO_ECOLES =
+            "a.id, a.numero_demande, a.nom, a.proprietaire_nom, a.proprietaire_prenom, a.email, a.telephone, " +
+            "a.adresse, a.ville, a.province, a.statut, a.montant_paiement, a.date_paiement, a.reference_paiement, " +
+            "a.autorisation_provisoire, a.date_autorisation, a.date_expiration_autorisation, a.date_inspection, " +
+            "a.date_creation";
+
+    private static final String COLONNES_CANDIDATS =
+            "c.id, c.numero_licence, c.numero_evaluation, c.nom, c.prenom, c.date_naissance, c.lieu_naissance, " +
+            "c.nationalite, c.categorie_permis, c.statut, c.montant_paiement, c.date_paiement, " +
+            "c.auto_ecole_id, a.nom AS auto_ecole, a.province, c.date_creation";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.export.taille-lot:1000}")
+    private int tailleLot;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void initialiser() {
+        // Avec un fetch size et sans autocommit, le pilote PostgreSQL lit par lots via un curseur
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(tailleLot);
+    }
+
+    /**
+     * Exporte les auto-écoles filtrées, par date de création croissante
+     */
+    public long exporterAutoEcoles(StatutAutoEcole statut, String province, LocalDate dateDebut,
+                                   LocalDate dateFin, FormatExport format, OutputStream sortie) {
+        StringBuilder requete = new StringBuilder("SELECT " + COLONNES_AUTO_ECOLES + " FROM auto_ecoles a WHERE 1 = 1");
+        List<Object> parametres = new ArrayList<>();
+        ajouterFiltres(requete, parametres, statut != null ? statut.name() : null, province,
+                       dateDebut, dateFin, "a.statut", "a.date_creation");
+        requete.append(" ORDER BY a.date_creation, a.id");
+
+        long lignes = exporter(requete.toString(), parametres, format, sortie);
+        System.out.println("Export des auto-écoles (" + format + ") : " + lignes + " ligne(s)");
+        return lignes;
+    }
+
+    /**
+     * Exporte les candidats filtrés, par date de création croissante
+     */
+    public long exporterCandidats(StatutCandidat statut, String province, Long autoEcoleId, LocalDate dateDebut,
+                                  LocalDate dateFin, FormatExport format, OutputStream sortie) {
+        StringBuilder requete = new StringBuilder("SELECT " + COLONNES_CANDIDATS +
+                " FROM candidats c JOIN auto_ecoles a ON a.id = c.auto_ecole_id WHERE 1 = 1");
+        List<Object> parametres = new ArrayList<>();
+        ajouterFiltres(requete, parametres, statut != null ? statut.name() : null, province,
+                       dateDebut, dateFin, "c.statut", "c.date_creation");
+        if (autoEcoleId != null) {
+            requete.append(" AND c.auto_ecole_id = ?");
+            parametres.add(autoEcoleId);
+        }
+        requete.append(" ORDER BY c.date_creation, c.id");
+
+        long lignes = exporter(requete.toString(), parametres, format, sortie);
+        System.out.println("Export des candidats (" + format + ") : " + lignes + " ligne(s)");
+        return lignes;
+    }
+
+    private void ajouterFiltres(StringBuilder requete, List<Object> parametres, String statut, String province,
+                                LocalDate dateDebut, LocalDate dateFin, String colonneStatut, String colonneDate) {
+        if (statut != null) {
+            requete.append(" AND ").append(colonneStatut).append(" = ?");
+            parametres.add(statut);
+        }
+        if (province != null && !province.isBlank()) {
+            requete.append(" AND LOWER(a.province) = LOWER(?)");
+            parametres.add(province);
+        }
+        if (dateDebut != null) {
+            requete.append(" AND ").append(colonneDate).append(" >= ?");
+            parametres.add(Timestamp.valueOf(dateDebut.atStartOfDay()));
+        }
+        if (dateFin != null) {
+            // Date de fin incluse
+            requete.append(" AND ").append(colonneDate).append(" < ?");
+            parametres.add(Timestamp.valueOf(dateFin.plusDays(1).atStartOfDay()));
+        }
+    }
+
+    /**
+     * Exécute la requête et écrit chaque ligne dans la sortie au format demandé
+     */
+    private long exporter(String requete, List<Object> parametres, FormatExport format, OutputStream sortie) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+
+        Long lignes = transaction.execute(status -> {
+            try {
+                EcrivainExport ecrivain = format == FormatExport.NDJSON
+                        ? new EcrivainNdjson(sortie) : new EcrivainCsv(sortie);
+                // L'en-tête vient des métadonnées de la requête : présent même sans aucune ligne
+                Long compteur = jdbcTemplate.query(requete, (ResultSetExtractor<Long>) rs -> {
+                    try {
+                        ecrivain.debuter(rs.getMetaData());
+                        long ecrites = 0;
+                        while (rs.next()) {
+                            ecrivain.ecrireLigne(rs);
+                            ecrites++;
+                        }
+                        return ecrites;
+                    } catch (IOException e) {
+                        // Client déconnecté : interrompt la lecture du curseur
+                        throw new UncheckedIOException(e);
+                    }
+                }, parametres.toArray());
+                ecrivain.terminer();
+                return compteur;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return lignes != null ? lignes : 0;
+    }
+
+    /**
+     * Écriture d'un export ligne par ligne
+     */
+    private interface EcrivainExport {
+        void debuter(ResultSetMetaData metaDonnees) throws SQLException, IOException;
+        void ecrireLigne(ResultSet rs) throws SQLException, IOException;
+        void terminer() throws IOException;
+    }
+
+    /**
+     * CSV (RFC 4180) : en-tête, séparateur virgule, champs entre guillemets si nécessaire
+     */
+    private static final class EcrivainCsv implements EcrivainExport {
+        private final Writer writer;
+        private int colonnes;
+
+        private EcrivainCsv(OutputStream sortie) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(sortie, StandardCharsets.UTF_8), 65536);
+        }
+
+        @Override
+        public void debuter(ResultSetMetaData metaDonnees) throws SQLException, IOException {
+            colonnes = metaDonnees.getColumnCount();
+            for (int i = 1; i <= colonnes; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                ecrireChamp(metaDonnees.getColumnLabel(i));
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void ecrireLigne(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= colonnes; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                Object valeur = valeur(rs, i);
+                if (valeur != null) {
+                    ecrireChamp(valeur.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void terminer() throws IOException {
+            writer.flush();
+        }
+
+        private void ecrireChamp(String champ) throws IOException {
+            if (champ.indexOf(',') < 0 && champ.indexOf('"') < 0
+                    && champ.indexOf('\n') < 0 && champ.indexOf('\r') < 0) {
+                writer.write(champ);
+                return;
+            }
+            writer.write('"');
+            writer.write(champ.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    /**
+     * NDJSON : un objet JSON par ligne, clés = noms de colonnes
+     */
+    private final class EcrivainNdjson implements EcrivainExport {
+        private final JsonGenerator generateur;
+        private String[] noms;
+
+        private EcrivainNdjson(OutputStream sortie) throws IOException {
+            this.generateur = objectMapper.getFactory().createGenerator(sortie);
+            this.generateur.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.generateur.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        }
+
+        @Override
+        public void debuter(ResultSetMetaData metaDonnees) throws SQLException {
+            noms = new String[metaDonnees.getColumnCount()];
+            for (int i = 0; i < noms.length; i++) {
+                noms[i] = metaDonnees.getColumnLabel(i + 1);
+            }
+        }
+
+        @Override
+        public void ecrireLigne(ResultSet rs) throws SQLException, IOException {
+            generateur.writeStartObject();
+            for (int i = 0; i < noms.length; i++) {
+                Object valeur = valeur(rs, i + 1);
+                generateur.writeFieldName(noms[i]);
+                if (valeur == null) {
+                    generateur.writeNull();
+                } else if (valeur instanceof Long || valeur instanceof Integer) {
+                    generateur.writeNumber(((Number) valeur).longValue());
+                } else if (valeur instanceof BigDecimal) {
+                    generateur.writeNumber((BigDecimal) valeur);
+                } else if (valeur instanceof Boolean) {
+                    generateur.writeBoolean((Boolean) valeur);
+                } else {
+                    generateur.writeString(valeur.toString());
+                }
+            }
+            generateur.writeEndObject();
+        }
+
+        @Override
+        public void terminer() throws IOException {
+            if (noms != null) {
+                generateur.writeRaw('\n');
+            }
+            generateur.flush();
+        }
+    }
+
+    /**
+     * Valeur d'une colonne ; les dates sont rendues au format ISO-8601
+     */
+    private static Object valeur(ResultSet rs, int index) throws SQLException {
+        Object valeur = rs.getObject(index);
+        if (valeur instanceof Timestamp) {
+            return ((Timestamp) valeur).toLocalDateTime();
+        }
+        if (valeur instanceof Date) {
+            return ((Date) valeur).toLocalDate();
+        }
+        return valeur;
+    }
+}
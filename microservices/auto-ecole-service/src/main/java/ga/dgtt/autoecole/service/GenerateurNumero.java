@@ -0,0 +1,163 @@
+package ga.dgtt.autoecole.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.time.Year;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Générateur des numéros métier (demande, autorisation, licence, évaluation)
+ *
+ * Chaque type de numéro a un compteur 64 bits stocké dans la table
+ * sequences_numeros. Une instance loue un bloc de valeurs en une seule requête
+ * (UPDATE ... RETURNING dans une transaction indépendante) puis les distribue
+ * en mémoire sans verrou ; le verrou n'est pris qu'au changement de bloc.
+ * Les compteurs sont croissants : les numéros sont ordonnés dans le temps
+ * et s'ajoutent en fin d'index au lieu de le fragmenter.
+ *
+ * Format rendu : PREFIXE-ANNEE-PROVINCE-COMPTEUR, par exemple AE-2026-EST-0001234.
+ */
+@Component
+public class GenerateurNumero {
+
+    /** Codes des neuf provinces du Gabon, indexés par nom normalisé */
+    private static final Map<String, String> CODES_PROVINCES = Map.of(
+            "ESTUAIRE", "EST",
+            "HAUTOGOOUE", "HOG",
+            "MOYENOGOOUE", "MOG",
+            "NGOUNIE", "NGO",
+            "NYANGA", "NYA",
+            "OGOOUEIVINDO", "OIV",
+            "OGOOUELOLO", "OLO",
+            "OGOOUEMARITIME", "OMA",
+            "WOLEUNTEM", "WNT"
+    );
+
+    /** Code utilisé lorsque la province n'est pas reconnue */
+    private static final String CODE_PROVINCE_INCONNUE = "GAB";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.numeros.taille-bloc:100}")
+    private int tailleBloc;
+
+    private final Map<String, Compteur> compteurs = new ConcurrentHashMap<>();
+
+    /**
+     * Génère un numéro métier lisible, par exemple AE-2026-EST-0001234
+     *
+     * @param prefixe  type de numéro (AE, AUTH, LIC, EVAL...), qui est aussi le nom du compteur
+     * @param province province de rattachement (nom complet ou code)
+     */
+    public String genererNumero(String prefixe, String province) {
+        long valeur = prochaineValeur(prefixe);
+        return String.format("%s-%d-%s-%07d", prefixe, Year.now().getValue(), codeProvince(province), valeur);
+    }
+
+    /**
+     * Retourne la prochaine valeur du compteur (identifiant 64 bits croissant)
+     */
+    public long prochaineValeur(String nom) {
+        Compteur compteur = compteurs.computeIfAbsent(nom, Compteur::new);
+        while (true) {
+            Bloc bloc = compteur.bloc;
+            if (bloc != null) {
+                long valeur = bloc.prochaine.getAndIncrement();
+                if (valeur < bloc.fin) {
+                    return valeur;
+                }
+            }
+            renouveler(compteur, bloc);
+        }
+    }
+
+    /**
+     * Retourne le code à trois lettres d'une province
+     */
+    public String codeProvince(String province) {
+        if (province == null || province.isBlank()) {
+            return CODE_PROVINCE_INCONNUE;
+        }
+        String normalise = Normalizer.normalize(province, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toUpperCase()
+                .replaceAll("[^A-Z]", "");
+        if (CODES_PROVINCES.containsValue(normalise)) {
+            return normalise;
+        }
+        return CODES_PROVINCES.getOrDefault(normalise, CODE_PROVINCE_INCONNUE);
+    }
+
+    /**
+     * Loue un nouveau bloc si le bloc épuisé est toujours le bloc courant
+     */
+    private void renouveler(Compteur compteur, Bloc epuise) {
+        synchronized (compteur) {
+            if (compteur.bloc == epuise) {
+                long debut = louerBloc(compteur.nom);
+                compteur.bloc = new Bloc(debut, debut + tailleBloc);
+            }
+        }
+    }
+
+    /**
+     * Réserve un bloc de valeurs en base, dans une transaction indépendante de
+     * l'appelant (un bloc loué n'est jamais rendu, même en cas de rollback)
+     *
+     * @return la première valeur du bloc
+     */
+    private long louerBloc(String nom) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Long debut = transaction.execute(status -> {
+            jdbcTemplate.update("INSERT INTO sequences_numeros (nom, prochaine_valeur) VALUES (?, 1) " +
+                                "ON CONFLICT (nom) DO NOTHING", nom);
+            return jdbcTemplate.queryForObject(
+                    "UPDATE sequences_numeros SET prochaine_valeur = prochaine_valeur + ? " +
+                    "WHERE nom = ? RETURNING prochaine_valeur - ?",
+                    Long.class, tailleBloc, nom, tailleBloc);
+        });
+        if (debut == null) {
+            throw new IllegalStateException("Impossible de réserver un bloc de numéros pour " + nom);
+        }
+        return debut;
+    }
+
+    /**
+     * Compteur d'un type de numéro et son bloc courant
+     */
+    private static final class Compteur {
+        private final String nom;
+        private volatile Bloc bloc;
+
+        private Compteur(String nom) {
+            this.nom = nom;
+        }
+    }
+
+    /**
+     * Bloc de valeurs loué : [debut, fin[
+     */
+    private static final class Bloc {
+        private final AtomicLong prochaine;
+        private final long fin;
+
+        private Bloc(long debut, long fin) {
+            this.prochaine = new AtomicLong(debut);
+            this.fin = fin;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package ga.dgtt.autoecole.service;
+
+import ga.dgtt.autoecole.dto.AutoEcoleDetail;
+import ga.dgtt.autoecole.model.ActionAudit;
+import ga.dgtt.autoecole.model.AuditLog;
+import ga.dgtt.autoecole.model.AutoEcole;
+import ga.dgtt.autoecole.model.NiveauSecurite;
+import ga.dgtt.autoecole.repository.AutoEcoleRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Modification partielle d'une auto-école (JSON merge patch, RFC 7396)
+ *
+ * Seuls les champs descriptifs sont modifiables ; le statut, les numéros et
+ * les dates d'autorisation suivent le workflow. L'auto-école n'est pas chargée
+ * comme entité : les colonnes concernées sont lues puis seules celles dont la
+ * valeur change sont écrites, par un UPDATE conditionné par la version lue.
+ * Les collections (candidats, documents, audit) ne sont jamais parcourues. Le
+ * log d'audit ne porte que sur les champs modifiés.
+ */
+@Service
+public class ModificationPartielleService {
+
+    // Propriété JSON -> colonne (noms fixes : seules ces colonnes entrent dans le SQL)
+    private static final Map<String, String> CHAMPS_MODIFIABLES = new LinkedHashMap<>();
+
+    static {
+        CHAMPS_MODIFIABLES.put("nom", "nom");
+        CHAMPS_MODIFIABLES.put("proprietaireNom", "proprietaire_nom");
+        CHAMPS_MODIFIABLES.put("proprietairePrenom", "proprietaire_prenom");
+        CHAMPS_MODIFIABLES.put("email", "email");
+        CHAMPS_MODIFIABLES.put("telephone", "telephone");
+        CHAMPS_MODIFIABLES.put("adresse", "adresse");
+        CHAMPS_MODIFIABLES.put("ville", "ville");
+        CHAMPS_MODIFIABLES.put("province", "province");
+        CHAMPS_MODIFIABLES.put("notes", "notes");
+    }
+
+    private static final String LECTURE =
+            "SELECT " + String.join(", ", CHAMPS_MODIFIABLES.values()) + ", version FROM auto_ecoles WHERE id = :id";
+
+    @Autowired
+    private AutoEcoleRepository autoEcoleRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MoteurTransitions moteurTransitions;
+
+    @Autowired
+    private EnregistreurAudit enregistreurAudit;
+
+    @Autowired
+    private CacheEntites cacheEntites;
+
+    @Autowired
+    private Validator validator;
+
+    /**
+     * Applique un merge patch : un champ absent est inchangé, un champ à null est effacé
+     *
+     * @param versionAttendue version exigée (If-Match), null sans condition
+     * @return la fiche modifiée, vide si l'auto-école n'est plus à la version attendue
+     */
+    public Optional<AutoEcoleDetail> modifier(Long id, Map<String, Object> patch, Long versionAttendue,
+                                              String utilisateur) {
+        Map<String, String> valeurs = valider(patch);
+        if (!valeurs.isEmpty()) {
+            boolean applique = moteurTransitions.executer("modification_partielle",
+                    () -> appliquer(id, valeurs, versionAttendue, utilisateur));
+            if (!applique) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(autoEcoleRepository.findById(id)
+                .map(AutoEcoleDetail::depuis)
+                .orElseThrow(() -> new RuntimeException("Auto-école non trouvée")));
+    }
+
+    private Map<String, String> valider(Map<String, Object> patch) {
+        if (patch == null) {
+            throw new RuntimeException("Le document de modification doit être un objet JSON");
+        }
+        Map<String, String> valeurs = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entree : patch.entrySet()) {
+            String champ = entree.getKey();
+            Object valeur = entree.getValue();
+            if (!CHAMPS_MODIFIABLES.containsKey(champ)) {
+                throw new RuntimeException("Champ non modifiable : " + champ);
+            }
+            if (valeur != null && !(valeur instanceof String)) {
+                throw new RuntimeException("Le champ " + champ + " doit être une chaîne de caractères");
+            }
+            // Contraintes déclarées sur l'entité, pour ce seul champ
+            Set<ConstraintViolation<AutoEcole>> violations =
+                    validator.validateValue(AutoEcole.class, champ, valeur);
+            if (!violations.isEmpty()) {
+                throw new RuntimeException(violations.iterator().next().getMessage());
+            }
+            valeurs.put(champ, (String) valeur);
+        }
+        return valeurs;
+    }
+
+    /**
+     * Relit les colonnes visées et écrit celles qui changent ; faux si la version attendue n'est plus la bonne
+     */
+    private boolean appliquer(Long id, Map<String, String> valeurs, Long versionAttendue, String utilisateur) {
+        List<Map<String, Object>> lignes = jdbcTemplate.queryForList(LECTURE, Map.of("id", id));
+        if (lignes.isEmpty()) {
+            throw new RuntimeException("Auto-école non trouvée");
+        }
+        Map<String, Object> actuelles = lignes.get(0);
+        if (versionAttendue != null && versionAttendue != ((Number) actuelles.get("version")).longValue()) {
+            return false;
+        }
+
+        StringBuilder affectations = new StringBuilder();
+        StringBuilder avant = new StringBuilder();
+        StringBuilder apres = new StringBuilder();
+        MapSqlParameterSource parametres = new MapSqlParameterSource();
+        for (Map.Entry<String, String> entree : valeurs.entrySet()) {
+            String colonne = CHAMPS_MODIFIABLES.get(entree.getKey());
+            Object actuelle = actuelles.get(colonne);
+            if (Objects.equals(actuelle, entree.getValue())) {
+                continue;
+            }
+            affectations.append(colonne).append(" = :").append(colonne).append(", ");
+            parametres.addValue(colonne, entree.getValue());
+            ajouter(avant, entree.getKey(), actuelle);
+            ajouter(apres, entree.getKey(), entree.getValue());
+        }
+        if (affectations.length() == 0) {
+            return true;
+        }
+
+        String sql = "UPDATE auto_ecoles SET " + affectations +
+                     "date_modification = :maintenant, version = version + 1 WHERE id = :id AND version = :version";
+        parametres.addValue("maintenant", Timestamp.valueOf(LocalDateTime.now()))
+                  .addValue("id", id)
+                  .addValue("version", actuelles.get("version"));
+        if (jdbcTemplate.update(sql, parametres) == 0) {
+            // Modifiée depuis la lecture : le moteur relit et rejoue
+            throw new OptimisticLockingFailureException("Auto-école " + id + " modifiée pendant la mise à jour");
+        }
+
+        cacheEntites.invaliderAutoEcole(id);
+        if (parametres.hasValue("nom")) {
+            // Les candidats en cache portent le nom de leur auto-école
+            cacheEntites.invaliderCandidats();
+        }
+
+        AuditLog auditLog = new AuditLog("AutoEcole", id, ActionAudit.MODIFICATION, utilisateur,
+                                         "Modification partielle de l'auto-école: " + actuelles.get("nom"));
+        auditLog.setDonneesAvant(avant.append('}').toString());
+        auditLog.setDonneesApres(apres.append('}').toString());
+        auditLog.setNiveauSecurite(NiveauSecurite.WARNING);
+        enregistreurAudit.enregistrer(auditLog);
+        return true;
+    }
+
+    private static void ajouter(StringBuilder donnees, String champ, Object valeur) {
+        donnees.append(donnees.length() == 0 ? "AutoEcole{" : ", ").append(champ).append('=');
+        if (valeur == null) {
+            donnees.append("null");
+        } else {
+            donnees.append('\'').append(valeur).append('\'');
+        }
+    }
+}
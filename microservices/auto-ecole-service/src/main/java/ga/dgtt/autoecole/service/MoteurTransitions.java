@@ -0,0 +1,87 @@
+package ga.dgtt.autoecole.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Exécution des transitions d'état sans verrou (auto-écoles, candidats)
+ *
+ * Une tentative relit l'entité, vérifie la transition dans la table du statut
+ * puis écrit, dans sa propre transaction. L'écriture est conditionnée par la
+ * version de la ligne (@Version : UPDATE ... WHERE id = ? AND version = ?) :
+ * si une autre requête l'a modifiée entre-temps, la tentative est annulée et
+ * rejouée, un nombre borné de fois, après une attente aléatoire croissante. La
+ * relecture voit le nouvel état : la transition est appliquée ou refusée, jamais
+ * écrite par-dessus une autre. Aucune ligne n'est verrouillée pendant le traitement.
+ *
+ * Appelé dans une transaction existante, la transition y participe sans
+ * nouvelle tentative possible (le conflit est remonté à l'appelant).
+ */
+@Component
+public class MoteurTransitions {
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.transitions.tentatives-max:5}")
+    private int tentativesMax;
+
+    @Value("${app.transitions.attente-ms:20}")
+    private long attenteMs;
+
+    /**
+     * Applique une transition, rejouée en cas d'écriture concurrente
+     *
+     * @param nom        nom de la transition (métriques)
+     * @param transition relecture, vérification et écriture ; sans effet hors base avant validation
+     */
+    public <T> T executer(String nom, Supplier<T> transition) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transition.get();
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int tentative = 1; ; tentative++) {
+            try {
+                return transaction.execute(status -> transition.get());
+            } catch (OptimisticLockingFailureException e) {
+                compteur("transitions.conflits", nom).increment();
+                if (tentative >= tentativesMax) {
+                    compteur("transitions.abandons", nom).increment();
+                    throw new RuntimeException("Modification concurrente : transition abandonnée après " +
+                                               tentative + " tentatives");
+                }
+                attendre(tentative);
+            }
+        }
+    }
+
+    private Counter compteur(String metrique, String transition) {
+        return Counter.builder(metrique).tag("transition", transition).register(meterRegistry);
+    }
+
+    /**
+     * Attente aléatoire avant de rejouer : les requêtes en conflit ne se représentent pas ensemble
+     */
+    private void attendre(int tentative) {
+        long plafond = attenteMs << Math.min(tentative - 1, 6);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(plafond + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Transition interrompue");
+        }
+    }
+}
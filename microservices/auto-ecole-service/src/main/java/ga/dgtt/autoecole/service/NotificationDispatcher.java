@@ -0,0 +1,199 @@
+package ga.dgtt.autoecole.service;
+
+import ga.dgtt.autoecole.model.NotificationOutbox;
+import ga.dgtt.autoecole.model.StatutNotification;
+import ga.dgtt.autoecole.repository.NotificationOutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Distributeur des notifications de la file d'envoi (outbox)
+ *
+ * Ce composant réserve périodiquement les notifications en attente
+ * (SELECT ... FOR UPDATE SKIP LOCKED, plusieurs instances peuvent tourner
+ * en parallèle) et les livre sur un pool de threads borné. Les échecs sont
+ * retentés avec un délai exponentiel jusqu'au nombre maximal de tentatives.
+ */
+@Component
+public class NotificationDispatcher {
+
+    @Autowired
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    @Qualifier("notificationExecutor")
+    private ThreadPoolTaskExecutor notificationExecutor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.notification.outbox.taille-lot:50}")
+    private int tailleLot;
+
+    @Value("${app.notification.smtp.taille-lot:20}")
+    private int tailleLotSmtp;
+
+    @Value("${app.notification.outbox.max-tentatives:5}")
+    private int maxTentatives;
+
+    @Value("${app.notification.outbox.delai-retente-ms:30000}")
+    private long delaiRetenteMs;
+
+    @Value("${app.notification.outbox.delai-retente-max-ms:3600000}")
+    private long delaiRetenteMaxMs;
+
+    @Value("${app.notification.outbox.expiration-reservation-minutes:10}")
+    private long expirationReservationMinutes;
+
+    /**
+     * Réserve et distribue un lot de notifications en attente
+     */
+    @Scheduled(fixedDelayString = "${app.notification.outbox.intervalle-ms:2000}")
+    public void distribuer() {
+        int capacite = Math.min(tailleLot,
+                notificationExecutor.getThreadPoolExecutor().getQueue().remainingCapacity());
+        if (capacite <= 0) {
+            return;
+        }
+
+        // Les emails partent par lots sur une même connexion SMTP, les SMS un par un
+        List<NotificationOutbox> emails = new ArrayList<>();
+        for (NotificationOutbox notification : reserverLot(capacite)) {
+            if (notification.isEmail()) {
+                emails.add(notification);
+            } else {
+                notificationExecutor.execute(() -> traiter(notification));
+            }
+        }
+        for (int debut = 0; debut < emails.size(); debut += tailleLotSmtp) {
+            List<NotificationOutbox> sousLot = new ArrayList<>(
+                    emails.subList(debut, Math.min(debut + tailleLotSmtp, emails.size())));
+            notificationExecutor.execute(() -> traiterEmails(sousLot));
+        }
+    }
+
+    /**
+     * Remet en attente les notifications réservées par une instance arrêtée
+     */
+    @Scheduled(fixedDelayString = "${app.notification.outbox.intervalle-reprise-ms:60000}")
+    public void reprendreReservationsExpirees() {
+        LocalDateTime dateLimite = LocalDateTime.now().minusMinutes(expirationReservationMinutes);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                notificationOutboxRepository.libererReservationsExpirees(
+                        StatutNotification.EN_COURS, StatutNotification.EN_ATTENTE, dateLimite));
+    }
+
+    /**
+     * Réserve un lot de notifications dans une transaction courte
+     */
+    private List<NotificationOutbox> reserverLot(int limite) {
+        List<NotificationOutbox> lot = new TransactionTemplate(transactionManager).execute(status -> {
+            LocalDateTime maintenant = LocalDateTime.now();
+            List<Long> ids = notificationOutboxRepository.verrouillerIdsAEnvoyer(maintenant, limite);
+            if (ids.isEmpty()) {
+                return Collections.<NotificationOutbox>emptyList();
+            }
+            notificationOutboxRepository.reserver(ids, StatutNotification.EN_COURS, maintenant);
+            return notificationOutboxRepository.findByIdIn(ids);
+        });
+        return lot != null ? lot : Collections.emptyList();
+    }
+
+    /**
+     * Livre une notification et enregistre le résultat quand il est connu
+     *
+     * Pour un SMS, le résultat arrive une fois le lot transmis à la passerelle ;
+     * il est enregistré dans le thread d'envoi de l'opérateur. D'ici là, la
+     * notification reste réservée (EN_COURS) et une instance arrêtée entre-temps
+     * la laisse à la reprise des réservations expirées.
+     */
+    private void traiter(NotificationOutbox notification) {
+        try {
+            notificationService.livrer(notification).whenComplete((resultat, erreur) -> {
+                if (erreur == null) {
+                    marquerEnvoyee(notification);
+                } else {
+                    marquerEchec(notification, erreur instanceof CompletionException && erreur.getCause() != null
+                            ? erreur.getCause() : erreur);
+                }
+            });
+        } catch (Exception e) {
+            marquerEchec(notification, e);
+        }
+    }
+
+    /**
+     * Livre un lot d'emails et enregistre le résultat de chacun
+     */
+    private void traiterEmails(List<NotificationOutbox> emails) {
+        List<Exception> erreurs;
+        try {
+            erreurs = notificationService.livrerEmails(emails);
+        } catch (Exception e) {
+            erreurs = Collections.nCopies(emails.size(), e);
+        }
+        for (int i = 0; i < emails.size(); i++) {
+            if (erreurs.get(i) == null) {
+                marquerEnvoyee(emails.get(i));
+            } else {
+                marquerEchec(emails.get(i), erreurs.get(i));
+            }
+        }
+    }
+
+    /**
+     * Marque une notification comme envoyée
+     */
+    private void marquerEnvoyee(NotificationOutbox notification) {
+        notification.setStatut(StatutNotification.ENVOYEE);
+        notification.setDateEnvoi(LocalDateTime.now());
+        notification.setDerniereErreur(null);
+        notificationOutboxRepository.save(notification);
+    }
+
+    /**
+     * Enregistre un échec d'envoi et planifie la prochaine tentative
+     */
+    private void marquerEchec(NotificationOutbox notification, Throwable erreur) {
+        int tentatives = notification.getTentatives() + 1;
+        notification.setTentatives(tentatives);
+        notification.setDerniereErreur(tronquer(erreur.getMessage()));
+
+        if (tentatives >= maxTentatives) {
+            notification.setStatut(StatutNotification.ECHEC);
+            System.err.println("Notification " + notification.getId() + " abandonnée après " +
+                               tentatives + " tentatives: " + erreur.getMessage());
+        } else {
+            long delai = Math.min(delaiRetenteMaxMs, delaiRetenteMs << Math.min(tentatives - 1, 20));
+            notification.setStatut(StatutNotification.EN_ATTENTE);
+            notification.setProchaineTentative(LocalDateTime.now().plus(Duration.ofMillis(delai)));
+        }
+        notificationOutboxRepository.save(notification);
+    }
+
+    /**
+     * Tronque un message d'erreur à la taille de la colonne
+     */
+    private String tronquer(String message) {
+        if (message == null || message.length() <= 1000) {
+            return message;
+        }
+        return message.substring(0, 1000);
+    }
+}
@@ -1,34 +1,64 @@
 package ga.dgtt.autoecole.service;
 
+import ga.dgtt.autoecole.dto.EcheanceAutorisation;
 import ga.dgtt.autoecole.model.AutoEcole;
+import ga.dgtt.autoecole.model.CanalNotification;
 import ga.dgtt.autoecole.model.Candidat;
+import ga.dgtt.autoecole.model.NotificationOutbox;
+import ga.dgtt.autoecole.repository.NotificationOutboxRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Service pour l'envoi de notifications
  * 
  * Ce service gère l'envoi d'emails et SMS pour notifier les utilisateurs
  * des changements de statut et des actions importantes.
+ * 
+ * Les notifications ne sont pas envoyées directement : elles sont enregistrées
+ * dans la table notifications_outbox au sein de la transaction appelante, puis
+ * livrées par le NotificationDispatcher via {@link #livrer(NotificationOutbox)}.
  */
 @Service
 public class NotificationService {
     
     @Autowired
-    private JavaMailSender mailSender;
+    private MoteurEnvoiEmail moteurEnvoiEmail;
     
     @Autowired
     private SMSService smsService;
     
+    @Autowired
+    private NotificationOutboxRepository notificationOutboxRepository;
+    
     @Value("${app.notification.email.from:noreply@dgtt-portail.com}")
     private String emailFrom;
     
     @Value("${app.notification.sms.enabled:true}")
     private boolean smsEnabled;
     
+    /**
+     * Enregistre un même rappel SMS pour une liste de numéros (envoi de masse)
+     * 
+     * Les rappels passent par la file d'envoi : le distributeur les transmet au
+     * SMSService au rythme que les files des opérateurs peuvent absorber.
+     */
+    public void envoyerRappels(Collection<String> numerosTelephone, String typeRappel, String date) {
+        String message = smsService.formaterRappel(typeRappel, date);
+        List<NotificationOutbox> notifications = new ArrayList<>(numerosTelephone.size());
+        for (String numeroTelephone : numerosTelephone) {
+            notifications.add(new NotificationOutbox(CanalNotification.SMS, numeroTelephone, null, message));
+        }
+        notificationOutboxRepository.saveAll(notifications);
+    }
+    
     /**
      * Envoie une notification de création d'auto-école
      */
@@ -81,6 +111,106 @@ public class NotificationService {
         }
     }
     
+    /**
+     * Envoie une notification récapitulative pour un enrôlement en masse
+     * (un email et un SMS pour toute la cohorte)
+     */
+    public void envoyerNotificationEnrolementGroupe(AutoEcole autoEcole, List<Candidat> candidats) {
+        if (candidats.isEmpty()) {
+            return;
+        }
+        
+        // Email
+        StringBuilder liste = new StringBuilder();
+        for (Candidat candidat : candidats) {
+            liste.append(String.format("- %s : licence %s, catégorie %s%n",
+                    candidat.getNomComplet(), candidat.getNumeroLicence(), candidat.getCategoriePermis()));
+        }
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(autoEcole.getEmail());
+        message.setFrom(emailFrom);
+        message.setSubject("R-DGTT - " + candidats.size() + " candidat(s) enrôlé(s)");
+        message.setText(String.format(
+            "Bonjour,\n\n" +
+            "%d candidat(s) ont été enrôlés dans votre auto-école.\n\n" +
+            "%s\n" +
+            "Cordialement,\n" +
+            "L'équipe R-DGTT",
+            candidats.size(),
+            liste
+        ));
+        enfilerEmail(message);
+        
+        // SMS
+        if (smsEnabled) {
+            enfilerSMS(autoEcole.getTelephone(), String.format(
+                "R-DGTT: %d candidat(s) enrôlé(s) dans votre auto-école %s. Détails envoyés par email.",
+                candidats.size(),
+                autoEcole.getNom()
+            ));
+        }
+    }
+    
+    /**
+     * Enregistre les rappels d'expiration prochaine d'un lot d'autorisations (une écriture groupée)
+     */
+    public void envoyerRappelsExpiration(List<EcheanceAutorisation> echeances) {
+        List<NotificationOutbox> notifications = new ArrayList<>(echeances.size() * 2);
+        for (EcheanceAutorisation echeance : echeances) {
+            notifications.add(new NotificationOutbox(CanalNotification.EMAIL, echeance.email(),
+                "R-DGTT - Expiration prochaine de votre autorisation",
+                String.format(
+                    "Bonjour,\n\n" +
+                    "L'autorisation %s de l'auto-école %s expire le %s.\n\n" +
+                    "Pensez à demander son renouvellement pour poursuivre vos activités.\n\n" +
+                    "Cordialement,\n" +
+                    "L'équipe R-DGTT",
+                    echeance.autorisationProvisoire(),
+                    echeance.nom(),
+                    echeance.dateExpirationAutorisation()
+                )));
+            if (smsEnabled) {
+                notifications.add(new NotificationOutbox(CanalNotification.SMS, echeance.telephone(), null,
+                    String.format(
+                        "R-DGTT: Votre autorisation %s expire le %s. Pensez à la renouveler.",
+                        echeance.autorisationProvisoire(),
+                        echeance.dateExpirationAutorisation()
+                    )));
+            }
+        }
+        notificationOutboxRepository.saveAll(notifications);
+    }
+    
+    /**
+     * Enregistre les notifications d'expiration d'un lot d'autorisations (une écriture groupée)
+     */
+    public void envoyerNotificationsExpiration(List<EcheanceAutorisation> echeances) {
+        List<NotificationOutbox> notifications = new ArrayList<>(echeances.size() * 2);
+        for (EcheanceAutorisation echeance : echeances) {
+            notifications.add(new NotificationOutbox(CanalNotification.EMAIL, echeance.email(),
+                "R-DGTT - Autorisation expirée",
+                String.format(
+                    "Bonjour,\n\n" +
+                    "L'autorisation %s de l'auto-école %s a expiré le %s.\n\n" +
+                    "L'auto-école est suspendue : aucun candidat ne peut être enrôlé " +
+                    "jusqu'au renouvellement de l'autorisation.\n\n" +
+                    "Cordialement,\n" +
+                    "L'équipe R-DGTT",
+                    echeance.autorisationProvisoire(),
+                    echeance.nom(),
+                    echeance.dateExpirationAutorisation()
+                )));
+            if (smsEnabled) {
+                notifications.add(new NotificationOutbox(CanalNotification.SMS, echeance.telephone(), null,
+                    String.format(
+                        "R-DGTT: Votre autorisation %s a expiré. Auto-école suspendue jusqu'au renouvellement.",
+                        echeance.autorisationProvisoire()
+                    )));
+            }
+        }
+        notificationOutboxRepository.saveAll(notifications);
+    }
+    
     /**
      * Envoie un email de création d'auto-école
      */
@@ -107,7 +237,7 @@ public class NotificationService {
         );
         
         message.setText(contenu);
-        mailSender.send(message);
+        enfilerEmail(message);
     }
     
     /**
@@ -136,7 +266,7 @@ public class NotificationService {
         );
         
         message.setText(contenu);
-        mailSender.send(message);
+        enfilerEmail(message);
     }
     
     /**
@@ -165,7 +295,7 @@ public class NotificationService {
         );
         
         message.setText(contenu);
-        mailSender.send(message);
+        enfilerEmail(message);
     }
     
     /**
@@ -194,7 +324,7 @@ public class NotificationService {
         );
         
         message.setText(contenu);
-        mailSender.send(message);
+        enfilerEmail(message);
     }
     
     /**
@@ -208,7 +338,7 @@ public class NotificationService {
             autoEcole.getNumeroDemande()
         );
         
-        smsService.envoyerSMS(autoEcole.getTelephone(), message);
+        enfilerSMS(autoEcole.getTelephone(), message);
     }
     
     /**
@@ -222,7 +352,7 @@ public class NotificationService {
             autoEcole.getReferencePaiement()
         );
         
-        smsService.envoyerSMS(autoEcole.getTelephone(), message);
+        enfilerSMS(autoEcole.getTelephone(), message);
     }
     
     /**
@@ -236,7 +366,7 @@ public class NotificationService {
             autoEcole.getDateExpirationAutorisation()
         );
         
-        smsService.envoyerSMS(autoEcole.getTelephone(), message);
+        enfilerSMS(autoEcole.getTelephone(), message);
     }
     
     /**
@@ -251,6 +381,71 @@ public class NotificationService {
             candidat.getCategoriePermis()
         );
         
-        smsService.envoyerSMS(candidat.getAutoEcole().getTelephone(), message);
+        enfilerSMS(candidat.getAutoEcole().getTelephone(), message);
+    }
+    
+    /**
+     * Enregistre un email dans la file d'envoi
+     */
+    private void enfilerEmail(SimpleMailMessage message) {
+        String[] destinataires = message.getTo();
+        if (destinataires == null) {
+            return;
+        }
+        for (String destinataire : destinataires) {
+            notificationOutboxRepository.save(new NotificationOutbox(
+                    CanalNotification.EMAIL, destinataire, message.getSubject(), message.getText()));
+        }
+    }
+    
+    /**
+     * Enregistre un SMS dans la file d'envoi
+     */
+    private void enfilerSMS(String numeroTelephone, String message) {
+        notificationOutboxRepository.save(new NotificationOutbox(
+                CanalNotification.SMS, numeroTelephone, null, message));
+    }
+    
+    /**
+     * Livre une notification de la file d'envoi
+     * 
+     * Appelée par le distributeur, hors de toute transaction métier. Un SMS
+     * est seulement déposé dans la file de son opérateur : le résultat est
+     * complété quand la passerelle l'a accepté, en erreur sinon, pour que la
+     * notification ne soit marquée envoyée qu'à ce moment.
+     * 
+     * @throws IllegalStateException si la notification ne peut pas être prise en charge
+     */
+    public CompletableFuture<?> livrer(NotificationOutbox notification) {
+        if (notification.isEmail()) {
+            Exception erreur = livrerEmails(List.of(notification)).get(0);
+            if (erreur != null) {
+                throw new IllegalStateException(erreur.getMessage(), erreur);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!smsEnabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return smsService.envoyerSMS(notification.getDestinataire(), notification.getContenu());
+    }
+    
+    /**
+     * Livre un lot d'emails de la file d'envoi sur une même connexion SMTP
+     * 
+     * @return une liste alignée sur les notifications : null si l'envoi a réussi,
+     *         l'exception rencontrée sinon
+     */
+    public List<Exception> livrerEmails(List<NotificationOutbox> notifications) {
+        List<SimpleMailMessage> messages = new ArrayList<>(notifications.size());
+        for (NotificationOutbox notification : notifications) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo(notification.getDestinataire());
+            message.setFrom(emailFrom);
+            message.setSubject(notification.getSujet());
+            message.setText(notification.getContenu());
+            messages.add(message);
+        }
+        return moteurEnvoiEmail.envoyerLot(messages);
     }
 }
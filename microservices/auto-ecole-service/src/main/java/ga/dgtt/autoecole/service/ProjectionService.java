@@ -0,0 +1,272 @@
+package ga.dgtt.autoecole.service;
+
+import ga.dgtt.autoecole.dto.SelectionChamps;
+import ga.dgtt.autoecole.model.PageCurseur;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Service de lecture sélective des auto-écoles (?fields= et ?include=)
+ *
+ * Seules les colonnes des champs demandés figurent dans le SELECT. Les
+ * inclusions (candidats, documents) sont chargées en une requête par
+ * association pour toute la page (IN sur les ids), quelle que soit sa taille.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ProjectionService {
+
+    public static final String INCLUSION_CANDIDATS = "candidats";
+    public static final String INCLUSION_DOCUMENTS = "documents";
+
+    /**
+     * Champs exposés d'une auto-école : nom JSON vers colonne SQL
+     */
+    public static final Map<String, String> CHAMPS_AUTO_ECOLE = colonnes(
+            "id", "id",
+            "numeroDemande", "numero_demande",
+            "nom", "nom",
+            "proprietaireNom", "proprietaire_nom",
+            "proprietairePrenom", "proprietaire_prenom",
+            "email", "email",
+            "telephone", "telephone",
+            "adresse", "adresse",
+            "ville", "ville",
+            "province", "province",
+            "statut", "statut",
+            "qrCode", "qr_code",
+            "montantPaiement", "montant_paiement",
+            "datePaiement", "date_paiement",
+            "referencePaiement", "reference_paiement",
+            "autorisationProvisoire", "autorisation_provisoire",
+            "dateAutorisation", "date_autorisation",
+            "dateExpirationAutorisation", "date_expiration_autorisation",
+            "rapportInspection", "rapport_inspection",
+            "dateInspection", "date_inspection",
+            "inspecteurNom", "inspecteur_nom",
+            "inspecteurPrenom", "inspecteur_prenom",
+            "notes", "notes",
+            "dateCreation", "date_creation",
+            "dateModification", "date_modification");
+
+    public static final Set<String> INCLUSIONS_AUTO_ECOLE = Set.of(INCLUSION_CANDIDATS, INCLUSION_DOCUMENTS);
+
+    private static final Map<String, String> CHAMPS_CANDIDAT = colonnes(
+            "id", "id",
+            "numeroLicence", "numero_licence",
+            "numeroEvaluation", "numero_evaluation",
+            "nom", "nom",
+            "prenom", "prenom",
+            "dateNaissance", "date_naissance",
+            "categoriePermis", "categorie_permis",
+            "statut", "statut",
+            "datePaiement", "date_paiement",
+            "dateCreation", "date_creation");
+
+    private static final Map<String, String> CHAMPS_DOCUMENT = colonnes(
+            "id", "id",
+            "typeDocument", "type_document",
+            "nomFichier", "nom_fichier",
+            "urlFichier", "url_fichier",
+            "typeMime", "type_mime",
+            "tailleFichier", "taille_fichier",
+            "estValide", "est_valide",
+            "dateValidation", "date_validation",
+            "dateCreation", "date_creation");
+
+    private static final String CHAMP_PARENT = "autoEcoleId";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${app.pagination.taille-max:100}")
+    private int tailleMaxPage;
+
+    /**
+     * Sélection validée contre les champs et inclusions d'une auto-école
+     */
+    public SelectionChamps selectionAutoEcole(String fields, String include) {
+        return SelectionChamps.depuis(fields, include, CHAMPS_AUTO_ECOLE, INCLUSIONS_AUTO_ECOLE);
+    }
+
+    /**
+     * Lit une auto-école restreinte aux champs demandés
+     */
+    public Optional<Map<String, Object>> trouverAutoEcole(Long id, SelectionChamps selection) {
+        List<String> champs = selection.champsALire("id");
+        String sql = "SELECT " + colonnesSql(champs, CHAMPS_AUTO_ECOLE, "a") +
+                     " FROM auto_ecoles a WHERE a.id = :id";
+        List<Map<String, Object>> lignes = lire(sql, new MapSqlParameterSource("id", id), champs);
+        terminer(lignes, selection);
+        return lignes.stream().findFirst();
+    }
+
+    /**
+     * Lit une page d'auto-écoles restreintes aux champs demandés
+     */
+    public Page<Map<String, Object>> trouverAutoEcoles(Pageable pageable, SelectionChamps selection) {
+        Pageable page = pageable.isPaged()
+                ? PageRequest.of(pageable.getPageNumber(), Math.min(pageable.getPageSize(), tailleMaxPage), pageable.getSort())
+                : PageRequest.of(0, tailleMaxPage);
+        List<String> champs = selection.champsALire("id");
+        String sql = "SELECT " + colonnesSql(champs, CHAMPS_AUTO_ECOLE, "a") +
+                     " FROM auto_ecoles a ORDER BY " + ordreSql(page.getSort()) +
+                     " LIMIT :limite OFFSET :decalage";
+        MapSqlParameterSource parametres = new MapSqlParameterSource()
+                .addValue("limite", page.getPageSize())
+                .addValue("decalage", page.getOffset());
+        List<Map<String, Object>> lignes = lire(sql, parametres, champs);
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM auto_ecoles", new MapSqlParameterSource(), Long.class);
+        terminer(lignes, selection);
+        return new PageImpl<>(lignes, page, total != null ? total : 0);
+    }
+
+    /**
+     * Lit une page d'auto-écoles par curseur, restreintes aux champs demandés
+     */
+    public PageCurseur<Map<String, Object>> trouverAutoEcolesParCurseur(String curseur, int taille,
+                                                                       SelectionChamps selection) {
+        if (taille < 1) {
+            throw new RuntimeException("La taille de page doit être positive");
+        }
+        PageCurseur.Cle cle = PageCurseur.decoder(curseur);
+        int tailleValide = Math.min(taille, tailleMaxPage);
+        List<String> champs = selection.champsALire("id", "dateCreation");
+        StringBuilder sql = new StringBuilder("SELECT " + colonnesSql(champs, CHAMPS_AUTO_ECOLE, "a") +
+                                              " FROM auto_ecoles a");
+        MapSqlParameterSource parametres = new MapSqlParameterSource("limite", tailleValide + 1);
+        if (cle != null) {
+            sql.append(" WHERE (a.date_creation, a.id) < (:dateCurseur, :idCurseur)");
+            parametres.addValue("dateCurseur", Timestamp.valueOf(cle.getDateCreation()))
+                      .addValue("idCurseur", cle.getId());
+        }
+        sql.append(" ORDER BY a.date_creation DESC, a.id DESC LIMIT :limite");
+
+        List<Map<String, Object>> lignes = lire(sql.toString(), parametres, champs);
+        PageCurseur<Map<String, Object>> page = PageCurseur.depuis(lignes, tailleValide,
+                ligne -> (LocalDateTime) ligne.get("dateCreation"), ligne -> (Long) ligne.get("id"));
+        terminer(page.getContenu(), selection);
+        return page;
+    }
+
+    /**
+     * Ajoute les inclusions puis retire les champs techniques non demandés
+     */
+    private void terminer(List<Map<String, Object>> autoEcoles, SelectionChamps selection) {
+        if (!autoEcoles.isEmpty()) {
+            Map<Long, Map<String, Object>> parId = new LinkedHashMap<>();
+            for (Map<String, Object> autoEcole : autoEcoles) {
+                parId.put((Long) autoEcole.get("id"), autoEcole);
+            }
+            if (selection.inclut(INCLUSION_CANDIDATS)) {
+                inclure(parId, INCLUSION_CANDIDATS, "candidats", CHAMPS_CANDIDAT);
+            }
+            if (selection.inclut(INCLUSION_DOCUMENTS)) {
+                inclure(parId, INCLUSION_DOCUMENTS, "documents_auto_ecole", CHAMPS_DOCUMENT);
+            }
+        }
+        for (Map<String, Object> autoEcole : autoEcoles) {
+            autoEcole.keySet().removeIf(champ -> !selection.getChamps().contains(champ)
+                                                 && !selection.inclut(champ));
+        }
+    }
+
+    /**
+     * Charge une association pour toutes les auto-écoles de la page en une requête
+     */
+    private void inclure(Map<Long, Map<String, Object>> autoEcoles, String inclusion, String table,
+                         Map<String, String> colonnes) {
+        for (Map<String, Object> autoEcole : autoEcoles.values()) {
+            autoEcole.put(inclusion, new ArrayList<Map<String, Object>>());
+        }
+        List<String> champs = new ArrayList<>(colonnes.keySet());
+        champs.add(CHAMP_PARENT);
+        String sql = "SELECT " + colonnesSql(colonnes.keySet(), colonnes, "e") + ", e.auto_ecole_id" +
+                     " FROM " + table + " e WHERE e.auto_ecole_id IN (:ids)" +
+                     " ORDER BY e.date_creation DESC, e.id DESC";
+        for (Map<String, Object> enfant : lire(sql, new MapSqlParameterSource("ids", autoEcoles.keySet()), champs)) {
+            Long autoEcoleId = (Long) enfant.remove(CHAMP_PARENT);
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> liste = (List<Map<String, Object>>) autoEcoles.get(autoEcoleId).get(inclusion);
+            liste.add(enfant);
+        }
+    }
+
+    private List<Map<String, Object>> lire(String sql, MapSqlParameterSource parametres, List<String> champs) {
+        return jdbcTemplate.query(sql, parametres, (rs, numero) -> {
+            Map<String, Object> ligne = new LinkedHashMap<>();
+            for (int i = 0; i < champs.size(); i++) {
+                ligne.put(champs.get(i), valeur(rs, i + 1));
+            }
+            return ligne;
+        });
+    }
+
+    private static String colonnesSql(Iterable<String> champs, Map<String, String> colonnes, String alias) {
+        List<String> selection = new ArrayList<>();
+        for (String champ : champs) {
+            selection.add(alias + "." + colonnes.get(champ));
+        }
+        return String.join(", ", selection);
+    }
+
+    /**
+     * Tri demandé traduit en colonnes ; l'id départage les égalités
+     */
+    private static String ordreSql(Sort tri) {
+        if (tri.isUnsorted()) {
+            return "a.date_creation DESC, a.id DESC";
+        }
+        List<String> ordres = new ArrayList<>();
+        for (Sort.Order ordre : tri) {
+            String colonne = CHAMPS_AUTO_ECOLE.get(ordre.getProperty());
+            if (colonne == null) {
+                throw new RuntimeException("Tri impossible sur : " + ordre.getProperty());
+            }
+            ordres.add("a." + colonne + (ordre.isAscending() ? " ASC" : " DESC"));
+        }
+        ordres.add("a.id DESC");
+        return String.join(", ", ordres);
+    }
+
+    private static Object valeur(ResultSet rs, int index) throws SQLException {
+        Object valeur = rs.getObject(index);
+        if (valeur instanceof Timestamp) {
+            return ((Timestamp) valeur).toLocalDateTime();
+        }
+        if (valeur instanceof Date) {
+            return ((Date) valeur).toLocalDate();
+        }
+        return valeur;
+    }
+
+    private static Map<String, String> colonnes(String... paires) {
+        Map<String, String> colonnes = new LinkedHashMap<>();
+        for (int i = 0; i < paires.length; i += 2) {
+            colonnes.put(paires[i], paires[i + 1]);
+        }
+        return Collections.unmodifiableMap(colonnes);
+    }
+}
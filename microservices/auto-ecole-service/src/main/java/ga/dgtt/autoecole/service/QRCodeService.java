@@ -1,113 +1,188 @@
 package ga.dgtt.autoecole.service;
 
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
 
 /**
  * Service pour la génération de QR codes
  * 
  * Ce service génère des QR codes pour les documents et entités
  * du système R-DGTT.
+ * 
+ * Les entités ne stockent que le contenu du QR code (colonne qr_code) ;
+ * l'image PNG est générée à la première demande puis conservée dans le
+ * {@link QRCodeCache}, indexée par l'empreinte SHA-256 du contenu.
+ * Le rendu est assuré par le {@link QRCodeRenderer} (PNG 1 bit ou SVG).
  */
 @Service
 public class QRCodeService {
     
-    private static final int WIDTH = 300;
-    private static final int HEIGHT = 300;
+    /** Début de l'encodage Base64 de la signature PNG (anciennes lignes stockant l'image) */
+    private static final String PREFIXE_PNG_BASE64 = "iVBORw0KGgo";
+    
+    @Autowired
+    private QRCodeCache qrCodeCache;
+    
+    @Autowired
+    private QRCodeRenderer qrCodeRenderer;
+    
+    /** Pixels par module : 8 donne environ 300x300 pour un contenu court */
+    @Value("${app.qrcode.echelle:8}")
+    private int echelle;
     
     /**
      * Génère un QR code à partir d'un texte
+     * 
+     * @return l'image PNG encodée en Base64
      */
     public String genererQRCode(String texte) {
+        return Base64.getEncoder().encodeToString(genererImagePng(texte));
+    }
+    
+    /**
+     * Génère l'image PNG d'un QR code
+     */
+    public byte[] genererImagePng(String texte) {
+        return qrCodeRenderer.rendrePng(texte, echelle);
+    }
+    
+    /**
+     * Génère les images PNG d'un lot de QR codes en parallèle
+     * 
+     * @return les images, dans l'ordre des textes
+     */
+    public List<byte[]> genererImagesPng(List<String> textes) {
+        return qrCodeRenderer.rendrePngLot(textes, echelle);
+    }
+    
+    /**
+     * Met en cache les images PNG d'un lot de QR codes, rendues en parallèle
+     * (les premières consultations ne paient pas le rendu)
+     */
+    public void prechargerImagesPng(List<String> qrCodes) {
+        List<byte[]> images = genererImagesPng(qrCodes);
+        for (int i = 0; i < qrCodes.size(); i++) {
+            byte[] image = images.get(i);
+            qrCodeCache.obtenir(calculerEmpreinte(qrCodes.get(i)), () -> image);
+        }
+    }
+    
+    /**
+     * Retourne l'image PNG correspondant à la valeur stockée d'un QR code
+     * 
+     * Les anciennes lignes contiennent directement l'image en Base64 : elle est
+     * alors décodée telle quelle. Sinon l'image est générée à partir du contenu
+     * et mise en cache.
+     */
+    public byte[] obtenirImagePng(String qrCode) {
+        if (estImageBase64(qrCode)) {
+            return Base64.getDecoder().decode(qrCode);
+        }
+        return qrCodeCache.obtenir(calculerEmpreinte(qrCode), () -> genererImagePng(qrCode));
+    }
+    
+    /**
+     * Retourne l'image SVG correspondant à la valeur stockée d'un QR code
+     * (les anciennes lignes au format image n'ont pas de version SVG)
+     */
+    public byte[] obtenirImageSvg(String qrCode) {
+        if (estImageBase64(qrCode)) {
+            throw new RuntimeException("QR code disponible uniquement au format PNG");
+        }
+        return qrCodeCache.obtenir(calculerEmpreinte(qrCode) + ".svg",
+                () -> qrCodeRenderer.rendreSvg(qrCode, echelle).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Calcule l'empreinte SHA-256 (hexadécimal) de la valeur stockée d'un QR code,
+     * utilisée comme clé de cache et comme ETag
+     */
+    public String calculerEmpreinte(String qrCode) {
         try {
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
-            BitMatrix bitMatrix = qrCodeWriter.encode(texte, BarcodeFormat.QR_CODE, WIDTH, HEIGHT);
-            
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
-            
-            byte[] imageBytes = outputStream.toByteArray();
-            return Base64.getEncoder().encodeToString(imageBytes);
-            
-        } catch (WriterException | IOException e) {
-            throw new RuntimeException("Erreur lors de la génération du QR code", e);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(qrCode.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponible", e);
         }
     }
     
     /**
-     * Génère un QR code pour une auto-école
+     * Vérifie si la valeur stockée est une image PNG en Base64 (format historique)
+     */
+    public boolean estImageBase64(String qrCode) {
+        return qrCode != null && qrCode.startsWith(PREFIXE_PNG_BASE64);
+    }
+    
+    /**
+     * Génère le contenu du QR code pour une auto-école
      */
     public String genererQRCodeAutoEcole(String numeroDemande, String nom, String statut) {
         String donnees = String.format("AUTO_ECOLE|%s|%s|%s|%s", 
                                       numeroDemande, nom, statut, System.currentTimeMillis());
-        return genererQRCode(donnees);
+        return donnees;
     }
     
     /**
-     * Génère un QR code pour un candidat
+     * Génère le contenu du QR code pour un candidat
      */
     public String genererQRCodeCandidat(String numeroLicence, String nom, String prenom, String categorie) {
         String donnees = String.format("CANDIDAT|%s|%s|%s|%s|%s", 
                                       numeroLicence, nom, prenom, categorie, System.currentTimeMillis());
-        return genererQRCode(donnees);
+        return donnees;
     }
     
     /**
-     * Génère un QR code pour un document
+     * Génère le contenu du QR code pour un document
      */
     public String genererQRCodeDocument(String typeDocument, String nomFichier, String hash) {
         String donnees = String.format("DOCUMENT|%s|%s|%s|%s", 
                                       typeDocument, nomFichier, hash, System.currentTimeMillis());
-        return genererQRCode(donnees);
+        return donnees;
     }
     
     /**
-     * Génère un QR code pour une évaluation
+     * Génère le contenu du QR code pour une évaluation
      */
     public String genererQRCodeEvaluation(String numeroEvaluation, String typeEvaluation, String resultat) {
         String donnees = String.format("EVALUATION|%s|%s|%s|%s", 
                                       numeroEvaluation, typeEvaluation, resultat, System.currentTimeMillis());
-        return genererQRCode(donnees);
+        return donnees;
     }
     
     /**
-     * Génère un QR code pour une autorisation
+     * Génère le contenu du QR code pour une autorisation
      */
     public String genererQRCodeAutorisation(String numeroAutorisation, String nomAutoEcole, String dateExpiration) {
         String donnees = String.format("AUTORISATION|%s|%s|%s|%s", 
                                       numeroAutorisation, nomAutoEcole, dateExpiration, System.currentTimeMillis());
-        return genererQRCode(donnees);
+        return donnees;
     }
     
     /**
      * Valide un QR code
      */
     public boolean validerQRCode(String qrCode, String typeAttendu) {
-        try {
-            String donnees = new String(Base64.getDecoder().decode(qrCode));
-            return donnees.startsWith(typeAttendu + "|");
-        } catch (Exception e) {
+        if (qrCode == null || estImageBase64(qrCode)) {
             return false;
         }
+        return qrCode.startsWith(typeAttendu + "|") || qrCode.startsWith(typeAttendu + ":");
     }
     
     /**
      * Extrait les données d'un QR code
      */
     public String[] extraireDonneesQRCode(String qrCode) {
-        try {
-            String donnees = new String(Base64.getDecoder().decode(qrCode));
-            return donnees.split("\\|");
-        } catch (Exception e) {
-            throw new RuntimeException("Erreur lors de l'extraction des données du QR code", e);
+        if (qrCode == null || estImageBase64(qrCode)) {
+            throw new RuntimeException("Erreur lors de l'extraction des données du QR code");
         }
+        return qrCode.split("[|:]");
     }
 }
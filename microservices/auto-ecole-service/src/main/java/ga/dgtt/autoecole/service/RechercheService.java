@@ -0,0 +1,157 @@
+package ga.dgtt.autoecole.service;
+
+import ga.dgtt.autoecole.dto.AutoEcoleResume;
+import ga.dgtt.autoecole.dto.CandidatResume;
+import ga.dgtt.autoecole.model.AutoEcole;
+import ga.dgtt.autoecole.model.Candidat;
+import ga.dgtt.autoecole.model.StatutAutoEcole;
+import ga.dgtt.autoecole.model.StatutCandidat;
+import ga.dgtt.autoecole.repository.AutoEcoleRepository;
+import ga.dgtt.autoecole.repository.CandidatRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service de recherche des auto-écoles et des candidats
+ *
+ * S'appuie sur les index trigrammes (pg_trgm) construits sur la forme
+ * normalisée des noms (fonction SQL normaliser_recherche : minuscules, sans
+ * accents). La recherche approchée utilise l'opérateur <% : les résultats
+ * sont classés par similarité décroissante, les fautes de frappe tolérées
+ * selon le seuil app.recherche.seuil-similarite.
+ */
+@Service
+@Transactional(readOnly = true)
+public class RechercheService {
+
+    private static final int LONGUEUR_MIN_TERME = 2;
+
+    @Autowired
+    private AutoEcoleRepository autoEcoleRepository;
+
+    @Autowired
+    private CandidatRepository candidatRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.recherche.seuil-similarite:0.4}")
+    private double seuilSimilarite;
+
+    @Value("${app.recherche.taille-page-max:100}")
+    private int taillePageMax;
+
+    /**
+     * Recherche approchée des auto-écoles par nom ou propriétaire
+     */
+    public Page<AutoEcoleResume> rechercherAutoEcoles(String terme, String ville, String province,
+                                                     StatutAutoEcole statut, Pageable pageable) {
+        String termeValide = validerTerme(terme);
+        appliquerSeuil();
+        return autoEcoleRepository.rechercher(termeValide, ville, province,
+                                              statut != null ? statut.name() : null,
+                                              pageSansTri(pageable))
+                .map(AutoEcoleResume::depuis);
+    }
+
+    /**
+     * Recherche approchée des candidats par nom et prénom
+     */
+    public Page<CandidatResume> rechercherCandidats(String terme, Long autoEcoleId, StatutCandidat statut,
+                                                   Pageable pageable) {
+        String termeValide = validerTerme(terme);
+        appliquerSeuil();
+        Page<Candidat> candidats = candidatRepository.rechercher(termeValide, autoEcoleId,
+                                                                 statut != null ? statut.name() : null,
+                                                                 pageSansTri(pageable));
+        Map<Long, String> nomsAutoEcoles = nomsAutoEcoles(candidats.getContent());
+        return candidats.map(c -> CandidatResume.depuis(c, nomsAutoEcoles.get(c.getAutoEcole().getId())));
+    }
+
+    /**
+     * Recherche des auto-écoles par critères (nom partiel, sans casse ni accents)
+     */
+    public Page<AutoEcoleResume> rechercherParCriteres(String ville, String province, StatutAutoEcole statut,
+                                                      String nom, Pageable pageable) {
+        return autoEcoleRepository.findByCriteres(ville, province,
+                                                  statut != null ? statut.name() : null,
+                                                  nom, triSurColonnes(pageable))
+                .map(AutoEcoleResume::depuis);
+    }
+
+    /**
+     * Noms des auto-écoles des candidats, en une requête pour toute la page
+     *
+     * La requête native ne peut pas joindre l'association : l'id est lu sur le
+     * proxy (sans l'initialiser), le nom est chargé ici par lot.
+     */
+    private Map<Long, String> nomsAutoEcoles(List<Candidat> candidats) {
+        Set<Long> ids = new HashSet<>();
+        for (Candidat candidat : candidats) {
+            ids.add(candidat.getAutoEcole().getId());
+        }
+        Map<Long, String> noms = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Object[] ligne : autoEcoleRepository.findNomsByIds(ids)) {
+                noms.put((Long) ligne[0], (String) ligne[1]);
+            }
+        }
+        return noms;
+    }
+
+    /**
+     * Fixe le seuil de similarité pour la transaction courante
+     */
+    private void appliquerSeuil() {
+        jdbcTemplate.queryForObject("SELECT set_config('pg_trgm.word_similarity_threshold', ?, true)",
+                                    String.class, String.valueOf(seuilSimilarite));
+    }
+
+    private String validerTerme(String terme) {
+        String termeNettoye = terme != null ? terme.trim() : "";
+        if (termeNettoye.length() < LONGUEUR_MIN_TERME) {
+            throw new RuntimeException("Le terme de recherche doit contenir au moins "
+                                       + LONGUEUR_MIN_TERME + " caractères");
+        }
+        return termeNettoye;
+    }
+
+    /**
+     * Les résultats sont classés par pertinence : le tri demandé est ignoré
+     */
+    private Pageable pageSansTri(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return PageRequest.of(0, taillePageMax);
+        }
+        return PageRequest.of(pageable.getPageNumber(), Math.min(pageable.getPageSize(), taillePageMax));
+    }
+
+    /**
+     * Traduit les propriétés de tri (dateCreation) en colonnes SQL (date_creation)
+     */
+    private Pageable triSurColonnes(Pageable pageable) {
+        if (pageable.isUnpaged() || pageable.getSort().isUnsorted()) {
+            return pageable;
+        }
+        List<Sort.Order> ordres = new ArrayList<>();
+        for (Sort.Order ordre : pageable.getSort()) {
+            String colonne = ordre.getProperty().replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase();
+            ordres.add(ordre.withProperty(colonne));
+        }
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(ordres));
+    }
+}
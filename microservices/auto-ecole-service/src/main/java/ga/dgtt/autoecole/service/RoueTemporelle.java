@@ -0,0 +1,164 @@
+package ga.dgtt.autoecole.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Roue temporelle hiérarchique (échéances identifiées par une clé)
+ *
+ * Le temps est découpé en pas. Quatre niveaux de 64 cases : une case du
+ * niveau n couvre 64^n pas, soit avec un pas d'une minute environ une heure,
+ * trois jours, six mois puis trente ans. Une échéance est rangée au niveau le
+ * plus bas qui la distingue du pas courant ; elle redescend d'un niveau quand
+ * l'aiguille atteint sa case. Planifier et annuler coûtent O(1), avancer ne
+ * touche que les cases traversées, quel que soit le nombre d'échéances.
+ *
+ * Non synchronisée : l'appelant sérialise les accès.
+ */
+public class RoueTemporelle<K> {
+
+    private static final int BITS = 6;
+    private static final int CASES = 1 << BITS;
+    private static final int MASQUE = CASES - 1;
+    private static final int NIVEAUX = 4;
+
+    private final long pasMillis;
+    private final List<List<Set<Echeance<K>>>> niveaux = new ArrayList<>(NIVEAUX);
+    // Au-delà du dernier niveau (plus de trente ans avec un pas d'une minute)
+    private final Set<Echeance<K>> lointaines = new HashSet<>();
+    private final Map<K, Echeance<K>> echeances = new HashMap<>();
+    private final List<K> echues = new ArrayList<>();
+    private long pasCourant;
+
+    public RoueTemporelle(long pasMillis, long instantMillis) {
+        this.pasMillis = pasMillis;
+        this.pasCourant = instantMillis / pasMillis;
+        for (int n = 0; n < NIVEAUX; n++) {
+            List<Set<Echeance<K>>> cases = new ArrayList<>(CASES);
+            for (int i = 0; i < CASES; i++) {
+                cases.add(new HashSet<>());
+            }
+            niveaux.add(cases);
+        }
+    }
+
+    /**
+     * Planifie (ou replanifie) l'échéance d'une clé ; une échéance passée est rendue au prochain avancement
+     */
+    public void planifier(K cle, long instantMillis) {
+        annuler(cle);
+        Echeance<K> echeance = new Echeance<>(cle, Math.floorDiv(instantMillis, pasMillis));
+        echeances.put(cle, echeance);
+        ranger(echeance);
+    }
+
+    /**
+     * Retire l'échéance d'une clé (sans effet si elle n'est pas planifiée)
+     */
+    public boolean annuler(K cle) {
+        Echeance<K> echeance = echeances.remove(cle);
+        if (echeance == null) {
+            return false;
+        }
+        if (echeance.emplacement != null) {
+            echeance.emplacement.remove(echeance);
+        } else {
+            echues.remove(cle);
+        }
+        return true;
+    }
+
+    /**
+     * Avance l'aiguille jusqu'à l'instant donné et rend les clés échues (pas par pas, dans l'ordre)
+     */
+    public List<K> avancer(long instantMillis) {
+        long cible = instantMillis / pasMillis;
+        List<K> resultat = new ArrayList<>();
+        rendreEchues(resultat);
+
+        while (pasCourant < cible) {
+            pasCourant++;
+            // Les niveaux dont l'aiguille entre dans une nouvelle case redescendent, du plus haut au plus bas
+            int niveau = 0;
+            while (niveau < NIVEAUX && (pasCourant & ((1L << (BITS * (niveau + 1))) - 1)) == 0) {
+                niveau++;
+            }
+            if (niveau == NIVEAUX) {
+                redescendre(lointaines);
+                niveau--;
+            }
+            for (int n = niveau; n >= 1; n--) {
+                redescendre(niveaux.get(n).get(indice(pasCourant, n)));
+            }
+            rendreEchues(resultat);
+            Set<Echeance<K>> caseCourante = niveaux.get(0).get(indice(pasCourant, 0));
+            for (Echeance<K> echeance : caseCourante) {
+                echeances.remove(echeance.cle);
+                resultat.add(echeance.cle);
+            }
+            caseCourante.clear();
+        }
+        return resultat;
+    }
+
+    /**
+     * Nombre d'échéances planifiées
+     */
+    public int taille() {
+        return echeances.size();
+    }
+
+    private void rendreEchues(List<K> resultat) {
+        for (K cle : echues) {
+            echeances.remove(cle);
+            resultat.add(cle);
+        }
+        echues.clear();
+    }
+
+    private void redescendre(Set<Echeance<K>> cases) {
+        if (cases.isEmpty()) {
+            return;
+        }
+        List<Echeance<K>> aRanger = new ArrayList<>(cases);
+        cases.clear();
+        for (Echeance<K> echeance : aRanger) {
+            ranger(echeance);
+        }
+    }
+
+    private void ranger(Echeance<K> echeance) {
+        if (echeance.pas <= pasCourant) {
+            echeance.emplacement = null;
+            echues.add(echeance.cle);
+            return;
+        }
+        // Niveau : groupe de 6 bits le plus haut où l'échéance diffère du pas courant
+        long difference = echeance.pas ^ pasCourant;
+        int niveau = (63 - Long.numberOfLeadingZeros(difference)) / BITS;
+        Set<Echeance<K>> emplacement = niveau < NIVEAUX
+                ? niveaux.get(niveau).get(indice(echeance.pas, niveau))
+                : lointaines;
+        emplacement.add(echeance);
+        echeance.emplacement = emplacement;
+    }
+
+    private static int indice(long pas, int niveau) {
+        return (int) ((pas >>> (BITS * niveau)) & MASQUE);
+    }
+
+    private static final class Echeance<K> {
+        private final K cle;
+        private final long pas;
+        private Set<Echeance<K>> emplacement;
+
+        private Echeance(K cle, long pas) {
+            this.cle = cle;
+            this.pas = pas;
+        }
+    }
+}
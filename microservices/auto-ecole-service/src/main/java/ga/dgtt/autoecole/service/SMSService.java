@@ -1,52 +1,164 @@
 package ga.dgtt.autoecole.service;
 
+import ga.dgtt.autoecole.model.OperateurMobile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Service pour l'envoi de SMS
- * 
+ *
  * Ce service gère l'envoi de SMS via l'API Airtel Money
  * (simulation pour le moment, intégration réelle à venir)
+ *
+ * Les SMS ne sont pas envoyés dans le thread appelant : ils sont déposés dans
+ * une file bornée par opérateur, vidée par lots par un thread dédié qui respecte
+ * le débit autorisé par la passerelle (seau à jetons par opérateur). Plusieurs
+ * messages en attente pour un même numéro sont fusionnés en un seul SMS.
+ * Chaque message reçoit le résultat de sa transmission à la passerelle.
+ * Les statuts de remise sont interrogés périodiquement par lots.
  */
 @Service
 public class SMSService {
-    
+
+    private static final String SEPARATEUR_FUSION = "\n";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Value("${app.sms.api.key:simulation_key}")
     private String smsApiKey;
-    
+
     @Value("${app.sms.api.url:https://api.airtel.ga/sms}")
     private String smsApiUrl;
-    
+
     @Value("${app.sms.enabled:true}")
     private boolean smsEnabled;
-    
+
+    @Value("${app.sms.file.capacite:10000}")
+    private int capaciteFile;
+
+    @Value("${app.sms.lot.taille:50}")
+    private int tailleLot;
+
+    @Value("${app.sms.fusion.longueur-max:459}")
+    private int longueurMaxFusion;
+
+    @Value("${app.sms.debit.airtel:20}")
+    private double debitAirtel;
+
+    @Value("${app.sms.debit.moov:10}")
+    private double debitMoov;
+
+    @Value("${app.sms.debit.autre:5}")
+    private double debitAutre;
+
+    @Value("${app.sms.statut.taille-lot:100}")
+    private int tailleLotStatut;
+
+    @Value("${app.sms.statut.retention-minutes:1440}")
+    private long retentionSuiviMinutes;
+
+    private final Map<OperateurMobile, FileOperateur> files = new EnumMap<>(OperateurMobile.class);
+    private final Map<String, SmsEnAttente> enAttenteParNumero = new ConcurrentHashMap<>();
+    private final Map<String, SuiviSMS> suivis = new ConcurrentHashMap<>();
+    private volatile boolean actif;
+
+    private Counter compteurFusions;
+    private Counter compteurRejets;
+
+    @PostConstruct
+    public void demarrer() {
+        compteurFusions = Counter.builder("sms.messages.fusionnes").register(meterRegistry);
+        compteurRejets = Counter.builder("sms.messages.rejetes").register(meterRegistry);
+
+        actif = true;
+        for (OperateurMobile operateur : OperateurMobile.values()) {
+            FileOperateur file = new FileOperateur(operateur, new SeauJetons(debit(operateur)));
+            files.put(operateur, file);
+            Gauge.builder("sms.file", file.file, BlockingQueue::size)
+                    .tag("operateur", operateur.name()).register(meterRegistry);
+
+            Thread thread = new Thread(() -> boucleEnvoi(file), "sms-" + operateur.name().toLowerCase());
+            thread.setDaemon(true);
+            file.travailleur = thread;
+            thread.start();
+        }
+    }
+
+    @PreDestroy
+    public void arreter() throws InterruptedException {
+        actif = false;
+        for (FileOperateur file : files.values()) {
+            file.travailleur.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        // Messages non transmis : leurs appelants les soumettront à nouveau
+        IllegalStateException arret = new IllegalStateException("Service SMS arrêté avant l'envoi");
+        for (FileOperateur file : files.values()) {
+            List<SmsEnAttente> restants = new ArrayList<>();
+            file.file.drainTo(restants);
+            for (SmsEnAttente sms : restants) {
+                sms.prendre();
+                sms.echouer(arret);
+            }
+        }
+    }
+
     /**
      * Envoie un SMS
+     *
+     * Le message est déposé dans la file de l'opérateur et l'appel rend la main
+     * immédiatement. Si un SMS pour le même numéro est encore en attente, le
+     * message lui est ajouté.
+     *
+     * @return complété avec l'identifiant de message quand la passerelle a
+     *         accepté le SMS, en erreur si elle l'a refusé ou si le service s'arrête
+     * @throws IllegalStateException si la file de l'opérateur est pleine
      */
-    public void envoyerSMS(String numeroTelephone, String message) {
+    public CompletableFuture<String> envoyerSMS(String numeroTelephone, String message) {
         if (!smsEnabled) {
             System.out.println("SMS désactivé - Message pour " + numeroTelephone + ": " + message);
-            return;
+            return CompletableFuture.completedFuture(null);
         }
-        
-        try {
-            // Note: Intégration API SMS réelle à implémenter quand les clés API seront disponibles
-            System.out.println("=== SIMULATION SMS ===");
-            System.out.println("Destinataire: " + numeroTelephone);
-            System.out.println("Message: " + message);
-            System.out.println("API Key: " + smsApiKey);
-            System.out.println("API URL: " + smsApiUrl);
-            System.out.println("=====================");
-            
-            // Simulation d'un délai d'envoi
-            Thread.sleep(100);
-            
-        } catch (Exception e) {
-            System.err.println("Erreur lors de l'envoi du SMS: " + e.getMessage());
+
+        CompletableFuture<String> resultat = new CompletableFuture<>();
+        SmsEnAttente existant = enAttenteParNumero.get(numeroTelephone);
+        if (existant != null && existant.fusionner(message, longueurMaxFusion, resultat)) {
+            compteurFusions.increment();
+            return resultat;
+        }
+
+        SmsEnAttente sms = new SmsEnAttente(numeroTelephone, message, resultat);
+        FileOperateur file = files.get(OperateurMobile.depuisNumero(numeroTelephone));
+        enAttenteParNumero.put(numeroTelephone, sms);
+        if (!file.file.offer(sms)) {
+            enAttenteParNumero.remove(numeroTelephone, sms);
+            compteurRejets.increment();
+            throw new IllegalStateException("File d'envoi SMS pleine pour l'opérateur " +
+                                            file.operateur.getLibelle());
         }
+        return resultat;
     }
-    
+
     /**
      * Vérifie le statut d'un SMS envoyé
      */
@@ -54,18 +166,68 @@ public class SMSService {
         if (!smsEnabled) {
             return "SIMULATION";
         }
-        
-        try {
-            // Note: Vérification du statut via l'API réelle à implémenter quand les clés API seront disponibles
-            System.out.println("Vérification du statut SMS: " + messageId);
-            return "DELIVERED";
-            
-        } catch (Exception e) {
-            System.err.println("Erreur lors de la vérification du statut: " + e.getMessage());
-            return "ERROR";
+        return verifierStatutsSMS(List.of(messageId)).getOrDefault(messageId, "ERROR");
+    }
+
+    /**
+     * Vérifie le statut d'un lot de SMS envoyés
+     *
+     * Les statuts finaux déjà connus sont servis sans appel à la passerelle ;
+     * les autres sont interrogés en une seule requête par lot.
+     */
+    public Map<String, String> verifierStatutsSMS(Collection<String> messageIds) {
+        Map<String, String> statuts = new HashMap<>();
+        List<String> aInterroger = new ArrayList<>();
+        for (String messageId : messageIds) {
+            SuiviSMS suivi = suivis.get(messageId);
+            if (suivi != null && suivi.estFinal()) {
+                statuts.put(messageId, suivi.statut);
+            } else {
+                aInterroger.add(messageId);
+            }
         }
+
+        for (int debut = 0; debut < aInterroger.size(); debut += tailleLotStatut) {
+            List<String> lot = aInterroger.subList(debut, Math.min(debut + tailleLotStatut, aInterroger.size()));
+            try {
+                Map<String, String> reponses = interrogerStatuts(lot);
+                for (Map.Entry<String, String> reponse : reponses.entrySet()) {
+                    statuts.put(reponse.getKey(), reponse.getValue());
+                    SuiviSMS suivi = suivis.get(reponse.getKey());
+                    if (suivi != null) {
+                        suivi.statut = reponse.getValue();
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("Erreur lors de la vérification du statut: " + e.getMessage());
+                for (String messageId : lot) {
+                    statuts.putIfAbsent(messageId, "ERROR");
+                }
+            }
+        }
+        return statuts;
     }
-    
+
+    /**
+     * Interroge périodiquement les statuts des SMS envoyés et purge les suivis anciens
+     */
+    @Scheduled(fixedDelayString = "${app.sms.statut.intervalle-ms:30000}")
+    public void suivreStatuts() {
+        long dateLimite = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(retentionSuiviMinutes);
+        List<String> enCours = new ArrayList<>();
+        for (Map.Entry<String, SuiviSMS> entree : suivis.entrySet()) {
+            SuiviSMS suivi = entree.getValue();
+            if (suivi.dateEnvoi < dateLimite) {
+                suivis.remove(entree.getKey());
+            } else if (!suivi.estFinal()) {
+                enCours.add(entree.getKey());
+            }
+        }
+        if (!enCours.isEmpty()) {
+            verifierStatutsSMS(enCours);
+        }
+    }
+
     /**
      * Envoie un SMS de confirmation de paiement
      */
@@ -76,7 +238,7 @@ public class SMSService {
         );
         envoyerSMS(numeroTelephone, message);
     }
-    
+
     /**
      * Envoie un SMS de notification de statut
      */
@@ -87,15 +249,277 @@ public class SMSService {
         );
         envoyerSMS(numeroTelephone, message);
     }
-    
+
     /**
      * Envoie un SMS de rappel
      */
     public void envoyerRappel(String numeroTelephone, String typeRappel, String date) {
-        String message = String.format(
+        envoyerSMS(numeroTelephone, formaterRappel(typeRappel, date));
+    }
+
+    /**
+     * Envoie un même rappel à une liste de numéros
+     *
+     * @return le nombre de rappels acceptés ; les numéros refusés (file pleine)
+     *         peuvent être soumis à nouveau plus tard
+     */
+    public int envoyerRappels(Collection<String> numerosTelephone, String typeRappel, String date) {
+        String message = formaterRappel(typeRappel, date);
+        int acceptes = 0;
+        for (String numeroTelephone : numerosTelephone) {
+            try {
+                envoyerSMS(numeroTelephone, message);
+                acceptes++;
+            } catch (IllegalStateException e) {
+                // File pleine pour cet opérateur : les autres opérateurs peuvent encore accepter
+            }
+        }
+        return acceptes;
+    }
+
+    /**
+     * Formate le message d'un rappel
+     */
+    public String formaterRappel(String typeRappel, String date) {
+        return String.format(
             "R-DGTT: Rappel - %s prévu le %s. Merci de vous préparer.",
             typeRappel, date
         );
-        envoyerSMS(numeroTelephone, message);
     }
-}
\ No newline at end of file
+
+    /**
+     * Boucle du thread d'un opérateur : vide la file par lots au débit autorisé
+     */
+    private void boucleEnvoi(FileOperateur file) {
+        int taille = Math.max(1, Math.min(tailleLot, file.seau.capacite));
+        List<SmsEnAttente> lot = new ArrayList<>(taille);
+        while (actif || !file.file.isEmpty()) {
+            try {
+                SmsEnAttente premier = file.file.poll(1, TimeUnit.SECONDS);
+                if (premier == null) {
+                    continue;
+                }
+                lot.add(premier);
+                file.file.drainTo(lot, taille - 1);
+                file.seau.acquerir(lot.size());
+                transmettreLot(file, lot);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                echouer(lot, e);
+                return;
+            } catch (Exception e) {
+                System.err.println("Erreur lors de l'envoi du SMS: " + e.getMessage());
+                echouer(lot, e);
+            } finally {
+                lot.clear();
+            }
+        }
+    }
+
+    /**
+     * Transmet un lot de SMS à la passerelle, enregistre leur suivi et en rend le résultat aux appelants
+     */
+    private void transmettreLot(FileOperateur file, List<SmsEnAttente> lot) {
+        List<String> numeros = new ArrayList<>(lot.size());
+        List<String> contenus = new ArrayList<>(lot.size());
+        for (SmsEnAttente sms : lot) {
+            contenus.add(sms.prendre());
+            numeros.add(sms.numeroTelephone);
+            enAttenteParNumero.remove(sms.numeroTelephone, sms);
+        }
+
+        List<String> messageIds;
+        try {
+            messageIds = appelerPasserelle(file.operateur, numeros, contenus);
+        } catch (Exception e) {
+            file.echecs.increment(numeros.size());
+            System.err.println("Erreur lors de l'envoi de " + numeros.size() + " SMS (" +
+                               file.operateur.getLibelle() + "): " + e.getMessage());
+            echouer(lot, e);
+            return;
+        }
+
+        long maintenant = System.currentTimeMillis();
+        for (int i = 0; i < messageIds.size(); i++) {
+            suivis.put(messageIds.get(i), new SuiviSMS(numeros.get(i), maintenant));
+        }
+        file.envoyes.increment(numeros.size());
+        for (int i = 0; i < lot.size(); i++) {
+            lot.get(i).reussir(messageIds.get(i));
+        }
+    }
+
+    /**
+     * Signale l'échec aux appelants des SMS d'un lot (sans effet sur ceux déjà transmis)
+     */
+    private void echouer(List<SmsEnAttente> lot, Exception erreur) {
+        for (SmsEnAttente sms : lot) {
+            // Un SMS pris ne reçoit plus de fusion ; sinon le retirer évite d'y ajouter un message perdu
+            sms.prendre();
+            enAttenteParNumero.remove(sms.numeroTelephone, sms);
+            sms.echouer(erreur);
+        }
+    }
+
+    /**
+     * Appel de l'API d'envoi groupé de la passerelle
+     *
+     * @return les identifiants de message, dans l'ordre des numéros
+     */
+    private List<String> appelerPasserelle(OperateurMobile operateur, List<String> numeros, List<String> contenus) {
+        // Note: Intégration API SMS réelle à implémenter quand les clés API seront disponibles
+        System.out.println("=== SIMULATION SMS (" + operateur.getLibelle() + ", " + numeros.size() + " messages) ===");
+        List<String> messageIds = new ArrayList<>(numeros.size());
+        for (int i = 0; i < numeros.size(); i++) {
+            System.out.println("Destinataire: " + numeros.get(i) + " - Message: " + contenus.get(i));
+            messageIds.add("SMS-" + UUID.randomUUID());
+        }
+        return messageIds;
+    }
+
+    /**
+     * Appel de l'API de statut groupé de la passerelle
+     */
+    private Map<String, String> interrogerStatuts(List<String> messageIds) {
+        // Note: Vérification du statut via l'API réelle à implémenter quand les clés API seront disponibles
+        Map<String, String> statuts = new HashMap<>();
+        for (String messageId : messageIds) {
+            statuts.put(messageId, "DELIVERED");
+        }
+        return statuts;
+    }
+
+    /**
+     * Débit autorisé (SMS par seconde) pour un opérateur
+     */
+    private double debit(OperateurMobile operateur) {
+        switch (operateur) {
+            case AIRTEL: return debitAirtel;
+            case MOOV: return debitMoov;
+            default: return debitAutre;
+        }
+    }
+
+    /**
+     * File d'attente et limiteur de débit d'un opérateur
+     */
+    private final class FileOperateur {
+        private final OperateurMobile operateur;
+        private final SeauJetons seau;
+        private final BlockingQueue<SmsEnAttente> file = new ArrayBlockingQueue<>(capaciteFile);
+        private final Counter envoyes;
+        private final Counter echecs;
+        private Thread travailleur;
+
+        private FileOperateur(OperateurMobile operateur, SeauJetons seau) {
+            this.operateur = operateur;
+            this.seau = seau;
+            this.envoyes = Counter.builder("sms.messages").tag("operateur", operateur.name())
+                    .tag("resultat", "envoye").register(meterRegistry);
+            this.echecs = Counter.builder("sms.messages").tag("operateur", operateur.name())
+                    .tag("resultat", "echec").register(meterRegistry);
+        }
+    }
+
+    /**
+     * Seau à jetons : rechargé en continu au débit autorisé, capacité d'une seconde de débit
+     */
+    private static final class SeauJetons {
+        private final int capacite;
+        private final double jetonsParNano;
+        private double jetons;
+        private long derniereRecharge = System.nanoTime();
+
+        private SeauJetons(double debitParSeconde) {
+            this.capacite = Math.max(1, (int) debitParSeconde);
+            this.jetonsParNano = debitParSeconde / TimeUnit.SECONDS.toNanos(1);
+            this.jetons = capacite;
+        }
+
+        /**
+         * Attend que n jetons soient disponibles puis les consomme
+         */
+        private void acquerir(int n) throws InterruptedException {
+            long attente;
+            while ((attente = tenter(n)) > 0) {
+                TimeUnit.NANOSECONDS.sleep(attente);
+            }
+        }
+
+        /**
+         * @return 0 si les jetons ont été consommés, sinon le délai d'attente en nanosecondes
+         */
+        private synchronized long tenter(int n) {
+            long maintenant = System.nanoTime();
+            jetons = Math.min(capacite, jetons + (maintenant - derniereRecharge) * jetonsParNano);
+            derniereRecharge = maintenant;
+            if (jetons >= n) {
+                jetons -= n;
+                return 0;
+            }
+            return (long) Math.ceil((n - jetons) / jetonsParNano);
+        }
+    }
+
+    /**
+     * SMS en attente d'envoi, qui peut encore recevoir d'autres messages
+     * pour le même numéro tant qu'il n'a pas été pris par le thread d'envoi
+     */
+    private static final class SmsEnAttente {
+        private final String numeroTelephone;
+        private final StringBuilder contenu;
+        private final List<CompletableFuture<String>> resultats = new ArrayList<>(1);
+        private boolean pris;
+
+        private SmsEnAttente(String numeroTelephone, String message, CompletableFuture<String> resultat) {
+            this.numeroTelephone = numeroTelephone;
+            this.contenu = new StringBuilder(message);
+            this.resultats.add(resultat);
+        }
+
+        private synchronized boolean fusionner(String message, int longueurMax, CompletableFuture<String> resultat) {
+            if (pris || contenu.length() + SEPARATEUR_FUSION.length() + message.length() > longueurMax) {
+                return false;
+            }
+            contenu.append(SEPARATEUR_FUSION).append(message);
+            resultats.add(resultat);
+            return true;
+        }
+
+        private synchronized String prendre() {
+            pris = true;
+            return contenu.toString();
+        }
+
+        // Appelées après prendre() : la liste des résultats ne change plus
+        private void reussir(String messageId) {
+            for (CompletableFuture<String> resultat : resultats) {
+                resultat.complete(messageId);
+            }
+        }
+
+        private void echouer(Exception erreur) {
+            for (CompletableFuture<String> resultat : resultats) {
+                resultat.completeExceptionally(erreur);
+            }
+        }
+    }
+
+    /**
+     * Suivi de remise d'un SMS transmis à la passerelle
+     */
+    private static final class SuiviSMS {
+        private final String numeroTelephone;
+        private final long dateEnvoi;
+        private volatile String statut = "SENT";
+
+        private SuiviSMS(String numeroTelephone, long dateEnvoi) {
+            this.numeroTelephone = numeroTelephone;
+            this.dateEnvoi = dateEnvoi;
+        }
+
+        private boolean estFinal() {
+            return "DELIVERED".equals(statut) || "FAILED".equals(statut) || "EXPIRED".equals(statut);
+        }
+    }
+}
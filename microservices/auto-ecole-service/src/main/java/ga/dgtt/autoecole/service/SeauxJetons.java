@@ -0,0 +1,106 @@
+package ga.dgtt.autoecole.service;
+
+/**
+ * Seaux à jetons en mémoire, identifiés par une clé de 64 bits
+ *
+ * Table à adressage ouvert de taille fixe, découpée en bandes verrouillées
+ * séparément : deux requêtes ne se bloquent que si leurs clés tombent dans la
+ * même bande. Les jetons sont comptés en millionièmes et remplis au fil du
+ * temps écoulé, sans tâche de fond. Prélever n'alloue rien. Quand les cases
+ * sondées sont toutes prises, la clé la plus anciennement servie est
+ * remplacée : elle repartira d'un seau plein (une clé inactive y aurait été).
+ */
+public class SeauxJetons {
+
+    private static final long UNITE = 1_000_000L;
+    private static final long MINUTE_NANOS = 60_000_000_000L;
+    private static final int SONDAGES = 8;
+
+    private final long[] cles;
+    private final long[] jetons;
+    private final long[] horodatages;
+    private final Object[] verrous;
+    private final int masque;
+    private final int tailleBande;
+
+    /**
+     * @param capacite nombre de seaux (arrondi à une puissance de deux)
+     * @param bandes   nombre de verrous (arrondi à une puissance de deux, au plus capacite / SONDAGES)
+     */
+    public SeauxJetons(int capacite, int bandes) {
+        int taille = Integer.highestOneBit(Math.max(capacite, SONDAGES * 2) - 1) << 1;
+        int nombreBandes = Math.min(Integer.highestOneBit(Math.max(bandes, 1)), taille / SONDAGES);
+        this.cles = new long[taille];
+        this.jetons = new long[taille];
+        this.horodatages = new long[taille];
+        this.masque = taille - 1;
+        this.tailleBande = taille / nombreBandes;
+        this.verrous = new Object[nombreBandes];
+        for (int i = 0; i < nombreBandes; i++) {
+            verrous[i] = new Object();
+        }
+    }
+
+    /**
+     * Prélève un jeton dans le seau d'une clé (rafale = débit d'une minute)
+     *
+     * @return 0 si le jeton est accordé, sinon l'attente en nanosecondes avant le prochain jeton
+     */
+    public long prelever(long cle, long jetonsParMinute, long maintenantNanos) {
+        if (cle == 0) {
+            cle = 1; // 0 marque une case libre
+        }
+        long plafond = jetonsParMinute * UNITE;
+        int position = (int) melanger(cle) & masque;
+        int debutBande = position & -tailleBande;
+        synchronized (verrous[position / tailleBande]) {
+            int choisie = -1;
+            int plusAncienne = -1;
+            for (int s = 0; s < SONDAGES; s++) {
+                int i = debutBande + ((position + s) & (tailleBande - 1));
+                if (cles[i] == cle) {
+                    choisie = i;
+                    break;
+                }
+                if (cles[i] == 0) {
+                    if (choisie < 0) {
+                        choisie = i;
+                    }
+                } else if (plusAncienne < 0 || horodatages[i] - horodatages[plusAncienne] < 0) {
+                    plusAncienne = i;
+                }
+            }
+            if (choisie < 0 || cles[choisie] != cle) {
+                // Nouvelle clé : case libre, sinon la plus anciennement servie
+                if (choisie < 0) {
+                    choisie = plusAncienne;
+                }
+                cles[choisie] = cle;
+                jetons[choisie] = plafond;
+                horodatages[choisie] = maintenantNanos;
+            }
+
+            long niveau = jetons[choisie];
+            long ecoule = maintenantNanos - horodatages[choisie];
+            if (ecoule > 0) {
+                // Jetons gagnés en millionièmes : ecoule * débit / minute * UNITE
+                niveau = ecoule >= MINUTE_NANOS ? plafond
+                        : Math.min(plafond, niveau + ecoule * jetonsParMinute / (MINUTE_NANOS / UNITE));
+                horodatages[choisie] = maintenantNanos;
+            }
+            if (niveau >= UNITE) {
+                jetons[choisie] = niveau - UNITE;
+                return 0;
+            }
+            jetons[choisie] = niveau;
+            return (UNITE - niveau) * (MINUTE_NANOS / UNITE) / jetonsParMinute + 1;
+        }
+    }
+
+    private static long melanger(long cle) {
+        cle ^= cle >>> 33;
+        cle *= 0xff51afd7ed558ccdL;
+        cle ^= cle >>> 33;
+        return cle;
+    }
+}
@@ -0,0 +1,230 @@
+package ga.dgtt.autoecole.service;
+
+import ga.dgtt.autoecole.model.StatutAutoEcole;
+import ga.dgtt.autoecole.model.StatutCandidat;
+import ga.dgtt.autoecole.repository.AutoEcoleRepository;
+import ga.dgtt.autoecole.repository.CandidatRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service des statistiques des auto-écoles et des candidats
+ *
+ * Les effectifs par statut sont tenus en mémoire et mis à jour par les
+ * transitions du service (après validation de la transaction). Ils sont
+ * recalés périodiquement sur la base par une requête GROUP BY par entité,
+ * ce qui corrige les écarts éventuels (modifications faites par une autre
+ * instance ou directement en base) : l'écart est borné par l'intervalle
+ * de réconciliation.
+ */
+@Service
+public class StatistiquesService {
+
+    private static final StatutAutoEcole[] STATUTS_AUTO_ECOLE = StatutAutoEcole.values();
+    private static final StatutCandidat[] STATUTS_CANDIDAT = StatutCandidat.values();
+
+    @Autowired
+    private AutoEcoleRepository autoEcoleRepository;
+
+    @Autowired
+    private CandidatRepository candidatRepository;
+
+    @Value("${app.statistiques.reconciliation-ms:60000}")
+    private long intervalleReconciliationMs;
+
+    private final long[] autoEcoles = new long[STATUTS_AUTO_ECOLE.length];
+    private final long[] candidats = new long[STATUTS_CANDIDAT.length];
+
+    // Variations appliquées pendant une réconciliation, rejouées sur le résultat de la requête
+    private final long[] deltasAutoEcoles = new long[STATUTS_AUTO_ECOLE.length];
+    private final long[] deltasCandidats = new long[STATUTS_CANDIDAT.length];
+    private boolean enReconciliation;
+    private LocalDateTime derniereReconciliation;
+
+    /**
+     * Prend en compte la création d'une auto-école
+     */
+    public void autoEcoleCreee(StatutAutoEcole statut) {
+        apresValidation(() -> appliquer(autoEcoles, deltasAutoEcoles, statut.ordinal(), 1));
+    }
+
+    /**
+     * Prend en compte un changement de statut d'une auto-école
+     */
+    public void transitionAutoEcole(StatutAutoEcole ancien, StatutAutoEcole nouveau) {
+        if (ancien == nouveau) {
+            return;
+        }
+        apresValidation(() -> {
+            if (ancien != null) {
+                appliquer(autoEcoles, deltasAutoEcoles, ancien.ordinal(), -1);
+            }
+            appliquer(autoEcoles, deltasAutoEcoles, nouveau.ordinal(), 1);
+        });
+    }
+
+    /**
+     * Prend en compte l'enrôlement d'un candidat
+     */
+    public void candidatCree(StatutCandidat statut) {
+        apresValidation(() -> appliquer(candidats, deltasCandidats, statut.ordinal(), 1));
+    }
+
+    /**
+     * Prend en compte un changement de statut d'un candidat
+     */
+    public void transitionCandidat(StatutCandidat ancien, StatutCandidat nouveau) {
+        if (ancien == nouveau) {
+            return;
+        }
+        apresValidation(() -> {
+            if (ancien != null) {
+                appliquer(candidats, deltasCandidats, ancien.ordinal(), -1);
+            }
+            appliquer(candidats, deltasCandidats, nouveau.ordinal(), 1);
+        });
+    }
+
+    /**
+     * Retourne les statistiques courantes (lecture en mémoire)
+     */
+    public Map<String, Object> recupererStatistiques() {
+        if (derniereReconciliation() == null) {
+            reconcilier();
+        }
+
+        long[] copieAutoEcoles;
+        long[] copieCandidats;
+        LocalDateTime dateReconciliation;
+        synchronized (this) {
+            copieAutoEcoles = autoEcoles.clone();
+            copieCandidats = candidats.clone();
+            dateReconciliation = derniereReconciliation;
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalAutoEcoles", somme(copieAutoEcoles));
+        stats.put("totalCandidats", somme(copieCandidats));
+        stats.put("autoEcolesEnAttente", copieAutoEcoles[StatutAutoEcole.EN_ATTENTE.ordinal()]);
+        stats.put("autoEcolesApprouvees", copieAutoEcoles[StatutAutoEcole.AUTORISATION_VALIDE.ordinal()]);
+        stats.put("autoEcolesRejetees", copieAutoEcoles[StatutAutoEcole.REJETE.ordinal()]);
+        stats.put("candidatsEnCours", copieCandidats[StatutCandidat.EN_FORMATION.ordinal()]);
+        stats.put("candidatsReussis", copieCandidats[StatutCandidat.EXAMEN_REUSSI.ordinal()]);
+        stats.put("candidatsEchecs", copieCandidats[StatutCandidat.REJETE.ordinal()]);
+
+        Map<String, Long> autoEcolesParStatut = new LinkedHashMap<>();
+        for (StatutAutoEcole statut : STATUTS_AUTO_ECOLE) {
+            autoEcolesParStatut.put(statut.name(), copieAutoEcoles[statut.ordinal()]);
+        }
+        Map<String, Long> candidatsParStatut = new LinkedHashMap<>();
+        for (StatutCandidat statut : STATUTS_CANDIDAT) {
+            candidatsParStatut.put(statut.name(), copieCandidats[statut.ordinal()]);
+        }
+        stats.put("autoEcolesParStatut", autoEcolesParStatut);
+        stats.put("candidatsParStatut", candidatsParStatut);
+
+        stats.put("derniereReconciliation", dateReconciliation);
+        stats.put("ecartMaximalSecondes", Duration.ofMillis(intervalleReconciliationMs).toSeconds());
+        return stats;
+    }
+
+    /**
+     * Au démarrage, charge les effectifs depuis la base
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void auDemarrage() {
+        reconcilier();
+    }
+
+    /**
+     * Recale les effectifs sur la base (une requête GROUP BY par entité)
+     */
+    @Scheduled(fixedDelayString = "${app.statistiques.reconciliation-ms:60000}")
+    public void reconcilier() {
+        synchronized (this) {
+            enReconciliation = true;
+            Arrays.fill(deltasAutoEcoles, 0);
+            Arrays.fill(deltasCandidats, 0);
+        }
+        try {
+            long[] comptesAutoEcoles = compter(autoEcoleRepository.countByStatut(), STATUTS_AUTO_ECOLE.length);
+            long[] comptesCandidats = compter(candidatRepository.countByStatut(), STATUTS_CANDIDAT.length);
+
+            synchronized (this) {
+                for (int i = 0; i < autoEcoles.length; i++) {
+                    autoEcoles[i] = comptesAutoEcoles[i] + deltasAutoEcoles[i];
+                }
+                for (int i = 0; i < candidats.length; i++) {
+                    candidats[i] = comptesCandidats[i] + deltasCandidats[i];
+                }
+                derniereReconciliation = LocalDateTime.now();
+            }
+        } catch (Exception e) {
+            System.err.println("Erreur lors de la réconciliation des statistiques: " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                enReconciliation = false;
+            }
+        }
+    }
+
+    private synchronized LocalDateTime derniereReconciliation() {
+        return derniereReconciliation;
+    }
+
+    private synchronized void appliquer(long[] compteurs, long[] deltas, int index, long variation) {
+        compteurs[index] += variation;
+        if (enReconciliation) {
+            deltas[index] += variation;
+        }
+    }
+
+    /**
+     * Exécute la mise à jour après la validation de la transaction courante
+     * (immédiatement s'il n'y en a pas)
+     */
+    private void apresValidation(Runnable miseAJour) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    miseAJour.run();
+                }
+            });
+        } else {
+            miseAJour.run();
+        }
+    }
+
+    private static long[] compter(List<Object[]> lignes, int taille) {
+        long[] comptes = new long[taille];
+        for (Object[] ligne : lignes) {
+            if (ligne[0] != null) {
+                comptes[((Enum<?>) ligne[0]).ordinal()] = ((Number) ligne[1]).longValue();
+            }
+        }
+        return comptes;
+    }
+
+    private static long somme(long[] comptes) {
+        long total = 0;
+        for (long compte : comptes) {
+            total += compte;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,245 @@
+package ga.dgtt.autoecole.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Stockage des fichiers de documents adressé par contenu
+ *
+ * Chaque fichier est rangé sous son empreinte SHA-256 (hashFichier) dans une
+ * arborescence à deux niveaux (ab/cd/abcd...) qui borne la taille des
+ * répertoires. Le contenu est haché pendant son écriture dans un fichier
+ * temporaire, puis déplacé atomiquement : deux dépôts identiques partagent le
+ * même fichier et un fichier visible est toujours complet. Un fichier n'est
+ * jamais modifié après son dépôt ; son empreinte sert donc d'ETag.
+ */
+@Component
+public class StockageDocuments {
+
+    private static final Pattern EMPREINTE = Pattern.compile("[0-9a-f]{64}");
+
+    @Value("${app.file.upload.path:/app/uploads}")
+    private String chemin;
+
+    @Value("${app.file.upload.max-size:10MB}")
+    private DataSize tailleMax;
+
+    private Path racine;
+    private Path temporaires;
+
+    @PostConstruct
+    public void initialiser() {
+        racine = Paths.get(chemin).toAbsolutePath().normalize();
+        try {
+            // Sur le même système de fichiers que les blobs, pour que le déplacement final soit atomique
+            temporaires = repertoire("tmp");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Répertoire de stockage inaccessible : " + racine, e);
+        }
+    }
+
+    /**
+     * Enregistre un contenu et retourne son empreinte ; un contenu déjà présent n'est pas réécrit
+     */
+    public FichierStocke stocker(InputStream contenu) throws IOException {
+        MessageDigest sha256 = sha256();
+        Path temporaire = Files.createTempFile(temporaires, "depot-", ".tmp");
+        try {
+            long taille = 0;
+            try (FileChannel sortie = FileChannel.open(temporaire, StandardOpenOption.WRITE)) {
+                byte[] tampon = new byte[65536];
+                int lus;
+                while ((lus = contenu.read(tampon)) != -1) {
+                    taille += lus;
+                    if (taille > tailleMax.toBytes()) {
+                        throw new RuntimeException("Le fichier dépasse la taille maximale de " + tailleMax.toMegabytes() + " Mo");
+                    }
+                    sha256.update(tampon, 0, lus);
+                    ByteBuffer tranche = ByteBuffer.wrap(tampon, 0, lus);
+                    while (tranche.hasRemaining()) {
+                        sortie.write(tranche);
+                    }
+                }
+                sortie.force(true);
+            }
+
+            return adopter(temporaire, HexFormat.of().formatHex(sha256.digest()), taille);
+        } finally {
+            Files.deleteIfExists(temporaire);
+        }
+    }
+
+    /**
+     * Range sous son empreinte un fichier déjà haché (téléversement par morceaux) ;
+     * le fichier doit se trouver sous la racine du stockage et est consommé
+     */
+    public FichierStocke adopter(Path fichier, String empreinte, long taille) throws IOException {
+        String typeMime = detecterTypeMime(fichier);
+        Path cible = chemin(empreinte);
+        if (Files.exists(cible)) {
+            Files.deleteIfExists(fichier);
+            return new FichierStocke(empreinte, taille, typeMime, false);
+        }
+        Files.createDirectories(cible.getParent());
+        try {
+            Files.move(fichier, cible, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Même contenu déposé en parallèle : le fichier en place est identique
+            Files.deleteIfExists(fichier);
+            return new FichierStocke(empreinte, taille, typeMime, false);
+        }
+        return new FichierStocke(empreinte, taille, typeMime, true);
+    }
+
+    /**
+     * Description d'un fichier déjà stocké
+     */
+    public FichierStocke decrire(String empreinte) throws IOException {
+        return new FichierStocke(empreinte, taille(empreinte), detecterTypeMime(chemin(empreinte)), false);
+    }
+
+    /**
+     * Répertoire de travail d'un usage (téléversements...), sur le même système de fichiers que les blobs
+     */
+    public Path repertoire(String nom) throws IOException {
+        return Files.createDirectories(racine.resolve(nom));
+    }
+
+    public DataSize getTailleMax() {
+        return tailleMax;
+    }
+
+    /**
+     * Chemin d'un fichier à partir de son empreinte
+     */
+    public Path chemin(String empreinte) {
+        if (empreinte == null || !EMPREINTE.matcher(empreinte).matches()) {
+            throw new RuntimeException("Empreinte de fichier invalide");
+        }
+        return racine.resolve(cheminRelatif(empreinte));
+    }
+
+    /**
+     * Chemin relatif à la racine du stockage, enregistré dans urlFichier
+     */
+    public String cheminRelatif(String empreinte) {
+        return empreinte.substring(0, 2) + "/" + empreinte.substring(2, 4) + "/" + empreinte;
+    }
+
+    /**
+     * Taille d'un fichier stocké
+     */
+    public long taille(String empreinte) throws IOException {
+        try {
+            return Files.size(chemin(empreinte));
+        } catch (NoSuchFileException e) {
+            throw new RuntimeException("Fichier non trouvé");
+        }
+    }
+
+    /**
+     * Fichier dérivé (aperçu, miniature...) rangé à côté de l'original
+     */
+    public Path derive(String empreinte, String variante) {
+        return chemin(empreinte).resolveSibling(empreinte + "." + variante + ".jpg");
+    }
+
+    /**
+     * Copie une plage d'un fichier vers la sortie avec FileChannel.transferTo,
+     * quand le conteneur ne peut pas l'envoyer lui-même (sendfile)
+     */
+    public void transferer(Path fichier, long debut, long longueur, OutputStream sortie) throws IOException {
+        try (FileChannel entree = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            WritableByteChannel cible = Channels.newChannel(sortie);
+            long position = debut;
+            long restant = longueur;
+            while (restant > 0) {
+                long transferes = entree.transferTo(position, restant, cible);
+                if (transferes <= 0) {
+                    throw new IOException("Fichier tronqué : " + fichier.getFileName());
+                }
+                position += transferes;
+                restant -= transferes;
+            }
+        }
+    }
+
+    /**
+     * Type MIME déduit des premiers octets (signatures des formats attendus), null si inconnu
+     */
+    private static String detecterTypeMime(Path fichier) throws IOException {
+        byte[] entete = new byte[12];
+        int lus;
+        try (InputStream entree = Files.newInputStream(fichier)) {
+            lus = entree.readNBytes(entete, 0, entete.length);
+        }
+        if (commencePar(entete, lus, 0, 0x25, 0x50, 0x44, 0x46)) {
+            return "application/pdf";
+        }
+        if (commencePar(entete, lus, 0, 0x89, 0x50, 0x4E, 0x47)) {
+            return "image/png";
+        }
+        if (commencePar(entete, lus, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (commencePar(entete, lus, 0, 0x47, 0x49, 0x46, 0x38)) {
+            return "image/gif";
+        }
+        if (commencePar(entete, lus, 0, 0x52, 0x49, 0x46, 0x46) && commencePar(entete, lus, 8, 0x57, 0x45, 0x42, 0x50)) {
+            return "image/webp";
+        }
+        if (commencePar(entete, lus, 0, 0x49, 0x49, 0x2A, 0x00) || commencePar(entete, lus, 0, 0x4D, 0x4D, 0x00, 0x2A)) {
+            return "image/tiff";
+        }
+        return null;
+    }
+
+    private static boolean commencePar(byte[] entete, int lus, int decalage, int... signature) {
+        if (lus < decalage + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((entete[decalage + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Résultat d'un dépôt : typeMime est déduit du contenu (null si inconnu),
+     * nouveau est faux quand le contenu existait déjà
+     */
+    public record FichierStocke(String empreinte, long taille, String typeMime, boolean nouveau) {
+    }
+}
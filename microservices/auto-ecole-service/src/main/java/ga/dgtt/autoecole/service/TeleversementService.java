@@ -0,0 +1,403 @@
+package ga.dgtt.autoecole.service;
+
+import ga.dgtt.autoecole.dto.DocumentResume;
+import ga.dgtt.autoecole.dto.EtatTeleversement;
+import ga.dgtt.autoecole.model.TypeDocumentAutoEcole;
+import ga.dgtt.autoecole.model.TypeDocumentCandidat;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Service de téléversement des documents par morceaux, avec reprise
+ *
+ * Chaque morceau est écrit directement à sa position dans un fichier partiel
+ * et ajouté à l'empreinte SHA-256 au fil de la lecture : rien n'est gardé en
+ * mémoire au-delà d'un tampon. Une coupure garde les octets déjà reçus ; le
+ * client relit le décalage et reprend à cette position. Le fichier complet
+ * est rangé sous son empreinte dans le stockage et le document est créé avec
+ * hashFichier, tailleFichier et typeMime. La description du téléversement
+ * est écrite sur disque : après un redémarrage, l'empreinte est recalculée à
+ * partir des octets déjà reçus. L'empreinte du fichier complet y est notée
+ * avant son rangement, pour terminer après un redémarrage un téléversement
+ * dont le fichier était déjà rangé quand la création du document a échoué.
+ */
+@Service
+public class TeleversementService {
+
+    private static final Pattern IDENTIFIANT = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+    private static final String EXTENSION_PARTIEL = ".part";
+    private static final String EXTENSION_DESCRIPTION = ".properties";
+    private static final String CIBLE_AUTO_ECOLE = "AUTO_ECOLE";
+    private static final String CIBLE_CANDIDAT = "CANDIDAT";
+
+    @Autowired
+    private StockageDocuments stockageDocuments;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Value("${app.file.upload.televersement.expiration-heures:24}")
+    private long expirationHeures;
+
+    private final Map<String, Televersement> televersements = new ConcurrentHashMap<>();
+
+    private Path repertoire;
+
+    @PostConstruct
+    public void initialiser() {
+        try {
+            repertoire = stockageDocuments.repertoire("televersements");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Répertoire des téléversements inaccessible", e);
+        }
+    }
+
+    /**
+     * Ouvre un téléversement pour un document d'auto-école
+     */
+    public EtatTeleversement ouvrirPourAutoEcole(Long autoEcoleId, TypeDocumentAutoEcole typeDocument, String nomFichier,
+                                                 String typeMime, long tailleTotale, String utilisateur) throws IOException {
+        documentService.autoEcole(autoEcoleId);
+        return ouvrir(CIBLE_AUTO_ECOLE, autoEcoleId, typeDocument.name(), nomFichier, typeMime, tailleTotale, utilisateur);
+    }
+
+    /**
+     * Ouvre un téléversement pour un document de candidat
+     */
+    public EtatTeleversement ouvrirPourCandidat(Long candidatId, TypeDocumentCandidat typeDocument, String nomFichier,
+                                                String typeMime, long tailleTotale, String utilisateur) throws IOException {
+        documentService.candidat(candidatId);
+        return ouvrir(CIBLE_CANDIDAT, candidatId, typeDocument.name(), nomFichier, typeMime, tailleTotale, utilisateur);
+    }
+
+    private EtatTeleversement ouvrir(String cible, Long entiteId, String typeDocument, String nomFichier,
+                                     String typeMime, long tailleTotale, String utilisateur) throws IOException {
+        if (tailleTotale < 1) {
+            throw new RuntimeException("La taille du fichier doit être positive");
+        }
+        if (tailleTotale > stockageDocuments.getTailleMax().toBytes()) {
+            throw new RuntimeException("Le fichier dépasse la taille maximale de " +
+                                       stockageDocuments.getTailleMax().toMegabytes() + " Mo");
+        }
+        Televersement televersement = new Televersement(UUID.randomUUID().toString(), cible, entiteId, typeDocument,
+                                                        nomFichier, typeMime, tailleTotale, utilisateur, sha256());
+        Files.createFile(partiel(televersement.id));
+
+        Properties description = new Properties();
+        description.setProperty("cible", cible);
+        description.setProperty("entiteId", entiteId.toString());
+        description.setProperty("typeDocument", typeDocument);
+        description.setProperty("nomFichier", nomFichier != null ? nomFichier : "");
+        description.setProperty("typeMime", typeMime != null ? typeMime : "");
+        description.setProperty("tailleTotale", Long.toString(tailleTotale));
+        description.setProperty("utilisateur", utilisateur);
+        enregistrerDescription(televersement.id, description);
+
+        televersements.put(televersement.id, televersement);
+        return etat(televersement);
+    }
+
+    /**
+     * État d'un téléversement : position à laquelle reprendre
+     */
+    public EtatTeleversement etat(String id, String utilisateur) {
+        Televersement televersement = trouver(id, utilisateur);
+        synchronized (televersement) {
+            return etat(televersement);
+        }
+    }
+
+    /**
+     * Ajoute un morceau à la position donnée ; le document est créé quand le fichier est complet.
+     * Un envoi du dernier décalage sans contenu relance la finalisation après un échec.
+     *
+     * @throws DecalageInvalideException si le morceau ne commence pas à la position courante,
+     *         vérifiée sous le verrou du téléversement
+     */
+    public EtatTeleversement ajouter(String id, long decalage, InputStream contenu, String utilisateur) throws IOException {
+        Televersement televersement = trouver(id, utilisateur);
+        synchronized (televersement) {
+            if (televersement.document != null) {
+                return etat(televersement);
+            }
+            if (decalage != televersement.decalage) {
+                throw new DecalageInvalideException(etat(televersement));
+            }
+            if (televersement.decalage < televersement.tailleTotale) {
+                ecrire(televersement, contenu);
+            }
+            if (televersement.decalage == televersement.tailleTotale) {
+                finaliser(televersement);
+            }
+            return etat(televersement);
+        }
+    }
+
+    /**
+     * Écrit le contenu reçu à la suite du fichier partiel en mettant à jour l'empreinte
+     */
+    private void ecrire(Televersement televersement, InputStream contenu) throws IOException {
+        try (FileChannel sortie = FileChannel.open(partiel(televersement.id), StandardOpenOption.WRITE)) {
+            sortie.position(televersement.decalage);
+            byte[] tampon = new byte[65536];
+            int lus;
+            try {
+                while ((lus = contenu.read(tampon)) != -1) {
+                    if (televersement.decalage + lus > televersement.tailleTotale) {
+                        throw new RuntimeException("Le contenu dépasse la taille annoncée (" +
+                                                   televersement.tailleTotale + " octets)");
+                    }
+                    ByteBuffer tranche = ByteBuffer.wrap(tampon, 0, lus);
+                    while (tranche.hasRemaining()) {
+                        sortie.write(tranche);
+                    }
+                    televersement.sha256.update(tampon, 0, lus);
+                    televersement.decalage += lus;
+                }
+            } finally {
+                // Un morceau interrompu garde ses octets complets ; un reste mal écrit est retiré
+                sortie.truncate(televersement.decalage);
+                televersement.derniereActivite = System.currentTimeMillis();
+            }
+            if (televersement.decalage == televersement.tailleTotale) {
+                sortie.force(true);
+            }
+        }
+    }
+
+    /**
+     * Abandonne un téléversement et supprime les octets reçus
+     */
+    public void abandonner(String id, String utilisateur) throws IOException {
+        Televersement televersement = trouver(id, utilisateur);
+        synchronized (televersement) {
+            supprimer(id);
+        }
+    }
+
+    /**
+     * Supprime les téléversements sans activité depuis l'expiration
+     */
+    @Scheduled(fixedDelayString = "${app.file.upload.televersement.purge-ms:3600000}")
+    public void purger() {
+        long limite = System.currentTimeMillis() - Duration.ofHours(expirationHeures).toMillis();
+        televersements.values().removeIf(televersement -> televersement.derniereActivite < limite);
+        try (DirectoryStream<Path> descriptions = Files.newDirectoryStream(repertoire, "*" + EXTENSION_DESCRIPTION)) {
+            for (Path description : descriptions) {
+                String nom = description.getFileName().toString();
+                String id = nom.substring(0, nom.length() - EXTENSION_DESCRIPTION.length());
+                Path partiel = partiel(id);
+                Path reference = Files.exists(partiel) ? partiel : description;
+                if (!televersements.containsKey(id) && Files.getLastModifiedTime(reference).toMillis() < limite) {
+                    supprimer(id);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erreur lors de la purge des téléversements: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Range le fichier complet sous son empreinte puis crée le document ; la description
+     * n'est supprimée qu'après la création, pour qu'un échec puisse être rejoué
+     */
+    private void finaliser(Televersement televersement) throws IOException {
+        if (televersement.empreinte == null) {
+            televersement.empreinte = HexFormat.of().formatHex(televersement.sha256.digest());
+        }
+        Path partiel = partiel(televersement.id);
+        StockageDocuments.FichierStocke fichier;
+        if (Files.exists(partiel)) {
+            // Noté avant le rangement, qui consomme le fichier partiel
+            Properties description = lireDescription(televersement.id);
+            description.setProperty("empreinte", televersement.empreinte);
+            enregistrerDescription(televersement.id, description);
+            fichier = stockageDocuments.adopter(partiel, televersement.empreinte, televersement.tailleTotale);
+        } else {
+            fichier = stockageDocuments.decrire(televersement.empreinte);
+        }
+
+        televersement.document = CIBLE_AUTO_ECOLE.equals(televersement.cible)
+                ? documentService.enregistrerDocumentAutoEcole(televersement.entiteId,
+                        TypeDocumentAutoEcole.valueOf(televersement.typeDocument), fichier,
+                        televersement.nomFichier, televersement.typeMime, televersement.utilisateur)
+                : documentService.enregistrerDocumentCandidat(televersement.entiteId,
+                        TypeDocumentCandidat.valueOf(televersement.typeDocument), fichier,
+                        televersement.nomFichier, televersement.typeMime, televersement.utilisateur);
+        Files.deleteIfExists(description(televersement.id));
+    }
+
+    /**
+     * Téléversement en mémoire, ou rechargé depuis sa description après un redémarrage
+     */
+    private Televersement trouver(String id, String utilisateur) {
+        if (id == null || !IDENTIFIANT.matcher(id).matches()) {
+            throw new RuntimeException("Téléversement non trouvé");
+        }
+        Televersement televersement = televersements.computeIfAbsent(id, this::recharger);
+        if (televersement == null || !televersement.utilisateur.equals(utilisateur)) {
+            throw new RuntimeException("Téléversement non trouvé");
+        }
+        return televersement;
+    }
+
+    /**
+     * Sans fichier partiel, le téléversement n'est repris que si le fichier complet est
+     * déjà rangé sous l'empreinte notée ; sinon la description orpheline est supprimée
+     */
+    private Televersement recharger(String id) {
+        Path description = description(id);
+        Path partiel = partiel(id);
+        if (!Files.exists(description)) {
+            return null;
+        }
+        try {
+            Properties proprietes = lireDescription(id);
+            String empreinte = proprietes.getProperty("empreinte");
+            if (!Files.exists(partiel)
+                    && (empreinte == null || !Files.exists(stockageDocuments.chemin(empreinte)))) {
+                Files.deleteIfExists(description);
+                return null;
+            }
+            Televersement televersement = new Televersement(id, proprietes.getProperty("cible"),
+                    Long.valueOf(proprietes.getProperty("entiteId")), proprietes.getProperty("typeDocument"),
+                    vide(proprietes.getProperty("nomFichier")), vide(proprietes.getProperty("typeMime")),
+                    Long.parseLong(proprietes.getProperty("tailleTotale")), proprietes.getProperty("utilisateur"),
+                    sha256());
+            if (!Files.exists(partiel)) {
+                // Fichier déjà rangé : il ne reste qu'à créer le document
+                televersement.empreinte = empreinte;
+                televersement.decalage = televersement.tailleTotale;
+                return televersement;
+            }
+            // Empreinte reconstruite à partir des octets déjà reçus
+            try (InputStream contenu = Files.newInputStream(partiel)) {
+                byte[] tampon = new byte[65536];
+                int lus;
+                while ((lus = contenu.read(tampon)) != -1) {
+                    televersement.sha256.update(tampon, 0, lus);
+                    televersement.decalage += lus;
+                }
+            }
+            return televersement;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Properties lireDescription(String id) throws IOException {
+        Properties description = new Properties();
+        try (Reader entree = Files.newBufferedReader(description(id), StandardCharsets.UTF_8)) {
+            description.load(entree);
+        }
+        return description;
+    }
+
+    private void enregistrerDescription(String id, Properties description) throws IOException {
+        try (Writer sortie = Files.newBufferedWriter(description(id), StandardCharsets.UTF_8)) {
+            description.store(sortie, null);
+        }
+    }
+
+    private void supprimer(String id) throws IOException {
+        televersements.remove(id);
+        Files.deleteIfExists(partiel(id));
+        Files.deleteIfExists(description(id));
+    }
+
+    private EtatTeleversement etat(Televersement televersement) {
+        return new EtatTeleversement(televersement.id, televersement.decalage, televersement.tailleTotale,
+                                     televersement.document);
+    }
+
+    private Path partiel(String id) {
+        return repertoire.resolve(id + EXTENSION_PARTIEL);
+    }
+
+    private Path description(String id) {
+        return repertoire.resolve(id + EXTENSION_DESCRIPTION);
+    }
+
+    private static String vide(String valeur) {
+        return valeur == null || valeur.isEmpty() ? null : valeur;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Morceau envoyé à une autre position que celle attendue ; porte l'état courant pour la reprise
+     */
+    public static class DecalageInvalideException extends RuntimeException {
+        private final EtatTeleversement etat;
+
+        public DecalageInvalideException(EtatTeleversement etat) {
+            super("Décalage invalide : le morceau doit commencer à l'octet " + etat.decalage());
+            this.etat = etat;
+        }
+
+        public EtatTeleversement getEtat() { return etat; }
+    }
+
+    /**
+     * Téléversement en cours ; les champs mutables sont protégés par le verrou de l'objet
+     */
+    private static final class Televersement {
+        private final String id;
+        private final String cible;
+        private final Long entiteId;
+        private final String typeDocument;
+        private final String nomFichier;
+        private final String typeMime;
+        private final long tailleTotale;
+        private final String utilisateur;
+        private final MessageDigest sha256;
+        private long decalage;
+        private String empreinte;
+        private DocumentResume document;
+        private volatile long derniereActivite = System.currentTimeMillis();
+
+        private Televersement(String id, String cible, Long entiteId, String typeDocument, String nomFichier,
+                              String typeMime, long tailleTotale, String utilisateur, MessageDigest sha256) {
+            this.id = id;
+            this.cible = cible;
+            this.entiteId = entiteId;
+            this.typeDocument = typeDocument;
+            this.nomFichier = nomFichier;
+            this.typeMime = typeMime;
+            this.tailleTotale = tailleTotale;
+            this.utilisateur = utilisateur;
+            this.sha256 = sha256;
+        }
+    }
+}
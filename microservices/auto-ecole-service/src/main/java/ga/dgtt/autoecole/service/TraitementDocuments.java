@@ -0,0 +1,427 @@
+package ga.dgtt.autoecole.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Traitement en arrière-plan des documents déposés
+ *
+ * Pour chaque image ou PDF, produit un aperçu et une miniature en JPEG
+ * (première page pour un PDF) ; une photo d'identité est en plus remise
+ * droite (orientation EXIF) et recadrée au format 35x45. Les dérivés sont
+ * rangés à côté de l'original dans le stockage et partagés par les documents
+ * de même contenu ; un contenu déjà traité n'est pas retraité.
+ *
+ * Les traitements s'exécutent sur un pool de threads borné, avec une file
+ * bornée : quand elle est pleine, le traitement est abandonné et sera
+ * relancé à la première demande d'aperçu. Les images sont décodées
+ * sous-échantillonnées à la taille de l'aperçu. La durée de chaque étape est
+ * publiée sous documents.traitement.etape (tag etape).
+ */
+@Component
+public class TraitementDocuments {
+
+    public static final String APERCU = "apercu";
+    public static final String MINIATURE = "miniature";
+    public static final String PHOTO = "photo";
+
+    private static final String[] ETAPES = {"lecture", "rendu_pdf", "orientation", "redimensionnement", "encodage", "total"};
+
+    @Autowired
+    private StockageDocuments stockageDocuments;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.documents.traitement.threads:2}")
+    private int nombreThreads;
+
+    @Value("${app.documents.traitement.capacite-file:200}")
+    private int capaciteFile;
+
+    @Value("${app.documents.traitement.apercu.taille-max:1024}")
+    private int tailleApercu;
+
+    @Value("${app.documents.traitement.miniature.taille-max:256}")
+    private int tailleMiniature;
+
+    @Value("${app.documents.traitement.photo.largeur:413}")
+    private int largeurPhoto;
+
+    @Value("${app.documents.traitement.photo.hauteur:531}")
+    private int hauteurPhoto;
+
+    @Value("${app.documents.traitement.qualite-jpeg:0.85}")
+    private float qualiteJpeg;
+
+    /** Empreintes soumises et non terminées : un même contenu n'est traité qu'une fois à la fois */
+    private final Set<String> enCours = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, Timer> durees = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor pool;
+    private Counter compteurEchecs;
+    private Counter compteurRejets;
+
+    @PostConstruct
+    public void demarrer() {
+        AtomicInteger numero = new AtomicInteger();
+        pool = new ThreadPoolExecutor(nombreThreads, nombreThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capaciteFile), tache -> {
+                    Thread thread = new Thread(tache, "documents-traitement-" + numero.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+        for (String etape : ETAPES) {
+            durees.put(etape, Timer.builder("documents.traitement.etape").tag("etape", etape).register(meterRegistry));
+        }
+        compteurEchecs = Counter.builder("documents.traitement.echecs").register(meterRegistry);
+        compteurRejets = Counter.builder("documents.traitement.rejets").register(meterRegistry);
+        Gauge.builder("documents.traitement.file", pool, executeur -> executeur.getQueue().size()).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Soumet un contenu au traitement ; sans effet pour un type non pris en charge
+     *
+     * @param photo vrai pour une photo d'identité (dérivé normalisé en plus)
+     */
+    public void soumettre(String empreinte, String typeMime, boolean photo) {
+        if (!estTraitable(typeMime) || estTraite(empreinte, photo) || !enCours.add(empreinte)) {
+            return;
+        }
+        try {
+            pool.execute(() -> {
+                try {
+                    traiter(empreinte, typeMime, photo);
+                } finally {
+                    enCours.remove(empreinte);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            enCours.remove(empreinte);
+            compteurRejets.increment();
+            System.err.println("File de traitement des documents pleine, traitement différé: " + empreinte);
+        }
+    }
+
+    /**
+     * Types pris en charge : images lisibles par ImageIO et PDF
+     */
+    public boolean estTraitable(String typeMime) {
+        return typeMime != null && (typeMime.equals("application/pdf") || typeMime.equals("image/jpeg")
+                                    || typeMime.equals("image/png") || typeMime.equals("image/gif"));
+    }
+
+    private boolean estTraite(String empreinte, boolean photo) {
+        return Files.exists(stockageDocuments.derive(empreinte, MINIATURE))
+               && (!photo || Files.exists(stockageDocuments.derive(empreinte, PHOTO)));
+    }
+
+    private void traiter(String empreinte, String typeMime, boolean photo) {
+        long debut = System.nanoTime();
+        try {
+            Path original = stockageDocuments.chemin(empreinte);
+            BufferedImage image;
+            if (typeMime.equals("application/pdf")) {
+                image = mesurer("rendu_pdf", () -> rendrePremierePage(original));
+            } else {
+                image = mesurer("lecture", () -> lireImage(original));
+                if (image != null && typeMime.equals("image/jpeg")) {
+                    BufferedImage lue = image;
+                    image = mesurer("orientation", () -> orienter(lue, lireOrientation(original)));
+                }
+            }
+            if (image == null) {
+                return;
+            }
+
+            BufferedImage source = image;
+            ecrire(empreinte, APERCU, mesurer("redimensionnement", () -> redimensionner(source, tailleApercu)));
+            if (photo && !typeMime.equals("application/pdf")) {
+                ecrire(empreinte, PHOTO, mesurer("redimensionnement", () -> recadrer(source, largeurPhoto, hauteurPhoto)));
+            }
+            // La miniature en dernier : sa présence marque le contenu comme traité
+            ecrire(empreinte, MINIATURE, mesurer("redimensionnement", () -> redimensionner(source, tailleMiniature)));
+        } catch (Exception e) {
+            compteurEchecs.increment();
+            System.err.println("Erreur lors du traitement du document " + empreinte + ": " + e.getMessage());
+        } finally {
+            durees.get("total").record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private <T> T mesurer(String etape, Etape<T> traitement) throws IOException {
+        long debut = System.nanoTime();
+        try {
+            return traitement.executer();
+        } finally {
+            durees.get(etape).record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Décode une image sous-échantillonnée : le plus grand côté reste au moins celui de l'aperçu
+     */
+    private BufferedImage lireImage(Path fichier) throws IOException {
+        try (ImageInputStream entree = ImageIO.createImageInputStream(fichier.toFile())) {
+            Iterator<ImageReader> lecteurs = ImageIO.getImageReaders(entree);
+            if (!lecteurs.hasNext()) {
+                return null;
+            }
+            ImageReader lecteur = lecteurs.next();
+            try {
+                lecteur.setInput(entree, true, true);
+                int cote = Math.max(lecteur.getWidth(0), lecteur.getHeight(0));
+                int facteur = Math.max(1, cote / Math.max(tailleApercu, hauteurPhoto));
+                ImageReadParam parametres = lecteur.getDefaultReadParam();
+                parametres.setSourceSubsampling(facteur, facteur, 0, 0);
+                return lecteur.read(0, parametres);
+            } finally {
+                lecteur.dispose();
+            }
+        }
+    }
+
+    /**
+     * Rend la première page d'un PDF à la taille de l'aperçu
+     */
+    private BufferedImage rendrePremierePage(Path fichier) throws IOException {
+        try (PDDocument document = Loader.loadPDF(fichier.toFile())) {
+            if (document.getNumberOfPages() == 0) {
+                return null;
+            }
+            PDRectangle page = document.getPage(0).getCropBox();
+            float echelle = tailleApercu / Math.max(page.getWidth(), page.getHeight());
+            return new PDFRenderer(document).renderImage(0, echelle, ImageType.RGB);
+        }
+    }
+
+    /**
+     * Applique l'orientation EXIF (1 à 8) pour remettre l'image droite
+     */
+    private static BufferedImage orienter(BufferedImage image, int orientation) {
+        int largeur = image.getWidth();
+        int hauteur = image.getHeight();
+        AffineTransform transformation = new AffineTransform();
+        switch (orientation) {
+            case 2 -> { transformation.translate(largeur, 0); transformation.scale(-1, 1); }
+            case 3 -> { transformation.translate(largeur, hauteur); transformation.rotate(Math.PI); }
+            case 4 -> { transformation.translate(0, hauteur); transformation.scale(1, -1); }
+            case 5 -> { transformation.rotate(-Math.PI / 2); transformation.scale(-1, 1); }
+            case 6 -> { transformation.translate(hauteur, 0); transformation.rotate(Math.PI / 2); }
+            case 7 -> {
+                transformation.translate(hauteur, largeur);
+                transformation.scale(-1, -1);
+                transformation.rotate(-Math.PI / 2);
+                transformation.scale(-1, 1);
+            }
+            case 8 -> { transformation.translate(0, largeur); transformation.rotate(3 * Math.PI / 2); }
+            default -> { return image; }
+        }
+        boolean pivote = orientation >= 5;
+        BufferedImage resultat = new BufferedImage(pivote ? hauteur : largeur, pivote ? largeur : hauteur,
+                                                   BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphique = resultat.createGraphics();
+        try {
+            graphique.drawImage(image, transformation, null);
+        } finally {
+            graphique.dispose();
+        }
+        return resultat;
+    }
+
+    /**
+     * Orientation lue dans le segment EXIF (APP1) d'un JPEG, 1 si absente
+     */
+    private static int lireOrientation(Path fichier) throws IOException {
+        try (DataInputStream entree = new DataInputStream(new BufferedInputStream(Files.newInputStream(fichier)))) {
+            if (entree.readUnsignedShort() != 0xFFD8) {
+                return 1;
+            }
+            while (true) {
+                int marqueur = entree.readUnsignedShort();
+                // Début des données compressées (SOS) : plus d'en-tête à lire
+                if ((marqueur & 0xFF00) != 0xFF00 || marqueur == 0xFFDA) {
+                    return 1;
+                }
+                int longueur = entree.readUnsignedShort() - 2;
+                if (marqueur == 0xFFE1) {
+                    int orientation = orientationExif(entree.readNBytes(longueur));
+                    if (orientation > 0) {
+                        return orientation;
+                    }
+                } else {
+                    entree.skipNBytes(longueur);
+                }
+            }
+        } catch (EOFException e) {
+            return 1;
+        }
+    }
+
+    private static int orientationExif(byte[] segment) {
+        if (segment.length < 14 || segment[0] != 'E' || segment[1] != 'x' || segment[2] != 'i' || segment[3] != 'f') {
+            return 0;
+        }
+        try {
+            ByteBuffer tiff = ByteBuffer.wrap(segment, 6, segment.length - 6).slice();
+            tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            int repertoire = tiff.getInt(4);
+            int entrees = tiff.getShort(repertoire) & 0xFFFF;
+            for (int i = 0; i < entrees; i++) {
+                int position = repertoire + 2 + i * 12;
+                if ((tiff.getShort(position) & 0xFFFF) == 0x0112) {
+                    int orientation = tiff.getShort(position + 8) & 0xFFFF;
+                    return orientation >= 1 && orientation <= 8 ? orientation : 0;
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // Segment EXIF tronqué : orientation ignorée
+        }
+        return 0;
+    }
+
+    /**
+     * Réduit l'image pour que son plus grand côté ne dépasse pas la taille donnée
+     */
+    private static BufferedImage redimensionner(BufferedImage image, int tailleMax) {
+        int largeur = image.getWidth();
+        int hauteur = image.getHeight();
+        double rapport = Math.min(1.0, (double) tailleMax / Math.max(largeur, hauteur));
+        int largeurCible = Math.max(1, (int) Math.round(largeur * rapport));
+        int hauteurCible = Math.max(1, (int) Math.round(hauteur * rapport));
+
+        return reduire(image, largeurCible, hauteurCible);
+    }
+
+    /**
+     * Recadre au centre au rapport demandé puis réduit aux dimensions exactes
+     */
+    private static BufferedImage recadrer(BufferedImage image, int largeurCible, int hauteurCible) {
+        int largeur = image.getWidth();
+        int hauteur = image.getHeight();
+        int largeurCadre = largeur;
+        int hauteurCadre = (int) Math.round((double) largeur * hauteurCible / largeurCible);
+        if (hauteurCadre > hauteur) {
+            hauteurCadre = hauteur;
+            largeurCadre = (int) Math.round((double) hauteur * largeurCible / hauteurCible);
+        }
+        int x = (largeur - largeurCadre) / 2;
+        int y = (hauteur - hauteurCadre) / 2;
+        BufferedImage cadre = dessiner(image, largeurCadre, hauteurCadre, x, y, largeurCadre, hauteurCadre);
+        return reduire(cadre, largeurCible, hauteurCible);
+    }
+
+    /**
+     * Met l'image aux dimensions cibles ; les fortes réductions se font par moitiés
+     * successives, pour garder la qualité d'un filtrage bilinéaire
+     */
+    private static BufferedImage reduire(BufferedImage image, int largeurCible, int hauteurCible) {
+        BufferedImage courante = image;
+        while (courante.getWidth() / 2 >= largeurCible && courante.getHeight() / 2 >= hauteurCible) {
+            courante = dessiner(courante, courante.getWidth() / 2, courante.getHeight() / 2,
+                                0, 0, courante.getWidth(), courante.getHeight());
+        }
+        return dessiner(courante, largeurCible, hauteurCible, 0, 0, courante.getWidth(), courante.getHeight());
+    }
+
+    /**
+     * Copie une zone de l'image source vers une nouvelle image RVB (fond blanc pour la transparence)
+     */
+    private static BufferedImage dessiner(BufferedImage source, int largeur, int hauteur,
+                                          int x, int y, int largeurZone, int hauteurZone) {
+        BufferedImage resultat = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphique = resultat.createGraphics();
+        try {
+            graphique.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphique.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphique.setColor(Color.WHITE);
+            graphique.fillRect(0, 0, largeur, hauteur);
+            graphique.drawImage(source, 0, 0, largeur, hauteur, x, y, x + largeurZone, y + hauteurZone, null);
+        } finally {
+            graphique.dispose();
+        }
+        return resultat;
+    }
+
+    /**
+     * Encode en JPEG dans un fichier temporaire puis le déplace atomiquement à côté de l'original
+     */
+    private void ecrire(String empreinte, String variante, BufferedImage image) throws IOException {
+        Path cible = stockageDocuments.derive(empreinte, variante);
+        mesurer("encodage", () -> {
+            Path temporaire = Files.createTempFile(cible.getParent(), "derive-", ".tmp");
+            try {
+                ImageWriter ecrivain = ImageIO.getImageWritersByFormatName("jpeg").next();
+                try (ImageOutputStream sortie = ImageIO.createImageOutputStream(temporaire.toFile())) {
+                    ImageWriteParam parametres = ecrivain.getDefaultWriteParam();
+                    parametres.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    parametres.setCompressionQuality(qualiteJpeg);
+                    ecrivain.setOutput(sortie);
+                    ecrivain.write(null, new IIOImage(image, null, null), parametres);
+                } finally {
+                    ecrivain.dispose();
+                }
+                Files.move(temporaire, cible, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaire);
+            }
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    private interface Etape<T> {
+        T executer() throws IOException;
+    }
+}
@@ -0,0 +1,26 @@
+package ga.dgtt.permis.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Durée maximale des réponses en flux (exports)
+ *
+ * Un export est écrit par un StreamingResponseBody, traité comme une requête
+ * asynchrone : sans ce réglage, le délai par défaut du conteneur coupe les
+ * gros exports en cours d'écriture. Même variable EXPORT_TIMEOUT_MS que
+ * spring.mvc.async.request-timeout dans auto-ecole-service.
+ */
+@Configuration
+public class ExportConfig implements WebMvcConfigurer {
+
+    @Value("${EXPORT_TIMEOUT_MS:1800000}")
+    private long delaiExportMs;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(delaiExportMs);
+    }
+}
@@ -0,0 +1,249 @@
+package ga.dgtt.permis.controller;
+
+import ga.dgtt.permis.dto.DocumentResume;
+import ga.dgtt.permis.dto.ExamenResume;
+import ga.dgtt.permis.dto.SelectionChamps;
+import ga.dgtt.permis.dto.VersionEntite;
+import ga.dgtt.permis.model.FormatExport;
+import ga.dgtt.permis.model.PageCurseur;
+import ga.dgtt.permis.model.StatutExamen;
+import ga.dgtt.permis.model.TypeDocumentExamen;
+import ga.dgtt.permis.service.DocumentService;
+import ga.dgtt.permis.service.ExportService;
+import ga.dgtt.permis.service.PermisService;
+import ga.dgtt.permis.service.ProjectionService;
+import ga.dgtt.permis.service.QRCodeService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Contrôleur REST pour la consultation des examens
+ */
+@RestController
+@RequestMapping("/api/permis/examens")
+@Tag(name = "Examens", description = "Consultation des examens de permis")
+public class ExamenController {
+
+    @Autowired
+    private PermisService permisService;
+
+    @Autowired
+    private QRCodeService qrCodeService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ProjectionService projectionService;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private EnvoiFichier envoiFichier;
+
+    /**
+     * Récupère les examens par curseur
+     */
+    @GetMapping
+    @Operation(summary = "Lister les examens", 
+               description = "Pagination par curseur (sans total), des plus récents aux plus anciens. " +
+                             "Passer le curseurSuivant de la réponse pour obtenir la page suivante. " +
+                             "fields restreint les champs lus et renvoyés, include=documents ajoute les documents")
+    public ResponseEntity<Object> listerExamens(
+            @RequestParam(required = false) StatutExamen statut,
+            @Parameter(description = "Curseur de la page suivante") @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de la page") @RequestParam(defaultValue = "20") int taille,
+            @Parameter(description = "Champs à renvoyer (ex. id,numeroExamen,statut)") @RequestParam(required = false) String fields,
+            @Parameter(description = "Associations à inclure (documents)") @RequestParam(required = false) String include) {
+        if (SelectionChamps.estDemandee(fields, include)) {
+            SelectionChamps selection = projectionService.selectionExamen(fields, include);
+            return ResponseEntity.ok(projectionService.trouverExamensParCurseur(statut, curseur, taille, selection));
+        }
+        PageCurseur<ExamenResume> examens = permisService.trouverTousParCurseur(statut, curseur, taille);
+        return ResponseEntity.ok(examens);
+    }
+
+    /**
+     * Récupère un examen par ID
+     */
+    @GetMapping("/{id}")
+    @Operation(summary = "Récupérer un examen", 
+               description = "Récupère un examen, restreint aux champs de fields, avec ses documents si include=documents")
+    public ResponseEntity<Object> recupererExamen(
+            @PathVariable Long id,
+            @Parameter(description = "Champs à renvoyer (ex. id,numeroExamen,statut)") @RequestParam(required = false) String fields,
+            @Parameter(description = "Associations à inclure (documents)") @RequestParam(required = false) String include,
+            WebRequest requete) {
+        if (SelectionChamps.estDemandee(fields, include)) {
+            SelectionChamps selection = projectionService.selectionExamen(fields, include);
+            return projectionService.trouverExamen(id, selection)
+                                    .<ResponseEntity<Object>>map(ResponseEntity::ok)
+                                    .orElse(ResponseEntity.notFound().build());
+        }
+        Optional<VersionEntite> version = permisService.trouverVersion(id);
+        if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (estConditionnelle(requete)
+                && requete.checkNotModified(version.get().etag(), version.get().derniereModification())) {
+            return null;
+        }
+        return permisService.trouverResume(version.get())
+                            .<ResponseEntity<Object>>map(examen -> reponseVersionnee(examen).body(examen))
+                            .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Récupère un examen par numéro d'examen
+     */
+    @GetMapping("/numero/{numeroExamen}")
+    @Operation(summary = "Récupérer un examen par numéro", description = "Récupère un examen par son numéro (scan du QR code)")
+    public ResponseEntity<ExamenResume> recupererParNumero(@PathVariable String numeroExamen, WebRequest requete) {
+        Optional<VersionEntite> version = permisService.trouverVersionParNumeroExamen(numeroExamen);
+        if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (estConditionnelle(requete)
+                && requete.checkNotModified(version.get().etag(), version.get().derniereModification())) {
+            return null;
+        }
+        return permisService.trouverResume(version.get())
+                            .map(examen -> reponseVersionnee(examen).body(examen))
+                            .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Requête de revalidation (If-None-Match ou If-Modified-Since) : la version lue
+     * en base avant l'examen suffit pour répondre 304 sans le charger
+     */
+    private static boolean estConditionnelle(WebRequest requete) {
+        return requete.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+               || requete.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    /**
+     * En-têtes de version d'un examen (ETag, Last-Modified) ; le client le revalide à chaque affichage
+     */
+    private static ResponseEntity.BodyBuilder reponseVersionnee(ExamenResume examen) {
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.ok()
+                .eTag(VersionEntite.etag(examen.id(), examen.version()))
+                .cacheControl(CacheControl.noCache().cachePrivate());
+        if (examen.dateModification() != null) {
+            reponse.lastModified(VersionEntite.millisecondes(examen.dateModification()));
+        }
+        return reponse;
+    }
+
+    /**
+     * Exporte les examens en flux (CSV ou NDJSON), compressés en gzip si demandé
+     */
+    @GetMapping("/export")
+    @Operation(summary = "Exporter les examens", 
+               description = "Export en flux, sans limite de taille, filtré par statut, province et période d'examen")
+    public ResponseEntity<StreamingResponseBody> exporterExamens(
+            @RequestParam(required = false) StatutExamen statut,
+            @RequestParam(required = false) String province,
+            @Parameter(description = "Date d'examen minimale (incluse)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateDebut,
+            @Parameter(description = "Date d'examen maximale (incluse)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFin,
+            @Parameter(description = "Format (CSV ou NDJSON)") @RequestParam(defaultValue = "CSV") FormatExport format,
+            @Parameter(description = "Compresser le fichier (gzip)") @RequestParam(defaultValue = "false") boolean gzip) {
+        String fichier = "examens-" + LocalDate.now() + "." + format.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody corps = sortie -> {
+            if (gzip) {
+                GZIPOutputStream sortieGzip = new GZIPOutputStream(sortie, 65536);
+                exportService.exporterExamens(statut, province, dateDebut, dateFin, format, sortieGzip);
+                sortieGzip.finish();
+            } else {
+                exportService.exporterExamens(statut, province, dateDebut, dateFin, format, sortie);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip")
+                                  : MediaType.parseMediaType(format.getTypeMime() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fichier).build().toString())
+                .body(corps);
+    }
+
+    /**
+     * Dépose un document pour un examen
+     */
+    @PostMapping(value = "/{id}/documents", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Déposer un document d'examen",
+               description = "Stocke le fichier sous son empreinte SHA-256 ; un contenu identique n'est stocké qu'une fois")
+    public ResponseEntity<DocumentResume> deposerDocument(
+            @PathVariable Long id,
+            @RequestParam("typeDocument") TypeDocumentExamen typeDocument,
+            @RequestParam("fichier") MultipartFile fichier,
+            @Parameter(description = "Nom d'utilisateur") @RequestHeader("X-User") String utilisateur) throws IOException {
+        DocumentResume document = documentService.deposerDocumentExamen(id, typeDocument, fichier.getInputStream(),
+                fichier.getOriginalFilename(), fichier.getContentType(), utilisateur);
+        return ResponseEntity.status(HttpStatus.CREATED).body(document);
+    }
+
+    /**
+     * Télécharge le contenu d'un document d'examen (dont le procès-verbal)
+     */
+    @GetMapping("/documents/{documentId}/contenu")
+    @Operation(summary = "Télécharger un document d'examen",
+               description = "Contenu du document ; ETag = empreinte SHA-256, requêtes Range acceptées")
+    public ResponseEntity<StreamingResponseBody> telechargerDocument(
+            @PathVariable Long documentId, WebRequest requete) throws IOException {
+        Optional<DocumentResume> document = documentService.trouverDocumentExamen(documentId);
+        // Les documents antérieurs au stockage par empreinte n'ont pas de contenu téléchargeable
+        if (document.isEmpty() || document.get().hashFichier() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return envoiFichier.envoyer(document.get().hashFichier(), document.get().nomFichier(),
+                                    document.get().typeMime(), requete);
+    }
+
+    /**
+     * Récupère l'image du QR code d'un examen
+     */
+    @GetMapping(value = "/{id}/qr", produces = {MediaType.IMAGE_PNG_VALUE, "image/svg+xml"})
+    @Operation(summary = "QR code d'un examen", description = "Récupère l'image PNG ou SVG du QR code d'un examen")
+    public ResponseEntity<byte[]> recupererQRCode(
+            @PathVariable Long id,
+            @Parameter(description = "Format de l'image (png ou svg)") @RequestParam(defaultValue = "png") String format,
+            WebRequest requete) {
+        Optional<String> qrCode = permisService.trouverQRCodeExamen(id);
+        if (qrCode.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // L'ETag est l'empreinte du contenu : 304 sans générer l'image
+        boolean svg = "svg".equalsIgnoreCase(format);
+        String etag = "\"" + qrCodeService.calculerEmpreinte(qrCode.get()) + (svg ? ".svg" : "") + "\"";
+        if (requete.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(svg ? MediaType.valueOf("image/svg+xml") : MediaType.IMAGE_PNG)
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(1)).cachePublic())
+                .eTag(etag)
+                .body(svg ? qrCodeService.obtenirImageSvg(qrCode.get()) : qrCodeService.obtenirImagePng(qrCode.get()));
+    }
+}
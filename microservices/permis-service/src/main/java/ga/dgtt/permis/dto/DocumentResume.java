@@ -0,0 +1,28 @@
+package ga.dgtt.permis.dto;
+
+import ga.dgtt.permis.model.DocumentExamen;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vue d'un document d'examen
+ *
+ * hashFichier est l'empreinte SHA-256 du contenu, renvoyée comme ETag au
+ * téléchargement.
+ */
+public record DocumentResume(
+        Long id,
+        String typeDocument,
+        String nomFichier,
+        String typeMime,
+        Long tailleFichier,
+        String hashFichier,
+        Boolean estValide,
+        LocalDateTime dateCreation) {
+
+    public static DocumentResume depuis(DocumentExamen document) {
+        return new DocumentResume(document.getId(), document.getTypeDocument().name(), document.getNomFichier(),
+                document.getTypeMime(), document.getTailleFichier(), document.getHashFichier(),
+                document.getEstValide(), document.getDateCreation());
+    }
+}
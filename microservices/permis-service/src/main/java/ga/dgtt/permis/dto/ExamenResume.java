@@ -0,0 +1,56 @@
+package ga.dgtt.permis.dto;
+
+import ga.dgtt.permis.model.Examen;
+import ga.dgtt.permis.model.StatutExamen;
+import ga.dgtt.permis.model.TypeExamen;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vue résumée d'un examen pour les listes
+ *
+ * Le candidat et l'auto-école sont réduits à leurs identifiants et noms ;
+ * la requête de liste les charge dans la même instruction SQL (graphe
+ * d'entités). Documents et journal d'audit ne sont jamais parcourus.
+ */
+public record ExamenResume(
+        Long id,
+        String numeroExamen,
+        TypeExamen typeExamen,
+        StatutExamen statut,
+        LocalDateTime dateExamen,
+        String lieuExamen,
+        Double note,
+        Boolean estReussi,
+        Long candidatId,
+        String candidatNomComplet,
+        String candidatNumeroLicence,
+        Long autoEcoleId,
+        String autoEcoleNom,
+        LocalDateTime dateCreation,
+        LocalDateTime dateModification,
+        Long version) {
+
+    /**
+     * Le candidat et l'auto-école de l'examen doivent être chargés
+     */
+    public static ExamenResume depuis(Examen examen) {
+        return new ExamenResume(
+                examen.getId(),
+                examen.getNumeroExamen(),
+                examen.getTypeExamen(),
+                examen.getStatut(),
+                examen.getDateExamen(),
+                examen.getLieuExamen(),
+                examen.getNote(),
+                examen.getEstReussi(),
+                examen.getCandidat().getId(),
+                examen.getCandidat().getNomComplet(),
+                examen.getCandidat().getNumeroLicence(),
+                examen.getAutoEcole().getId(),
+                examen.getAutoEcole().getNom(),
+                examen.getDateCreation(),
+                examen.getDateModification(),
+                examen.getVersion());
+    }
+}
@@ -0,0 +1,97 @@
+package ga.dgtt.permis.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Champs et inclusions demandés par le client (?fields=numeroExamen,statut&include=documents)
+ *
+ * Les noms sont vérifiés contre les champs exposés par la ressource : seules
+ * les colonnes correspondantes sont lues en base.
+ */
+public class SelectionChamps {
+
+    private final List<String> champs;
+    private final Set<String> inclusions;
+
+    private SelectionChamps(List<String> champs, Set<String> inclusions) {
+        this.champs = champs;
+        this.inclusions = inclusions;
+    }
+
+    /**
+     * Vrai si le client a restreint les champs ou demandé des inclusions
+     */
+    public static boolean estDemandee(String fields, String include) {
+        return (fields != null && !fields.isBlank()) || (include != null && !include.isBlank());
+    }
+
+    /**
+     * Construit la sélection ; sans fields, tous les champs exposés sont renvoyés
+     *
+     * @param colonnes champs exposés (nom JSON vers colonne SQL)
+     * @param inclusionsAutorisees associations qui peuvent être incluses
+     */
+    public static SelectionChamps depuis(String fields, String include,
+                                         Map<String, String> colonnes, Set<String> inclusionsAutorisees) {
+        List<String> champs = new ArrayList<>();
+        for (String champ : decouper(fields)) {
+            if (!colonnes.containsKey(champ)) {
+                throw new RuntimeException("Champ inconnu : " + champ);
+            }
+            if (!champs.contains(champ)) {
+                champs.add(champ);
+            }
+        }
+        if (champs.isEmpty()) {
+            champs.addAll(colonnes.keySet());
+        }
+
+        Set<String> inclusions = new LinkedHashSet<>();
+        for (String inclusion : decouper(include)) {
+            if (!inclusionsAutorisees.contains(inclusion)) {
+                throw new RuntimeException("Inclusion inconnue : " + inclusion);
+            }
+            inclusions.add(inclusion);
+        }
+        return new SelectionChamps(Collections.unmodifiableList(champs), Collections.unmodifiableSet(inclusions));
+    }
+
+    private static List<String> decouper(String valeur) {
+        List<String> noms = new ArrayList<>();
+        if (valeur != null) {
+            for (String nom : valeur.split(",")) {
+                if (!nom.isBlank()) {
+                    noms.add(nom.trim());
+                }
+            }
+        }
+        return noms;
+    }
+
+    /**
+     * Champs à lire : ceux demandés, plus les champs techniques nécessaires
+     * (id pour les inclusions, date de création pour le curseur)
+     */
+    public List<String> champsALire(String... techniques) {
+        List<String> aLire = new ArrayList<>(champs);
+        for (String technique : techniques) {
+            if (!aLire.contains(technique)) {
+                aLire.add(technique);
+            }
+        }
+        return aLire;
+    }
+
+    public boolean inclut(String inclusion) {
+        return inclusions.contains(inclusion);
+    }
+
+    // Getters
+    public List<String> getChamps() { return champs; }
+    public Set<String> getInclusions() { return inclusions; }
+}
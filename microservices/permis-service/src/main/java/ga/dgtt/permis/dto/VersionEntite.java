@@ -0,0 +1,47 @@
+package ga.dgtt.permis.dto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Version courante d'une entité, lue sans le reste de la ligne
+ *
+ * Sert aux requêtes conditionnelles : l'ETag (fort) est formé de l'id et de
+ * la version, Last-Modified de la date de modification. La version change à
+ * chaque écriture, y compris celles faites en SQL.
+ */
+public record VersionEntite(Long id, Long version, LocalDateTime dateModification) {
+
+    public String etag() {
+        return etag(id, version);
+    }
+
+    /**
+     * Date de modification en millisecondes, -1 si inconnue
+     */
+    public long derniereModification() {
+        return millisecondes(dateModification);
+    }
+
+    /**
+     * Indique si l'en-tête If-Match désigne cette version (comparaison forte)
+     */
+    public boolean correspond(String siCorrespond) {
+        String etag = etag();
+        for (String valeur : siCorrespond.split(",")) {
+            String candidat = valeur.trim();
+            if (candidat.equals("*") || candidat.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static String etag(Long id, Long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    public static long millisecondes(LocalDateTime date) {
+        return date != null ? date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+}
@@ -13,6 +13,7 @@ public enum ActionAudit {
     FIN_EXAMEN("Fin examen", "Fin d'un examen"),
     VALIDATION_EXAMEN("Validation examen", "Validation d'un examen"),
     GENERATION_PROCES_VERBAL("Génération procès-verbal", "Génération d'un procès-verbal"),
+    UPLOAD_FICHIER("Upload de fichier", "Téléchargement d'un fichier"),
     SIGNATURE_NUMERIQUE("Signature numérique", "Signature numérique d'un document"),
     ENVOI_STIAS("Envoi STIAS", "Envoi du dossier à STIAS"),
     NOTIFICATION("Notification", "Envoi d'une notification"),
@@ -99,6 +99,11 @@ public class Candidat {
     @Column(name = "date_modification")
     private LocalDateTime dateModification;
     
+    // Verrou optimiste : chaque écriture est conditionnée par la version lue
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "auto_ecole_id", nullable = false)
     private AutoEcole autoEcole;
@@ -209,6 +214,9 @@ public class Candidat {
     public LocalDateTime getDateModification() { return dateModification; }
     public void setDateModification(LocalDateTime dateModification) { this.dateModification = dateModification; }
     
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
     public AutoEcole getAutoEcole() { return autoEcole; }
     public void setAutoEcole(AutoEcole autoEcole) { this.autoEcole = autoEcole; }
     
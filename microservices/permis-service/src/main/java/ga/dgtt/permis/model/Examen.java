@@ -108,6 +108,11 @@ public class Examen {
     @Column(name = "date_modification")
     private LocalDateTime dateModification;
     
+    // Verrou optimiste : chaque écriture est conditionnée par la version lue
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+    
     @OneToMany(mappedBy = "examen", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<DocumentExamen> documents = new ArrayList<>();
     
@@ -229,6 +234,9 @@ public class Examen {
     public LocalDateTime getDateModification() { return dateModification; }
     public void setDateModification(LocalDateTime dateModification) { this.dateModification = dateModification; }
     
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
     public List<DocumentExamen> getDocuments() { return documents; }
     public void setDocuments(List<DocumentExamen> documents) { this.documents = documents; }
     
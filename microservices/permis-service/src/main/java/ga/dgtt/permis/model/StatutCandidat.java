@@ -1,5 +1,11 @@
 package ga.dgtt.permis.model;
 
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Énumération des statuts possibles pour un candidat
  */
@@ -35,6 +41,42 @@ public enum StatutCandidat {
         return description;
     }
     
+    /**
+     * Table des transitions autorisées : statut de départ -> statuts d'arrivée
+     * (un candidat rejeté ou suspendu reprend sa formation ; PERMIS_DELIVRE est terminal)
+     */
+    private static final Map<StatutCandidat, Set<StatutCandidat>> TRANSITIONS = new EnumMap<>(StatutCandidat.class);
+    
+    static {
+        autoriser(ENROLE, PAIEMENT_EN_ATTENTE, PRE_ENROLE, REJETE, SUSPENDU);
+        autoriser(PAIEMENT_EN_ATTENTE, ENROLE, PRE_ENROLE, REJETE, SUSPENDU);
+        autoriser(PRE_ENROLE, EN_FORMATION, REJETE, SUSPENDU);
+        autoriser(EN_FORMATION, EVALUATION_EN_COURS, REJETE, SUSPENDU);
+        autoriser(EVALUATION_EN_COURS, EVALUATION_COMPLETE, EN_FORMATION, REJETE, SUSPENDU);
+        autoriser(EVALUATION_COMPLETE, DOSSIER_VALIDE, REJETE, SUSPENDU);
+        autoriser(DOSSIER_VALIDE, EXAMEN_PROGRAMME, REJETE, SUSPENDU);
+        autoriser(EXAMEN_PROGRAMME, EXAMEN_EN_COURS, EXAMEN_REUSSI, REJETE, DOSSIER_VALIDE, SUSPENDU);
+        autoriser(EXAMEN_EN_COURS, EXAMEN_REUSSI, REJETE);
+        autoriser(EXAMEN_REUSSI, PERMIS_GENERE);
+        autoriser(PERMIS_GENERE, PERMIS_DELIVRE);
+        autoriser(PERMIS_DELIVRE);
+        autoriser(REJETE, EN_FORMATION);
+        autoriser(SUSPENDU, EN_FORMATION);
+    }
+    
+    private static void autoriser(StatutCandidat depart, StatutCandidat... arrivees) {
+        Set<StatutCandidat> permises = EnumSet.noneOf(StatutCandidat.class);
+        permises.addAll(Arrays.asList(arrivees));
+        TRANSITIONS.put(depart, permises);
+    }
+    
+    /**
+     * Vérifie si la transition vers le statut donné est autorisée depuis ce statut
+     */
+    public boolean peutPasserA(StatutCandidat cible) {
+        return TRANSITIONS.getOrDefault(this, Set.of()).contains(cible);
+    }
+    
     public boolean peutPasserExamen() {
         return this == DOSSIER_VALIDE || this == EXAMEN_PROGRAMME;
     }
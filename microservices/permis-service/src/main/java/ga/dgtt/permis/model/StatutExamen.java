@@ -1,5 +1,11 @@
 package ga.dgtt.permis.model;
 
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Énumération des statuts possibles pour un examen
  * 
@@ -35,6 +41,34 @@ public enum StatutExamen {
         return description;
     }
     
+    /**
+     * Table des transitions autorisées : statut de départ -> statuts d'arrivée
+     * (VALIDE, REJETE et ANNULE sont terminaux)
+     */
+    private static final Map<StatutExamen, Set<StatutExamen>> TRANSITIONS = new EnumMap<>(StatutExamen.class);
+    
+    static {
+        autoriser(PROGRAMME, EN_COURS, ANNULE);
+        autoriser(EN_COURS, TERMINE, ANNULE);
+        autoriser(TERMINE, VALIDE, REJETE);
+        autoriser(VALIDE);
+        autoriser(REJETE);
+        autoriser(ANNULE);
+    }
+    
+    private static void autoriser(StatutExamen depart, StatutExamen... arrivees) {
+        Set<StatutExamen> permises = EnumSet.noneOf(StatutExamen.class);
+        permises.addAll(Arrays.asList(arrivees));
+        TRANSITIONS.put(depart, permises);
+    }
+    
+    /**
+     * Vérifie si la transition vers le statut donné est autorisée depuis ce statut
+     */
+    public boolean peutPasserA(StatutExamen cible) {
+        return TRANSITIONS.getOrDefault(this, Set.of()).contains(cible);
+    }
+    
     /**
      * Vérifie si l'examen peut être démarré
      */
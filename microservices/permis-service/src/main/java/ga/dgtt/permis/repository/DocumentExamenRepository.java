@@ -0,0 +1,12 @@
+package ga.dgtt.permis.repository;
+
+import ga.dgtt.permis.model.DocumentExamen;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository pour l'entité DocumentExamen
+ */
+@Repository
+public interface DocumentExamenRepository extends JpaRepository<DocumentExamen, Long> {
+}
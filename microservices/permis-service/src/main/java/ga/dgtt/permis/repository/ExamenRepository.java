@@ -1,6 +1,10 @@
 package ga.dgtt.permis.repository;
 
+import ga.dgtt.permis.dto.VersionEntite;
 import ga.dgtt.permis.model.Examen;
+import ga.dgtt.permis.model.StatutExamen;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -16,6 +20,20 @@ public interface ExamenRepository extends JpaRepository<Examen, Long> {
     // Rechercher par numéro d'examen
     Optional<Examen> findByNumeroExamen(String numeroExamen);
     
+    // Version d'un examen (requêtes conditionnelles, sans lire la ligne entière)
+    @Query("SELECT new ga.dgtt.permis.dto.VersionEntite(e.id, e.version, e.dateModification) " +
+           "FROM Examen e WHERE e.id = :id")
+    Optional<VersionEntite> findVersionById(@Param("id") Long id);
+    
+    // Version d'un examen par son numéro
+    @Query("SELECT new ga.dgtt.permis.dto.VersionEntite(e.id, e.version, e.dateModification) " +
+           "FROM Examen e WHERE e.numeroExamen = :numeroExamen")
+    Optional<VersionEntite> findVersionByNumeroExamen(@Param("numeroExamen") String numeroExamen);
+    
+    // Examen par id avec candidat et auto-école (graphe d'entités, une requête)
+    @EntityGraph(attributePaths = {"candidat", "autoEcole"})
+    Optional<Examen> findDetailById(Long id);
+    
     // Rechercher par candidat
     List<Examen> findByCandidatId(Long candidatId);
     
@@ -55,4 +73,20 @@ public interface ExamenRepository extends JpaRepository<Examen, Long> {
     // Rechercher les examens programmés
     @Query("SELECT e FROM Examen e WHERE e.statut = 'PROGRAMME' AND e.dateExamen > :now")
     List<Examen> findExamensProgrammes(@Param("now") LocalDateTime now);
+    
+    // Rechercher après un curseur (date de création, id), des plus récents aux plus anciens, sans COUNT ;
+    // candidat et auto-école chargés dans la même requête (graphe d'entités)
+    @EntityGraph(attributePaths = {"candidat", "autoEcole"})
+    @Query("SELECT e FROM Examen e WHERE " +
+           "(:statut IS NULL OR e.statut = :statut) AND " +
+           "(:dateCurseur IS NULL OR (e.dateCreation, e.id) < (:dateCurseur, :idCurseur)) " +
+           "ORDER BY e.dateCreation DESC, e.id DESC")
+    List<Examen> findApresCurseur(@Param("statut") StatutExamen statut,
+                                  @Param("dateCurseur") LocalDateTime dateCurseur,
+                                  @Param("idCurseur") Long idCurseur,
+                                  Pageable pageable);
+    
+    // Récupérer uniquement le contenu du QR code
+    @Query("SELECT e.qrCode FROM Examen e WHERE e.id = :id")
+    Optional<String> findQrCodeById(@Param("id") Long id);
 }
@@ -0,0 +1,86 @@
+package ga.dgtt.permis.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ga.dgtt.permis.dto.ExamenResume;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Cache en mémoire des lectures unitaires d'examens
+ *
+ * Caches Caffeine bornés (éviction W-TinyLFU) avec durée de vie ; les valeurs
+ * sont des vues immuables. Les transitions d'un examen l'invalident après le
+ * commit ; une vue remise en cache par une lecture concurrente est détectée
+ * par sa version et évincée (PermisService#trouverResume). Succès, échecs
+ * et évictions sont publiés sous cache.* (tag cache).
+ */
+@Component
+public class CacheEntites {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cache.taille-max:10000}")
+    private long tailleMax;
+
+    @Value("${app.cache.examens.ttl-secondes:300}")
+    private long ttlExamens;
+
+    private Cache<Long, ExamenResume> examens;
+
+    @PostConstruct
+    public void initialiser() {
+        examens = creer("examens");
+    }
+
+    private <K, V> Cache<K, V> creer(String nom) {
+        Cache<K, V> cache = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterWrite(Duration.ofSeconds(ttlExamens))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, nom);
+        return cache;
+    }
+
+    /**
+     * Examen par id ; un résultat vide n'est pas mis en cache
+     */
+    public Optional<ExamenResume> examen(Long id, Function<Long, Optional<ExamenResume>> chargement) {
+        return Optional.ofNullable(examens.get(id, cle -> chargement.apply(cle).orElse(null)));
+    }
+
+    /**
+     * Retire immédiatement un examen (vue en cache plus ancienne que la base)
+     */
+    public void evincerExamen(Long id) {
+        examens.invalidate(id);
+    }
+
+    /**
+     * Invalide un examen après le commit de la transaction courante
+     */
+    public void invaliderExamen(Long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    examens.invalidate(id);
+                }
+            });
+        } else {
+            examens.invalidate(id);
+        }
+    }
+}
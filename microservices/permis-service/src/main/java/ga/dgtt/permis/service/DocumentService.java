@@ -0,0 +1,109 @@
+package ga.dgtt.permis.service;
+
+import ga.dgtt.permis.dto.DocumentResume;
+import ga.dgtt.permis.model.ActionAudit;
+import ga.dgtt.permis.model.AuditLog;
+import ga.dgtt.permis.model.DocumentExamen;
+import ga.dgtt.permis.model.Examen;
+import ga.dgtt.permis.model.NiveauSecurite;
+import ga.dgtt.permis.model.TypeDocumentExamen;
+import ga.dgtt.permis.repository.DocumentExamenRepository;
+import ga.dgtt.permis.repository.ExamenRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Service de dépôt et de lecture des documents d'examen
+ *
+ * Le contenu est écrit dans le stockage adressé par contenu avant
+ * l'enregistrement du document, hors transaction : un envoi lent n'occupe
+ * pas de connexion à la base.
+ */
+@Service
+public class DocumentService {
+
+    private static final int LONGUEUR_MAX_TYPE_MIME = 50;
+
+    @Autowired
+    private ExamenRepository examenRepository;
+
+    @Autowired
+    private DocumentExamenRepository documentExamenRepository;
+
+    @Autowired
+    private StockageDocuments stockageDocuments;
+
+    @Autowired
+    private EnregistreurAudit enregistreurAudit;
+
+    /**
+     * Dépose un document pour un examen
+     */
+    public DocumentResume deposerDocumentExamen(Long examenId, TypeDocumentExamen typeDocument, InputStream contenu,
+                                                String nomFichier, String typeMime, String utilisateur) throws IOException {
+        Examen examen = examenRepository.findById(examenId)
+                .orElseThrow(() -> new RuntimeException("Examen non trouvé"));
+
+        DocumentExamen document = enregistrer(examen, typeDocument, contenu, nomFichier(nomFichier), typeMime(typeMime));
+
+        AuditLog auditLog = new AuditLog("DocumentExamen", document.getId(), ActionAudit.UPLOAD_FICHIER,
+                                         utilisateur, "Document déposé: " + typeDocument.getLibelle());
+        auditLog.setNiveauSecurite(NiveauSecurite.INFO);
+        auditLog.setExamen(examen);
+        enregistreurAudit.enregistrer(auditLog);
+
+        return DocumentResume.depuis(document);
+    }
+
+    /**
+     * Stocke un contenu et enregistre le document d'examen correspondant
+     */
+    public DocumentExamen enregistrer(Examen examen, TypeDocumentExamen typeDocument, InputStream contenu,
+                                      String nomFichier, String typeMime) throws IOException {
+        StockageDocuments.FichierStocke fichier = stockageDocuments.stocker(contenu);
+        DocumentExamen document = new DocumentExamen(examen, typeDocument, nomFichier,
+                                                     stockageDocuments.cheminRelatif(fichier.empreinte()));
+        document.setTypeMime(typeMime);
+        document.setTailleFichier(fichier.taille());
+        document.setHashFichier(fichier.empreinte());
+        return documentExamenRepository.save(document);
+    }
+
+    /**
+     * Récupère un document d'examen
+     */
+    @Transactional(readOnly = true)
+    public Optional<DocumentResume> trouverDocumentExamen(Long documentId) {
+        return documentExamenRepository.findById(documentId).map(DocumentResume::depuis);
+    }
+
+    private static String nomFichier(String nomFichier) {
+        if (nomFichier == null) {
+            return "document";
+        }
+        // Navigateurs anciens : le nom peut contenir le chemin complet du poste client
+        String nom = nomFichier.substring(Math.max(nomFichier.lastIndexOf('/'), nomFichier.lastIndexOf('\\')) + 1);
+        if (nom.isBlank()) {
+            return "document";
+        }
+        return nom.length() > 255 ? nom.substring(nom.length() - 255) : nom;
+    }
+
+    private static String typeMime(String typeMime) {
+        if (typeMime == null || typeMime.length() > LONGUEUR_MAX_TYPE_MIME) {
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+        try {
+            return MediaType.parseMediaType(typeMime).toString();
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+    }
+}
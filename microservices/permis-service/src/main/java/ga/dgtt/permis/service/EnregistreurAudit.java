@@ -0,0 +1,244 @@
+package ga.dgtt.permis.service;
+
+import ga.dgtt.permis.model.AuditLog;
+import ga.dgtt.permis.model.NiveauSecurite;
+import ga.dgtt.permis.repository.AuditLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enregistreur des logs d'audit
+ *
+ * Les niveaux configurés comme synchrones (CRITIQUE par défaut) sont écrits
+ * immédiatement, dans la transaction de l'appelant. Les autres sont déposés
+ * dans une file bornée après la validation de la transaction, puis écrits par
+ * lots (INSERT multi-lignes via le batch JDBC) : c'est un commit groupé, un log
+ * peut être perdu si l'instance s'arrête brutalement dans l'intervalle.
+ * Si la file est pleine, le log est écrit directement.
+ */
+@Component
+public class EnregistreurAudit {
+
+    private static final String INSERTION =
+            "INSERT INTO audit_logs (entite, entite_id, action, utilisateur, role_utilisateur, adresse_ip, " +
+            "user_agent, donnees_avant, donnees_apres, message, niveau_securite, date_creation, " +
+            "examen_id, candidat_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.audit.ecriture.niveaux-synchrones:CRITIQUE}")
+    private Set<NiveauSecurite> niveauxSynchrones;
+
+    @Value("${app.audit.ecriture.capacite-file:10000}")
+    private int capaciteFile;
+
+    @Value("${app.audit.ecriture.taille-lot:200}")
+    private int tailleLot;
+
+    @Value("${app.audit.ecriture.intervalle-ms:200}")
+    private long intervalleMs;
+
+    @Value("${app.audit.ecriture.max-tentatives:3}")
+    private int maxTentatives;
+
+    private BlockingQueue<EntreeAudit> file;
+    private Thread ecrivain;
+    private volatile boolean actif;
+
+    private Counter compteurSynchrones;
+    private Counter compteurGroupes;
+    private Counter compteurFilePleine;
+    private Counter compteurPerdus;
+    private Timer chronoAttente;
+    private Timer chronoLot;
+
+    @PostConstruct
+    public void demarrer() {
+        niveauxSynchrones = niveauxSynchrones.isEmpty()
+                ? EnumSet.noneOf(NiveauSecurite.class) : EnumSet.copyOf(niveauxSynchrones);
+        file = new ArrayBlockingQueue<>(capaciteFile);
+
+        compteurSynchrones = Counter.builder("audit.ecriture").tag("mode", "synchrone").register(meterRegistry);
+        compteurGroupes = Counter.builder("audit.ecriture").tag("mode", "groupe").register(meterRegistry);
+        compteurFilePleine = Counter.builder("audit.ecriture").tag("mode", "file_pleine").register(meterRegistry);
+        compteurPerdus = Counter.builder("audit.ecriture.perdus").register(meterRegistry);
+        chronoAttente = Timer.builder("audit.file.attente").register(meterRegistry);
+        chronoLot = Timer.builder("audit.ecriture.lot").register(meterRegistry);
+        Gauge.builder("audit.file", file, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("audit.file.retard.secondes", this, EnregistreurAudit::retardSecondes).register(meterRegistry);
+
+        actif = true;
+        ecrivain = new Thread(this::boucleEcriture, "audit-ecriture");
+        ecrivain.setDaemon(true);
+        ecrivain.start();
+    }
+
+    @PreDestroy
+    public void arreter() throws InterruptedException {
+        actif = false;
+        ecrivain.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Enregistre un log d'audit selon la durabilité associée à son niveau
+     */
+    public void enregistrer(AuditLog auditLog) {
+        if (auditLog.getDateCreation() == null) {
+            auditLog.setDateCreation(LocalDateTime.now());
+        }
+        if (niveauxSynchrones.contains(auditLog.getNiveauSecurite())) {
+            auditLogRepository.save(auditLog);
+            compteurSynchrones.increment();
+            return;
+        }
+
+        // Le log ne doit pas survivre à un rollback de l'action auditée
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enfiler(auditLog);
+                }
+            });
+        } else {
+            enfiler(auditLog);
+        }
+    }
+
+    private void enfiler(AuditLog auditLog) {
+        if (file.offer(new EntreeAudit(auditLog, System.nanoTime()))) {
+            return;
+        }
+        compteurFilePleine.increment();
+        try {
+            ecrireLot(List.of(new EntreeAudit(auditLog, System.nanoTime())));
+        } catch (Exception e) {
+            compteurPerdus.increment();
+            System.err.println("Erreur lors de l'enregistrement de l'audit: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Boucle de l'écrivain : attend l'intervalle de regroupement puis écrit la file par lots
+     */
+    private void boucleEcriture() {
+        List<EntreeAudit> lot = new ArrayList<>(tailleLot);
+        while (actif || !file.isEmpty()) {
+            try {
+                EntreeAudit premiere = file.poll(intervalleMs, TimeUnit.MILLISECONDS);
+                if (premiere == null) {
+                    continue;
+                }
+                lot.add(premiere);
+                file.drainTo(lot, tailleLot - 1);
+                ecrireAvecReprise(lot);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lot.clear();
+            }
+        }
+    }
+
+    private void ecrireAvecReprise(List<EntreeAudit> lot) throws InterruptedException {
+        for (int tentative = 1; ; tentative++) {
+            try {
+                ecrireLot(lot);
+                return;
+            } catch (Exception e) {
+                if (tentative >= maxTentatives) {
+                    compteurPerdus.increment(lot.size());
+                    System.err.println("Erreur lors de l'enregistrement de " + lot.size() +
+                                       " logs d'audit: " + e.getMessage());
+                    return;
+                }
+                TimeUnit.MILLISECONDS.sleep(intervalleMs * tentative);
+            }
+        }
+    }
+
+    /**
+     * Écrit un lot de logs en une transaction et un seul batch JDBC
+     */
+    private void ecrireLot(List<EntreeAudit> lot) {
+        long maintenant = System.nanoTime();
+        chronoLot.record(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERTION, lot, lot.size(), (ps, entree) -> {
+                    AuditLog log = entree.auditLog;
+                    ps.setString(1, log.getEntite());
+                    ps.setObject(2, log.getEntiteId(), Types.BIGINT);
+                    ps.setString(3, log.getAction() != null ? log.getAction().name() : null);
+                    ps.setString(4, log.getUtilisateur());
+                    ps.setString(5, log.getRoleUtilisateur());
+                    ps.setString(6, log.getAdresseIp());
+                    ps.setString(7, log.getUserAgent());
+                    ps.setString(8, log.getDonneesAvant());
+                    ps.setString(9, log.getDonneesApres());
+                    ps.setString(10, log.getMessage());
+                    ps.setString(11, log.getNiveauSecurite() != null ? log.getNiveauSecurite().name() : null);
+                    ps.setTimestamp(12, Timestamp.valueOf(log.getDateCreation()));
+                    ps.setObject(13, log.getExamen() != null ? log.getExamen().getId() : null, Types.BIGINT);
+                    ps.setObject(14, log.getCandidat() != null ? log.getCandidat().getId() : null, Types.BIGINT);
+                })));
+
+        compteurGroupes.increment(lot.size());
+        for (EntreeAudit entree : lot) {
+            chronoAttente.record(maintenant - entree.dateEnfilement, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Âge du plus ancien log en attente, en secondes
+     */
+    private double retardSecondes() {
+        EntreeAudit plusAncienne = file.peek();
+        return plusAncienne == null ? 0 : (System.nanoTime() - plusAncienne.dateEnfilement) / 1e9;
+    }
+
+    /**
+     * Log en attente et son instant de dépôt dans la file
+     */
+    private static final class EntreeAudit {
+        private final AuditLog auditLog;
+        private final long dateEnfilement;
+
+        private EntreeAudit(AuditLog auditLog, long dateEnfilement) {
+            this.auditLog = auditLog;
+            this.dateEnfilement = dateEnfilement;
+        }
+    }
+}
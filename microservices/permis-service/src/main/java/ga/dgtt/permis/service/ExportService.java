@@ -0,0 +1,275 @@
+package ga.dgtt.permis.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ga.dgtt.permis.model.FormatExport;
+import ga.dgtt.permis.model.StatutExamen;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service d'export en masse des examens
+ *
+ * Les lignes sont lues par un curseur côté serveur (fetch size, dans une
+ * transaction en lecture seule) et écrites une à une dans la réponse : la
+ * mémoire utilisée ne dépend pas du nombre de lignes exportées.
+ */
+@Service
+public class ExportService {
+
+    private static final String COLONNES_EXAMENS =
+            "e.id, e.numero_examen, e.type_examen, e.statut, e.date_examen, e.lieu_examen, " +
+            "e.examinateur_nom, e.examinateur_prenom, e.examinateur_matricule, e.note, e.nombre_erreurs, " +
+            "e.temps_realise, e.est_reussi, e.candidat_id, c.nom AS candidat_nom, c.prenom AS candidat_prenom, " +
+            "c.categorie_permis, e.auto_ecole_id, a.nom AS auto_ecole, a.province, e.date_creation";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.export.taille-lot:1000}")
+    private int tailleLot;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void initialiser() {
+        // Avec un fetch size et sans autocommit, le pilote PostgreSQL lit par lots via un curseur
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(tailleLot);
+    }
+
+    /**
+     * Exporte les examens filtrés, par date d'examen croissante
+     *
+     * La période porte sur la date d'examen.
+     */
+    public long exporterExamens(StatutExamen statut, String province, LocalDate dateDebut,
+                                LocalDate dateFin, FormatExport format, OutputStream sortie) {
+        StringBuilder requete = new StringBuilder("SELECT " + COLONNES_EXAMENS + " FROM examens e " +
+                "LEFT JOIN candidats c ON c.id = e.candidat_id " +
+                "LEFT JOIN auto_ecoles a ON a.id = e.auto_ecole_id WHERE 1 = 1");
+        List<Object> parametres = new ArrayList<>();
+        ajouterFiltres(requete, parametres, statut != null ? statut.name() : null, province,
+                       dateDebut, dateFin, "e.statut", "e.date_examen");
+        requete.append(" ORDER BY e.date_examen, e.id");
+
+        long lignes = exporter(requete.toString(), parametres, format, sortie);
+        System.out.println("Export des examens (" + format + ") : " + lignes + " ligne(s)");
+        return lignes;
+    }
+
+    private void ajouterFiltres(StringBuilder requete, List<Object> parametres, String statut, String province,
+                                LocalDate dateDebut, LocalDate dateFin, String colonneStatut, String colonneDate) {
+        if (statut != null) {
+            requete.append(" AND ").append(colonneStatut).append(" = ?");
+            parametres.add(statut);
+        }
+        if (province != null && !province.isBlank()) {
+            requete.append(" AND LOWER(a.province) = LOWER(?)");
+            parametres.add(province);
+        }
+        if (dateDebut != null) {
+            requete.append(" AND ").append(colonneDate).append(" >= ?");
+            parametres.add(Timestamp.valueOf(dateDebut.atStartOfDay()));
+        }
+        if (dateFin != null) {
+            // Date de fin incluse
+            requete.append(" AND ").append(colonneDate).append(" < ?");
+            parametres.add(Timestamp.valueOf(dateFin.plusDays(1).atStartOfDay()));
+        }
+    }
+
+    /**
+     * Exécute la requête et écrit chaque ligne dans la sortie au format demandé
+     */
+    private long exporter(String requete, List<Object> parametres, FormatExport format, OutputStream sortie) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+
+        Long lignes = transaction.execute(status -> {
+            try {
+                EcrivainExport ecrivain = format == FormatExport.NDJSON
+                        ? new EcrivainNdjson(sortie) : new EcrivainCsv(sortie);
+                // L'en-tête vient des métadonnées de la requête : présent même sans aucune ligne
+                Long compteur = jdbcTemplate.query(requete, (ResultSetExtractor<Long>) rs -> {
+                    try {
+                        ecrivain.debuter(rs.getMetaData());
+                        long ecrites = 0;
+                        while (rs.next()) {
+                            ecrivain.ecrireLigne(rs);
+                            ecrites++;
+                        }
+                        return ecrites;
+                    } catch (IOException e) {
+                        // Client déconnecté : interrompt la lecture du curseur
+                        throw new UncheckedIOException(e);
+                    }
+                }, parametres.toArray());
+                ecrivain.terminer();
+                return compteur;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return lignes != null ? lignes : 0;
+    }
+
+    /**
+     * Écriture d'un export ligne par ligne
+     */
+    private interface EcrivainExport {
+        void debuter(ResultSetMetaData metaDonnees) throws SQLException, IOException;
+        void ecrireLigne(ResultSet rs) throws SQLException, IOException;
+        void terminer() throws IOException;
+    }
+
+    /**
+     * CSV (RFC 4180) : en-tête, séparateur virgule, champs entre guillemets si nécessaire
+     */
+    private static final class EcrivainCsv implements EcrivainExport {
+        private final Writer writer;
+        private int colonnes;
+
+        private EcrivainCsv(OutputStream sortie) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(sortie, StandardCharsets.UTF_8), 65536);
+        }
+
+        @Override
+        public void debuter(ResultSetMetaData metaDonnees) throws SQLException, IOException {
+            colonnes = metaDonnees.getColumnCount();
+            for (int i = 1; i <= colonnes; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                ecrireChamp(metaDonnees.getColumnLabel(i));
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void ecrireLigne(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= colonnes; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                Object valeur = valeur(rs, i);
+                if (valeur != null) {
+                    ecrireChamp(valeur.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void terminer() throws IOException {
+            writer.flush();
+        }
+
+        private void ecrireChamp(String champ) throws IOException {
+            if (champ.indexOf(',') < 0 && champ.indexOf('"') < 0
+                    && champ.indexOf('\n') < 0 && champ.indexOf('\r') < 0) {
+                writer.write(champ);
+                return;
+            }
+            writer.write('"');
+            writer.write(champ.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    /**
+     * NDJSON : un objet JSON par ligne, clés = noms de colonnes
+     */
+    private final class EcrivainNdjson implements EcrivainExport {
+        private final JsonGenerator generateur;
+        private String[] noms;
+
+        private EcrivainNdjson(OutputStream sortie) throws IOException {
+            this.generateur = objectMapper.getFactory().createGenerator(sortie);
+            this.generateur.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.generateur.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        }
+
+        @Override
+        public void debuter(ResultSetMetaData metaDonnees) throws SQLException {
+            noms = new String[metaDonnees.getColumnCount()];
+            for (int i = 0; i < noms.length; i++) {
+                noms[i] = metaDonnees.getColumnLabel(i + 1);
+            }
+        }
+
+        @Override
+        public void ecrireLigne(ResultSet rs) throws SQLException, IOException {
+            generateur.writeStartObject();
+            for (int i = 0; i < noms.length; i++) {
+                Object valeur = valeur(rs, i + 1);
+                generateur.writeFieldName(noms[i]);
+                if (valeur == null) {
+                    generateur.writeNull();
+                } else if (valeur instanceof Long || valeur instanceof Integer) {
+                    generateur.writeNumber(((Number) valeur).longValue());
+                } else if (valeur instanceof BigDecimal) {
+                    generateur.writeNumber((BigDecimal) valeur);
+                } else if (valeur instanceof Boolean) {
+                    generateur.writeBoolean((Boolean) valeur);
+                } else {
+                    generateur.writeString(valeur.toString());
+                }
+            }
+            generateur.writeEndObject();
+        }
+
+        @Override
+        public void terminer() throws IOException {
+            if (noms != null) {
+                generateur.writeRaw('\n');
+            }
+            generateur.flush();
+        }
+    }
+
+    /**
+     * Valeur d'une colonne ; les dates sont rendues au format ISO-8601
+     */
+    private static Object valeur(ResultSet rs, int index) throws SQLException {
+        Object valeur = rs.getObject(index);
+        if (valeur instanceof Timestamp) {
+            return ((Timestamp) valeur).toLocalDateTime();
+        }
+        if (valeur instanceof Date) {
+            return ((Date) valeur).toLocalDate();
+        }
+        return valeur;
+    }
+}
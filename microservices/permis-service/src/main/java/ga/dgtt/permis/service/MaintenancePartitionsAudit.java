@@ -0,0 +1,68 @@
+package ga.dgtt.permis.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Maintenance des partitions mensuelles de la table audit_logs
+ *
+ * Crée à l'avance les partitions des mois à venir et applique la rétention
+ * en détachant (puis supprimant) les partitions entièrement expirées, au lieu
+ * d'un DELETE ligne par ligne. S'appuie sur les fonctions SQL
+ * creer_partitions_audit_logs et supprimer_partitions_audit_logs.
+ */
+@Component
+public class MaintenancePartitionsAudit {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.audit.retention.days:365}")
+    private int retentionJours;
+
+    @Value("${app.audit.partitions.mois-avance:3}")
+    private int moisAvance;
+
+    @Value("${app.audit.partitions.supprimer:true}")
+    private boolean supprimer;
+
+    /**
+     * Vérifie les partitions au démarrage du service
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void auDemarrage() {
+        maintenir();
+    }
+
+    /**
+     * Crée les partitions à venir et supprime les partitions expirées
+     */
+    @Scheduled(cron = "${app.audit.partitions.cron:0 30 2 * * *}")
+    public void maintenir() {
+        try {
+            Integer crees = jdbcTemplate.queryForObject(
+                    "SELECT creer_partitions_audit_logs(CURRENT_DATE, ?)", Integer.class, moisAvance);
+
+            // Une partition n'est retirée que lorsque tout le mois est hors rétention
+            LocalDate dateLimite = LocalDate.now().minusDays(retentionJours);
+            Integer retirees = jdbcTemplate.queryForObject(
+                    "SELECT supprimer_partitions_audit_logs(?, ?)", Integer.class,
+                    Date.valueOf(dateLimite), supprimer);
+
+            if ((crees != null && crees > 0) || (retirees != null && retirees > 0)) {
+                System.out.println("Partitions audit_logs : " + crees + " créée(s), " +
+                                   retirees + (supprimer ? " supprimée(s)" : " détachée(s)"));
+            }
+        } catch (Exception e) {
+            System.err.println("Erreur lors de la maintenance des partitions audit_logs: " + e.getMessage());
+        }
+    }
+}
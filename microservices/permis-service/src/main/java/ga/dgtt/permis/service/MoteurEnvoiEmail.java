@@ -0,0 +1,347 @@
+package ga.dgtt.permis.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moteur d'envoi d'emails sur un pool de connexions SMTP persistantes
+ *
+ * Le JavaMailSender par défaut ouvre une connexion (et refait la négociation
+ * STARTTLS et l'authentification) à chaque envoi. Ce moteur conserve un pool
+ * borné de sessions SMTP authentifiées et envoie les messages par lots sur
+ * ces sessions. Il expose deux modes :
+ * - {@link #envoyerLot(List)} : envoi synchrone d'un lot, résultat par message
+ * - {@link #soumettre(SimpleMailMessage)} : dépôt dans une file bornée vidée
+ *   par lots en arrière-plan
+ *
+ * Pour les tests, il suffit de pointer spring.mail.host/port vers un serveur
+ * SMTP local (GreenMail, MailHog...).
+ */
+@Service
+public class MoteurEnvoiEmail {
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.notification.smtp.pool-taille:2}")
+    private int poolTaille;
+
+    @Value("${app.notification.smtp.taille-lot:20}")
+    private int tailleLot;
+
+    @Value("${app.notification.smtp.capacite-file:1000}")
+    private int capaciteFile;
+
+    @Value("${app.notification.smtp.messages-par-connexion:100}")
+    private int messagesParConnexion;
+
+    @Value("${app.notification.smtp.inactivite-max-ms:60000}")
+    private long inactiviteMaxMs;
+
+    private BlockingQueue<SimpleMailMessage> file;
+    private BlockingQueue<ConnexionSmtp> connexions;
+    private ExecutorService travailleurs;
+    private volatile boolean actif;
+
+    private final AtomicInteger connexionsOuvertes = new AtomicInteger();
+    private Counter compteurEnvoyes;
+    private Counter compteurEchecs;
+    private Counter compteurRejets;
+    private Timer chronoLot;
+
+    @PostConstruct
+    public void demarrer() {
+        file = new ArrayBlockingQueue<>(capaciteFile);
+        connexions = new ArrayBlockingQueue<>(poolTaille);
+        for (int i = 0; i < poolTaille; i++) {
+            connexions.add(new ConnexionSmtp());
+        }
+
+        compteurEnvoyes = Counter.builder("notification.smtp.messages")
+                .tag("resultat", "envoye").register(meterRegistry);
+        compteurEchecs = Counter.builder("notification.smtp.messages")
+                .tag("resultat", "echec").register(meterRegistry);
+        compteurRejets = Counter.builder("notification.smtp.messages")
+                .tag("resultat", "file_pleine").register(meterRegistry);
+        chronoLot = Timer.builder("notification.smtp.lot").register(meterRegistry);
+        Gauge.builder("notification.smtp.file", file, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("notification.smtp.connexions.ouvertes", connexionsOuvertes, AtomicInteger::get)
+                .register(meterRegistry);
+
+        actif = true;
+        AtomicInteger numero = new AtomicInteger();
+        travailleurs = Executors.newFixedThreadPool(poolTaille, tache -> {
+            Thread thread = new Thread(tache, "smtp-envoi-" + numero.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < poolTaille; i++) {
+            travailleurs.execute(this::boucleEnvoi);
+        }
+    }
+
+    @PreDestroy
+    public void arreter() throws InterruptedException {
+        actif = false;
+        travailleurs.shutdown();
+        travailleurs.awaitTermination(30, TimeUnit.SECONDS);
+
+        // Vider ce qui reste dans la file avant de fermer les connexions
+        List<SimpleMailMessage> restants = new ArrayList<>();
+        file.drainTo(restants);
+        if (!restants.isEmpty()) {
+            envoyerLot(restants);
+        }
+        for (ConnexionSmtp connexion : connexions) {
+            fermer(connexion);
+        }
+    }
+
+    /**
+     * Dépose un message dans la file d'envoi
+     *
+     * @return false si la file est pleine (l'appelant choisit alors le repli)
+     */
+    public boolean soumettre(SimpleMailMessage message) {
+        boolean accepte = file.offer(message);
+        if (!accepte) {
+            compteurRejets.increment();
+        }
+        return accepte;
+    }
+
+    /**
+     * Envoie un lot de messages sur une connexion du pool
+     *
+     * @return une liste alignée sur les messages : null si l'envoi a réussi,
+     *         l'exception rencontrée sinon
+     */
+    public List<Exception> envoyerLot(List<SimpleMailMessage> messages) {
+        return chronoLot.record(() -> {
+            if (!(mailSender instanceof JavaMailSenderImpl)) {
+                return envoyerLotSansPool(messages);
+            }
+
+            ConnexionSmtp connexion;
+            try {
+                connexion = connexions.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Envoi interrompu", e);
+            }
+
+            List<Exception> erreurs = new ArrayList<>(messages.size());
+            try {
+                for (SimpleMailMessage message : messages) {
+                    erreurs.add(envoyerAvecReprise(connexion, message));
+                }
+            } finally {
+                connexions.offer(connexion);
+            }
+            return erreurs;
+        });
+    }
+
+    /**
+     * Boucle des travailleurs : vide la file par lots
+     */
+    private void boucleEnvoi() {
+        List<SimpleMailMessage> lot = new ArrayList<>(tailleLot);
+        while (actif) {
+            try {
+                SimpleMailMessage premier = file.poll(1, TimeUnit.SECONDS);
+                if (premier == null) {
+                    fermerConnexionsInactives();
+                    continue;
+                }
+                lot.add(premier);
+                file.drainTo(lot, tailleLot - 1);
+
+                List<Exception> erreurs = envoyerLot(lot);
+                for (int i = 0; i < erreurs.size(); i++) {
+                    if (erreurs.get(i) != null) {
+                        System.err.println("Erreur lors de l'envoi de l'email à " +
+                                           String.join(",", lot.get(i).getTo()) + ": " + erreurs.get(i).getMessage());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("Erreur du moteur d'envoi SMTP: " + e.getMessage());
+            } finally {
+                lot.clear();
+            }
+        }
+    }
+
+    /**
+     * Envoie un message ; en cas de coupure de la connexion, reconnecte et réessaie une fois
+     */
+    private Exception envoyerAvecReprise(ConnexionSmtp connexion, SimpleMailMessage message) {
+        try {
+            envoyerMessage(connexion, message);
+            compteurEnvoyes.increment();
+            return null;
+        } catch (SendFailedException e) {
+            // Destinataire refusé : la connexion reste valide
+            compteurEchecs.increment();
+            return e;
+        } catch (Exception e) {
+            fermer(connexion);
+            try {
+                envoyerMessage(connexion, message);
+                compteurEnvoyes.increment();
+                return null;
+            } catch (Exception reprise) {
+                fermer(connexion);
+                compteurEchecs.increment();
+                return reprise;
+            }
+        }
+    }
+
+    /**
+     * Envoie un message sur la connexion, en l'ouvrant si nécessaire
+     */
+    private void envoyerMessage(ConnexionSmtp connexion, SimpleMailMessage message) throws MessagingException {
+        JavaMailSenderImpl sender = (JavaMailSenderImpl) mailSender;
+        Transport transport = obtenirTransport(connexion, sender);
+
+        MimeMessage mimeMessage = sender.createMimeMessage();
+        message.copyTo(new MimeMailMessage(mimeMessage));
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+        mimeMessage.saveChanges();
+
+        transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+        connexion.messagesEnvoyes++;
+        connexion.derniereUtilisation = System.currentTimeMillis();
+    }
+
+    /**
+     * Retourne un transport connecté, en recyclant les connexions trop anciennes
+     */
+    private Transport obtenirTransport(ConnexionSmtp connexion, JavaMailSenderImpl sender) throws MessagingException {
+        if (connexion.transport != null &&
+            (connexion.messagesEnvoyes >= messagesParConnexion || !connexion.transport.isConnected())) {
+            fermer(connexion);
+        }
+        if (connexion.transport == null) {
+            String protocole = sender.getProtocol() != null ? sender.getProtocol() : "smtp";
+            Transport transport = sender.getSession().getTransport(protocole);
+            transport.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+            connexion.transport = transport;
+            connexion.messagesEnvoyes = 0;
+            connexionsOuvertes.incrementAndGet();
+        }
+        return connexion.transport;
+    }
+
+    /**
+     * Ferme les connexions restées inactives trop longtemps
+     */
+    private void fermerConnexionsInactives() {
+        // Toutes les connexions libres sont examinées en un passage ; celles en cours d'envoi restent hors du pool
+        List<ConnexionSmtp> libres = new ArrayList<>(poolTaille);
+        connexions.drainTo(libres);
+        try {
+            long maintenant = System.currentTimeMillis();
+            for (ConnexionSmtp connexion : libres) {
+                if (connexion.transport != null && maintenant - connexion.derniereUtilisation > inactiviteMaxMs) {
+                    fermer(connexion);
+                }
+            }
+        } finally {
+            connexions.addAll(libres);
+        }
+    }
+
+    /**
+     * Ferme une connexion SMTP (sans erreur si déjà fermée)
+     */
+    private void fermer(ConnexionSmtp connexion) {
+        if (connexion.transport == null) {
+            return;
+        }
+        try {
+            connexion.transport.close();
+        } catch (MessagingException e) {
+            // Connexion déjà rompue côté serveur
+        } finally {
+            connexion.transport = null;
+            connexion.messagesEnvoyes = 0;
+            connexionsOuvertes.decrementAndGet();
+        }
+    }
+
+    /**
+     * Repli lorsque le JavaMailSender n'est pas un JavaMailSenderImpl :
+     * un seul appel send() pour tout le lot
+     */
+    private List<Exception> envoyerLotSansPool(List<SimpleMailMessage> messages) {
+        List<Exception> erreurs = new ArrayList<>(messages.size());
+        Map<Object, Exception> echecs = Map.of();
+        Exception erreurGlobale = null;
+        try {
+            mailSender.send(messages.toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            echecs = e.getFailedMessages();
+            if (echecs.isEmpty()) {
+                erreurGlobale = e;
+            }
+        } catch (Exception e) {
+            erreurGlobale = e;
+        }
+        for (SimpleMailMessage message : messages) {
+            Exception erreur = erreurGlobale != null ? erreurGlobale : echecs.get(message);
+            erreurs.add(erreur);
+            if (erreur == null) {
+                compteurEnvoyes.increment();
+            } else {
+                compteurEchecs.increment();
+            }
+        }
+        return erreurs;
+    }
+
+    /**
+     * Connexion SMTP du pool (utilisée par un seul thread à la fois)
+     */
+    private static final class ConnexionSmtp {
+        private Transport transport;
+        private int messagesEnvoyes;
+        private long derniereUtilisation = System.currentTimeMillis();
+    }
+}
@@ -15,6 +15,9 @@ public class NotificationService {
     @Autowired
     private JavaMailSender mailSender;
     
+    @Autowired
+    private MoteurEnvoiEmail moteurEnvoiEmail;
+    
     @Autowired
     private SMSService smsService;
     
@@ -50,6 +53,15 @@ public class NotificationService {
         envoyerEmailStias(examen);
     }
     
+    /**
+     * Dépose l'email dans la file du moteur SMTP ; envoi direct si la file est pleine
+     */
+    private void envoyerEmail(SimpleMailMessage message) {
+        if (!moteurEnvoiEmail.soumettre(message)) {
+            mailSender.send(message);
+        }
+    }
+    
     private void envoyerEmailExamenProgramme(Examen examen) {
         SimpleMailMessage message = new SimpleMailMessage();
         message.setTo(examen.getCandidat().getAutoEcole().getEmail());
@@ -75,7 +87,7 @@ public class NotificationService {
         );
         
         message.setText(contenu);
-        mailSender.send(message);
+        envoyerEmail(message);
     }
     
     private void envoyerEmailResultatExamen(Examen examen) {
@@ -101,7 +113,7 @@ public class NotificationService {
         );
         
         message.setText(contenu);
-        mailSender.send(message);
+        envoyerEmail(message);
     }
     
     private void envoyerEmailStias(Examen examen) {
@@ -127,7 +139,7 @@ public class NotificationService {
         );
         
         message.setText(contenu);
-        mailSender.send(message);
+        envoyerEmail(message);
     }
     
     private void envoyerSMSExamenProgramme(Examen examen) {
@@ -1,19 +1,23 @@
 package ga.dgtt.permis.service;
 
+import ga.dgtt.permis.dto.ExamenResume;
+import ga.dgtt.permis.dto.VersionEntite;
 import ga.dgtt.permis.model.*;
 import ga.dgtt.permis.repository.ExamenRepository;
 import ga.dgtt.permis.repository.CandidatRepository;
-import ga.dgtt.permis.repository.AuditLogRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
 
 /**
  * Service pour la gestion des permis de conduire
@@ -32,10 +36,13 @@ public class PermisService {
     private CandidatRepository candidatRepository;
     
     @Autowired
-    private AuditLogRepository auditLogRepository;
+    private QRCodeService qrCodeService;
     
     @Autowired
-    private QRCodeService qrCodeService;
+    private GenerateurNumero generateurNumero;
+    
+    @Autowired
+    private EnregistreurAudit enregistreurAudit;
     
     @Autowired
     private NotificationService notificationService;
@@ -46,192 +53,221 @@ public class PermisService {
     @Autowired
     private SignatureNumeriqueService signatureService;
     
+    @Autowired
+    private CacheEntites cacheEntites;
+    
+    @Autowired
+    private MoteurTransitions moteurTransitions;
+    
+    @Value("${app.pagination.taille-max:100}")
+    private int tailleMaxPage;
+    
     /**
      * Reçoit un dossier candidat validé par SAF et programme l'examen
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Examen recevoirDossierSAF(Long candidatId, String utilisateur) {
-        Candidat candidat = candidatRepository.findById(candidatId)
-                .orElseThrow(() -> new RuntimeException("Candidat non trouvé"));
-        
-        // Vérifier que le candidat est dans le bon statut
-        if (candidat.getStatut() != StatutCandidat.DOSSIER_VALIDE) {
-            throw new RuntimeException("Le candidat doit avoir un dossier validé par SAF");
-        }
-        
-        // Vérifier que l'auto-école peut présenter des candidats
-        if (!candidat.getAutoEcole().peutEnrollerCandidats()) {
-            throw new RuntimeException("L'auto-école ne peut pas présenter de candidats");
-        }
-        
-        // Générer le numéro d'examen
-        String numeroExamen = genererNumeroExamen();
-        
-        // Créer l'examen
-        Examen examen = new Examen();
-        examen.setNumeroExamen(numeroExamen);
-        examen.setCandidat(candidat);
-        examen.setAutoEcole(candidat.getAutoEcole());
-        examen.setTypeExamen(TypeExamen.CONDUITE_PRATIQUE);
-        examen.setStatut(StatutExamen.PROGRAMME);
-        
-        // Générer le QR code
-        String qrCode = qrCodeService.genererQRCode("EXAMEN:" + numeroExamen);
-        examen.setQrCode(qrCode);
-        
-        // Sauvegarder
-        Examen examenSauvegarde = examenRepository.save(examen);
-        
-        // Mettre à jour le statut du candidat
-        candidat.setStatut(StatutCandidat.EXAMEN_PROGRAMME);
-        candidatRepository.save(candidat);
-        
-        // Enregistrer l'audit
-        enregistrerAudit(ActionAudit.PROGRAMMATION_EXAMEN, "Examen", examenSauvegarde.getId(), 
-                        utilisateur, "Examen programmé pour le candidat: " + candidat.getNomComplet());
-        
-        // Notifier
-        notificationService.envoyerNotificationExamenProgramme(examenSauvegarde);
-        
-        return examenSauvegarde;
+        return moteurTransitions.executer("reception_dossier_saf", () -> {
+            Candidat candidat = candidatRepository.findById(candidatId)
+                    .orElseThrow(() -> new RuntimeException("Candidat non trouvé"));
+        
+            // Vérifier que le candidat est dans le bon statut
+            if (!candidat.getStatut().peutPasserA(StatutCandidat.EXAMEN_PROGRAMME)) {
+                throw new RuntimeException("Le candidat doit avoir un dossier validé par SAF");
+            }
+        
+            // Vérifier que l'auto-école peut présenter des candidats
+            if (!candidat.getAutoEcole().peutEnrollerCandidats()) {
+                throw new RuntimeException("L'auto-école ne peut pas présenter de candidats");
+            }
+        
+            // Générer le numéro d'examen
+            String numeroExamen = genererNumeroExamen(candidat.getAutoEcole().getProvince());
+        
+            // Créer l'examen
+            Examen examen = new Examen();
+            examen.setNumeroExamen(numeroExamen);
+            examen.setCandidat(candidat);
+            examen.setAutoEcole(candidat.getAutoEcole());
+            examen.setTypeExamen(TypeExamen.CONDUITE_PRATIQUE);
+            examen.setStatut(StatutExamen.PROGRAMME);
+        
+            // Contenu du QR code (l'image est générée à la demande)
+            examen.setQrCode("EXAMEN:" + numeroExamen);
+        
+            // Sauvegarder
+            Examen examenSauvegarde = examenRepository.saveAndFlush(examen);
+        
+            // Mettre à jour le statut du candidat
+            candidat.setStatut(StatutCandidat.EXAMEN_PROGRAMME);
+            candidatRepository.saveAndFlush(candidat);
+        
+            // Enregistrer l'audit
+            enregistrerAudit(ActionAudit.PROGRAMMATION_EXAMEN, "Examen", examenSauvegarde.getId(), 
+                            utilisateur, "Examen programmé pour le candidat: " + candidat.getNomComplet());
+        
+            // Notifier
+            notificationService.envoyerNotificationExamenProgramme(examenSauvegarde);
+        
+            return examenSauvegarde;
+        });
     }
     
     /**
      * Programme un examen avec date et examinateur
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Examen programmerExamen(Long examenId, LocalDateTime dateExamen, String lieuExamen,
                                  String examinateurNom, String examinateurPrenom, String utilisateur) {
-        Examen examen = examenRepository.findById(examenId)
-                .orElseThrow(() -> new RuntimeException("Examen non trouvé"));
+        return moteurTransitions.executer("programmation_examen", () -> {
+            Examen examen = examenRepository.findById(examenId)
+                    .orElseThrow(() -> new RuntimeException("Examen non trouvé"));
         
-        // Vérifier que l'examen peut être programmé
-        if (examen.getStatut() != StatutExamen.PROGRAMME) {
-            throw new RuntimeException("L'examen doit être en statut PROGRAMME");
-        }
+            // Vérifier que l'examen peut être programmé
+            if (examen.getStatut() != StatutExamen.PROGRAMME) {
+                throw new RuntimeException("L'examen doit être en statut PROGRAMME");
+            }
         
-        // Mettre à jour les informations
-        examen.setDateExamen(dateExamen);
-        examen.setLieuExamen(lieuExamen);
-        examen.setExaminateurNom(examinateurNom);
-        examen.setExaminateurPrenom(examinateurPrenom);
+            // Mettre à jour les informations
+            examen.setDateExamen(dateExamen);
+            examen.setLieuExamen(lieuExamen);
+            examen.setExaminateurNom(examinateurNom);
+            examen.setExaminateurPrenom(examinateurPrenom);
         
-        Examen examenMiseAJour = examenRepository.save(examen);
+            Examen examenMiseAJour = examenRepository.saveAndFlush(examen);
+            cacheEntites.invaliderExamen(examenMiseAJour.getId());
         
-        // Enregistrer l'audit
-        enregistrerAudit(ActionAudit.PROGRAMMATION_EXAMEN, "Examen", examen.getId(), 
-                        utilisateur, "Examen programmé pour le " + dateExamen);
+            // Enregistrer l'audit
+            enregistrerAudit(ActionAudit.PROGRAMMATION_EXAMEN, "Examen", examen.getId(), 
+                            utilisateur, "Examen programmé pour le " + dateExamen);
         
-        // Notifier
-        notificationService.envoyerNotificationExamenProgramme(examenMiseAJour);
+            // Notifier
+            notificationService.envoyerNotificationExamenProgramme(examenMiseAJour);
         
-        return examenMiseAJour;
+            return examenMiseAJour;
+        });
     }
     
     /**
      * Démarre un examen
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Examen demarrerExamen(Long examenId, String utilisateur) {
-        Examen examen = examenRepository.findById(examenId)
-                .orElseThrow(() -> new RuntimeException("Examen non trouvé"));
+        return moteurTransitions.executer("debut_examen", () -> {
+            Examen examen = examenRepository.findById(examenId)
+                    .orElseThrow(() -> new RuntimeException("Examen non trouvé"));
         
-        // Vérifier que l'examen peut être démarré
-        if (examen.getStatut() != StatutExamen.PROGRAMME) {
-            throw new RuntimeException("L'examen doit être programmé");
-        }
+            // Vérifier que l'examen peut être démarré
+            if (!examen.getStatut().peutPasserA(StatutExamen.EN_COURS)) {
+                throw new RuntimeException("L'examen doit être programmé");
+            }
         
-        // Mettre à jour le statut
-        examen.setStatut(StatutExamen.EN_COURS);
-        examen.setDateExamen(LocalDateTime.now());
+            // Mettre à jour le statut
+            examen.setStatut(StatutExamen.EN_COURS);
+            examen.setDateExamen(LocalDateTime.now());
         
-        Examen examenMiseAJour = examenRepository.save(examen);
+            Examen examenMiseAJour = examenRepository.saveAndFlush(examen);
+            cacheEntites.invaliderExamen(examenMiseAJour.getId());
         
-        // Enregistrer l'audit
-        enregistrerAudit(ActionAudit.DEBUT_EXAMEN, "Examen", examen.getId(), 
-                        utilisateur, "Examen démarré");
+            // Enregistrer l'audit
+            enregistrerAudit(ActionAudit.DEBUT_EXAMEN, "Examen", examen.getId(), 
+                            utilisateur, "Examen démarré");
         
-        return examenMiseAJour;
+            return examenMiseAJour;
+        });
     }
     
     /**
      * Termine un examen avec les résultats
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Examen terminerExamen(Long examenId, Double note, Integer nombreErreurs, 
                                 Integer tempsRealise, String commentaires, String utilisateur) {
-        Examen examen = examenRepository.findById(examenId)
-                .orElseThrow(() -> new RuntimeException("Examen non trouvé"));
-        
-        // Vérifier que l'examen est en cours
-        if (examen.getStatut() != StatutExamen.EN_COURS) {
-            throw new RuntimeException("L'examen doit être en cours");
-        }
-        
-        // Calculer si l'examen est réussi
-        boolean estReussi = examen.getTypeExamen().isNoteSuffisante(note) && 
-                           examen.getTypeExamen().isNombreErreursAcceptable(nombreErreurs);
-        
-        // Mettre à jour les résultats
-        examen.setNote(note);
-        examen.setNombreErreurs(nombreErreurs);
-        examen.setTempsRealise(tempsRealise);
-        examen.setCommentaires(commentaires);
-        examen.setEstReussi(estReussi);
-        examen.setStatut(StatutExamen.TERMINE);
-        
-        Examen examenMiseAJour = examenRepository.save(examen);
-        
-        // Mettre à jour le statut du candidat
-        Candidat candidat = examen.getCandidat();
-        if (estReussi) {
-            candidat.setStatut(StatutCandidat.EXAMEN_REUSSI);
-        } else {
-            candidat.setStatut(StatutCandidat.REJETE);
-        }
-        candidatRepository.save(candidat);
-        
-        // Enregistrer l'audit
-        enregistrerAudit(ActionAudit.FIN_EXAMEN, "Examen", examen.getId(), 
-                        utilisateur, "Examen terminé - Résultat: " + (estReussi ? "Réussi" : "Échec"));
-        
-        // Notifier
-        notificationService.envoyerNotificationResultatExamen(examenMiseAJour);
-        
-        return examenMiseAJour;
+        return moteurTransitions.executer("fin_examen", () -> {
+            Examen examen = examenRepository.findById(examenId)
+                    .orElseThrow(() -> new RuntimeException("Examen non trouvé"));
+        
+            // Vérifier que l'examen est en cours
+            if (!examen.getStatut().peutPasserA(StatutExamen.TERMINE)) {
+                throw new RuntimeException("L'examen doit être en cours");
+            }
+        
+            // Calculer si l'examen est réussi
+            boolean estReussi = examen.getTypeExamen().isNoteSuffisante(note) && 
+                               examen.getTypeExamen().isNombreErreursAcceptable(nombreErreurs);
+        
+            // Mettre à jour les résultats
+            examen.setNote(note);
+            examen.setNombreErreurs(nombreErreurs);
+            examen.setTempsRealise(tempsRealise);
+            examen.setCommentaires(commentaires);
+            examen.setEstReussi(estReussi);
+            examen.setStatut(StatutExamen.TERMINE);
+        
+            Examen examenMiseAJour = examenRepository.saveAndFlush(examen);
+            cacheEntites.invaliderExamen(examenMiseAJour.getId());
+        
+            // Mettre à jour le statut du candidat
+            Candidat candidat = examen.getCandidat();
+            if (estReussi) {
+                candidat.setStatut(StatutCandidat.EXAMEN_REUSSI);
+            } else {
+                candidat.setStatut(StatutCandidat.REJETE);
+            }
+            candidatRepository.saveAndFlush(candidat);
+        
+            // Enregistrer l'audit
+            enregistrerAudit(ActionAudit.FIN_EXAMEN, "Examen", examen.getId(), 
+                            utilisateur, "Examen terminé - Résultat: " + (estReussi ? "Réussi" : "Échec"));
+        
+            // Notifier
+            notificationService.envoyerNotificationResultatExamen(examenMiseAJour);
+        
+            return examenMiseAJour;
+        });
     }
     
     /**
      * Valide un examen et génère le procès-verbal
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Examen validerExamen(Long examenId, String utilisateur) {
-        Examen examen = examenRepository.findById(examenId)
-                .orElseThrow(() -> new RuntimeException("Examen non trouvé"));
-        
-        // Vérifier que l'examen peut être validé
-        if (!examen.peutEtreValide()) {
-            throw new RuntimeException("L'examen doit être terminé pour être validé");
-        }
-        
-        // Générer le procès-verbal
-        String procesVerbalUrl = procesVerbalService.genererProcesVerbal(examen);
-        examen.setProcesVerbalUrl(procesVerbalUrl);
-        
-        // Signer numériquement
-        String signatureExaminateur = signatureService.signerDocument(examen, "EXAMINATEUR");
-        String signatureCandidat = signatureService.signerDocument(examen, "CANDIDAT");
-        examen.setSignatureExaminateur(signatureExaminateur);
-        examen.setSignatureCandidat(signatureCandidat);
-        
-        // Mettre à jour le statut
-        examen.setStatut(StatutExamen.VALIDE);
-        
-        Examen examenMiseAJour = examenRepository.save(examen);
-        
-        // Enregistrer l'audit
-        enregistrerAudit(ActionAudit.VALIDATION_EXAMEN, "Examen", examen.getId(), 
-                        utilisateur, "Examen validé et procès-verbal généré");
-        
-        // Envoyer à STIAS
-        envoyerAStias(examenMiseAJour, utilisateur);
-        
-        return examenMiseAJour;
+        return moteurTransitions.executer("validation_examen", () -> {
+            Examen examen = examenRepository.findById(examenId)
+                    .orElseThrow(() -> new RuntimeException("Examen non trouvé"));
+        
+            // Vérifier que l'examen peut être validé
+            if (!examen.peutEtreValide()) {
+                throw new RuntimeException("L'examen doit être terminé pour être validé");
+            }
+        
+            // Générer le procès-verbal
+            String procesVerbalUrl = procesVerbalService.genererProcesVerbal(examen);
+            examen.setProcesVerbalUrl(procesVerbalUrl);
+        
+            // Signer numériquement
+            String signatureExaminateur = signatureService.signerDocument(examen, "EXAMINATEUR");
+            String signatureCandidat = signatureService.signerDocument(examen, "CANDIDAT");
+            examen.setSignatureExaminateur(signatureExaminateur);
+            examen.setSignatureCandidat(signatureCandidat);
+        
+            // Mettre à jour le statut
+            examen.setStatut(StatutExamen.VALIDE);
+        
+            Examen examenMiseAJour = examenRepository.saveAndFlush(examen);
+            cacheEntites.invaliderExamen(examenMiseAJour.getId());
+        
+            // Enregistrer l'audit
+            enregistrerAudit(ActionAudit.VALIDATION_EXAMEN, "Examen", examen.getId(), 
+                            utilisateur, "Examen validé et procès-verbal généré");
+        
+            // Envoyer à STIAS (un candidat ajourné n'a pas de permis à générer)
+            if (examenMiseAJour.isReussi()) {
+                envoyerAStias(examenMiseAJour, utilisateur);
+            }
+        
+            return examenMiseAJour;
+        });
     }
     
     /**
@@ -240,8 +276,11 @@ public class PermisService {
     public void envoyerAStias(Examen examen, String utilisateur) {
         // Mettre à jour le statut du candidat
         Candidat candidat = examen.getCandidat();
+        if (!candidat.getStatut().peutPasserA(StatutCandidat.PERMIS_GENERE)) {
+            throw new RuntimeException("Le candidat doit avoir réussi l'examen");
+        }
         candidat.setStatut(StatutCandidat.PERMIS_GENERE);
-        candidatRepository.save(candidat);
+        candidatRepository.saveAndFlush(candidat);
         
         // Enregistrer l'audit
         enregistrerAudit(ActionAudit.ENVOI_STIAS, "Examen", examen.getId(), 
@@ -259,6 +298,57 @@ public class PermisService {
         return examenRepository.findById(id);
     }
     
+    /**
+     * Vue d'un examen par ID, servie depuis le cache
+     *
+     * Hors transaction : un succès de cache n'emprunte pas de connexion.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<ExamenResume> trouverResumeParId(Long id) {
+        return cacheEntites.examen(id, cle -> examenRepository.findDetailById(cle).map(ExamenResume::depuis));
+    }
+    
+    /**
+     * Vue d'un examen à la version lue en base
+     *
+     * Une vue en cache d'une autre version (remise en cache par une lecture
+     * concurrente d'une écriture) est évincée et relue : le corps et l'ETag
+     * renvoyés correspondent à la base.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<ExamenResume> trouverResume(VersionEntite version) {
+        Optional<ExamenResume> examen = trouverResumeParId(version.id());
+        if (examen.isEmpty() || Objects.equals(examen.get().version(), version.version())) {
+            return examen;
+        }
+        cacheEntites.evincerExamen(version.id());
+        return trouverResumeParId(version.id());
+    }
+    
+    /**
+     * Version courante d'un examen, lue en base (jamais depuis le cache)
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<VersionEntite> trouverVersion(Long id) {
+        return examenRepository.findVersionById(id);
+    }
+    
+    /**
+     * Version courante d'un examen par numéro d'examen
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<VersionEntite> trouverVersionParNumeroExamen(String numeroExamen) {
+        return examenRepository.findVersionByNumeroExamen(numeroExamen);
+    }
+    
+    /**
+     * Récupère le contenu du QR code d'un examen (sans charger l'entité)
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> trouverQRCodeExamen(Long id) {
+        return examenRepository.findQrCodeById(id);
+    }
+    
     /**
      * Trouve tous les examens avec pagination
      */
@@ -267,6 +357,24 @@ public class PermisService {
         return examenRepository.findAll(pageable);
     }
     
+    /**
+     * Trouve les examens par curseur, des plus récents aux plus anciens (sans total)
+     */
+    @Transactional(readOnly = true)
+    public PageCurseur<ExamenResume> trouverTousParCurseur(StatutExamen statut, String curseur, int taille) {
+        if (taille < 1) {
+            throw new RuntimeException("La taille de page doit être positive");
+        }
+        PageCurseur.Cle cle = PageCurseur.decoder(curseur);
+        int tailleValide = Math.min(taille, tailleMaxPage);
+        List<Examen> resultats = examenRepository.findApresCurseur(
+                statut,
+                cle != null ? cle.getDateCreation() : null, cle != null ? cle.getId() : null,
+                PageRequest.of(0, tailleValide + 1));
+        return PageCurseur.depuis(resultats, tailleValide, Examen::getDateCreation, Examen::getId)
+                .map(ExamenResume::depuis);
+    }
+    
     /**
      * Trouve les examens par statut
      */
@@ -294,11 +402,8 @@ public class PermisService {
     /**
      * Génère un numéro d'examen unique
      */
-    private String genererNumeroExamen() {
-        String prefixe = "EXAM";
-        String timestamp = String.valueOf(System.currentTimeMillis());
-        String uuid = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        return prefixe + timestamp + uuid;
+    private String genererNumeroExamen(String province) {
+        return generateurNumero.genererNumero("EXAM", province);
     }
     
     /**
@@ -308,7 +413,7 @@ public class PermisService {
                                 String utilisateur, String message) {
         AuditLog auditLog = new AuditLog(entite, entiteId, action, utilisateur, message);
         auditLog.setNiveauSecurite(determinerNiveauSecurite(action));
-        auditLogRepository.save(auditLog);
+        enregistreurAudit.enregistrer(auditLog);
     }
     
     /**
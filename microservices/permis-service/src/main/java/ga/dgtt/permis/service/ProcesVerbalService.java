@@ -1,34 +1,66 @@
 package ga.dgtt.permis.service;
 
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.Paragraph;
+import ga.dgtt.permis.model.DocumentExamen;
 import ga.dgtt.permis.model.Examen;
+import ga.dgtt.permis.model.TypeDocumentExamen;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+
 /**
  * Service pour la génération des procès-verbaux d'examen
  */
 @Service
 public class ProcesVerbalService {
-    
+
+    private static final DateTimeFormatter FORMAT_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    @Autowired
+    private DocumentService documentService;
+
     /**
-     * Génère un procès-verbal d'examen
+     * Génère le PDF du procès-verbal, l'enregistre comme document de l'examen
+     * et retourne l'URL de téléchargement
      */
     public String genererProcesVerbal(Examen examen) {
-        // Note: Génération PDF du procès-verbal avec iText7
-        // Implémentation complète à développer selon les spécifications métier
-        
-        String fileName = "proces_verbal_" + examen.getNumeroExamen() + ".pdf";
-        String filePath = "/app/documents/proces_verbaux/" + fileName;
-        
-        // Simulation de la génération
-        System.out.println("=== GÉNÉRATION PROCÈS-VERBAL ===");
-        System.out.println("Examen: " + examen.getNumeroExamen());
-        System.out.println("Candidat: " + examen.getNomCompletCandidat());
-        System.out.println("Examinateur: " + examen.getNomCompletExaminateur());
-        System.out.println("Note: " + examen.getNote());
-        System.out.println("Résultat: " + (examen.isReussi() ? "Réussi" : "Échec"));
-        System.out.println("Fichier: " + filePath);
-        System.out.println("===============================");
-        
-        return filePath;
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+        try (Document document = new Document(new PdfDocument(new PdfWriter(pdf)))) {
+            document.add(new Paragraph("Procès-verbal d'examen").setBold().setFontSize(16));
+            document.add(new Paragraph("Numéro d'examen : " + examen.getNumeroExamen()));
+            document.add(new Paragraph("Type d'examen : " + examen.getTypeExamen().getLibelle()));
+            document.add(new Paragraph("Date : " + examen.getDateExamen().format(FORMAT_DATE)));
+            document.add(new Paragraph("Lieu : " + examen.getLieuExamen()));
+            document.add(new Paragraph("Candidat : " + examen.getNomCompletCandidat()));
+            document.add(new Paragraph("Examinateur : " + examen.getNomCompletExaminateur() +
+                                       " (" + examen.getExaminateurMatricule() + ")"));
+            document.add(new Paragraph("Note : " + examen.getNote()));
+            if (examen.getNombreErreurs() != null) {
+                document.add(new Paragraph("Nombre d'erreurs : " + examen.getNombreErreurs()));
+            }
+            document.add(new Paragraph("Résultat : " + (examen.isReussi() ? "Réussi" : "Échec")).setBold());
+            if (examen.getCommentaires() != null) {
+                document.add(new Paragraph("Commentaires : " + examen.getCommentaires()));
+            }
+        }
+
+        try {
+            DocumentExamen procesVerbal = documentService.enregistrer(examen, TypeDocumentExamen.PROCES_VERBAL,
+                    new ByteArrayInputStream(pdf.toByteArray()),
+                    "proces_verbal_" + examen.getNumeroExamen() + ".pdf", MediaType.APPLICATION_PDF_VALUE);
+            System.out.println("Procès-verbal généré pour l'examen " + examen.getNumeroExamen() +
+                               " (" + procesVerbal.getHashFichier() + ")");
+            return "/api/permis/examens/documents/" + procesVerbal.getId() + "/contenu";
+        } catch (IOException e) {
+            throw new RuntimeException("Erreur lors de l'enregistrement du procès-verbal: " + e.getMessage());
+        }
     }
 }
@@ -0,0 +1,198 @@
+package ga.dgtt.permis.service;
+
+import ga.dgtt.permis.dto.SelectionChamps;
+import ga.dgtt.permis.model.PageCurseur;
+import ga.dgtt.permis.model.StatutExamen;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Service de lecture sélective des examens (?fields= et ?include=)
+ *
+ * Seules les colonnes des champs demandés figurent dans le SELECT ; les
+ * documents inclus sont chargés en une requête pour toute la page.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ProjectionService {
+
+    public static final String INCLUSION_DOCUMENTS = "documents";
+
+    /**
+     * Champs exposés d'un examen : nom JSON vers colonne SQL
+     */
+    public static final Map<String, String> CHAMPS_EXAMEN = colonnes(
+            "id", "id",
+            "numeroExamen", "numero_examen",
+            "candidatId", "candidat_id",
+            "autoEcoleId", "auto_ecole_id",
+            "typeExamen", "type_examen",
+            "dateExamen", "date_examen",
+            "lieuExamen", "lieu_examen",
+            "examinateurNom", "examinateur_nom",
+            "examinateurPrenom", "examinateur_prenom",
+            "examinateurMatricule", "examinateur_matricule",
+            "note", "note",
+            "nombreErreurs", "nombre_erreurs",
+            "tempsRealise", "temps_realise",
+            "estReussi", "est_reussi",
+            "commentaires", "commentaires",
+            "qrCode", "qr_code",
+            "procesVerbalUrl", "proces_verbal_url",
+            "statut", "statut",
+            "dateCreation", "date_creation",
+            "dateModification", "date_modification");
+
+    public static final Set<String> INCLUSIONS_EXAMEN = Set.of(INCLUSION_DOCUMENTS);
+
+    private static final Map<String, String> CHAMPS_DOCUMENT = colonnes(
+            "id", "id",
+            "typeDocument", "type_document",
+            "nomFichier", "nom_fichier",
+            "urlFichier", "url_fichier",
+            "typeMime", "type_mime",
+            "tailleFichier", "taille_fichier",
+            "estValide", "est_valide",
+            "dateValidation", "date_validation",
+            "dateCreation", "date_creation");
+
+    private static final String CHAMP_PARENT = "examenId";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${app.pagination.taille-max:100}")
+    private int tailleMaxPage;
+
+    /**
+     * Sélection validée contre les champs et inclusions d'un examen
+     */
+    public SelectionChamps selectionExamen(String fields, String include) {
+        return SelectionChamps.depuis(fields, include, CHAMPS_EXAMEN, INCLUSIONS_EXAMEN);
+    }
+
+    /**
+     * Lit un examen restreint aux champs demandés
+     */
+    public Optional<Map<String, Object>> trouverExamen(Long id, SelectionChamps selection) {
+        List<String> champs = selection.champsALire("id");
+        String sql = "SELECT " + colonnesSql(champs, CHAMPS_EXAMEN, "x") + " FROM examens x WHERE x.id = :id";
+        List<Map<String, Object>> lignes = lire(sql, new MapSqlParameterSource("id", id), champs);
+        terminer(lignes, selection);
+        return lignes.stream().findFirst();
+    }
+
+    /**
+     * Lit une page d'examens par curseur, restreints aux champs demandés
+     */
+    public PageCurseur<Map<String, Object>> trouverExamensParCurseur(StatutExamen statut, String curseur, int taille,
+                                                                    SelectionChamps selection) {
+        if (taille < 1) {
+            throw new RuntimeException("La taille de page doit être positive");
+        }
+        PageCurseur.Cle cle = PageCurseur.decoder(curseur);
+        int tailleValide = Math.min(taille, tailleMaxPage);
+        List<String> champs = selection.champsALire("id", "dateCreation");
+        StringBuilder sql = new StringBuilder("SELECT " + colonnesSql(champs, CHAMPS_EXAMEN, "x") +
+                                              " FROM examens x WHERE 1 = 1");
+        MapSqlParameterSource parametres = new MapSqlParameterSource("limite", tailleValide + 1);
+        if (statut != null) {
+            sql.append(" AND x.statut = :statut");
+            parametres.addValue("statut", statut.name());
+        }
+        if (cle != null) {
+            sql.append(" AND (x.date_creation, x.id) < (:dateCurseur, :idCurseur)");
+            parametres.addValue("dateCurseur", Timestamp.valueOf(cle.getDateCreation()))
+                      .addValue("idCurseur", cle.getId());
+        }
+        sql.append(" ORDER BY x.date_creation DESC, x.id DESC LIMIT :limite");
+
+        List<Map<String, Object>> lignes = lire(sql.toString(), parametres, champs);
+        PageCurseur<Map<String, Object>> page = PageCurseur.depuis(lignes, tailleValide,
+                ligne -> (LocalDateTime) ligne.get("dateCreation"), ligne -> (Long) ligne.get("id"));
+        terminer(page.getContenu(), selection);
+        return page;
+    }
+
+    /**
+     * Ajoute les documents si demandés puis retire les champs techniques non demandés
+     */
+    private void terminer(List<Map<String, Object>> examens, SelectionChamps selection) {
+        if (!examens.isEmpty() && selection.inclut(INCLUSION_DOCUMENTS)) {
+            Map<Long, Map<String, Object>> parId = new LinkedHashMap<>();
+            for (Map<String, Object> examen : examens) {
+                examen.put(INCLUSION_DOCUMENTS, new ArrayList<Map<String, Object>>());
+                parId.put((Long) examen.get("id"), examen);
+            }
+            List<String> champs = new ArrayList<>(CHAMPS_DOCUMENT.keySet());
+            champs.add(CHAMP_PARENT);
+            String sql = "SELECT " + colonnesSql(CHAMPS_DOCUMENT.keySet(), CHAMPS_DOCUMENT, "d") + ", d.examen_id" +
+                         " FROM documents_examen d WHERE d.examen_id IN (:ids)" +
+                         " ORDER BY d.date_creation DESC, d.id DESC";
+            for (Map<String, Object> document : lire(sql, new MapSqlParameterSource("ids", parId.keySet()), champs)) {
+                Long examenId = (Long) document.remove(CHAMP_PARENT);
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> documents = (List<Map<String, Object>>) parId.get(examenId).get(INCLUSION_DOCUMENTS);
+                documents.add(document);
+            }
+        }
+        for (Map<String, Object> examen : examens) {
+            examen.keySet().removeIf(champ -> !selection.getChamps().contains(champ)
+                                              && !selection.inclut(champ));
+        }
+    }
+
+    private List<Map<String, Object>> lire(String sql, MapSqlParameterSource parametres, List<String> champs) {
+        return jdbcTemplate.query(sql, parametres, (rs, numero) -> {
+            Map<String, Object> ligne = new LinkedHashMap<>();
+            for (int i = 0; i < champs.size(); i++) {
+                ligne.put(champs.get(i), valeur(rs, i + 1));
+            }
+            return ligne;
+        });
+    }
+
+    private static String colonnesSql(Iterable<String> champs, Map<String, String> colonnes, String alias) {
+        List<String> selection = new ArrayList<>();
+        for (String champ : champs) {
+            selection.add(alias + "." + colonnes.get(champ));
+        }
+        return String.join(", ", selection);
+    }
+
+    private static Object valeur(ResultSet rs, int index) throws SQLException {
+        Object valeur = rs.getObject(index);
+        if (valeur instanceof Timestamp) {
+            return ((Timestamp) valeur).toLocalDateTime();
+        }
+        if (valeur instanceof Date) {
+            return ((Date) valeur).toLocalDate();
+        }
+        return valeur;
+    }
+
+    private static Map<String, String> colonnes(String... paires) {
+        Map<String, String> colonnes = new LinkedHashMap<>();
+        for (int i = 0; i < paires.length; i += 2) {
+            colonnes.put(paires[i], paires[i + 1]);
+        }
+        return Collections.unmodifiableMap(colonnes);
+    }
+}
@@ -0,0 +1,102 @@
+package ga.dgtt.permis.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Cache LRU des images de QR codes, indexé par empreinte du contenu
+ *
+ * Les images sont conservées hors du tas Java (ByteBuffer direct) pour ne pas
+ * peser sur le ramasse-miettes. La taille totale est bornée en octets : les
+ * entrées les moins récemment utilisées sont évincées au-delà de la limite.
+ */
+@Component
+public class QRCodeCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.qrcode.cache.taille-max-octets:16777216}")
+    private long tailleMaxOctets;
+
+    private final LinkedHashMap<String, ByteBuffer> entrees = new LinkedHashMap<>(256, 0.75f, true);
+    private long tailleOctets;
+
+    private Counter compteurSucces;
+    private Counter compteurEchecs;
+
+    @PostConstruct
+    public void initialiser() {
+        compteurSucces = Counter.builder("qrcode.cache").tag("resultat", "succes").register(meterRegistry);
+        compteurEchecs = Counter.builder("qrcode.cache").tag("resultat", "echec").register(meterRegistry);
+        Gauge.builder("qrcode.cache.octets", this, QRCodeCache::getTailleOctets).register(meterRegistry);
+    }
+
+    /**
+     * Retourne l'image associée à l'empreinte, en la générant si elle est absente
+     */
+    public byte[] obtenir(String empreinte, Supplier<byte[]> generateur) {
+        ByteBuffer tampon;
+        synchronized (this) {
+            tampon = entrees.get(empreinte);
+        }
+        if (tampon != null) {
+            compteurSucces.increment();
+            return copier(tampon);
+        }
+
+        // Génération hors verrou : deux requêtes simultanées peuvent générer la même image
+        compteurEchecs.increment();
+        byte[] image = generateur.get();
+        if (image.length <= tailleMaxOctets) {
+            ByteBuffer direct = ByteBuffer.allocateDirect(image.length);
+            direct.put(image).flip();
+            ajouter(empreinte, direct);
+        }
+        return image;
+    }
+
+    /**
+     * Retire toutes les entrées du cache
+     */
+    public synchronized void vider() {
+        entrees.clear();
+        tailleOctets = 0;
+    }
+
+    public synchronized long getTailleOctets() {
+        return tailleOctets;
+    }
+
+    private synchronized void ajouter(String empreinte, ByteBuffer image) {
+        ByteBuffer precedente = entrees.put(empreinte, image);
+        if (precedente != null) {
+            tailleOctets -= precedente.capacity();
+        }
+        tailleOctets += image.capacity();
+
+        Iterator<Map.Entry<String, ByteBuffer>> iterateur = entrees.entrySet().iterator();
+        while (tailleOctets > tailleMaxOctets && iterateur.hasNext()) {
+            Map.Entry<String, ByteBuffer> plusAncienne = iterateur.next();
+            tailleOctets -= plusAncienne.getValue().capacity();
+            iterateur.remove();
+        }
+    }
+
+    private static byte[] copier(ByteBuffer tampon) {
+        byte[] image = new byte[tampon.remaining()];
+        tampon.duplicate().get(image);
+        return image;
+    }
+}
@@ -0,0 +1,300 @@
+package ga.dgtt.permis.service;
+
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Moteur de rendu des QR codes
+ *
+ * La matrice de modules produite par l'encodeur ZXing est écrite directement :
+ * - en PNG indexé 1 bit (palette blanc/noir), un pixel par module multiplié
+ *   par l'échelle demandée ;
+ * - en SVG compact, un seul chemin décrivant les segments noirs de chaque ligne.
+ * Aucune BufferedImage ni BitMatrix à la taille finale n'est créée ; les tampons,
+ * le Deflater et le CRC32 sont réutilisés par thread.
+ *
+ * Le rendu par lot répartit les contenus sur un pool de threads borné
+ * (un thread par cœur par défaut).
+ */
+@Component
+public class QRCodeRenderer {
+
+    /** Zone de silence autour du code, en modules (norme ISO/IEC 18004) */
+    private static final int MARGE = 4;
+
+    private static final byte[] SIGNATURE_PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] IHDR = "IHDR".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PLTE = "PLTE".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IDAT = "IDAT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IEND = "IEND".getBytes(StandardCharsets.US_ASCII);
+    /** Palette : index 0 blanc, index 1 noir */
+    private static final byte[] PALETTE = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0, 0, 0};
+
+    private static final Map<EncodeHintType, Object> HINTS =
+            Map.of(EncodeHintType.CHARACTER_SET, StandardCharsets.UTF_8.name());
+
+    private static final ThreadLocal<Tampons> TAMPONS = ThreadLocal.withInitial(Tampons::new);
+
+    @Value("${app.qrcode.rendu.threads:0}")
+    private int nombreThreads;
+
+    private ExecutorService pool;
+
+    @PostConstruct
+    public void demarrer() {
+        int threads = nombreThreads > 0 ? nombreThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger numero = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(threads, tache -> {
+            Thread thread = new Thread(tache, "qrcode-rendu-" + numero.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        nombreThreads = threads;
+    }
+
+    @PreDestroy
+    public void arreter() {
+        pool.shutdown();
+    }
+
+    /**
+     * Rend un QR code en PNG indexé 1 bit
+     *
+     * @param echelle nombre de pixels par module
+     */
+    public byte[] rendrePng(String contenu, int echelle) {
+        return ecrirePng(encoder(contenu), Math.max(1, echelle), TAMPONS.get());
+    }
+
+    /**
+     * Rend un QR code en SVG (unité = un module)
+     *
+     * @param echelle taille d'affichage d'un module en pixels (attributs width/height)
+     */
+    public String rendreSvg(String contenu, int echelle) {
+        return ecrireSvg(encoder(contenu), Math.max(1, echelle), TAMPONS.get());
+    }
+
+    /**
+     * Rend un lot de QR codes en PNG sur le pool de rendu
+     *
+     * @return les images, dans l'ordre des contenus
+     */
+    public List<byte[]> rendrePngLot(List<String> contenus, int echelle) {
+        return rendreLot(contenus, contenu -> rendrePng(contenu, echelle));
+    }
+
+    /**
+     * Rend un lot de QR codes en SVG sur le pool de rendu
+     */
+    public List<String> rendreSvgLot(List<String> contenus, int echelle) {
+        return rendreLot(contenus, contenu -> rendreSvg(contenu, echelle));
+    }
+
+    /**
+     * Découpe le lot en autant de tranches que de threads ; chaque tranche est
+     * rendue séquentiellement avec les tampons de son thread
+     */
+    private <T> List<T> rendreLot(List<String> contenus, Function<String, T> rendu) {
+        int taille = contenus.size();
+        if (taille == 0) {
+            return List.of();
+        }
+        Object[] resultats = new Object[taille];
+        int tranches = Math.min(nombreThreads, taille);
+        int parTranche = (taille + tranches - 1) / tranches;
+
+        List<Callable<Void>> taches = new ArrayList<>(tranches);
+        for (int debut = 0; debut < taille; debut += parTranche) {
+            int premier = debut;
+            int dernier = Math.min(debut + parTranche, taille);
+            taches.add(() -> {
+                for (int i = premier; i < dernier; i++) {
+                    resultats[i] = rendu.apply(contenus.get(i));
+                }
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : pool.invokeAll(taches)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Rendu des QR codes interrompu", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Erreur lors de la génération du QR code", e.getCause());
+        }
+
+        @SuppressWarnings("unchecked")
+        List<T> liste = (List<T>) Arrays.asList(resultats);
+        return liste;
+    }
+
+    private ByteMatrix encoder(String contenu) {
+        try {
+            return Encoder.encode(contenu, ErrorCorrectionLevel.L, HINTS).getMatrix();
+        } catch (WriterException e) {
+            throw new RuntimeException("Erreur lors de la génération du QR code", e);
+        }
+    }
+
+    private byte[] ecrirePng(ByteMatrix matrice, int echelle, Tampons tampons) {
+        int modules = matrice.getWidth();
+        int cote = (modules + 2 * MARGE) * echelle;
+        int octetsParLigne = 1 + (cote + 7) / 8;
+
+        // Une ligne de pixels par ligne de modules, répétée "echelle" fois
+        byte[] brut = tampons.brut(octetsParLigne * cote);
+        int position = 0;
+        for (int yModule = -MARGE; yModule < modules + MARGE; yModule++) {
+            int debutLigne = position;
+            Arrays.fill(brut, debutLigne, debutLigne + octetsParLigne, (byte) 0);
+            if (yModule >= 0 && yModule < modules) {
+                for (int xModule = 0; xModule < modules; xModule++) {
+                    if (matrice.get(xModule, yModule) == 1) {
+                        int premierPixel = (xModule + MARGE) * echelle;
+                        for (int x = premierPixel; x < premierPixel + echelle; x++) {
+                            brut[debutLigne + 1 + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+                        }
+                    }
+                }
+            }
+            position += octetsParLigne;
+            for (int r = 1; r < echelle; r++) {
+                System.arraycopy(brut, debutLigne, brut, position, octetsParLigne);
+                position += octetsParLigne;
+            }
+        }
+
+        Deflater deflater = tampons.deflater;
+        deflater.reset();
+        deflater.setInput(brut, 0, position);
+        deflater.finish();
+        byte[] compresse = tampons.compresse(position / 4 + 64);
+        int longueur = 0;
+        while (!deflater.finished()) {
+            if (longueur == compresse.length) {
+                compresse = tampons.agrandirCompresse();
+            }
+            longueur += deflater.deflate(compresse, longueur, compresse.length - longueur);
+        }
+
+        byte[] png = new byte[SIGNATURE_PNG.length + (12 + 13) + (12 + PALETTE.length) + (12 + longueur) + 12];
+        System.arraycopy(SIGNATURE_PNG, 0, png, 0, SIGNATURE_PNG.length);
+        int offset = SIGNATURE_PNG.length;
+
+        byte[] entete = tampons.entete;
+        ecrireEntier(entete, 0, cote);
+        ecrireEntier(entete, 4, cote);
+        entete[8] = 1;  // profondeur : 1 bit
+        entete[9] = 3;  // couleurs indexées
+        entete[10] = 0; // compression deflate
+        entete[11] = 0; // filtrage standard
+        entete[12] = 0; // non entrelacé
+        offset = ecrireChunk(png, offset, IHDR, entete, 13, tampons.crc);
+        offset = ecrireChunk(png, offset, PLTE, PALETTE, PALETTE.length, tampons.crc);
+        offset = ecrireChunk(png, offset, IDAT, compresse, longueur, tampons.crc);
+        ecrireChunk(png, offset, IEND, entete, 0, tampons.crc);
+        return png;
+    }
+
+    private String ecrireSvg(ByteMatrix matrice, int echelle, Tampons tampons) {
+        int modules = matrice.getWidth();
+        int cote = modules + 2 * MARGE;
+        StringBuilder svg = tampons.svg;
+        svg.setLength(0);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(cote * echelle)
+           .append("\" height=\"").append(cote * echelle)
+           .append("\" viewBox=\"0 0 ").append(cote).append(' ').append(cote)
+           .append("\" shape-rendering=\"crispEdges\"><rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path d=\"");
+        for (int y = 0; y < modules; y++) {
+            int x = 0;
+            while (x < modules) {
+                if (matrice.get(x, y) != 1) {
+                    x++;
+                    continue;
+                }
+                int debut = x;
+                while (x < modules && matrice.get(x, y) == 1) {
+                    x++;
+                }
+                svg.append('M').append(debut + MARGE).append(',').append(y + MARGE)
+                   .append('h').append(x - debut).append("v1h-").append(x - debut).append('z');
+            }
+        }
+        svg.append("\"/></svg>");
+        return svg.toString();
+    }
+
+    private static int ecrireChunk(byte[] png, int offset, byte[] type, byte[] donnees, int longueur, CRC32 crc) {
+        ecrireEntier(png, offset, longueur);
+        System.arraycopy(type, 0, png, offset + 4, 4);
+        System.arraycopy(donnees, 0, png, offset + 8, longueur);
+        crc.reset();
+        crc.update(png, offset + 4, 4 + longueur);
+        ecrireEntier(png, offset + 8 + longueur, (int) crc.getValue());
+        return offset + 12 + longueur;
+    }
+
+    private static void ecrireEntier(byte[] tampon, int offset, int valeur) {
+        tampon[offset] = (byte) (valeur >>> 24);
+        tampon[offset + 1] = (byte) (valeur >>> 16);
+        tampon[offset + 2] = (byte) (valeur >>> 8);
+        tampon[offset + 3] = (byte) valeur;
+    }
+
+    /**
+     * Tampons réutilisés par un thread de rendu
+     */
+    private static final class Tampons {
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final CRC32 crc = new CRC32();
+        private final byte[] entete = new byte[13];
+        private final StringBuilder svg = new StringBuilder(4096);
+        private byte[] brut = new byte[16384];
+        private byte[] compresse = new byte[4096];
+
+        private byte[] brut(int taille) {
+            if (brut.length < taille) {
+                brut = new byte[taille];
+            }
+            return brut;
+        }
+
+        private byte[] compresse(int taille) {
+            if (compresse.length < taille) {
+                compresse = new byte[taille];
+            }
+            return compresse;
+        }
+
+        private byte[] agrandirCompresse() {
+            compresse = Arrays.copyOf(compresse, compresse.length * 2);
+            return compresse;
+        }
+    }
+}
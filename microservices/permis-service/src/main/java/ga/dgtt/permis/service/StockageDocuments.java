@@ -0,0 +1,168 @@
+package ga.dgtt.permis.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Stockage des fichiers de documents adressé par contenu
+ *
+ * Chaque fichier est rangé sous son empreinte SHA-256 (hashFichier) dans une
+ * arborescence à deux niveaux (ab/cd/abcd...) qui borne la taille des
+ * répertoires. Le contenu est haché pendant son écriture dans un fichier
+ * temporaire, puis déplacé atomiquement : deux dépôts identiques partagent le
+ * même fichier et un fichier visible est toujours complet. Un fichier n'est
+ * jamais modifié après son dépôt ; son empreinte sert donc d'ETag.
+ */
+@Component
+public class StockageDocuments {
+
+    private static final Pattern EMPREINTE = Pattern.compile("[0-9a-f]{64}");
+
+    @Value("${app.file.upload.path:/app/uploads}")
+    private String chemin;
+
+    @Value("${app.file.upload.max-size:10MB}")
+    private DataSize tailleMax;
+
+    private Path racine;
+    private Path temporaires;
+
+    @PostConstruct
+    public void initialiser() {
+        racine = Paths.get(chemin).toAbsolutePath().normalize();
+        // Sur le même système de fichiers que les blobs, pour que le déplacement final soit atomique
+        temporaires = racine.resolve("tmp");
+        try {
+            Files.createDirectories(temporaires);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Répertoire de stockage inaccessible : " + racine, e);
+        }
+    }
+
+    /**
+     * Enregistre un contenu et retourne son empreinte ; un contenu déjà présent n'est pas réécrit
+     */
+    public FichierStocke stocker(InputStream contenu) throws IOException {
+        MessageDigest sha256 = sha256();
+        Path temporaire = Files.createTempFile(temporaires, "depot-", ".tmp");
+        try {
+            long taille = 0;
+            try (FileChannel sortie = FileChannel.open(temporaire, StandardOpenOption.WRITE)) {
+                byte[] tampon = new byte[65536];
+                int lus;
+                while ((lus = contenu.read(tampon)) != -1) {
+                    taille += lus;
+                    if (taille > tailleMax.toBytes()) {
+                        throw new RuntimeException("Le fichier dépasse la taille maximale de " + tailleMax.toMegabytes() + " Mo");
+                    }
+                    sha256.update(tampon, 0, lus);
+                    ByteBuffer tranche = ByteBuffer.wrap(tampon, 0, lus);
+                    while (tranche.hasRemaining()) {
+                        sortie.write(tranche);
+                    }
+                }
+                sortie.force(true);
+            }
+
+            String empreinte = HexFormat.of().formatHex(sha256.digest());
+            Path cible = chemin(empreinte);
+            if (Files.exists(cible)) {
+                return new FichierStocke(empreinte, taille, false);
+            }
+            Files.createDirectories(cible.getParent());
+            try {
+                Files.move(temporaire, cible, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Même contenu déposé en parallèle : le fichier en place est identique
+                return new FichierStocke(empreinte, taille, false);
+            }
+            return new FichierStocke(empreinte, taille, true);
+        } finally {
+            Files.deleteIfExists(temporaire);
+        }
+    }
+
+    /**
+     * Chemin d'un fichier à partir de son empreinte
+     */
+    public Path chemin(String empreinte) {
+        if (empreinte == null || !EMPREINTE.matcher(empreinte).matches()) {
+            throw new RuntimeException("Empreinte de fichier invalide");
+        }
+        return racine.resolve(cheminRelatif(empreinte));
+    }
+
+    /**
+     * Chemin relatif à la racine du stockage, enregistré dans urlFichier
+     */
+    public String cheminRelatif(String empreinte) {
+        return empreinte.substring(0, 2) + "/" + empreinte.substring(2, 4) + "/" + empreinte;
+    }
+
+    /**
+     * Taille d'un fichier stocké
+     */
+    public long taille(String empreinte) throws IOException {
+        try {
+            return Files.size(chemin(empreinte));
+        } catch (NoSuchFileException e) {
+            throw new RuntimeException("Fichier non trouvé");
+        }
+    }
+
+    /**
+     * Copie une plage d'un fichier vers la sortie avec FileChannel.transferTo,
+     * quand le conteneur ne peut pas l'envoyer lui-même (sendfile)
+     */
+    public void transferer(String empreinte, long debut, long longueur, OutputStream sortie) throws IOException {
+        try (FileChannel entree = FileChannel.open(chemin(empreinte), StandardOpenOption.READ)) {
+            WritableByteChannel cible = Channels.newChannel(sortie);
+            long position = debut;
+            long restant = longueur;
+            while (restant > 0) {
+                long transferes = entree.transferTo(position, restant, cible);
+                if (transferes <= 0) {
+                    throw new IOException("Fichier tronqué : " + empreinte);
+                }
+                position += transferes;
+                restant -= transferes;
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Résultat d'un dépôt : nouveau est faux quand le contenu existait déjà
+     */
+    public record FichierStocke(String empreinte, long taille, boolean nouveau) {
+    }
+}